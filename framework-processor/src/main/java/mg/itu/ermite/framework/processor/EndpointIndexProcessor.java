@@ -0,0 +1,264 @@
+package mg.itu.ermite.framework.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Processeur d'annotations qui génère, à la compilation, l'index des endpoints de l'application.
+ *
+ * Le processeur lit les classes @Controller et leurs méthodes @UrlMapping, @GetMapping,
+ * @PostMapping, les paramètres (@RequestParam) et la sécurité (@Authorized, @Role), puis
+ * écrit le fichier META-INF/ermite/endpoints.index dans les classes compilées. Au
+ * démarrage, FrameworkInitializer charge cet index au lieu de scanner le classpath.
+ *
+ * L'index conserve le nom source des paramètres : l'option -parameters du compilateur
+ * n'est plus nécessaire au binding par nom.
+ *
+ * Format : une ligne par endpoint, champs séparés par des tabulations :
+ * <pre>
+ * url    méthode HTTP    classe (nom binaire)    méthode    types effacés (,)    noms (,)    sécurité
+ * /users/{id}    GET    com.app.UserController    getUser    int    id    authorized:ADMIN|USER
+ * </pre>
+ * La colonne sécurité vaut "public", "authorized" ou "authorized:" suivi des rôles ;
+ * elle est informative, la politique appliquée étant compilée depuis les annotations.
+ *
+ * Installation (pom.xml de l'application) :
+ * <pre>
+ * {@code
+ * <dependency>
+ *     <groupId>mg.itu.ermite</groupId>
+ *     <artifactId>framework-processor</artifactId>
+ *     <version>1.0.0</version>
+ *     <scope>provided</scope>
+ * </dependency>
+ * }
+ * </pre>
+ *
+ * Avec une compilation incrémentale, les entrées des contrôleurs non recompilés sont
+ * reprises de l'index précédent tant que leur classe existe encore.
+ *
+ * @author Framework S5
+ * @version 1.0
+ */
+public class EndpointIndexProcessor extends AbstractProcessor {
+
+    /** Emplacement de l'index dans les classes compilées */
+    public static final String INDEX_LOCATION = "META-INF/ermite/endpoints.index";
+
+    private static final String PACKAGE = "mg.itu.ermite.framework.annotation.";
+    private static final String CONTROLLER = PACKAGE + "Controller";
+    private static final String URL_MAPPING = PACKAGE + "UrlMapping";
+    private static final String GET_MAPPING = PACKAGE + "GetMapping";
+    private static final String POST_MAPPING = PACKAGE + "PostMapping";
+    private static final String REQUEST_PARAM = PACKAGE + "RequestParam";
+    private static final String AUTHORIZED = PACKAGE + "security.Authorized";
+    private static final String ROLE = PACKAGE + "security.Role";
+    private static final String PERMISSION = PACKAGE + "security.Permission";
+
+    /** Lignes de l'index par contrôleur (nom binaire), dans l'ordre de découverte */
+    private final Map<String, List<String>> entries = new TreeMap<>();
+    /** Route "METHODE url" -> endpoint qui la déclare, pour détecter les doublons */
+    private final Map<String, String> routes = new LinkedHashMap<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new LinkedHashSet<>(List.of(CONTROLLER, URL_MAPPING, GET_MAPPING, POST_MAPPING,
+                REQUEST_PARAM, AUTHORIZED, ROLE));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        if (round.processingOver()) {
+            if (!entries.isEmpty()) writeIndex();
+            return false;
+        }
+
+        Elements elements = processingEnv.getElementUtils();
+        TypeElement controller = elements.getTypeElement(CONTROLLER);
+        if (controller != null) {
+            for (Element element : round.getElementsAnnotatedWith(controller)) {
+                if (element.getKind() == ElementKind.CLASS) indexController((TypeElement) element);
+            }
+        }
+
+        TypeElement urlMapping = elements.getTypeElement(URL_MAPPING);
+        if (urlMapping != null) {
+            for (Element method : round.getElementsAnnotatedWith(urlMapping)) {
+                if (find(method.getEnclosingElement(), CONTROLLER) == null) {
+                    warn(method, "@UrlMapping hors d'une classe @Controller : endpoint ignore");
+                }
+            }
+        }
+        return false;
+    }
+
+    private void indexController(TypeElement type) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        String className = elements.getBinaryName(type).toString();
+        List<String> lines = entries.computeIfAbsent(className, k -> new ArrayList<>());
+        lines.clear();
+
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.METHOD) continue;
+            ExecutableElement method = (ExecutableElement) member;
+
+            AnnotationMirror mapping = find(method, URL_MAPPING);
+            if (mapping == null) {
+                if (find(method, GET_MAPPING) != null || find(method, POST_MAPPING) != null) {
+                    warn(method, "@GetMapping/@PostMapping sans @UrlMapping : endpoint ignore");
+                }
+                continue;
+            }
+
+            String url = String.valueOf(value(mapping, "url"));
+            String httpMethod = find(method, GET_MAPPING) != null ? "GET"
+                    : find(method, POST_MAPPING) != null ? "POST" : "*";
+
+            String previous = routes.put(httpMethod + " " + url, className + "#" + method.getSimpleName());
+            if (previous != null && !previous.equals(className + "#" + method.getSimpleName())) {
+                warn(method, "Route " + httpMethod + " " + url + " deja declaree par " + previous);
+            }
+
+            List<String> typeNames = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (VariableElement parameter : method.getParameters()) {
+                typeNames.add(types.erasure(parameter.asType()).toString());
+                names.add(parameter.getSimpleName().toString());
+                AnnotationMirror requestParam = find(parameter, REQUEST_PARAM);
+                if (requestParam != null && String.valueOf(value(requestParam, "value")).isBlank()) {
+                    error(parameter, "@RequestParam sans nom de parametre");
+                }
+            }
+
+            lines.add(String.join("\t", url, httpMethod, className, method.getSimpleName().toString(),
+                    String.join(",", typeNames), String.join(",", names), security(method)));
+        }
+    }
+
+    private String security(ExecutableElement method) {
+        boolean authorized = find(method, AUTHORIZED) != null || find(method, PERMISSION) != null;
+        AnnotationMirror role = find(method, ROLE);
+        if (!authorized) {
+            if (role != null) warn(method, "@Role sans @Authorized n'est pas applique");
+            return "public";
+        }
+        if (role == null) return "authorized";
+
+        Object value = value(role, "value");
+        List<String> roles = new ArrayList<>();
+        if (value instanceof List<?> list) {
+            for (Object item : list) roles.add(String.valueOf(((AnnotationValue) item).getValue()));
+        } else {
+            roles.add(String.valueOf(value));
+        }
+        return "authorized:" + String.join("|", roles);
+    }
+
+    private void writeIndex() {
+        Filer filer = processingEnv.getFiler();
+        Set<String> processed = new HashSet<>(entries.keySet());
+        Map<String, List<String>> index = new TreeMap<>(entries);
+
+        // Compilation incrémentale : reprendre les contrôleurs non recompilés qui existent encore
+        try {
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    String[] fields = line.split("\t", -1);
+                    if (fields.length < 7 || processed.contains(fields[2])) continue;
+                    if (processingEnv.getElementUtils().getTypeElement(fields[2].replace('$', '.')) == null) continue;
+                    index.computeIfAbsent(fields[2], k -> new ArrayList<>()).add(line);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // Pas d'index précédent
+        }
+
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = file.openWriter()) {
+                writer.write("# Index des endpoints Framework S5 - genere par EndpointIndexProcessor\n");
+                writer.write("# url\thttp\tclasse\tmethode\ttypes\tparametres\tsecurite\n");
+                int count = 0;
+                for (List<String> lines : index.values()) {
+                    for (String line : lines) {
+                        writer.write(line);
+                        writer.write('\n');
+                        count++;
+                    }
+                }
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "[Framework] " + count + " endpoints indexes dans " + INDEX_LOCATION);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Ecriture de " + INDEX_LOCATION + " impossible: " + e.getMessage());
+        }
+    }
+
+    private static AnnotationMirror find(Element element, String annotation) {
+        if (element == null) return null;
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static Object value(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) return entry.getValue().getValue();
+        }
+        return null;
+    }
+
+    private void warn(Element element, String message) {
+        messager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+
+    private void error(Element element, String message) {
+        messager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private Messager messager() {
+        return processingEnv.getMessager();
+    }
+}
@@ -2,19 +2,10 @@ package mg.itu.ermite.framework;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.MultipartConfig;
@@ -22,9 +13,27 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import mg.itu.ermite.framework.annotation.JsonResponse;
+import mg.itu.ermite.framework.util.AfterResponse;
+import mg.itu.ermite.framework.util.AsyncDispatcher;
+import mg.itu.ermite.framework.util.BatchDispatcher;
+import mg.itu.ermite.framework.util.Deadline;
 import mg.itu.ermite.framework.util.EndPointDetails;
-import mg.itu.ermite.framework.util.ModelView;
-import mg.itu.ermite.framework.util.Reflection;
+import mg.itu.ermite.framework.util.FanOut;
+import mg.itu.ermite.framework.util.RequestContext;
+import mg.itu.ermite.framework.util.RouteRegistry;
+import mg.itu.ermite.framework.util.RouteTable;
+import mg.itu.ermite.framework.util.ResponseRenderer;
+import mg.itu.ermite.framework.util.Router;
+import mg.itu.ermite.framework.util.ServerSentEvents;
+import mg.itu.ermite.framework.util.ServiceContainer;
+import mg.itu.ermite.framework.util.SessionMap;
+import mg.itu.ermite.framework.util.VirtualThreadExecutor;
+import mg.itu.ermite.framework.util.Warmup;
+import mg.itu.ermite.framework.util.security.SecurityDecision;
+import mg.itu.ermite.framework.util.session.SessionStores;
+import mg.itu.ermite.framework.util.traffic.ConcurrencyLimiter;
+import mg.itu.ermite.framework.util.traffic.LoadShedder;
+import mg.itu.ermite.framework.util.traffic.RateLimiter;
 
 /**
  * Servlet principale du framework Spring-like qui gère le routage des requêtes HTTP.
@@ -68,47 +77,205 @@ public class FrontServlet extends HttpServlet{
     }
 
     /**
-     * Recherche l'endpoint approprié parmi une liste d'endpoints pour une méthode HTTP donnée.
+     * Applique les écritures de session différées sur un chemin d'erreur.
+     * Un échec est journalisé sans masquer l'erreur d'origine.
      * 
-     * La recherche suit cet ordre de priorité :
-     * 1. Cherche un endpoint qui correspond exactement à la méthode HTTP spécifiée
-     * 2. Si non trouvé, cherche un endpoint polyvalent (httpMethod = "*")
-     * 3. Lève une exception si aucun endpoint n'est trouvé
+     * @param request la requête courante
+     */
+    private void flushSessionQuietly(HttpServletRequest request)
+    {
+        try {
+            SessionMap.flush(request);
+        } catch (RuntimeException e) {
+            System.out.println("[Session] Ecriture de la session impossible: "+e.getMessage());
+        }
+    }
+
+    /**
+     * Répond à un appel refusé avant l'invocation du contrôleur
+     * (politique de sécurité, limite de débit...).
+     * 
+     * Le code HTTP est transmis tel quel : en JSON pour les méthodes
+     * @JsonResponse, sinon via la page d'erreur du conteneur.
      * 
-     * @param endPointDetails Liste des endpoints disponibles pour l'URL
-     * @param httpMethod Méthode HTTP de la requête (GET, POST, etc.)
-     * @param url URL complète de la requête
-     * @return L'endpoint correspondant
-     * @throws Exception si aucun endpoint n'est trouvé
+     * @param response la réponse HTTP
+     * @param endPoint l'endpoint refusé
+     * @param status le code HTTP (401, 403, 429...)
+     * @param message le message présenté au client
+     * @throws IOException en cas d'erreur d'écriture
      */
-    private EndPointDetails findEndPoint(List<EndPointDetails> endPointDetails,String httpMethod,String url) throws Exception
+    private void writeRejected(HttpServletResponse response, EndPointDetails endPoint, int status, String message) throws IOException
     {
-        EndPointDetails matchedEndPoint = null;
-        for (EndPointDetails endPoint : endPointDetails) {
-            if(endPoint.getHttpMethod().equals(httpMethod) )
-            {
-                matchedEndPoint = endPoint;
-                break;
-            }
+        if (endPoint.getMethod().isAnnotationPresent(JsonResponse.class)) {
+            response.setStatus(status);
+            ResponseRenderer.writeJsonError(response, status, message);
+        } else {
+            response.sendError(status, message);
+        }
+    }
+
+    /**
+     * Écrit la page HTML de repli affichée lorsqu'une requête ne peut être traitée.
+     * 
+     * @param response la réponse HTTP
+     * @param url l'URL demandée
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    private void writeFallback(HttpServletResponse response, String url) throws IOException
+    {
+        response.setContentType("text/html");
+        
+        PrintWriter out = response.getWriter();
+        out.println("<!DOCTYPE html>");
+        out.println("<html>");
+        out.println("<head><title>Fallback</title></head>");
+        out.println("<body>");
+        out.println("<p>Vous avez tapé : <strong>" + url + "</strong> </p>");
+        out.println("</body>");
+        out.println("</html>");
+    }
+
+    /**
+     * Exécute un endpoint admis : limite de concurrence, invocation, rendu de la réponse.
+     * 
+     * S'exécute sur le thread du conteneur, ou sur un thread virtuel (async non null)
+     * pour les endpoints @VirtualThread.
+     * 
+     * @param context le contexte de la requête
+     * @param async le contexte asynchrone en mode thread virtuel, null sinon
+     * @return true si la réponse est terminée, false si un dispatch asynchrone
+     *         (vue ou CompletionStage) la terminera
+     * @throws Exception en cas d'erreur d'invocation hors réponse JSON
+     */
+    private boolean execute(RequestContext context, AsyncContext async) throws Exception
+    {
+        HttpServletRequest request = context.getRequest();
+        HttpServletResponse response = context.getResponse();
+        EndPointDetails endPoint = context.getEndPoint();
+        LoadShedder shedder = context.getShedder();
+
+        // Attente mesurée avant le bulkhead : sa file est propre à l'endpoint, pas au noeud
+        long admitted = System.nanoTime();
+        ConcurrencyLimiter bulkhead = endPoint.getConcurrencyLimiter();
+        if (bulkhead != null && !bulkhead.acquire()) {
+            response.setHeader("Retry-After", "1");
+            writeRejected(response, endPoint, 503, "Service surcharge, reessayez plus tard");
+            return true;
         }
-        if(matchedEndPoint == null)
-        {
-            for (EndPointDetails endPoint : endPointDetails) {
-                if(endPoint.getHttpMethod().equals("*") )
-                {
-                    matchedEndPoint = endPoint;
-                    break;
+        long started = System.nanoTime();
+        Runnable release = () -> {
+            if (bulkhead != null) bulkhead.release(System.nanoTime() - started);
+            if (shedder != null) shedder.complete(endPoint.getProcessingBaseline(), admitted - context.getArrivalNanos(),
+                    System.nanoTime() - started, context.isArrivalObserved());
+        };
+        boolean dispatched = false;
+
+        try {
+            // Échéance consommée dans la file du bulkhead : rien n'est invoqué
+            if (context.getDeadline().isExpired()) {
+                if (!VirtualThreadExecutor.claimResponse(request)) return true;
+                writeExpired(response, endPoint, shedder);
+                return true;
+            }
+
+            if (endPoint.getMethod().isAnnotationPresent(JsonResponse.class)) {
+                response.setContentType("application/json;charset=UTF-8");
+            
+                try {
+                    Object endpointResponse = invoke(context);
+                    if (AsyncDispatcher.isAsync(endpointResponse)) {
+                        // Le thread du conteneur est rendu : permis libérés à la complétion
+                        dispatched = AsyncDispatcher.dispatch(request, response, endPoint, endpointResponse, release);
+                        return !dispatched;
+                    }
+                    SessionMap.flush(request);
+                    // Délai du thread virtuel dépassé : la réponse 504 est déjà partie
+                    if (!VirtualThreadExecutor.claimResponse(request)) return true;
+                    // Résultat arrivé trop tard : le client n'attend plus, inutile de le sérialiser
+                    if (context.getDeadline().isExpired()) writeExpired(response, endPoint, shedder);
+                    else if (ServerSentEvents.isStream(endpointResponse)) return ServerSentEvents.open(request, response, endpointResponse, async);
+                    else ResponseRenderer.writeJson(response, endpointResponse);
+                
+                } catch (Exception e) {
+                    flushSessionQuietly(request);
+                    if (!VirtualThreadExecutor.claimResponse(request)) return true;
+                    if (context.getDeadline().isExpired()) {
+                        writeExpired(response, endPoint, shedder);
+                    } else {
+                        e.printStackTrace();
+                        ResponseRenderer.writeJsonError(response, 500, e.getMessage());
+                    }
+                }
+                return true;
+            }
+            else{
+                Object endpointResponse;
+                try {
+                    endpointResponse = invoke(context);
+                } catch (Exception e) {
+                    if (!context.getDeadline().isExpired()) throw e;
+                    flushSessionQuietly(request);
+                    if (!VirtualThreadExecutor.claimResponse(request)) return true;
+                    writeExpired(response, endPoint, shedder);
+                    return true;
+                }
+                if (AsyncDispatcher.isAsync(endpointResponse)) {
+                    dispatched = AsyncDispatcher.dispatch(request, response, endPoint, endpointResponse, release);
+                    return !dispatched;
                 }
+                SessionMap.flush(request);
+                if (!VirtualThreadExecutor.claimResponse(request)) return true;
+                if (context.getDeadline().isExpired()) {
+                    writeExpired(response, endPoint, shedder);
+                    return true;
+                }
+                if (ServerSentEvents.isStream(endpointResponse)) {
+                    // Flux d'événements : les permis sont libérés dès l'ouverture
+                    return ServerSentEvents.open(request, response, endpointResponse, async);
+                }
+                return ResponseRenderer.render(request, response, endpointResponse, async);
             }
+        } finally {
+            if (!dispatched) release.run();
         }
+    }
 
-        if(matchedEndPoint == null)
-        {
-            throw new Exception("Aucun endpoint n'est defini pour la requete '"+httpMethod+" "+url+"'");
+    /**
+     * Invoque le contrôleur ; son thread est interrompu si l'échéance de la requête
+     * est dépassée pendant l'invocation.
+     * 
+     * @param context le contexte de la requête
+     * @return le résultat du contrôleur
+     */
+    private Object invoke(RequestContext context)
+    {
+        Deadline deadline = context.getDeadline();
+        deadline.enter();
+        try {
+            return context.getEndPoint().invokeMethod(context.getRequest(), context.getResponse(), context.getUrlParams());
+        } finally {
+            deadline.leave();
         }
+    }
 
-
-        return matchedEndPoint;
+    /**
+     * Répond à une requête dont l'échéance est dépassée : 504, ou 503 si le noeud
+     * est en surcharge (le client doit alors réessayer plus tard, pas ailleurs plus vite).
+     * 
+     * @param response la réponse HTTP
+     * @param endPoint l'endpoint de la requête
+     * @param shedder le délesteur actif, ou null
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    private void writeExpired(HttpServletResponse response, EndPointDetails endPoint, LoadShedder shedder) throws IOException
+    {
+        if (response.isCommitted()) return;
+        if (shedder != null && shedder.isOverloaded()) {
+            response.setHeader("Retry-After", "1");
+            writeRejected(response, endPoint, 503, "Serveur surcharge, delai de la requete depasse");
+        } else {
+            writeRejected(response, endPoint, 504, "Delai de la requete depasse");
+        }
     }
 
     /**
@@ -116,15 +283,27 @@ public class FrontServlet extends HttpServlet{
      * 
      * Processus de traitement :
      * 1. Vérifie si la ressource est statique (fichier réel)
-     * 2. Si oui, la sert via le dispatcher par défaut
-     * 3. Si non, cherche l'endpoint correspondant à l'URL
+     * 2. Si oui, la sert via le dispatcher par défaut ; un GET sur "readinessUrl" reçoit
+     *    l'état du préchauffage (Warmup) : 200 une fois terminé, 503 avant
+     * 3. Si non, cherche l'endpoint correspondant à l'URL (Router) dans la table de routage
+     *    courante (RouteRegistry) ; un POST sur "batchUrl" est confié au BatchDispatcher,
+     *    qui exécute chaque sous-requête par le même chemin
      * 4. Extrait les paramètres de l'URL (path variables)
-     * 5. Invoque la méthode du contrôleur
-     * 6. Formate la réponse :
+     * 5. Applique le délestage global (503), la limite de débit (429), la politique de sécurité (401/403)
+     *    puis la limite de concurrence de l'endpoint (503) ; un endpoint @VirtualThread est
+     *    traité à partir d'ici sur un thread virtuel (VirtualThreadExecutor) ; une requête dont
+     *    l'échéance (Deadline : @Timeout, "requestTimeout", budget de l'appelant) est dépassée
+     *    reçoit une réponse 504 (503 en surcharge) sans que son résultat soit sérialisé
+     * 6. Invoque la méthode du contrôleur puis applique les écritures de session ;
+     *    un CompletionStage ou un Future est traité de façon asynchrone (AsyncDispatcher) :
+     *    le thread du conteneur est rendu et la réponse est écrite à la complétion
+     * 7. Formate la réponse :
+     *    - flux Server-Sent Events si la méthode retourne SseEmitter ou Flow.Publisher
      *    - JSON si @JsonResponse est présent
      *    - ModelView avec JSP si la méthode retourne ModelView
      *    - Texte brut si la méthode retourne String
-     * 7. En cas d'erreur, affiche une page HTML avec le message d'erreur
+     * 8. En cas d'erreur, affiche une page HTML avec le message d'erreur
+     * 9. Une fois la réponse envoyée, lance les tâches différées (AfterResponse)
      * 
      * @param request La requête HTTP
      * @param response L'objet de réponse HTTP
@@ -145,135 +324,97 @@ public class FrontServlet extends HttpServlet{
         String httpMethod = request.getMethod();
 
         String url = request.getRequestURI().substring(request.getContextPath().length());
-        
-        try {
-            Map<String,List<EndPointDetails>> endpoints= (Map<String,List<EndPointDetails>>) request.getServletContext().getAttribute("endpoints");
 
-            Map<String, String> urlParams = new HashMap<>();
+        // Sonde de disponibilité : jamais délestée, 503 tant que le préchauffage n'est pas terminé
+        Warmup warmup = Warmup.get();
+        if (warmup != null && warmup.matches(httpMethod, url)) {
+            warmup.writeReadiness(response);
+            return;
+        }
 
-            List<EndPointDetails> endPointList = endpoints.get(url);
+        // Admission : mesurer au plus tôt le temps passé dans les files en amont
+        LoadShedder shedder = LoadShedder.get();
+        long arrival = System.nanoTime();
+        boolean arrivalObserved = shedder != null && shedder.observeArrival(request);
+        
+        try {
+            // Table lue une seule fois : la requête termine sur celle-ci même si une autre est publiée
+            RouteTable routes = RouteRegistry.get().table();
 
-            if(endPointList == null)
-            {
-                // Andramana jerena ihany hoe sao misy possibilite ahitana uri misy /{valeur} mety hifanaraka amle url tape
-                for (Map.Entry<String, List<EndPointDetails>> e : endpoints.entrySet()) {
-                    String key = e.getKey();
+            BatchDispatcher batch = BatchDispatcher.get();
+            if (batch != null && batch.matches(httpMethod, url)) {
+                // Chaque sous-requête alimente le délesteur avec son propre endpoint
+                batch.handle(request, response, routes);
+                return;
+            }
 
-                    // Construire un regex à partir de la clé en remplaçant {param} par ([^/]+)
-                    String patternStr = key.replaceAll("\\{[^/]+\\}", "([^/]+)");
-                    patternStr = "^" + patternStr + "$";
+            Router.Match match = Router.resolve(routes, httpMethod, url);
+            EndPointDetails endPoint = match.getEndPoint();
+            Map<String, String> urlParams = match.getUrlParams();
 
-                    if (url.matches(patternStr)) {
-                        endPointList = e.getValue();
+            if (shedder != null && !shedder.admit(endPoint.getLoadPriority())) {
+                response.setHeader("Retry-After", "1");
+                writeRejected(response, endPoint, 503, "Serveur surcharge, reessayez plus tard");
+                return;
+            }
 
-                        List<String> paramNames = new ArrayList<>();
-                        Pattern paramNamePattern = java.util.regex.Pattern.compile("\\{([^/]+)\\}");
-                        Matcher paramNameMatcher = paramNamePattern.matcher(key);
-                        
-                        while (paramNameMatcher.find()) {
-                            paramNames.add(paramNameMatcher.group(1));
-                        }
-                        Pattern valuePattern = java.util.regex.Pattern.compile(patternStr);
-                        Matcher valueMatcher = valuePattern.matcher(url);
-                        
-                        if (valueMatcher.matches()) {
-                            for (int i = 0; i < paramNames.size(); i++) {
-                                // group(0) c'est toute la chaîne, donc on commence à 1
-                                String paramValue = valueMatcher.group(i + 1);
-                                urlParams.put(paramNames.get(i), paramValue);
-                            }
-                        }
-                        break;
-                    }
-                }
-                // Sinon raha tena tsy misy fika dia on leve une exception
-                if(endPointList == null)
-                {
-                    throw new Exception("Aucun endpoint enregistre pour l'URL :"+url);
+            RateLimiter rateLimiter = endPoint.getRateLimiter();
+            if (rateLimiter != null) {
+                long wait = rateLimiter.acquire(request);
+                if (wait > 0) {
+                    response.setHeader("Retry-After", String.valueOf(RateLimiter.retryAfterSeconds(wait)));
+                    writeRejected(response, endPoint, 429, "Trop de requetes, reessayez plus tard");
+                    return;
                 }
             }
 
-            EndPointDetails endPoint = findEndPoint((List<EndPointDetails>) endPointList, httpMethod, url);
+            SecurityDecision decision = endPoint.authorize(request);
+            if (!decision.isAllowed()) {
+                writeRejected(response, endPoint, decision.getStatus(), decision.getMessage());
+                return;
+            }
+            // Session cookie seulement lue : réémise à mi-vie (un contrôleur qui la modifie la réécrit ensuite)
+            SessionStores.refresh(request, response);
             
-            if (endPoint.getMethod().isAnnotationPresent(JsonResponse.class)) {
-                response.setContentType("application/json;charset=UTF-8");
-                
-                PrintWriter out = response.getWriter();
-                ObjectMapper mapper = new ObjectMapper();
-                
-                try {
-                    Object endpointResponse = endPoint.invokeMethod(request, urlParams);
-                    
-                    Map<String, Object> jsonResponse = new LinkedHashMap<>();
-                    jsonResponse.put("status", "success");
-                    jsonResponse.put("code", 200);
-                    jsonResponse.put("data", endpointResponse);
-                    
-                    if (endpointResponse != null) {
-                        if (Reflection.isCollectionType(endpointResponse.getClass())) {
-                            jsonResponse.put("count", ((Collection<?>) endpointResponse).size());
-                        } else if (endpointResponse.getClass().isArray()) {
-                            jsonResponse.put("count", Array.getLength(endpointResponse));
-                        }
-                    }
-                    
-                    mapper.writeValue(out, jsonResponse);
-                    
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    
-                    Map<String, Object> errorResponse = new LinkedHashMap<>();
-                    errorResponse.put("status", "error");
-                    errorResponse.put("code", 500);
-                    errorResponse.put("message", e.getMessage());
-                    errorResponse.put("data", null);
-                    
-                    try {
-                        mapper.writeValue(out, errorResponse);
-                    } catch (JsonProcessingException jpe) {
-                        // Fallback en cas d'erreur de sérialisation
-                        out.print("{\"status\":\"error\",\"code\":500,\"message\":\"Internal server error\"}");
-                    }
-                }
-                
-                out.close();
+            Deadline deadline = Deadline.of(request, endPoint, arrival);
+            if (deadline.isExpired()) {
+                // Budget de l'appelant déjà épuisé : le client n'attend plus la réponse
+                writeExpired(response, endPoint, shedder);
+                return;
             }
-            else{
-                Object endpointResponse = endPoint.invokeMethod(request,urlParams);
 
-                if(endpointResponse.getClass().equals(String.class))
-                {
-                    PrintWriter out = response.getWriter();
-                    out.println(endpointResponse);
-                    out.close();
-                }    
-                else if(endpointResponse.getClass().equals(ModelView.class))
-                {
-                    ModelView modelView = (ModelView) endpointResponse;
-    
-                    //ajout des attributs
-                    for (Map.Entry<String,Object> attribute : modelView.getAttributes().entrySet()) {
-                        request.setAttribute(attribute.getKey(), attribute.getValue());
+            RequestContext context = new RequestContext(request, response, endPoint, urlParams, shedder, arrival,
+                    arrivalObserved, deadline);
+            request.setAttribute(RequestContext.ATTRIBUTE, context);
+
+            if (endPoint.isVirtualThread()) {
+                // Binding, invocation et rendu sur un thread virtuel : le thread du conteneur est rendu
+                boolean submitted = VirtualThreadExecutor.get().submit(request, response, async -> {
+                    try {
+                        return execute(context, async);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        flushSessionQuietly(request);
+                        writeFallback(response, url);
+                        return true;
                     }
-    
-                    request.getRequestDispatcher(modelView.getView()).forward(request, response);
-                }
+                });
+                if (submitted) return;
             }
-            
+            execute(context, null);
 
         } catch (Exception e) {
             e.printStackTrace();
+            flushSessionQuietly(request);
             System.out.println("Erreur lors de la resolution de l'URL:"+e.getMessage());
-            response.setContentType("text/html");
-            
-            PrintWriter out = response.getWriter();
-            out.println("<!DOCTYPE html>");
-            out.println("<html>");
-            out.println("<head><title>Fallback</title></head>");
-            out.println("<body>");
-            out.println("<p>Vous avez tapé : <strong>" + url + "</strong> </p>");
-            out.println("</body>");
-            out.println("</html>");
+            writeFallback(response, url);
+        } finally {
+            // Sous-tâches parallèles jamais attendues : inutile de les laisser tourner
+            FanOut.release(request);
+            // Tâches différées : après l'envoi de la réponse (ou la complétion du mode asynchrone)
+            AfterResponse.complete(request, response);
+            // Services de portée REQUEST fermés une fois la requête terminée
+            ServiceContainer.release(request);
         }
         
         
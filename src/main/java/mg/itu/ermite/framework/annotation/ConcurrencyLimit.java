@@ -0,0 +1,67 @@
+package mg.itu.ermite.framework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation qui isole un endpoint derrière une limite de concurrence (bulkhead).
+ *
+ * Chaque méthode de contrôleur limitée dispose de son propre nombre de permis :
+ * un endpoint lent ne peut occuper qu'une partie des threads du conteneur. La
+ * limite s'adapte à la latence observée (AIMD) entre min et max. Les requêtes
+ * sans permis attendent dans une file bornée au plus maxWaitMillis ; au-delà
+ * elles reçoivent une réponse 503.
+ *
+ * Placée sur un @Controller, l'annotation s'applique à chacune de ses méthodes
+ * (une limite distincte par méthode) ; une annotation sur la méthode est prioritaire.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @UrlMapping(url = "/reports/export")
+ * @GetMapping
+ * @ConcurrencyLimit(max = 4, queue = 8, maxWaitMillis = 500)
+ * public ModelView export() {
+ *     // Au plus 4 exports simultanés
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see mg.itu.ermite.framework.util.traffic.ConcurrencyLimiter
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface ConcurrencyLimit {
+
+    /**
+     * @return la limite maximale d'appels simultanés
+     */
+    int max() default 64;
+
+    /**
+     * @return la limite minimale d'appels simultanés
+     */
+    int min() default 1;
+
+    /**
+     * @return la limite de départ (0 : la moitié de max)
+     */
+    int initial() default 0;
+
+    /**
+     * @return le nombre maximal de requêtes en attente d'un permis
+     */
+    int queue() default 32;
+
+    /**
+     * @return l'attente maximale d'un permis en millisecondes
+     */
+    long maxWaitMillis() default 100;
+
+    /**
+     * @return false pour une limite fixe (égale à max)
+     */
+    boolean adaptive() default true;
+}
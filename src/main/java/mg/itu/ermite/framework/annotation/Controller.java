@@ -12,8 +12,10 @@ import java.lang.annotation.Target;
  * de l'application pour découvrir ses méthodes annotées avec @UrlMapping,
  * qui définissent les endpoints de l'application.
  * 
- * Les classes contrôleurs doivent posséder un constructeur par défaut (sans paramètres)
- * car le framework les instancie via réflexion pour invoque les méthodes.
+ * Les contrôleurs sont construits par le conteneur de services : leur constructeur
+ * reçoit les @Service dont ils dépendent (un constructeur sans paramètres convient
+ * aussi). Un contrôleur est instancié pour chaque requête, sauf s'il est annoté
+ * {@code @Service(scope = Service.Scope.SINGLETON)}.
  * 
  * Exemple d'utilisation :
  * <pre>
@@ -32,6 +34,7 @@ import java.lang.annotation.Target;
  * @see UrlMapping
  * @see GetMapping
  * @see PostMapping
+ * @see Service
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
@@ -0,0 +1,35 @@
+package mg.itu.ermite.framework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation qui désigne le constructeur utilisé par le conteneur de services.
+ *
+ * Elle n'est requise que si la classe déclare plusieurs constructeurs ; sinon son
+ * unique constructeur est utilisé. Chaque paramètre est résolu par son type : un
+ * @Service, l'unique @Service qui implémente une interface, ou ConfigManager.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @Service
+ * public class MailClient {
+ *     public MailClient(String host, int port) { ... }
+ *
+ *     @Inject
+ *     public MailClient(ConfigManager config) {
+ *         this(config.get("smtpHost"), config.getInt("smtpPort", 25));
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see Service
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.CONSTRUCTOR)
+public @interface Inject {
+}
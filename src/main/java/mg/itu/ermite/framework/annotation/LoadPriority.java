@@ -0,0 +1,55 @@
+package mg.itu.ermite.framework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation qui fixe la classe de priorité d'un endpoint face au délestage de charge.
+ *
+ * Lorsque le noeud est en surcharge (voir LoadShedder), les endpoints LOW sont
+ * délestés en premier, les endpoints NORMAL selon la loi de contrôle CoDel, les
+ * endpoints HIGH seulement en surcharge sévère, et les endpoints CRITICAL jamais
+ * (health checks, paiements...). Sans annotation, un endpoint est NORMAL.
+ *
+ * Placée sur un @Controller, l'annotation s'applique à toutes ses méthodes ;
+ * une annotation sur la méthode est prioritaire.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @UrlMapping(url = "/health")
+ * @GetMapping
+ * @LoadPriority(LoadPriority.Level.CRITICAL)
+ * public String health() {
+ *     return "OK";
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see mg.itu.ermite.framework.util.traffic.LoadShedder
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface LoadPriority {
+
+    /**
+     * Classes de priorité, de la plus délestable à la plus protégée.
+     */
+    enum Level {
+        /** Délesté dès que le noeud est en surcharge */
+        LOW,
+        /** Délesté selon la loi de contrôle CoDel */
+        NORMAL,
+        /** Délesté seulement en surcharge sévère */
+        HIGH,
+        /** Jamais délesté */
+        CRITICAL
+    }
+
+    /**
+     * @return la classe de priorité de l'endpoint
+     */
+    Level value();
+}
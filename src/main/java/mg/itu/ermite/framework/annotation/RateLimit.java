@@ -0,0 +1,67 @@
+package mg.itu.ermite.framework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation qui limite le débit d'appel d'une méthode de contrôleur (seau à jetons).
+ *
+ * Chaque clé (utilisateur, adresse IP ou endpoint entier) dispose de "requests"
+ * appels par période de "seconds" secondes, avec une rafale d'au plus "burst" appels.
+ * Un appel au-delà de la limite reçoit une réponse 429 avec l'en-tête Retry-After,
+ * avant tout binding de paramètres ou appel du contrôleur.
+ *
+ * Sans annotation, la limite globale "rateLimit" du web.xml s'applique, si elle est définie.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @UrlMapping(url = "/api/search")
+ * @PostMapping
+ * @RateLimit(requests = 20, seconds = 60, key = RateLimit.Key.USER)
+ * public ModelView search(SearchForm form) {
+ *     // Au plus 20 recherches par minute et par utilisateur
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see mg.itu.ermite.framework.util.traffic.RateLimiter
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RateLimit {
+
+    /**
+     * Portée d'un seau de jetons.
+     */
+    enum Key {
+        /** Un seau par utilisateur connecté (clé "userSessionId"), par IP pour un anonyme */
+        USER,
+        /** Un seau par adresse IP cliente */
+        IP,
+        /** Un seau unique partagé par tous les clients de l'endpoint */
+        ENDPOINT
+    }
+
+    /**
+     * @return le nombre d'appels autorisés par période
+     */
+    int requests();
+
+    /**
+     * @return la durée de la période en secondes
+     */
+    long seconds() default 1;
+
+    /**
+     * @return la rafale maximale (0 : égale à requests)
+     */
+    int burst() default 0;
+
+    /**
+     * @return la portée des seaux
+     */
+    Key key() default Key.IP;
+}
@@ -0,0 +1,64 @@
+package mg.itu.ermite.framework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation qui marque une classe comme un composant géré par le conteneur de services.
+ *
+ * Un service est construit par le framework, ses dépendances étant passées à son
+ * constructeur (voir {@link Inject}), puis injecté dans les constructeurs des
+ * contrôleurs et des autres services. Le graphe des dépendances est résolu au
+ * démarrage : une dépendance manquante, ambiguë ou circulaire empêche le déploiement.
+ *
+ * Portées :
+ * - SINGLETON (défaut) : une instance pour l'application (pool de connexions, client, cache)
+ * - REQUEST : une instance par requête HTTP, partagée par les composants de la requête
+ *
+ * Placée sur un @Controller, l'annotation fixe sa portée ; un contrôleur sans
+ * annotation est de portée REQUEST (une instance par requête, comme auparavant).
+ * Un singleton ne peut pas dépendre d'un service de portée REQUEST.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @Service
+ * public class OrderRepository {
+ *     public OrderRepository(ConnectionPool pool) { ... }
+ * }
+ *
+ * @Controller
+ * public class OrderController {
+ *     private final OrderRepository orders;
+ *
+ *     public OrderController(OrderRepository orders) {
+ *         this.orders = orders;
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see Inject
+ * @see mg.itu.ermite.framework.util.ServiceContainer
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Service {
+
+    /**
+     * @return la portée des instances du composant
+     */
+    Scope scope() default Scope.SINGLETON;
+
+    /**
+     * Durée de vie des instances d'un composant.
+     */
+    enum Scope {
+        /** Une instance pour l'application, créée au démarrage */
+        SINGLETON,
+        /** Une instance par requête HTTP, créée à la première utilisation */
+        REQUEST
+    }
+}
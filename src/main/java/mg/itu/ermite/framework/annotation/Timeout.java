@@ -0,0 +1,42 @@
+package mg.itu.ermite.framework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation qui fixe la durée maximale de traitement d'un endpoint.
+ *
+ * Le délai court depuis l'arrivée de la requête ; il remplace le délai global
+ * "requestTimeout" et reste borné par le budget annoncé par le client (en-tête
+ * "deadlineHeader", si configuré). Une fois le délai dépassé, le thread du contrôleur
+ * est interrompu, le résultat n'est pas sérialisé et la requête reçoit une réponse 504.
+ *
+ * Placée sur un @Controller, l'annotation s'applique à toutes ses méthodes ; une
+ * annotation sur la méthode est prioritaire. {@code @Timeout(0)} supprime le délai
+ * global pour l'endpoint.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @UrlMapping(url = "/search")
+ * @GetMapping
+ * @Timeout(800)
+ * public List&lt;Result&gt; search(String q, Deadline deadline) {
+ *     // Au plus 800 ms
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see mg.itu.ermite.framework.util.Deadline
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Timeout {
+
+    /**
+     * @return la durée maximale de traitement en millisecondes (0 : illimitée)
+     */
+    long value();
+}
@@ -0,0 +1,42 @@
+package mg.itu.ermite.framework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation qui exécute un endpoint sur un thread virtuel.
+ *
+ * La requête passe en mode asynchrone : le thread du conteneur est rendu et le
+ * binding, l'invocation et le rendu de la réponse s'exécutent sur un thread virtuel.
+ * Un contrôleur bloquant (JDBC, client HTTP synchrone) n'occupe alors plus un thread
+ * du conteneur pendant ses attentes.
+ *
+ * Placée sur un @Controller, l'annotation s'applique à toutes ses méthodes ; une
+ * annotation sur la méthode est prioritaire. {@code @VirtualThread(false)} exclut un
+ * endpoint lorsque le mode est activé globalement (paramètre "virtualThreads").
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @UrlMapping(url = "/orders")
+ * @GetMapping
+ * @VirtualThread
+ * public ModelView orders() {
+ *     // Requêtes JDBC bloquantes
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see mg.itu.ermite.framework.util.VirtualThreadExecutor
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface VirtualThread {
+
+    /**
+     * @return false pour exécuter l'endpoint sur le thread du conteneur
+     */
+    boolean value() default true;
+}
@@ -0,0 +1,49 @@
+package mg.itu.ermite.framework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation qui fournit les paramètres des requêtes synthétiques du préchauffage.
+ *
+ * Au démarrage, chaque endpoint est exercé à vide (routage, binding, conversions,
+ * sérialisation JSON) avant que l'application ne se déclare prête. Sans annotation,
+ * les valeurs sont générées d'après les types des paramètres ("1" pour un nombre,
+ * "2024-01-01" pour une date...) ; l'annotation les remplace par des valeurs
+ * représentatives, y compris celles des variables d'URL.
+ *
+ * Le contrôleur n'est invoqué que si {@link #invoke()} (ou "warmupInvoke") est actif :
+ * à réserver aux endpoints sans effet de bord.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @UrlMapping(url = "/products/{id}")
+ * @GetMapping
+ * @JsonResponse
+ * @WarmupSample(value = {"id=42", "currency=EUR"}, invoke = true)
+ * public Product find(int id, String currency) {
+ *     // ...
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see mg.itu.ermite.framework.util.Warmup
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface WarmupSample {
+
+    /**
+     * @return les paramètres de la requête synthétique, au format "nom=valeur"
+     *         (un nom répété donne plusieurs valeurs)
+     */
+    String[] value() default {};
+
+    /**
+     * @return true pour invoquer le contrôleur pendant le préchauffage
+     */
+    boolean invoke() default false;
+}
@@ -0,0 +1,40 @@
+package mg.itu.ermite.framework.annotation.security;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation de sécurité qui exige des permissions, accordées aux rôles par le
+ * paramètre "rolePermissions" (voir RoleModel).
+ *
+ * Contrairement à @Role, où un seul rôle suffit, l'utilisateur doit posséder
+ * toutes les permissions listées, via l'un quelconque de ses rôles ou des rôles
+ * qu'ils héritent. @Permission implique @Authorized.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @UrlMapping(url = "/admin/users/delete")
+ * @PostMapping
+ * @Permission({"users.read", "users.delete"})
+ * public ModelView deleteUser(int id) {
+ *     // Accessible aux rôles portant les deux permissions
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see Role
+ * @see Authorized
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Permission {
+    /**
+     * Permissions toutes requises pour accéder à la méthode.
+     *
+     * @return les permissions requises
+     */
+    String[] value();
+}
@@ -17,7 +17,9 @@ import java.lang.annotation.Target;
  * 3. Le rôle de l'utilisateur fait partie de la liste des rôles autorisés
  * 
  * Le rôle de l'utilisateur est récupéré depuis la session HTTP à l'aide de la clé
- * définie dans ConfigManager via "userSessionRole".
+ * définie dans ConfigManager via "userSessionRole". Un utilisateur peut détenir
+ * plusieurs rôles, et un rôle hérite des rôles placés sous lui dans "roleHierarchy"
+ * (voir RoleModel) : un ADMIN héritant de USER accède aux méthodes @Role("USER").
  * 
  * Exemple d'utilisation :
  * <pre>
@@ -44,6 +46,7 @@ import java.lang.annotation.Target;
  * @author Framework S5
  * @version 1.0
  * @see Authorized
+ * @see Permission
  * @see SecurityHandler
  */
 @Target(ElementType.METHOD)
@@ -1,7 +1,27 @@
 package mg.itu.ermite.framework.config;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Gestionnaire centralisé de la configuration de l'application.
@@ -9,15 +29,28 @@ import java.util.Map;
  * ConfigManager suit le pattern Singleton et fournit un point d'accès unique
  * pour stocker et récupérer les paramètres de configuration de l'application.
  * 
- * Configuration est chargée à partir de :
- * - Paramètres d'initialisation du contexte servlet (web.xml)
- * - Appels programmatiques de set() ou setAll()
+ * Configuration est chargée à partir de trois couches, la dernière l'emportant :
+ * 1. Paramètres d'initialisation du contexte servlet (web.xml) et appels de set() ou setAll()
+ * 2. Fichier de propriétés désigné par "configFile" (UTF-8)
+ * 3. Propriétés système : une propriété du même nom qu'une clé existante, ou
+ *    préfixée par "framework." (ex. -Dframework.sessionTimeout=600)
+ * 
+ * Les valeurs sont publiées sous forme d'instantané immuable via une
+ * AtomicReference : les lectures ne prennent aucun verrou (pas de monitor,
+ * donc pas d'épinglage des threads virtuels). Les conversions de getInt,
+ * getLong et getBoolean sont faites une seule fois par instantané.
+ * 
+ * Rechargement à chaud : {@link #startWatching()} surveille le fichier de
+ * propriétés avec un WatchService ; à chaque modification, un nouvel
+ * instantané est publié atomiquement et les abonnés ({@link #subscribe(Listener)})
+ * sont notifiés des clés modifiées.
  * 
  * Fonctionnalités :
  * - Stockage de paires clé-valeur pour la configuration
  * - Conversion automatique de types (String, int, long, boolean)
  * - Valeurs par défaut si une clé n'existe pas
  * - Paramètres spécialisés (uploadDirectory, maxFileSize)
+ * - Notification des changements de configuration
  * 
  * Exemple de configuration dans web.xml :
  * <pre>
@@ -49,27 +82,66 @@ import java.util.Map;
  * @see FrameworkInitializer
  */
 public class ConfigManager {
-    private static ConfigManager instance;
-    private Map<String, String> configData;
+
+    /** Préfixe des propriétés système ajoutant une clé de configuration */
+    public static final String SYSTEM_PREFIX = "framework.";
+
+    private static final ConfigManager INSTANCE = new ConfigManager();
+
+    /** Valeur de cache d'une clé absente ou non convertible */
+    private static final Object INVALID = new Object();
+
+    /**
+     * Abonné aux changements de configuration.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Appelée après la publication d'un nouvel instantané.
+         * 
+         * @param changedKeys les clés ajoutées, modifiées ou supprimées
+         * @param config le ConfigManager (déjà à jour)
+         */
+        void onChange(Set<String> changedKeys, ConfigManager config);
+    }
+
+    /**
+     * Instantané immuable de la configuration, avec le cache de ses conversions typées.
+     */
+    private static final class Snapshot {
+        final Map<String, String> values;
+        final Map<String, Object> typed = new ConcurrentHashMap<>();
+
+        Snapshot(Map<String, String> values) {
+            this.values = Collections.unmodifiableMap(values);
+        }
+    }
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(new HashMap<>()));
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Couches sources, modifiées uniquement sous le verrou "this" puis republiées
+    private final Map<String, String> contextLayer = new HashMap<>();
+    private Map<String, String> fileLayer = Map.of();
+    private Path configFile;
+
+    private WatchService watchService;
+    private Thread watcher;
     
     /**
      * Constructeur privé pour empêcher l'instanciation directe (Singleton pattern).
      */
     private ConfigManager() {
-        this.configData = new HashMap<>();
     }
     
     /**
      * Récupère l'instance unique du ConfigManager (Singleton).
-     * Si l'instance n'existe pas encore, elle est créée.
+     * Sans verrou : l'instance est créée au chargement de la classe.
      * 
      * @return l'instance unique du ConfigManager
      */
-    public static synchronized ConfigManager getInstance() {
-        if (instance == null) {
-            instance = new ConfigManager();
-        }
-        return instance;
+    public static ConfigManager getInstance() {
+        return INSTANCE;
     }
     
     /**
@@ -79,7 +151,7 @@ public class ConfigManager {
      * @return la valeur du paramètre ou null si la clé n'existe pas
      */
     public String get(String key) {
-        return configData.get(key);
+        return snapshot.get().values.get(key);
     }
     
     /**
@@ -90,26 +162,36 @@ public class ConfigManager {
      * @return la valeur du paramètre ou defaultValue si la clé n'existe pas
      */
     public String get(String key, String defaultValue) {
-        return configData.getOrDefault(key, defaultValue);
+        return snapshot.get().values.getOrDefault(key, defaultValue);
     }
     
     /**
-     * Ajoute ou met à jour un paramètre de configuration.
+     * Ajoute ou met à jour un paramètre de configuration (couche web.xml).
+     * Un fichier de propriétés ou une propriété système définissant la même clé reste prioritaire.
      * 
      * @param key la clé du paramètre
      * @param value la valeur du paramètre
      */
     public void set(String key, String value) {
-        configData.put(key, value);
+        setAll(Collections.singletonMap(key, value));
     }
     
     /**
-     * Ajoute ou met à jour plusieurs paramètres de configuration à la fois.
+     * Ajoute ou met à jour plusieurs paramètres de configuration à la fois,
+     * publiés en un seul instantané.
      * 
      * @param configMap une map contenant les paires clé-valeur à ajouter
      */
     public void setAll(Map<String, String> configMap) {
-        configData.putAll(configMap);
+        synchronized (this) {
+            contextLayer.putAll(configMap);
+            String file = System.getProperty(SYSTEM_PREFIX + "configFile", contextLayer.get("configFile"));
+            if (file != null && configFile == null) {
+                configFile = Path.of(file);
+                fileLayer = readFile(configFile);
+            }
+        }
+        publish();
     }
     
     /**
@@ -118,37 +200,33 @@ public class ConfigManager {
      * @return une map contenant tous les paramètres
      */
     public Map<String, String> getAll() {
-        return new HashMap<>(configData); // Retourne une copie
+        return new HashMap<>(snapshot.get().values); // Retourne une copie
     }
     
     /**
      * Récupère un paramètre de configuration converti en entier.
+     * La conversion est faite une fois par instantané.
      * 
      * @param key la clé du paramètre
      * @param defaultValue la valeur par défaut en cas d'erreur ou clé non existante
      * @return la valeur convertie en int ou defaultValue
      */
     public int getInt(String key, int defaultValue) {
-        try {
-            return Integer.parseInt(get(key));
-        } catch (NumberFormatException | NullPointerException e) {
-            return defaultValue;
-        }
+        Object value = typed("int:", key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
     }
     
     /**
      * Récupère un paramètre de configuration converti en long.
+     * La conversion est faite une fois par instantané.
      * 
      * @param key la clé du paramètre
      * @param defaultValue la valeur par défaut en cas d'erreur ou clé non existante
      * @return la valeur convertie en long ou defaultValue
      */
     public long getLong(String key, long defaultValue) {
-        try {
-            return Long.parseLong(get(key));
-        } catch (NumberFormatException | NullPointerException e) {
-            return defaultValue;
-        }
+        Object value = typed("long:", key);
+        return value instanceof Long ? (Long) value : defaultValue;
     }
     
     /**
@@ -159,9 +237,25 @@ public class ConfigManager {
      * @return la valeur convertie en boolean ou defaultValue
      */
     public boolean getBoolean(String key, boolean defaultValue) {
-        String value = get(key);
-        if (value == null) return defaultValue;
-        return Boolean.parseBoolean(value);
+        Object value = typed("boolean:", key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    private Object typed(String type, String key) {
+        Snapshot current = snapshot.get();
+        return current.typed.computeIfAbsent(type + key, k -> {
+            String raw = current.values.get(key);
+            if (raw == null) return INVALID;
+            try {
+                switch (type) {
+                    case "int:": return Integer.parseInt(raw.trim());
+                    case "long:": return Long.parseLong(raw.trim());
+                    default: return Boolean.parseBoolean(raw.trim());
+                }
+            } catch (NumberFormatException e) {
+                return INVALID;
+            }
+        });
     }
     
     /**
@@ -183,4 +277,162 @@ public class ConfigManager {
     public long getMaxFileSize() {
         return getLong("maxFileSize", 10 * 1024 * 1024); // 10MB par défaut
     }
-}
\ No newline at end of file
+
+    /**
+     * Abonne un listener aux changements de configuration.
+     * 
+     * @param listener l'abonné
+     */
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Désabonne un listener.
+     * 
+     * @param listener l'abonné
+     */
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Relit le fichier de propriétés et publie un nouvel instantané.
+     * 
+     * @return les clés modifiées
+     */
+    public Set<String> reload() {
+        synchronized (this) {
+            if (configFile != null) fileLayer = readFile(configFile);
+        }
+        return publish();
+    }
+
+    /**
+     * Démarre la surveillance du fichier "configFile" (thread démon).
+     * Sans effet si aucun fichier n'est configuré ou si la surveillance est déjà active.
+     */
+    public synchronized void startWatching() {
+        if (configFile == null || watcher != null) return;
+        Path directory = configFile.toAbsolutePath().getParent();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.out.println("[Config] Surveillance de " + configFile + " impossible: " + e.getMessage());
+            return;
+        }
+
+        WatchService service = watchService;
+        Path fileName = configFile.getFileName();
+        watcher = new Thread(() -> watch(service, fileName), "framework-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        System.out.println("[Config] Surveillance du fichier " + configFile);
+    }
+
+    /**
+     * Arrête la surveillance du fichier de configuration.
+     */
+    public synchronized void stopWatching() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.out.println("[Config] Arret de la surveillance: " + e.getMessage());
+        }
+        watchService = null;
+        watcher = null;
+    }
+
+    private void watch(WatchService service, Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean touched = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) touched = true;
+                }
+                key.reset();
+                if (!touched) continue;
+
+                // Laisser l'éditeur terminer son écriture (plusieurs événements rapprochés)
+                Thread.sleep(100);
+                while (true) {
+                    WatchKey extra = service.poll();
+                    if (extra == null) break;
+                    extra.pollEvents();
+                    extra.reset();
+                }
+                Set<String> changed = reload();
+                if (!changed.isEmpty()) System.out.println("[Config] Rechargement: " + changed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Arrêt normal
+        }
+    }
+
+    /**
+     * Recalcule l'instantané depuis les couches, le publie et notifie les abonnés.
+     * 
+     * @return les clés modifiées
+     */
+    private Set<String> publish() {
+        Snapshot previous;
+        Snapshot next;
+        synchronized (this) {
+            Map<String, String> merged = new HashMap<>(contextLayer);
+            merged.putAll(fileLayer);
+            Properties system = System.getProperties();
+            for (String name : system.stringPropertyNames()) {
+                if (name.startsWith(SYSTEM_PREFIX)) {
+                    merged.put(name.substring(SYSTEM_PREFIX.length()), system.getProperty(name));
+                } else if (merged.containsKey(name)) {
+                    merged.put(name, system.getProperty(name));
+                }
+            }
+            next = new Snapshot(merged);
+            previous = snapshot.getAndSet(next);
+        }
+
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, String> e : next.values.entrySet()) {
+            if (!Objects.equals(e.getValue(), previous.values.get(e.getKey()))) changed.add(e.getKey());
+        }
+        for (String key : previous.values.keySet()) {
+            if (!next.values.containsKey(key)) changed.add(key);
+        }
+
+        if (!changed.isEmpty()) {
+            Set<String> view = Collections.unmodifiableSet(changed);
+            for (Listener listener : listeners) {
+                try {
+                    listener.onChange(view, this);
+                } catch (RuntimeException e) {
+                    System.out.println("[Config] Erreur d'un abonne lors du rechargement: " + e.getMessage());
+                }
+            }
+        }
+        return changed;
+    }
+
+    private Map<String, String> readFile(Path file) {
+        if (!Files.isRegularFile(file)) {
+            System.out.println("[Config] Fichier de configuration introuvable: " + file);
+            return Map.of();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            // Fichier en cours d'écriture ou invalide : garder les valeurs précédentes
+            System.out.println("[Config] Lecture de " + file + " impossible: " + e.getMessage());
+            return fileLayer;
+        }
+        Map<String, String> values = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) values.put(name, properties.getProperty(name));
+        return values;
+    }
+}
@@ -4,12 +4,33 @@ import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.ServletContextListener;
 import mg.itu.ermite.framework.config.ConfigManager;
+import mg.itu.ermite.framework.util.AfterResponseExecutor;
+import mg.itu.ermite.framework.util.BatchDispatcher;
 import mg.itu.ermite.framework.util.ClasspathScanner;
 import mg.itu.ermite.framework.util.EndPointDetails;
+import mg.itu.ermite.framework.util.EndpointIndex;
+import mg.itu.ermite.framework.util.RouteRegistry;
+import mg.itu.ermite.framework.util.ServiceContainer;
+import mg.itu.ermite.framework.util.StartupCache;
+import mg.itu.ermite.framework.util.VirtualThreadExecutor;
+import mg.itu.ermite.framework.util.Warmup;
+import mg.itu.ermite.framework.util.security.RoleModel;
+import mg.itu.ermite.framework.util.security.SecurityPolicy;
+import mg.itu.ermite.framework.util.security.TokenAuthenticator;
+import mg.itu.ermite.framework.util.session.SessionAccountingListener;
+import mg.itu.ermite.framework.util.session.SessionMemoryAccountant;
+import mg.itu.ermite.framework.util.session.SessionStores;
+import mg.itu.ermite.framework.util.traffic.ConcurrencyLimiter;
+import mg.itu.ermite.framework.util.traffic.LoadShedder;
+import mg.itu.ermite.framework.util.traffic.RateLimiter;
 
+import java.io.File;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Écouteur de contexte servlet qui initialise le framework au démarrage de l'application.
@@ -18,13 +39,21 @@ import java.util.Map;
  * et effectue les opérations suivantes :
  * 
  * 1. Vérifie la disponibilité de la dépendance Jackson (sérialisation JSON)
- * 2. Charge les paramètres de configuration depuis web.xml
- * 3. Scanne le classpath pour découvrir les contrôleurs et les endpoints
- * 4. Enregistre tous les endpoints dans le contexte servlet pour accès depuis FrontServlet
- * 5. Affiche un rapport d'initialisation sur la console
+ * 2. Charge les paramètres de configuration depuis web.xml, le fichier "configFile"
+ *    et les propriétés système, puis surveille le fichier pour le rechargement à chaud
+ * 3. Installe le stockage des sessions (HttpSession ou SessionStore externe)
+ * 4. Charge l'index des endpoints généré à la compilation ou, à défaut, scanne le
+ *    classpath pour découvrir les contrôleurs et les endpoints (en ne rescannant que
+ *    les JAR et répertoires modifiés depuis le cache de démarrage)
+ * 5. Publie les endpoints dans le RouteRegistry (table de routage immuable, modifiable
+ *    ensuite à l'exécution) et les expose dans le contexte servlet, puis résout les
+ *    dépendances des contrôleurs (ServiceContainer)
+ * 6. Affiche un rapport d'initialisation sur la console
+ * 7. Préchauffe les endpoints (Warmup) : l'application n'est déclarée prête qu'ensuite
  * 
- * Les endpoints découverts sont stockés dans le contexte servlet sous la clé "endpoints"
- * comme une Map<String, List<EndPointDetails>>.
+ * Les endpoints sont exposés dans le contexte servlet sous la clé "endpoints", vue en
+ * lecture seule Map<String, List<EndPointDetails>> de la table courante, et le registre
+ * sous la clé "routes".
  * 
  * Configuration requise dans web.xml :
  * <pre>
@@ -49,15 +78,20 @@ import java.util.Map;
  */
 public class FrameworkInitializer implements ServletContextListener {
 
+    /** Abonné aux rechargements de configuration, retiré à l'arrêt */
+    private ConfigManager.Listener configListener;
+
     /**
      * Appelée lors de l'initialisation du contexte servlet (démarrage de l'application).
      * 
      * Étapes de l'initialisation :
      * 1. Vérifie que Jackson est disponible dans le classpath
      * 2. Charge les paramètres de configuration
-     * 3. Scanne les contrôleurs et endpoints
+     * 3. Charge l'index des endpoints ou scanne les contrôleurs
      * 4. Enregistre les endpoints dans le contexte
      * 5. Affiche un résumé d'initialisation
+     * 6. Préchauffe les endpoints avant de rendre la main au conteneur
+     *    (ou en tâche de fond avec "warmupBackground")
      * 
      * @param sce l'événement d'initialisation du contexte servlet
      * @throws IllegalStateException si Jackson n'est pas disponible
@@ -76,21 +110,66 @@ public class FrameworkInitializer implements ServletContextListener {
         ConfigManager config = ConfigManager.getInstance();
         ServletContext context = sce.getServletContext();
         
+        Map<String,String> params = new HashMap<>();
         Enumeration<String> paramNames = context.getInitParameterNames();
         while (paramNames.hasMoreElements()) {
             String paramName = paramNames.nextElement();
-            String paramValue = context.getInitParameter(paramName);
-            config.set(paramName, paramValue);
-            
-            System.out.println("[Config] " + paramName + " = " + paramValue);
+            params.put(paramName, context.getInitParameter(paramName));
+        }
+        // Un seul instantané publié, fusionné avec le fichier "configFile" et les propriétés système
+        config.setAll(params);
+
+        for (Map.Entry<String,String> entry : new TreeMap<>(config.getAll()).entrySet()) {
+            // Ne jamais journaliser les secrets (sessionCookieSecret, authTokenSecret...)
+            System.out.println("[Config] " + entry.getKey() + " = " + (entry.getKey().endsWith("Secret") ? "******" : entry.getValue()));
         }
         
 
-        Map<String,Object> endpoints = ClasspathScanner.findMappedUrls();
+        SessionStores.configure(config);
+        TokenAuthenticator.configure(config);
+        RoleModel.configure(config);
+        LoadShedder.configure(config);
+        if (LoadShedder.get() != null) context.setAttribute("loadShedder", LoadShedder.get());
+        VirtualThreadExecutor.configure(config);
+        context.setAttribute("virtualThreads", VirtualThreadExecutor.get());
+        BatchDispatcher.configure(config);
+        AfterResponseExecutor.configure(config);
+        context.setAttribute("afterResponse", AfterResponseExecutor.get());
+        Warmup.configure(config);
+        context.setAttribute("warmup", Warmup.get());
+        SessionMemoryAccountant.configure(config);
+        if (SessionMemoryAccountant.get() != null) {
+            try {
+                context.addListener(new SessionAccountingListener());
+            } catch (UnsupportedOperationException | IllegalStateException e) {
+                System.out.println("[Session] Listener de comptabilite non enregistre: " + e.getMessage());
+            }
+            context.setAttribute("sessionMemory", SessionMemoryAccountant.get());
+        }
+
+        // Index généré à la compilation (framework-processor), sinon scan du classpath
+        Map<String,Object> endpoints = null;
+        if (config.getBoolean("endpointIndex", true)) {
+            endpoints = EndpointIndex.load(Thread.currentThread().getContextClassLoader());
+        }
+        if (endpoints == null) {
+            File cacheFile = startupCacheFile(context, config);
+            endpoints = cacheFile != null ? StartupCache.findMappedUrls(cacheFile) : ClasspathScanner.findMappedUrls();
+        }
 
         System.out.println("NOMBRE D'ENDPOINTS:"+endpoints.size());
 
-        context.setAttribute("endpoints", endpoints);
+        // Table immuable publiée d'un coup ; "endpoints" est une vue en lecture seule, toujours à jour
+        RouteRegistry.get().load(endpoints);
+        context.setAttribute("routes", RouteRegistry.get());
+        context.setAttribute("endpoints", RouteRegistry.get().view());
+        // Graphe des dépendances résolu avant le premier appel : contrôleurs et singletons prêts
+        ServiceContainer.get().start(RouteRegistry.get().table());
+        context.setAttribute("services", ServiceContainer.get());
+
+        configListener = (changed, updated) -> applyConfigChange(context, changed, updated);
+        config.subscribe(configListener);
+        if (config.getBoolean("configWatch", true)) config.startWatching();
 
         for (Map.Entry<String,Object> endpoint : endpoints.entrySet()) {
             String url = endpoint.getKey();
@@ -102,6 +181,84 @@ public class FrameworkInitializer implements ServletContextListener {
             }
         }
 
+        // Chemins de routage, binding et sérialisation compilés avant le premier client
+        Warmup.get().start(context, RouteRegistry.get().table(), config.getBoolean("warmupBackground", false));
+    }
+
+    /**
+     * Fichier du cache de démarrage : "startupCacheFile" s'il est défini, sinon
+     * "ermite-endpoints.cache" dans le répertoire de travail du conteneur.
+     * 
+     * @param context le contexte servlet
+     * @param config la configuration du framework
+     * @return le fichier de cache, ou null si le cache est désactivé ("startupCache")
+     *         ou qu'aucun répertoire de travail n'est disponible
+     */
+    private File startupCacheFile(ServletContext context, ConfigManager config) {
+        if (!config.getBoolean("startupCache", true)) return null;
+        String path = config.get("startupCacheFile");
+        if (path != null && !path.isBlank()) return new File(path);
+        Object workDir = context.getAttribute(ServletContext.TEMPDIR);
+        return workDir instanceof File ? new File((File) workDir, "ermite-endpoints.cache") : null;
+    }
+
+    /**
+     * Applique une configuration rechargée à chaud.
+     * 
+     * Seuls les composants concernés par les clés modifiées sont reconstruits :
+     * authentification et rôles (puis politiques de sécurité des endpoints),
+     * délestage, limites de débit et de concurrence. Le stockage des sessions
+     * n'est pas reconfigurable sans redémarrage.
+     * 
+     * Les endpoints d'une table publiée ne sont jamais modifiés : ils sont recopiés
+     * avec leurs nouvelles politiques et publiés ensemble dans une nouvelle table,
+     * ou pas du tout si l'une d'elles est invalide.
+     * 
+     * @param context le contexte servlet
+     * @param changed les clés modifiées
+     * @param config la configuration à jour
+     */
+    private void applyConfigChange(ServletContext context, Set<String> changed, ConfigManager config) {
+        boolean security = changed.stream().anyMatch(k -> k.startsWith("authToken") || k.startsWith("role") || k.startsWith("userSession"));
+        boolean rateLimits = changed.stream().anyMatch(k -> k.startsWith("rateLimit") || k.equals("userSessionId"));
+        boolean concurrency = changed.stream().anyMatch(k -> k.startsWith("concurrency"));
+        boolean virtualThreads = changed.contains("virtualThreads");
+
+        try {
+            if (security) {
+                TokenAuthenticator.configure(config);
+                RoleModel.configure(config);
+            }
+            if (changed.stream().anyMatch(k -> k.startsWith("loadShedding"))) {
+                LoadShedder.configure(config);
+                if (LoadShedder.get() != null) context.setAttribute("loadShedder", LoadShedder.get());
+                else context.removeAttribute("loadShedder");
+            }
+            if (changed.stream().anyMatch(k -> k.startsWith("batch"))) BatchDispatcher.configure(config);
+            if (changed.stream().anyMatch(k -> k.startsWith("afterResponse") && !k.equals("afterResponseShutdownWait"))) {
+                // Les tâches déjà soumises restent sur l'ancien exécuteur
+                AfterResponseExecutor.configure(config);
+                context.setAttribute("afterResponse", AfterResponseExecutor.get());
+            }
+            if (changed.stream().anyMatch(k -> k.startsWith("virtualThread") || k.equals("asyncTimeout"))) {
+                VirtualThreadExecutor.configure(config);
+                context.setAttribute("virtualThreads", VirtualThreadExecutor.get());
+            }
+
+            if (!security && !rateLimits && !concurrency && !virtualThreads) return;
+            RouteRegistry.get().update(routes -> routes.replaceAll(current -> {
+                EndPointDetails endPoint = current.copy();
+                if (security) endPoint.setSecurityPolicy(SecurityPolicy.compile(endPoint.getMethod()));
+                if (rateLimits) endPoint.setRateLimiter(RateLimiter.compile(endPoint.getMethod()));
+                if (concurrency) endPoint.setConcurrencyLimiter(ConcurrencyLimiter.compile(endPoint.getMethod()));
+                if (virtualThreads) endPoint.setVirtualThread(VirtualThreadExecutor.isEnabled(endPoint.getMethod()));
+                return endPoint;
+            }));
+            System.out.println("[Config] Configuration appliquee: " + changed);
+        } catch (RuntimeException e) {
+            // Configuration invalide : les composants déjà en place restent actifs
+            System.out.println("[Config] Configuration rechargee invalide, ignoree en partie: " + e.getMessage());
+        }
     }
 
     /**
@@ -110,5 +267,14 @@ public class FrameworkInitializer implements ServletContextListener {
      * @param sce l'événement de destruction du contexte servlet
      */
     @Override
-    public void contextDestroyed(ServletContextEvent sce) {}
+    public void contextDestroyed(ServletContextEvent sce) {
+        ConfigManager config = ConfigManager.getInstance();
+        config.stopWatching();
+        if (configListener != null) config.unsubscribe(configListener);
+        // Tâches différées d'abord : elles peuvent encore écrire en session
+        AfterResponseExecutor.shutdown();
+        ServiceContainer.shutdown();
+        SessionStores.shutdown();
+        SessionMemoryAccountant.shutdown();
+    }
 }
@@ -0,0 +1,181 @@
+package mg.itu.ermite.framework.util;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Tâches d'une requête à exécuter après l'envoi de sa réponse.
+ *
+ * Un paramètre de type AfterResponse est injecté dans les méthodes de contrôleur.
+ * Le travail qui n'influence pas la réponse (journal d'audit, préchauffage de cache,
+ * notifications) y est soumis au lieu d'être exécuté avant le retour du contrôleur :
+ * le FrontServlet envoie d'abord la réponse (flushBuffer, ou complétion du mode
+ * asynchrone), puis confie les tâches à l'{@link AfterResponseExecutor}.
+ *
+ * Les tâches d'une même requête s'exécutent une à une, dans l'ordre de soumission,
+ * y compris celles soumises après l'envoi de la réponse. Elles s'exécutent aussi
+ * lorsque le contrôleur a échoué ; une tâche ne doit pas utiliser la requête ni la
+ * réponse, déjà recyclées par le conteneur.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @UrlMapping(url = "/orders")
+ * @PostMapping
+ * @JsonResponse
+ * public Order create(Order order, AfterResponse after) {
+ *     Order saved = orders.save(order);
+ *     after.submit(() -&gt; audit.log("order-created", saved.getId()));
+ *     after.submit(() -&gt; mailer.sendConfirmation(saved));
+ *     return saved;
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see AfterResponseExecutor
+ */
+public final class AfterResponse {
+
+    /** Attribut de requête portant les tâches */
+    public static final String ATTRIBUTE = AfterResponse.class.getName();
+
+    private final HttpServletRequest request;
+    private final AfterResponseExecutor executor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean listening = new AtomicBoolean();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean released;
+
+    private AfterResponse(HttpServletRequest request, AfterResponseExecutor executor) {
+        this.request = request;
+        this.executor = executor;
+    }
+
+    /**
+     * @param request la requête HTTP
+     * @return les tâches différées de la requête (créées au premier appel)
+     */
+    public static AfterResponse of(HttpServletRequest request) {
+        AfterResponse tasks = (AfterResponse) request.getAttribute(ATTRIBUTE);
+        if (tasks == null) {
+            tasks = new AfterResponse(request, AfterResponseExecutor.get());
+            request.setAttribute(ATTRIBUTE, tasks);
+        }
+        return tasks;
+    }
+
+    /**
+     * Soumet une tâche, exécutée après l'envoi de la réponse.
+     *
+     * @param task la tâche
+     */
+    public void submit(Runnable task) {
+        Objects.requireNonNull(task, "task");
+        executor.accept();
+        tasks.add(task);
+        if (released) {
+            executor.schedule(this);
+        } else if (request.isAsyncStarted()) {
+            // Réponse écrite plus tard par un autre thread : attendre la complétion
+            listen();
+        }
+    }
+
+    /**
+     * Libère les tâches d'une requête une fois sa réponse envoyée. Appelé par le
+     * FrontServlet à la fin du traitement ; en mode asynchrone, les tâches attendent
+     * la complétion de la requête.
+     *
+     * @param request la requête HTTP
+     * @param response la réponse HTTP, vidée avant l'exécution des tâches
+     */
+    public static void complete(HttpServletRequest request, HttpServletResponse response) {
+        AfterResponse tasks = (AfterResponse) request.getAttribute(ATTRIBUTE);
+        if (tasks == null) return;
+        if (request.isAsyncStarted()) {
+            tasks.listen();
+            return;
+        }
+        try {
+            response.flushBuffer();
+        } catch (IOException | IllegalStateException e) {
+            // Client parti : les tâches s'exécutent quand même
+        }
+        tasks.release();
+    }
+
+    private void listen() {
+        if (!listening.compareAndSet(false, true)) return;
+        try {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    release();
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {}
+
+                @Override
+                public void onError(AsyncEvent event) {}
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {}
+            });
+        } catch (IllegalStateException e) {
+            // Requête déjà terminée
+            release();
+        }
+    }
+
+    private void release() {
+        if (released) return;
+        released = true;
+        if (!tasks.isEmpty()) executor.schedule(this);
+    }
+
+    /**
+     * @return true si l'appelant doit vider la file (aucune exécution en cours)
+     */
+    boolean claim() {
+        return draining.compareAndSet(false, true);
+    }
+
+    int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Exécute les tâches dans l'ordre, y compris celles ajoutées pendant l'exécution.
+     */
+    void drain(AfterResponseExecutor executor) {
+        do {
+            Runnable task;
+            while ((task = tasks.poll()) != null) executor.run(task);
+            draining.set(false);
+        } while (!tasks.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    /**
+     * Abandonne les tâches en attente.
+     *
+     * @return le nombre de tâches abandonnées
+     */
+    int discard(AfterResponseExecutor executor) {
+        int dropped = 0;
+        while (tasks.poll() != null) {
+            executor.drop();
+            dropped++;
+        }
+        draining.set(false);
+        return dropped;
+    }
+}
@@ -0,0 +1,209 @@
+package mg.itu.ermite.framework.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Exécution des tâches différées après l'envoi de la réponse ({@link AfterResponse}).
+ *
+ * Les tâches d'une requête s'exécutent dans leur ordre de soumission, sur un thread
+ * virtuel ; au plus "afterResponseConcurrency" requêtes voient leurs tâches exécutées
+ * simultanément, les autres attendent un permis.
+ *
+ * Le nombre de tâches en attente est borné par "afterResponseQueue". Au-delà, selon
+ * "afterResponseRejection" :
+ * - caller (défaut) : les tâches s'exécutent sur le thread qui a terminé la réponse ;
+ *   la réponse est déjà envoyée, mais ce thread n'est rendu au conteneur qu'ensuite
+ *   (contre-pression sur les requêtes suivantes)
+ * - discard : les tâches sont abandonnées et comptées
+ *
+ * À l'arrêt de l'application, les tâches en attente sont terminées dans la limite de
+ * "afterResponseShutdownWait" ; les tâches soumises ensuite s'exécutent sur le thread appelant.
+ *
+ * Configuration (web.xml) :
+ * - "afterResponseQueue" : nombre maximal de tâches en attente (défaut 10000)
+ * - "afterResponseConcurrency" : requêtes dont les tâches s'exécutent simultanément (défaut 64)
+ * - "afterResponseRejection" : caller ou discard (défaut caller)
+ * - "afterResponseShutdownWait" : attente maximale à l'arrêt en millisecondes (défaut 10000)
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see AfterResponse
+ */
+public final class AfterResponseExecutor {
+
+    private static volatile AfterResponseExecutor instance;
+
+    private final int capacity;
+    private final int concurrency;
+    private final boolean callerRuns;
+    private final Semaphore workers;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong callerRan = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    /**
+     * @param capacity le nombre maximal de tâches en attente
+     * @param concurrency le nombre de requêtes dont les tâches s'exécutent simultanément
+     * @param callerRuns true pour exécuter sur le thread appelant au-delà de la capacité,
+     *                   false pour abandonner les tâches
+     */
+    public AfterResponseExecutor(int capacity, int concurrency, boolean callerRuns) {
+        if (capacity < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("afterResponseQueue et afterResponseConcurrency doivent etre positifs");
+        }
+        this.capacity = capacity;
+        this.concurrency = concurrency;
+        this.callerRuns = callerRuns;
+        this.workers = new Semaphore(concurrency);
+    }
+
+    /**
+     * Crée l'exécuteur selon la configuration.
+     *
+     * @param config la configuration du framework
+     */
+    public static void configure(ConfigManager config) {
+        String rejection = config.get("afterResponseRejection", "caller");
+        if (!"caller".equalsIgnoreCase(rejection) && !"discard".equalsIgnoreCase(rejection)) {
+            throw new IllegalArgumentException("afterResponseRejection invalide: " + rejection + " (caller ou discard)");
+        }
+        instance = new AfterResponseExecutor(config.getInt("afterResponseQueue", 10000),
+                config.getInt("afterResponseConcurrency", 64), "caller".equalsIgnoreCase(rejection));
+    }
+
+    /**
+     * @return l'exécuteur configuré (créé avec les valeurs par défaut si besoin)
+     */
+    public static AfterResponseExecutor get() {
+        AfterResponseExecutor executor = instance;
+        if (executor == null) {
+            configure(ConfigManager.getInstance());
+            executor = instance;
+        }
+        return executor;
+    }
+
+    /**
+     * Termine les tâches en attente, dans la limite de "afterResponseShutdownWait".
+     */
+    public static void shutdown() {
+        AfterResponseExecutor executor = instance;
+        if (executor == null) return;
+        executor.close(ConfigManager.getInstance().getLong("afterResponseShutdownWait", 10000));
+    }
+
+    /**
+     * Comptabilise une tâche soumise (en attente jusqu'à son exécution ou son abandon).
+     */
+    void accept() {
+        submitted.incrementAndGet();
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Lance l'exécution des tâches d'une requête dont la réponse est envoyée.
+     *
+     * @param tasks les tâches de la requête
+     */
+    void schedule(AfterResponse tasks) {
+        if (!tasks.claim()) return; // une exécution en cours verra les nouvelles tâches
+
+        if (closed || pending.get() > capacity) {
+            if (closed || callerRuns) {
+                callerRan.addAndGet(tasks.size());
+                tasks.drain(this);
+            } else {
+                int dropped = tasks.discard(this);
+                if (rejected.getAndAdd(dropped) == 0) {
+                    System.out.println("[AfterResponse] File pleine (" + capacity + " taches), taches abandonnees");
+                }
+            }
+            return;
+        }
+
+        Thread.ofVirtual().name("framework-after-response-" + sequence.incrementAndGet()).start(() -> {
+            workers.acquireUninterruptibly();
+            running.incrementAndGet();
+            try {
+                tasks.drain(this);
+            } finally {
+                running.decrementAndGet();
+                workers.release();
+            }
+        });
+    }
+
+    /**
+     * Exécute une tâche ; une erreur est journalisée sans interrompre les suivantes.
+     */
+    void run(Runnable task) {
+        long started = System.nanoTime();
+        try {
+            task.run();
+            completed.incrementAndGet();
+        } catch (Throwable e) {
+            failed.incrementAndGet();
+            System.out.println("[AfterResponse] Echec d'une tache: " + e);
+        } finally {
+            totalNanos.addAndGet(System.nanoTime() - started);
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Comptabilise une tâche abandonnée.
+     */
+    void drop() {
+        pending.decrementAndGet();
+    }
+
+    private void close(long awaitMillis) {
+        closed = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitMillis);
+        try {
+            while (pending.get() > 0 && System.nanoTime() < deadline) Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pending.get() > 0) {
+            System.out.println("[AfterResponse] Arret avec " + pending.get() + " taches non terminees");
+        }
+    }
+
+    /**
+     * Métriques de l'exécuteur.
+     *
+     * @return une map nom -&gt; valeur
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long done = completed.get() + failed.get();
+        snapshot.put("pending", pending.get());
+        snapshot.put("running", running.get());
+        snapshot.put("capacity", capacity);
+        snapshot.put("concurrency", concurrency);
+        snapshot.put("submitted", submitted.get());
+        snapshot.put("completed", completed.get());
+        snapshot.put("failed", failed.get());
+        snapshot.put("rejected", rejected.get());
+        snapshot.put("callerRuns", callerRan.get());
+        snapshot.put("avgMillis", done == 0 ? 0.0 : totalNanos.get() / 1_000_000.0 / done);
+        return snapshot;
+    }
+}
@@ -0,0 +1,249 @@
+package mg.itu.ermite.framework.util;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import mg.itu.ermite.framework.annotation.JsonResponse;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Traitement asynchrone des contrôleurs qui retournent un CompletionStage ou un Future.
+ *
+ * Le thread du conteneur est rendu dès le retour du contrôleur
+ * ({@link HttpServletRequest#startAsync()}) ; le résultat est écrit par le thread
+ * qui complète le CompletionStage, avec le même format qu'une réponse synchrone
+ * (enveloppe JSON, String ou ModelView).
+ *
+ * Un Future simple n'offre pas de notification : il est attendu sur un thread
+ * virtuel, jamais sur un thread du conteneur.
+ *
+ * Correspondance des erreurs :
+ * - délai "asyncTimeout" (millisecondes, défaut 30000) ou échéance de la requête
+ *   ({@link Deadline}) dépassés : 504, le calcul est annulé
+ * - calcul annulé : 503
+ * - exception du calcul : enveloppe d'erreur 500 (JSON) ou page d'erreur 500
+ *
+ * La servlet (et les filtres qui la précèdent) doit être déclarée
+ * {@code <async-supported>true</async-supported>} ; sinon le résultat est attendu
+ * de façon bloquante, dans la limite du même délai. Il l'est aussi pour un endpoint
+ * exécuté sur un thread virtuel, dont la requête est déjà en mode asynchrone.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see ResponseRenderer
+ */
+public final class AsyncDispatcher {
+
+    private static final AtomicBoolean UNSUPPORTED_LOGGED = new AtomicBoolean();
+
+    private AsyncDispatcher() {}
+
+    /**
+     * @param result le résultat d'un contrôleur
+     * @return true si le résultat doit être traité de façon asynchrone
+     */
+    public static boolean isAsync(Object result) {
+        return result instanceof CompletionStage || result instanceof Future;
+    }
+
+    /**
+     * Passe la requête en mode asynchrone et écrit la réponse à la complétion du résultat.
+     *
+     * @param request la requête HTTP
+     * @param response la réponse HTTP
+     * @param endPoint l'endpoint invoqué
+     * @param result le CompletionStage ou Future retourné par le contrôleur
+     * @param onDone action exécutée une seule fois, une fois la réponse écrite (libération des permis...)
+     * @return true si la requête est passée en mode asynchrone, false si le résultat a été
+     *         attendu et écrit de façon synchrone (conteneur ou filtre sans support asynchrone,
+     *         thread virtuel)
+     * @throws IOException en cas d'erreur d'écriture sur le chemin synchrone
+     */
+    public static boolean dispatch(HttpServletRequest request, HttpServletResponse response, EndPointDetails endPoint,
+            Object result, Runnable onDone) throws IOException {
+        long timeoutMillis = ConfigManager.getInstance().getLong("asyncTimeout", 30000);
+        RequestContext context = RequestContext.of(request);
+        if (context != null) timeoutMillis = context.getDeadline().limit(timeoutMillis);
+        CompletableFuture<?> future = toCompletableFuture(result);
+
+        // Sur un thread virtuel (@VirtualThread), la requête est déjà asynchrone : l'attente ne coûte rien
+        boolean virtual = Thread.currentThread().isVirtual();
+        if (virtual || !request.isAsyncSupported()) {
+            if (!virtual && UNSUPPORTED_LOGGED.compareAndSet(false, true)) {
+                System.out.println("[Async] Support asynchrone absent (async-supported), attente bloquante des resultats");
+            }
+            Object value = null;
+            Throwable error = null;
+            try {
+                value = timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            } catch (ExecutionException | TimeoutException | CancellationException e) {
+                error = e;
+            }
+            if (error instanceof TimeoutException) future.cancel(true);
+            write(request, response, endPoint, value, error, null);
+            return false;
+        }
+
+        AsyncContext async = request.startAsync(request, response);
+        async.setTimeout(timeoutMillis);
+        AtomicBoolean done = new AtomicBoolean();
+
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (!done.compareAndSet(false, true)) return;
+                future.cancel(true);
+                finish(request, response, endPoint, null, new TimeoutException(), async, onDone);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                // Client déconnecté ou erreur d'écriture : rien ne peut plus être envoyé
+                if (!done.compareAndSet(false, true)) return;
+                future.cancel(true);
+                onDone.run();
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {}
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {}
+        });
+
+        future.whenComplete((value, error) -> {
+            if (!done.compareAndSet(false, true)) return;
+            try {
+                finish(request, response, endPoint, value, error, async, onDone);
+            } catch (IOException e) {
+                System.out.println("[Async] Ecriture de la reponse impossible: " + e.getMessage());
+            }
+        });
+        return true;
+    }
+
+    private static void finish(HttpServletRequest request, HttpServletResponse response, EndPointDetails endPoint,
+            Object value, Throwable error, AsyncContext async, Runnable onDone) throws IOException {
+        boolean complete = true;
+        try {
+            complete = write(request, response, endPoint, value, error, async);
+        } finally {
+            onDone.run();
+            if (complete) async.complete();
+        }
+    }
+
+    /**
+     * @return false si un dispatch asynchrone vers une vue terminera la réponse
+     */
+    private static boolean write(HttpServletRequest request, HttpServletResponse response, EndPointDetails endPoint,
+            Object value, Throwable error, AsyncContext async) throws IOException {
+        Throwable cause = unwrap(error);
+        boolean json = endPoint.getMethod().isAnnotationPresent(JsonResponse.class);
+        try {
+            if (cause == null) {
+                SessionMap.flush(request);
+                if (json) {
+                    ResponseRenderer.writeJson(response, value);
+                    return true;
+                }
+                return ResponseRenderer.render(request, response, value, async);
+            }
+        } catch (Exception e) {
+            cause = e;
+        }
+
+        int status;
+        String message;
+        if (cause instanceof TimeoutException) {
+            status = 504;
+            message = "Delai de traitement depasse";
+        } else if (cause instanceof CancellationException) {
+            status = 503;
+            message = "Traitement annule";
+        } else {
+            cause.printStackTrace();
+            status = 500;
+            message = cause.getMessage();
+        }
+
+        try {
+            SessionMap.flush(request);
+        } catch (RuntimeException e) {
+            System.out.println("[Session] Ecriture de la session impossible: " + e.getMessage());
+        }
+        if (response.isCommitted()) return true;
+        if (json) {
+            if (status != 500) response.setStatus(status);
+            ResponseRenderer.writeJsonError(response, status, message);
+        } else {
+            response.sendError(status, message);
+        }
+        return true;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Adapte le résultat du contrôleur en CompletableFuture ; un Future simple est
+     * attendu sur un thread virtuel.
+     */
+    static CompletableFuture<?> toCompletableFuture(Object result) {
+        if (result instanceof CompletableFuture) return (CompletableFuture<?>) result;
+        if (result instanceof CompletionStage) {
+            CompletionStage<?> stage = (CompletionStage<?>) result;
+            try {
+                return stage.toCompletableFuture();
+            } catch (UnsupportedOperationException e) {
+                CompletableFuture<Object> adapter = new CompletableFuture<>();
+                stage.whenComplete((value, error) -> {
+                    if (error != null) adapter.completeExceptionally(error);
+                    else adapter.complete(value);
+                });
+                return adapter;
+            }
+        }
+
+        Future<?> plain = (Future<?>) result;
+        CompletableFuture<Object> adapter = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                plain.cancel(mayInterruptIfRunning);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        Thread.ofVirtual().name("framework-future-waiter").start(() -> {
+            try {
+                adapter.complete(plain.get());
+            } catch (InterruptedException e) {
+                adapter.cancel(true);
+            } catch (ExecutionException e) {
+                adapter.completeExceptionally(e.getCause());
+            } catch (CancellationException e) {
+                adapter.cancel(false);
+            }
+        });
+        return adapter;
+    }
+}
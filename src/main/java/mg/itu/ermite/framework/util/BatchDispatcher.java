@@ -0,0 +1,664 @@
+package mg.itu.ermite.framework.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.servlet.http.HttpSession;
+import mg.itu.ermite.framework.annotation.JsonResponse;
+import mg.itu.ermite.framework.config.ConfigManager;
+import mg.itu.ermite.framework.util.security.SecurityDecision;
+import mg.itu.ermite.framework.util.traffic.ConcurrencyLimiter;
+import mg.itu.ermite.framework.util.traffic.LoadShedder;
+import mg.itu.ermite.framework.util.traffic.RateLimiter;
+
+/**
+ * Endpoint de lot : plusieurs sous-requêtes JSON dans un seul appel HTTP.
+ *
+ * Le corps d'un POST sur "batchUrl" est un tableau de sous-requêtes :
+ * <pre>
+ * [
+ *   {"method": "GET", "url": "/api/users/12"},
+ *   {"method": "GET", "url": "/api/orders", "params": {"status": "open", "page": 2}},
+ *   {"method": "POST", "url": "/api/audit", "params": {"event": "page-view"}}
+ * ]
+ * </pre>
+ * La réponse est un tableau d'enveloppes JSON {status, code, data[, count]} (ou
+ * {status, code, message, data} en cas d'erreur), dans l'ordre des sous-requêtes.
+ *
+ * Chaque sous-requête suit le même chemin qu'une requête isolée : routage ({@link Router}),
+ * délestage, limite de débit, politique de sécurité, limite de concurrence, échéance,
+ * binding et invocation de l'EndPointDetails. Les sous-requêtes partagent la session,
+ * les cookies et les en-têtes d'authentification de l'appel de lot ; seuls les endpoints
+ * {@code @JsonResponse} sont accessibles.
+ *
+ * Les GET consécutifs sont indépendants et s'exécutent en parallèle sur des threads
+ * virtuels (au plus "batchParallelism" à la fois) ; toute autre méthode s'exécute seule,
+ * après les sous-requêtes qui la précèdent, pour conserver l'ordre des écritures.
+ *
+ * Configuration (web.xml) :
+ * - "batchUrl" : URL de l'endpoint de lot (défaut /_batch, vide pour le désactiver)
+ * - "batchMaxRequests" : nombre maximal de sous-requêtes par lot (défaut 50)
+ * - "batchParallelism" : sous-requêtes exécutées simultanément (défaut 8)
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see Router
+ * @see ResponseRenderer#envelope(Object)
+ */
+public final class BatchDispatcher {
+
+    private static volatile BatchDispatcher instance;
+
+    private final String url;
+    private final int maxRequests;
+    private final int parallelism;
+
+    /**
+     * @param url l'URL de l'endpoint de lot
+     * @param maxRequests le nombre maximal de sous-requêtes par lot
+     * @param parallelism le nombre de sous-requêtes exécutées simultanément
+     */
+    public BatchDispatcher(String url, int maxRequests, int parallelism) {
+        if (maxRequests < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("batchMaxRequests et batchParallelism doivent etre positifs");
+        }
+        this.url = url;
+        this.maxRequests = maxRequests;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Active l'endpoint de lot sauf si "batchUrl" est vide.
+     *
+     * @param config la configuration du framework
+     */
+    public static void configure(ConfigManager config) {
+        String url = config.get("batchUrl", "/_batch");
+        if (url == null || url.trim().isEmpty()) {
+            instance = null;
+            return;
+        }
+        instance = new BatchDispatcher(url.trim(), config.getInt("batchMaxRequests", 50), config.getInt("batchParallelism", 8));
+        System.out.println("[Batch] Endpoint de lot: POST " + url.trim());
+    }
+
+    /**
+     * @return l'endpoint de lot actif, ou null s'il est désactivé
+     */
+    public static BatchDispatcher get() {
+        return instance;
+    }
+
+    /**
+     * @param httpMethod la méthode HTTP de la requête
+     * @param requestUrl l'URL de la requête, sans le chemin de contexte
+     * @return true si la requête s'adresse à l'endpoint de lot
+     */
+    public boolean matches(String httpMethod, String requestUrl) {
+        return "POST".equals(httpMethod) && url.equals(requestUrl);
+    }
+
+    /**
+     * Exécute un lot et écrit le tableau des enveloppes.
+     *
+     * @param request la requête de lot
+     * @param response la réponse HTTP
+     * @param routes la table de routage lue pour l'appel de lot
+     * @throws IOException en cas d'erreur de lecture ou d'écriture
+     */
+    public void handle(HttpServletRequest request, HttpServletResponse response, RouteTable routes) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+
+        JsonNode body;
+        try {
+            body = ResponseRenderer.mapper().readTree(request.getInputStream());
+        } catch (IOException e) {
+            body = null;
+        }
+        if (body == null || !body.isArray()) {
+            response.setStatus(400);
+            ResponseRenderer.writeJsonError(response, 400, "Le corps du lot doit etre un tableau JSON");
+            return;
+        }
+        if (body.size() > maxRequests) {
+            response.setStatus(413);
+            ResponseRenderer.writeJsonError(response, 413, "Lot trop volumineux (max " + maxRequests + " sous-requetes)");
+            return;
+        }
+
+        int count = body.size();
+        Item[] items = new Item[count];
+        for (int i = 0; i < count; i++) items[i] = Item.parse(body.get(i));
+
+        Object[] results = new Object[count];
+        Shared shared = new Shared(request, response, routes);
+        Semaphore permits = new Semaphore(parallelism);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            int start = 0;
+            while (start < count) {
+                // Une phase : des GET consécutifs, ou une seule requête d'une autre méthode
+                int end = start + 1;
+                if (items[start].isGet()) {
+                    while (end < count && items[end].isGet()) end++;
+                }
+                if (end - start == 1) {
+                    results[start] = execute(shared, items[start]);
+                } else {
+                    List<Future<?>> phase = new ArrayList<>(end - start);
+                    for (int i = start; i < end; i++) {
+                        int index = i;
+                        phase.add(executor.submit(() -> {
+                            permits.acquireUninterruptibly();
+                            try {
+                                results[index] = execute(shared, items[index]);
+                            } finally {
+                                permits.release();
+                            }
+                        }));
+                    }
+                    for (Future<?> future : phase) await(future);
+                }
+                start = end;
+            }
+        }
+
+        ResponseRenderer.mapper().writeValue(response.getWriter(), Arrays.asList(results));
+        // Tâches différées des sous-requêtes : après l'envoi de la réponse du lot
+        for (HttpServletRequest subRequest : shared.requests) AfterResponse.complete(subRequest, response);
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // execute() convertit toutes les erreurs en enveloppes
+            e.getCause().printStackTrace();
+        }
+    }
+
+    /**
+     * Exécute une sous-requête ; toute erreur est convertie en enveloppe d'erreur.
+     */
+    private Map<String, Object> execute(Shared shared, Item item) {
+        if (item.error != null) return ResponseRenderer.errorEnvelope(400, item.error);
+
+        long arrival = System.nanoTime();
+        SubRequest request = new SubRequest(shared, item);
+        shared.requests.add(request);
+        SubResponse response = new SubResponse(shared);
+
+        Router.Match match;
+        try {
+            match = Router.resolve(shared.routes, item.method, item.path);
+        } catch (Exception e) {
+            return ResponseRenderer.errorEnvelope(404, e.getMessage());
+        }
+        EndPointDetails endPoint = match.getEndPoint();
+        if (!endPoint.getMethod().isAnnotationPresent(JsonResponse.class)) {
+            return ResponseRenderer.errorEnvelope(400, "Endpoint non JSON, inaccessible dans un lot: " + item.path);
+        }
+
+        LoadShedder shedder = LoadShedder.get();
+        if (shedder != null && !shedder.admit(endPoint.getLoadPriority())) {
+            return ResponseRenderer.errorEnvelope(503, "Serveur surcharge, reessayez plus tard");
+        }
+        RateLimiter rateLimiter = endPoint.getRateLimiter();
+        if (rateLimiter != null && rateLimiter.acquire(request) > 0) {
+            return ResponseRenderer.errorEnvelope(429, "Trop de requetes, reessayez plus tard");
+        }
+        SecurityDecision decision = endPoint.authorize(request);
+        if (!decision.isAllowed()) {
+            return ResponseRenderer.errorEnvelope(decision.getStatus(), decision.getMessage());
+        }
+
+        Deadline deadline = Deadline.of(request, endPoint, arrival);
+        request.setAttribute(RequestContext.ATTRIBUTE, new RequestContext(request, response, endPoint,
+                match.getUrlParams(), shedder, arrival, false, deadline));
+
+        long admitted = System.nanoTime();
+        ConcurrencyLimiter bulkhead = endPoint.getConcurrencyLimiter();
+        if (bulkhead != null && !bulkhead.acquire()) {
+            return ResponseRenderer.errorEnvelope(503, "Service surcharge, reessayez plus tard");
+        }
+        long started = System.nanoTime();
+        try {
+            if (deadline.isExpired()) return ResponseRenderer.errorEnvelope(504, "Delai de la requete depasse");
+
+            Object result;
+            deadline.enter();
+            try {
+                result = endPoint.invokeMethod(request, response, match.getUrlParams());
+            } finally {
+                deadline.leave();
+            }
+            if (AsyncDispatcher.isAsync(result)) result = join(result, deadline);
+            SessionMap.flush(request);
+
+            if (ServerSentEvents.isStream(result)) {
+                return ResponseRenderer.errorEnvelope(400, "Flux d'evenements inaccessible dans un lot: " + item.path);
+            }
+            if (deadline.isExpired()) return ResponseRenderer.errorEnvelope(504, "Delai de la requete depasse");
+            return ResponseRenderer.envelope(result);
+
+        } catch (Exception e) {
+            try {
+                SessionMap.flush(request);
+            } catch (RuntimeException flushError) {
+                System.out.println("[Session] Ecriture de la session impossible: " + flushError.getMessage());
+            }
+            if (deadline.isExpired() || e instanceof TimeoutException) {
+                return ResponseRenderer.errorEnvelope(504, "Delai de la requete depasse");
+            }
+            if (e instanceof CancellationException) return ResponseRenderer.errorEnvelope(503, "Traitement annule");
+            e.printStackTrace();
+            return ResponseRenderer.errorEnvelope(500, e.getMessage());
+        } finally {
+            FanOut.release(request);
+            ServiceContainer.release(request);
+            if (bulkhead != null) bulkhead.release(System.nanoTime() - started);
+            if (shedder != null) shedder.complete(endPoint.getProcessingBaseline(), admitted - arrival,
+                    System.nanoTime() - started, LoadShedder.isArrivalObserved(shared.request));
+        }
+    }
+
+    /**
+     * Attend le résultat d'un contrôleur asynchrone, dans la limite de "asyncTimeout" et de l'échéance.
+     */
+    private static Object join(Object result, Deadline deadline) throws Exception {
+        long timeoutMillis = deadline.limit(ConfigManager.getInstance().getLong("asyncTimeout", 30000));
+        CompletableFuture<?> future = AsyncDispatcher.toCompletableFuture(result);
+        try {
+            return timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Une sous-requête du lot, ou l'erreur qui l'empêche d'être exécutée.
+     */
+    private static final class Item {
+        private String method = "GET";
+        private String path;
+        private String queryString;
+        private final Map<String, String[]> params = new LinkedHashMap<>();
+        private String error;
+
+        boolean isGet() {
+            return error == null && "GET".equals(method);
+        }
+
+        static Item parse(JsonNode node) {
+            Item item = new Item();
+            if (node == null || !node.isObject()) {
+                item.error = "Sous-requete invalide: objet {method, url, params} attendu";
+                return item;
+            }
+            JsonNode method = node.get("method");
+            if (method != null && !method.isNull()) item.method = method.asText().trim().toUpperCase();
+            JsonNode url = node.get("url");
+            if (url == null || !url.isTextual() || !url.asText().startsWith("/")) {
+                item.error = "Sous-requete invalide: url absente ou relative";
+                return item;
+            }
+
+            String target = url.asText();
+            int query = target.indexOf('?');
+            item.path = query < 0 ? target : target.substring(0, query);
+            if (query >= 0) {
+                item.queryString = target.substring(query + 1);
+                for (String pair : item.queryString.split("&")) {
+                    if (pair.isEmpty()) continue;
+                    int eq = pair.indexOf('=');
+                    item.add(decode(eq < 0 ? pair : pair.substring(0, eq)), eq < 0 ? "" : decode(pair.substring(eq + 1)));
+                }
+            }
+
+            JsonNode params = node.get("params");
+            if (params != null && params.isObject()) {
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    JsonNode value = field.getValue();
+                    if (value.isArray()) {
+                        for (JsonNode element : value) item.add(field.getKey(), element.isNull() ? "" : element.asText());
+                    } else {
+                        item.add(field.getKey(), value.isNull() ? "" : value.asText());
+                    }
+                }
+            } else if (params != null && !params.isNull()) {
+                item.error = "Sous-requete invalide: params doit etre un objet";
+            }
+            return item;
+        }
+
+        private void add(String name, String value) {
+            String[] values = params.get(name);
+            if (values == null) {
+                params.put(name, new String[] { value });
+            } else {
+                String[] extended = Arrays.copyOf(values, values.length + 1);
+                extended[values.length] = value;
+                params.put(name, extended);
+            }
+        }
+
+        private static String decode(String value) {
+            try {
+                return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * État partagé par les sous-requêtes d'un lot : requête et réponse d'origine,
+     * verrou sur la session et les en-têtes.
+     */
+    private static final class Shared {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        /** Toutes les sous-requêtes sont routées sur la même table, même si une autre est publiée */
+        private final RouteTable routes;
+        private final Queue<HttpServletRequest> requests = new ConcurrentLinkedQueue<>();
+        /** Création de session et écriture d'en-têtes sur les objets du conteneur, qui ne sont pas thread-safe */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        Shared(HttpServletRequest request, HttpServletResponse response, RouteTable routes) {
+            this.request = request;
+            this.response = response;
+            this.routes = routes;
+        }
+    }
+
+    /**
+     * Requête vue par le contrôleur d'une sous-requête : méthode, URL et paramètres propres,
+     * attributs propres, en-têtes, cookies et session de l'appel de lot.
+     */
+    private static final class SubRequest extends HttpServletRequestWrapper {
+        private final Shared shared;
+        private final Item item;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+        SubRequest(Shared shared, Item item) {
+            super(shared.request);
+            this.shared = shared;
+            this.item = item;
+        }
+
+        @Override
+        public String getMethod() {
+            return item.method;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return getContextPath() + item.path;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            StringBuffer url = super.getRequestURL();
+            url.setLength(url.length() - super.getRequestURI().length());
+            return url.append(getRequestURI());
+        }
+
+        @Override
+        public String getServletPath() {
+            return item.path;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return null;
+        }
+
+        @Override
+        public String getQueryString() {
+            return item.queryString;
+        }
+
+        @Override
+        public String getContentType() {
+            return null;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            String[] values = item.params.get(name);
+            return values == null ? null : values[0];
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            String[] values = item.params.get(name);
+            return values == null ? null : values.clone();
+        }
+
+        @Override
+        public Enumeration<String> getParameterNames() {
+            return Collections.enumeration(item.params.keySet());
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            return Collections.unmodifiableMap(item.params);
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            Object value = attributes.get(name);
+            return value != null ? value : super.getAttribute(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            Set<String> names = new LinkedHashSet<>(attributes.keySet());
+            names.addAll(Collections.list(super.getAttributeNames()));
+            return Collections.enumeration(names);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (value == null) attributes.remove(name);
+            else attributes.put(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+
+        @Override
+        public HttpSession getSession(boolean create) {
+            shared.lock.lock();
+            try {
+                return super.getSession(create);
+            } finally {
+                shared.lock.unlock();
+            }
+        }
+
+        @Override
+        public HttpSession getSession() {
+            return getSession(true);
+        }
+
+        @Override
+        public boolean isAsyncSupported() {
+            return false;
+        }
+
+        @Override
+        public AsyncContext startAsync() {
+            throw new IllegalStateException("Mode asynchrone indisponible dans un lot");
+        }
+
+        @Override
+        public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+            throw new IllegalStateException("Mode asynchrone indisponible dans un lot");
+        }
+    }
+
+    /**
+     * Réponse vue par le contrôleur d'une sous-requête : cookies et en-têtes rejoignent
+     * la réponse du lot, le statut et le corps sont ignorés (le résultat est dans l'enveloppe).
+     */
+    private static final class SubResponse extends HttpServletResponseWrapper {
+        private final Shared shared;
+        private PrintWriter writer;
+
+        SubResponse(Shared shared) {
+            super(shared.response);
+            this.shared = shared;
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            shared.lock.lock();
+            try {
+                super.addCookie(cookie);
+            } finally {
+                shared.lock.unlock();
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            shared.lock.lock();
+            try {
+                super.setHeader(name, value);
+            } finally {
+                shared.lock.unlock();
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            shared.lock.lock();
+            try {
+                super.addHeader(name, value);
+            } finally {
+                shared.lock.unlock();
+            }
+        }
+
+        @Override
+        public void setStatus(int sc) {}
+
+        @Override
+        public void sendError(int sc) {}
+
+        @Override
+        public void sendError(int sc, String msg) {}
+
+        @Override
+        public void sendRedirect(String location) {}
+
+        @Override
+        public void setContentType(String type) {}
+
+        @Override
+        public void setCharacterEncoding(String charset) {}
+
+        @Override
+        public void setContentLength(int len) {}
+
+        @Override
+        public void setContentLengthLong(long len) {}
+
+        @Override
+        public void flushBuffer() {}
+
+        @Override
+        public void reset() {}
+
+        @Override
+        public void resetBuffer() {}
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            if (writer == null) writer = new PrintWriter(OutputStream.nullOutputStream());
+            return writer;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) {}
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {}
+            };
+        }
+    }
+}
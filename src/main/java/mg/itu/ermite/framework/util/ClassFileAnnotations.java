@@ -0,0 +1,170 @@
+package mg.itu.ermite.framework.util;
+
+import java.lang.annotation.Annotation;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lecture des annotations d'une classe directement dans son fichier .class, sans la charger.
+ *
+ * Seuls le pool de constantes et l'attribut RuntimeVisibleAnnotations de la classe
+ * sont lus ; les champs et méthodes sont sautés sans décodage. Si le descripteur de
+ * l'annotation cherchée n'apparaît pas dans le pool de constantes (cas de l'immense
+ * majorité des classes d'une application), la lecture s'arrête là.
+ *
+ * Aucune classe n'est chargée ni initialisée : aucun initialiseur statique n'est exécuté
+ * et les dépendances manquantes d'une bibliothèque ne provoquent pas d'erreur.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see ClasspathScanner
+ */
+public final class ClassFileAnnotations {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations".getBytes(StandardCharsets.UTF_8);
+
+    private ClassFileAnnotations() {}
+
+    /**
+     * @param annotation le type d'annotation
+     * @return son descripteur JVM (ex: "Lmg/itu/ermite/framework/annotation/Controller;")
+     */
+    public static String descriptorOf(Class<? extends Annotation> annotation) {
+        return "L" + annotation.getName().replace('.', '/') + ";";
+    }
+
+    /**
+     * Indique si la classe porte directement l'annotation (rétention RUNTIME).
+     *
+     * @param classFile le contenu du fichier .class
+     * @param descriptor le descripteur JVM de l'annotation (voir {@link #descriptorOf(Class)})
+     * @return true si l'annotation est présente sur la classe
+     * @throws IllegalArgumentException si le fichier n'est pas un fichier .class valide
+     */
+    public static boolean hasAnnotation(byte[] classFile, String descriptor) {
+        byte[] target = descriptor.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer in = ByteBuffer.wrap(classFile);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Fichier .class invalide (nombre magique)");
+            }
+            in.getInt(); // versions mineure et majeure
+
+            int count = in.getShort() & 0xFFFF;
+            int descriptorIndex = -1;
+            int attributeIndex = -1;
+            for (int i = 1; i < count; i++) {
+                int tag = in.get();
+                switch (tag) {
+                    case 1: { // Utf8
+                        int length = in.getShort() & 0xFFFF;
+                        if (descriptorIndex < 0 && matches(in, length, target)) descriptorIndex = i;
+                        else if (attributeIndex < 0 && matches(in, length, RUNTIME_VISIBLE_ANNOTATIONS)) attributeIndex = i;
+                        skip(in, length);
+                        break;
+                    }
+                    case 7: case 8: case 16: case 19: case 20: // Class, String, MethodType, Module, Package
+                        skip(in, 2);
+                        break;
+                    case 15: // MethodHandle
+                        skip(in, 3);
+                        break;
+                    case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                        skip(in, 4);
+                        break;
+                    case 5: case 6: // Long, Double : deux entrées
+                        skip(in, 8);
+                        i++;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Fichier .class invalide (constante " + tag + ")");
+                }
+            }
+            if (descriptorIndex < 0 || attributeIndex < 0) return false;
+
+            skip(in, 6); // access_flags, this_class, super_class
+            skip(in, 2 * (in.getShort() & 0xFFFF)); // interfaces
+            skipMembers(in); // champs
+            skipMembers(in); // méthodes
+
+            int attributes = in.getShort() & 0xFFFF;
+            for (int a = 0; a < attributes; a++) {
+                int name = in.getShort() & 0xFFFF;
+                int length = in.getInt();
+                if (name != attributeIndex) {
+                    skip(in, length);
+                    continue;
+                }
+                int annotations = in.getShort() & 0xFFFF;
+                for (int n = 0; n < annotations; n++) {
+                    if ((in.getShort() & 0xFFFF) == descriptorIndex) return true;
+                    skipAnnotationBody(in);
+                }
+                return false;
+            }
+            return false;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Fichier .class tronque");
+        }
+    }
+
+    private static boolean matches(ByteBuffer in, int length, byte[] expected) {
+        if (length != expected.length) return false;
+        int start = in.position();
+        return Arrays.equals(in.array(), in.arrayOffset() + start, in.arrayOffset() + start + length,
+                expected, 0, length);
+    }
+
+    private static void skipMembers(ByteBuffer in) {
+        int members = in.getShort() & 0xFFFF;
+        for (int m = 0; m < members; m++) {
+            skip(in, 6); // access_flags, name_index, descriptor_index
+            int attributes = in.getShort() & 0xFFFF;
+            for (int a = 0; a < attributes; a++) {
+                skip(in, 2);
+                skip(in, in.getInt());
+            }
+        }
+    }
+
+    /**
+     * Saute les paires élément/valeur d'une annotation dont le type vient d'être lu.
+     */
+    private static void skipAnnotationBody(ByteBuffer in) {
+        int pairs = in.getShort() & 0xFFFF;
+        for (int p = 0; p < pairs; p++) {
+            skip(in, 2);
+            skipElementValue(in);
+        }
+    }
+
+    private static void skipElementValue(ByteBuffer in) {
+        int tag = in.get();
+        switch (tag) {
+            case 'B': case 'C': case 'D': case 'F': case 'I': case 'J': case 'S': case 'Z': case 's': case 'c':
+                skip(in, 2);
+                break;
+            case 'e':
+                skip(in, 4);
+                break;
+            case '@':
+                skip(in, 2);
+                skipAnnotationBody(in);
+                break;
+            case '[':
+                int values = in.getShort() & 0xFFFF;
+                for (int v = 0; v < values; v++) skipElementValue(in);
+                break;
+            default:
+                throw new IllegalArgumentException("Fichier .class invalide (valeur d'annotation " + (char) tag + ")");
+        }
+    }
+
+    private static void skip(ByteBuffer in, int bytes) {
+        if (bytes < 0 || bytes > in.remaining()) throw new BufferUnderflowException();
+        in.position(in.position() + bytes);
+    }
+}
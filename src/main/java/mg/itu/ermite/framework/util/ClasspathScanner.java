@@ -7,21 +7,33 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
+import java.util.jar.JarFile;
 
 import mg.itu.ermite.framework.annotation.Controller;
 import mg.itu.ermite.framework.annotation.GetMapping;
 import mg.itu.ermite.framework.annotation.PostMapping;
 import mg.itu.ermite.framework.annotation.UrlMapping;
+import mg.itu.ermite.framework.config.ConfigManager;
+import mg.itu.ermite.framework.util.security.SecurityPolicy;
+import mg.itu.ermite.framework.util.traffic.ConcurrencyLimiter;
+import mg.itu.ermite.framework.util.traffic.LoadShedder;
+import mg.itu.ermite.framework.util.traffic.RateLimiter;
 
 /**
  * Scanner de classpath qui découvre automatiquement les contrôleurs et endpoints.
  * 
  * ClasspathScanner utilise le ClassLoader pour parcourir le classpath et identifier :
  * 1. Toutes les classes disponibles (compilées et dans les JAR)
- * 2. Celles annotées avec @Controller
+ * 2. Celles annotées avec @Controller, reconnues dans leur bytecode sans être chargées
  * 3. Les méthodes annotées avec @UrlMapping
  * 4. Les méthodes annotées avec @GetMapping ou @PostMapping
  * 
@@ -45,6 +57,7 @@ import mg.itu.ermite.framework.annotation.UrlMapping;
  * @see GetMapping
  * @see PostMapping
  * @see EndPointDetails
+ * @see ClassFileAnnotations
  */
 public class ClasspathScanner {
 
@@ -67,153 +80,376 @@ public class ClasspathScanner {
 
         for (Class<?> controller : controllers)
         {
-            Method[] methods = controller.getDeclaredMethods(); 
-            for(Method method : methods)
+            collect(mappedEndpoints, controller);
+        }
+        return mappedEndpoints;
+    } 
+
+    /**
+     * Ajoute les endpoints d'un contrôleur (méthodes annotées @UrlMapping).
+     * 
+     * @param mappedEndpoints la map URL -&gt; liste d'EndPointDetails
+     * @param controller la classe du contrôleur
+     */
+    static void collect(Map<String,Object> mappedEndpoints, Class<?> controller)
+    {
+        Method[] methods = controller.getDeclaredMethods(); 
+        for(Method method : methods)
+        {
+            if(method.isAnnotationPresent(UrlMapping.class))
             {
-                if(method.isAnnotationPresent(UrlMapping.class))
-                {
-                    String url = method.getAnnotation(UrlMapping.class).url();
+                String url = method.getAnnotation(UrlMapping.class).url();
+                register(mappedEndpoints, url, createEndPoint(controller, method, httpMethodOf(method)));
+            }
+        }  
+    }
 
-                    EndPointDetails endpointDetails = new EndPointDetails();
-                    endpointDetails.setClassName(controller.getName());
-                    endpointDetails.setMethod(method);
+    /**
+     * Construit l'endpoint d'une méthode de contrôleur et compile ses politiques
+     * (sécurité, débit, concurrence, priorité de délestage, thread virtuel, délai).
+     * 
+     * @param controller la classe du contrôleur
+     * @param method la méthode annotée @UrlMapping
+     * @param httpMethod la méthode HTTP (GET, POST ou *)
+     * @return l'endpoint prêt à être enregistré
+     */
+    static EndPointDetails createEndPoint(Class<?> controller, Method method, String httpMethod)
+    {
+        EndPointDetails endpointDetails = new EndPointDetails();
+        endpointDetails.setClassName(controller.getName());
+        endpointDetails.setMethod(method);
+        endpointDetails.setHttpMethod(httpMethod);
+        endpointDetails.setSecurityPolicy(SecurityPolicy.compile(method));
+        endpointDetails.setRateLimiter(RateLimiter.compile(method));
+        endpointDetails.setConcurrencyLimiter(ConcurrencyLimiter.compile(method));
+        endpointDetails.setLoadPriority(LoadShedder.priorityOf(method));
+        endpointDetails.setVirtualThread(VirtualThreadExecutor.isEnabled(method));
+        endpointDetails.setTimeoutMillis(Deadline.timeoutOf(method));
+        return endpointDetails;
+    }
 
-                    if(method.isAnnotationPresent(GetMapping.class))
-                    {
-                        endpointDetails.setHttpMethod("GET");
-                    }
-                    else if(method.isAnnotationPresent(PostMapping.class))
-                    {
-                        endpointDetails.setHttpMethod("POST");
-                    }
-                    else{
-                        endpointDetails.setHttpMethod("*");
-                    }
+    /**
+     * @param method la méthode du contrôleur
+     * @return "GET", "POST" ou "*" selon ses annotations
+     */
+    static String httpMethodOf(Method method)
+    {
+        if(method.isAnnotationPresent(GetMapping.class)) return "GET";
+        if(method.isAnnotationPresent(PostMapping.class)) return "POST";
+        return "*";
+    }
 
-                    if(mappedEndpoints.containsKey(url))
-                    {
-                        ((List<EndPointDetails>) mappedEndpoints.get(url)).add(endpointDetails);
-                    }
-                    else{
-                        List<EndPointDetails> endpoints = new ArrayList<>();
-                        endpoints.add(endpointDetails);
-                        mappedEndpoints.put(url,endpoints);
-                    }
-                }
-            }  
-        }
-        return mappedEndpoints;
-    } 
+    /**
+     * Ajoute un endpoint à la liste de son URL.
+     * 
+     * @param mappedEndpoints la map URL -&gt; liste d'EndPointDetails
+     * @param url l'URL mappée
+     * @param endpointDetails l'endpoint à ajouter
+     */
+    @SuppressWarnings("unchecked")
+    static void register(Map<String,Object> mappedEndpoints, String url, EndPointDetails endpointDetails)
+    {
+        ((List<EndPointDetails>) mappedEndpoints.computeIfAbsent(url, k -> new ArrayList<EndPointDetails>())).add(endpointDetails);
+    }
 
     /**
      * Trouve toutes les classes du classpath annotées avec une annotation spécifiée.
-     * 
-     * @param annotation l'annotation à chercher
+     *
+     * Les fichiers .class sont lus en parallèle (un pool fork-join, une tâche par
+     * répertoire et par JAR) et leurs annotations sont décodées directement depuis le
+     * bytecode : seules les classes portant l'annotation sont ensuite chargées.
+     * Les paquets sont filtrés par les paramètres "scanPackages" et "scanExcludePackages".
+     *
+     * @param annotation l'annotation à chercher (rétention RUNTIME)
      * @return une liste de classes annotées
      */
     public static List<Class<?>> findAnnotatedClasses(Class<? extends Annotation> annotation) {
-        List<Class<?>> annotatedClasses = new ArrayList<>();
-        Set<String> allClassNames = new HashSet<>();
+        long start = System.nanoTime();
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        Map<File, List<String>> matches = scan(findRoots(loader), annotation);
+
+        List<String> classNames = new ArrayList<>();
+        for (List<String> names : matches.values()) classNames.addAll(names);
+        List<Class<?>> annotatedClasses = loadClasses(classNames, loader);
 
+        System.out.println("[Scanner] " + annotatedClasses.size() + " classes annotees @" + annotation.getSimpleName()
+                + " en " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        return annotatedClasses;
+    }
+
+    /**
+     * Liste les racines du classpath de l'application : le répertoire WEB-INF/classes
+     * et les JAR de WEB-INF/lib.
+     * 
+     * @param loader le ClassLoader de l'application
+     * @return les répertoires et fichiers JAR à scanner
+     */
+    static List<File> findRoots(ClassLoader loader) {
+        List<File> roots = new ArrayList<>();
         try {
-            allClassNames.addAll(getAllClassNames());
+            Enumeration<URL> resources = loader.getResources("");
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                String path = URLDecoder.decode(url.getPath(), "UTF-8");
+
+                // --- Classes compilées dans WEB-INF/classes ---
+                if (path.contains("/WEB-INF/classes/")) {
+                    File classesDir = new File(path);
+                    if (classesDir.exists()) roots.add(classesDir);
+                }
+
+                // --- Classes contenues dans les JAR du WEB-INF/lib ---
+                else if (path.contains("/WEB-INF/lib/") && path.endsWith(".jar!/")) {
+                    roots.add(new File(path.substring("file:".length(), path.indexOf("!"))));
+                }
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            System.out.println("[Scanner] Lecture du classpath impossible: " + e.getMessage());
         }
+        return roots;
+    }
 
-        System.out.println("[Framework] Nombre total de classes détectées : " + allClassNames.size());
+    /**
+     * Cherche, sans les charger, les classes annotées de chaque racine.
+     * 
+     * Les racines sont lues en parallèle (un pool fork-join, une tâche par
+     * répertoire et par JAR) avec les filtres "scanPackages" et "scanExcludePackages".
+     * 
+     * @param roots les répertoires et JAR à scanner
+     * @param annotation l'annotation à chercher (rétention RUNTIME)
+     * @return pour chaque racine, les noms des classes annotées, triés
+     */
+    static Map<File, List<String>> scan(List<File> roots, Class<? extends Annotation> annotation) {
+        ConfigManager config = ConfigManager.getInstance();
+        ScanContext context = new ScanContext(ClassFileAnnotations.descriptorOf(annotation),
+                new PackageFilter(config.get("scanPackages"), config.get("scanExcludePackages")));
 
-        for (String className : allClassNames) {
-            try {
-                Class<?> clazz = Class.forName(className);
-                if (clazz.isAnnotationPresent(annotation)) {
-                    annotatedClasses.add(clazz);
+        Map<File, Queue<String>> matches = new LinkedHashMap<>();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (File root : roots) {
+            Queue<String> rootMatches = new ConcurrentLinkedQueue<>();
+            matches.put(root, rootMatches);
+            if (root.isDirectory()) {
+                System.out.println("- Parcours du répertoire : " + root.getAbsolutePath());
+                tasks.add(new DirectoryTask(root, "", context, rootMatches));
+            } else {
+                tasks.add(new JarTask(root.getPath(), context, rootMatches));
+            }
+        }
+
+        int parallelism = config.getInt("scanParallelism", Runtime.getRuntime().availableProcessors());
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
                 }
-            } catch (Throwable ignored) {}
+            });
+        } finally {
+            pool.shutdown();
         }
 
-        return annotatedClasses;
+        Map<File, List<String>> result = new LinkedHashMap<>();
+        for (Map.Entry<File, Queue<String>> entry : matches.entrySet()) {
+            List<String> names = new ArrayList<>(entry.getValue());
+            Collections.sort(names);
+            result.put(entry.getKey(), names);
+        }
+        System.out.println("[Scanner] " + context.scanned.get() + " classes lues dans " + roots.size() + " racines");
+        return result;
     }
 
     /**
-     * Récupère l'ensemble de tous les noms de classes disponibles sur le classpath.
-     * 
-     * Parcourt les répertoires WEB-INF/classes et les JAR du WEB-INF/lib.
+     * Charge les classes trouvées par le scan avec le ClassLoader de l'application
+     * (les threads du pool n'héritent pas du ClassLoader de contexte).
      * 
-     * @return un ensemble contenant tous les noms de classes
-     * @throws IOException en cas d'erreur lors de la lecture des ressources
+     * @param classNames les noms binaires des classes
+     * @param loader le ClassLoader de l'application
+     * @return les classes chargées ; celles qui échouent sont journalisées et ignorées
      */
-    private static Set<String> getAllClassNames() throws IOException {
-        Set<String> classNames = new HashSet<>();
-        ClassLoader cl = Thread.currentThread().getContextClassLoader();
-        Enumeration<URL> resources = cl.getResources("");
-
-        while (resources.hasMoreElements()) {
-            URL url = resources.nextElement();
-            String path = URLDecoder.decode(url.getPath(), "UTF-8");
-
-            // --- Classes compilées dans WEB-INF/classes ---
-            if (path.contains("/WEB-INF/classes/")) {
-                File classesDir = new File(path);
-                if (classesDir.exists()) {
-                    System.out.println("- Parcours du répertoire : " + classesDir.getAbsolutePath());
-                    scanDirectory(classesDir, "", classNames);
-                }
+    static List<Class<?>> loadClasses(List<String> classNames, ClassLoader loader) {
+        List<Class<?>> classes = new ArrayList<>();
+        for (String className : classNames) {
+            try {
+                classes.add(Class.forName(className, true, loader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                System.out.println("[Scanner] Classe " + className + " ignoree: " + e);
             }
+        }
+        return classes;
+    }
 
-            // --- Classes contenues dans les JAR du WEB-INF/lib ---
-            else if (path.contains("/WEB-INF/lib/") && path.endsWith(".jar!/")) {
-                String jarPath = path.substring("file:".length(), path.indexOf("!"));
-                scanJarFile(jarPath, classNames);
-            }
+    /**
+     * État partagé d'un scan : annotation cherchée, filtre de paquets, compteur.
+     */
+    private static final class ScanContext {
+        final String descriptor;
+        final PackageFilter filter;
+        final AtomicInteger scanned = new AtomicInteger();
+
+        ScanContext(String descriptor, PackageFilter filter) {
+            this.descriptor = descriptor;
+            this.filter = filter;
         }
 
-        return classNames;
+        void inspect(String className, byte[] classFile, String source, Queue<String> matches) {
+            scanned.incrementAndGet();
+            try {
+                if (ClassFileAnnotations.hasAnnotation(classFile, descriptor)) matches.add(className);
+            } catch (IllegalArgumentException e) {
+                System.out.println("[Scanner] " + source + " ignore: " + e.getMessage());
+            }
+        }
     }
 
     /**
-     * Parcourt récursivement un répertoire pour trouver les fichiers .class.
-     * 
-     * @param directory le répertoire à parcourir
-     * @param packageName le nom du package en cours
-     * @param classNames l'ensemble où ajouter les noms de classes trouvées
+     * Parcourt un répertoire de classes ; chaque sous-répertoire retenu par le filtre
+     * est parcouru par une tâche distincte.
      */
-    private static void scanDirectory(File directory, String packageName, Set<String> classNames) {
-        File[] files = directory.listFiles();
-        if (files == null) return;
-
-        for (File file : files) {
-            if (file.isDirectory()) {
-                scanDirectory(file, packageName + file.getName() + ".", classNames);
-            } else if (file.getName().endsWith(".class")) {
-                String className = packageName + file.getName().replace(".class", "");
-                classNames.add(className);
+    private static final class DirectoryTask extends RecursiveAction {
+        // Tâche jamais sérialisée : ForkJoinTask n'est Serializable que par héritage
+        private static final long serialVersionUID = 1L;
+
+        private final File directory;
+        private final String packageName;
+        private final transient ScanContext context;
+        private final transient Queue<String> matches;
+
+        DirectoryTask(File directory, String packageName, ScanContext context, Queue<String> matches) {
+            this.directory = directory;
+            this.packageName = packageName;
+            this.context = context;
+            this.matches = matches;
+        }
+
+        @Override
+        protected void compute() {
+            File[] files = directory.listFiles();
+            if (files == null) return;
+
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            for (File file : files) {
+                String name = file.getName();
+                if (file.isDirectory()) {
+                    String subPackage = packageName + name + ".";
+                    if (context.filter.mayContain(subPackage)) {
+                        subdirectories.add(new DirectoryTask(file, subPackage, context, matches));
+                    }
+                } else if (isCandidate(name) && context.filter.accepts(packageName)) {
+                    try {
+                        context.inspect(packageName + name.substring(0, name.length() - ".class".length()),
+                                Files.readAllBytes(file.toPath()), file.getPath(), matches);
+                    } catch (IOException e) {
+                        System.out.println("[Scanner] Lecture impossible de " + file + ": " + e.getMessage());
+                    }
+                }
             }
+            invokeAll(subdirectories);
         }
     }
 
     /**
-     * Parcourt un fichier JAR pour extraire les noms de classes.
-     * 
-     * @param jarPath le chemin complet du fichier JAR
-     * @param classNames l'ensemble où ajouter les noms de classes trouvées
+     * Parcourt les entrées .class d'un JAR.
      */
-    private static void scanJarFile(String jarPath, Set<String> classNames) {
-        System.out.println("- Lecture du JAR : " + jarPath);
-        try (InputStream is = new URL("file:" + jarPath).openStream();
-             JarInputStream jarStream = new JarInputStream(is)) {
-
-            JarEntry entry;
-            while ((entry = jarStream.getNextJarEntry()) != null) {
-                if (entry.getName().endsWith(".class")) {
-                    String className = entry.getName()
-                            .replace("/", ".")
-                            .replace(".class", "");
-                    classNames.add(className);
+    private static final class JarTask extends RecursiveAction {
+        // Tâche jamais sérialisée : ForkJoinTask n'est Serializable que par héritage
+        private static final long serialVersionUID = 1L;
+
+        private final String jarPath;
+        private final transient ScanContext context;
+        private final transient Queue<String> matches;
+
+        JarTask(String jarPath, ScanContext context, Queue<String> matches) {
+            this.jarPath = jarPath;
+            this.context = context;
+            this.matches = matches;
+        }
+
+        @Override
+        protected void compute() {
+            System.out.println("- Lecture du JAR : " + jarPath);
+            try (JarFile jar = new JarFile(jarPath)) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (name.startsWith("META-INF/")) continue;
+                    int slash = name.lastIndexOf('/');
+                    if (!isCandidate(name.substring(slash + 1))) continue;
+
+                    String packageName = name.substring(0, slash + 1).replace('/', '.');
+                    if (!context.filter.accepts(packageName)) continue;
+                    try (InputStream is = jar.getInputStream(entry)) {
+                        context.inspect(packageName + name.substring(slash + 1, name.length() - ".class".length()),
+                                is.readAllBytes(), jarPath + "!/" + name, matches);
+                    }
                 }
+            } catch (IOException e) {
+                System.out.println("[Scanner] Lecture impossible du JAR " + jarPath + ": " + e.getMessage());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+        }
+    }
+
+    private static boolean isCandidate(String fileName) {
+        return fileName.endsWith(".class")
+                && !fileName.equals("module-info.class")
+                && !fileName.equals("package-info.class");
+    }
+
+    /**
+     * Filtre de paquets à inclure ("scanPackages") et à exclure ("scanExcludePackages"),
+     * chacun une liste de préfixes séparés par des virgules. Sans inclusion, tout est scanné.
+     */
+    private static final class PackageFilter {
+        private final List<String> includes;
+        private final List<String> excludes;
+
+        PackageFilter(String includes, String excludes) {
+            this.includes = parse(includes);
+            this.excludes = parse(excludes);
+        }
+
+        private static List<String> parse(String value) {
+            List<String> prefixes = new ArrayList<>();
+            if (value == null) return prefixes;
+            for (String prefix : value.split(",")) {
+                prefix = prefix.trim();
+                if (prefix.endsWith(".*")) prefix = prefix.substring(0, prefix.length() - 1);
+                if (prefix.isEmpty()) continue;
+                prefixes.add(prefix.endsWith(".") ? prefix : prefix + ".");
+            }
+            return prefixes;
+        }
+
+        /**
+         * @param packageName un nom de paquet terminé par "." (vide pour le paquet par défaut)
+         * @return true si les classes de ce paquet doivent être lues
+         */
+        boolean accepts(String packageName) {
+            for (String exclude : excludes) {
+                if (packageName.startsWith(exclude)) return false;
+            }
+            if (includes.isEmpty()) return true;
+            for (String include : includes) {
+                if (packageName.startsWith(include)) return true;
+            }
+            return false;
+        }
+
+        /**
+         * @param packageName un nom de paquet terminé par "."
+         * @return true si ce paquet ou l'un de ses sous-paquets peut être accepté
+         */
+        boolean mayContain(String packageName) {
+            for (String exclude : excludes) {
+                if (packageName.startsWith(exclude)) return false;
+            }
+            if (includes.isEmpty()) return true;
+            for (String include : includes) {
+                if (packageName.startsWith(include) || include.startsWith(packageName)) return true;
+            }
+            return false;
         }
     }
 }
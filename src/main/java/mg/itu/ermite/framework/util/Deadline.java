@@ -0,0 +1,263 @@
+package mg.itu.ermite.framework.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.servlet.http.HttpServletRequest;
+import mg.itu.ermite.framework.annotation.Timeout;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Échéance d'une requête : instant au-delà duquel son résultat n'intéresse plus le client.
+ *
+ * L'échéance est la plus proche de :
+ * - l'arrivée + le délai de l'endpoint (@Timeout, sinon "requestTimeout")
+ * - l'arrivée + le budget annoncé par l'appelant dans l'en-tête "deadlineHeader", si
+ *   celui-ci est configuré ("250", "250ms", "2s", "1.5s" ; un budget nul ou négatif
+ *   est déjà dépassé)
+ *
+ * Un paramètre de type Deadline est injecté dans les méthodes de contrôleur. L'annulation
+ * est coopérative : le contrôleur consulte {@link #isExpired()} (ou appelle
+ * {@link #throwIfExpired()}) entre deux étapes, et transmet {@link #headerValue()} aux
+ * services qu'il appelle pour propager le budget restant. Pendant l'invocation, le thread
+ * du contrôleur est de plus interrompu à l'échéance ("requestTimeoutInterrupt", défaut
+ * true), ce qui débloque les attentes interruptibles (sleep, verrous, files, I/O NIO) ;
+ * l'interruption est effacée au retour du contrôleur. Seul un délai fixé par le serveur
+ * interrompt : un budget plus court annoncé par l'appelant reste coopératif, un client
+ * ne peut pas faire interrompre un thread à volonté.
+ *
+ * Configuration (web.xml) :
+ * - "requestTimeout" : délai global en millisecondes (défaut 0 : illimité)
+ * - "deadlineHeader" : en-tête du budget de l'appelant, ex. X-Request-Timeout (défaut vide :
+ *   budget de l'appelant ignoré et non propagé)
+ * - "requestTimeoutInterrupt" : false pour une annulation seulement coopérative
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see Timeout
+ * @see RequestContext
+ */
+public final class Deadline {
+
+    /** Valeur de {@link EndPointDetails#getTimeoutMillis()} : délai global "requestTimeout" */
+    public static final long INHERIT = -1;
+
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE, false, false);
+
+    private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+    private final boolean interrupt;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Thread worker;
+    private boolean interrupted;
+    private ScheduledFuture<?> alarm;
+
+    private Deadline(long deadlineNanos, boolean bounded, boolean interrupt) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+        this.interrupt = interrupt;
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "framework-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * @return une échéance illimitée
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    /**
+     * Calcule l'échéance d'une requête.
+     *
+     * @param request la requête HTTP
+     * @param endPoint l'endpoint résolu
+     * @param arrivalNanos l'instant d'arrivée (System.nanoTime)
+     * @return l'échéance, ou {@link #none()} sans délai ni budget
+     */
+    public static Deadline of(HttpServletRequest request, EndPointDetails endPoint, long arrivalNanos) {
+        ConfigManager config = ConfigManager.getInstance();
+        long timeoutMillis = endPoint.getTimeoutMillis();
+        if (timeoutMillis == INHERIT) timeoutMillis = config.getLong("requestTimeout", 0);
+
+        long serverNanos = timeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE;
+        long budgetNanos = serverNanos;
+        String header = headerName();
+        if (header != null) {
+            long requested = parseBudget(request.getHeader(header));
+            if (requested != Long.MAX_VALUE) budgetNanos = Math.min(budgetNanos, requested);
+        }
+        if (budgetNanos == Long.MAX_VALUE) return NONE;
+        // Budget de l'appelant plus court que le délai du serveur : annulation coopérative seulement
+        boolean interrupt = budgetNanos == serverNanos && config.getBoolean("requestTimeoutInterrupt", true);
+        // Un budget de plusieurs siècles ne doit pas déborder de nanoTime
+        budgetNanos = Math.min(budgetNanos, TimeUnit.DAYS.toNanos(365));
+        return new Deadline(arrivalNanos + budgetNanos, true, interrupt);
+    }
+
+    /**
+     * Lit le délai d'une méthode de contrôleur : annotation de la méthode, puis du contrôleur.
+     *
+     * @param method la méthode du contrôleur
+     * @return le délai en millisecondes (0 : illimité), ou {@link #INHERIT} sans annotation
+     */
+    public static long timeoutOf(Method method) {
+        Timeout timeout = method.getAnnotation(Timeout.class);
+        if (timeout == null) timeout = method.getDeclaringClass().getAnnotation(Timeout.class);
+        if (timeout == null) return INHERIT;
+        if (timeout.value() < 0) {
+            throw new IllegalArgumentException("@Timeout invalide sur " + method.getName() + ": " + timeout.value());
+        }
+        return timeout.value();
+    }
+
+    /**
+     * Lit un budget : millisecondes, ou nombre suivi de "ms" ou "s".
+     *
+     * @return le budget en nanosecondes (négatif s'il est déjà épuisé), ou Long.MAX_VALUE s'il est absent ou invalide
+     */
+    static long parseBudget(String header) {
+        if (header == null) return Long.MAX_VALUE;
+        String value = header.trim().toLowerCase();
+        double unitNanos = 1_000_000;
+        if (value.endsWith("ms")) {
+            value = value.substring(0, value.length() - 2).trim();
+        } else if (value.endsWith("s")) {
+            value = value.substring(0, value.length() - 1).trim();
+            unitNanos = 1_000_000_000;
+        }
+        try {
+            double budget = Double.parseDouble(value);
+            if (Double.isNaN(budget) || Double.isInfinite(budget)) return Long.MAX_VALUE;
+            // Conversion saturée : un budget démesuré reste borné, jamais "absent"
+            return Math.min(Long.MAX_VALUE - 1, (long) (budget * unitNanos));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return true si la requête a une échéance
+     */
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    /**
+     * @return true si l'échéance est dépassée : le résultat ne sera pas envoyé
+     */
+    public boolean isExpired() {
+        return bounded && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * @return le temps restant en millisecondes (0 si dépassé, Long.MAX_VALUE sans échéance)
+     */
+    public long remainingMillis() {
+        if (!bounded) return Long.MAX_VALUE;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * Borne un délai par le temps restant.
+     *
+     * @param timeoutMillis un délai en millisecondes (0 ou négatif : illimité)
+     * @return le plus court du délai et du temps restant (0 : illimité, au moins 1 si borné)
+     */
+    public long limit(long timeoutMillis) {
+        if (!bounded) return timeoutMillis;
+        long remaining = Math.max(1, remainingMillis());
+        return timeoutMillis > 0 ? Math.min(timeoutMillis, remaining) : remaining;
+    }
+
+    /**
+     * Arrête le traitement si l'échéance est dépassée.
+     *
+     * @throws CancellationException si l'échéance est dépassée
+     */
+    public void throwIfExpired() {
+        if (isExpired()) throw new CancellationException("Delai de la requete depasse");
+    }
+
+    /**
+     * @return l'en-tête qui propage le budget aux services appelés, ou null s'il est désactivé
+     */
+    public static String headerName() {
+        String header = ConfigManager.getInstance().get("deadlineHeader", "");
+        return header == null || header.isEmpty() ? null : header;
+    }
+
+    /**
+     * @return le budget restant à transmettre dans {@link #headerName()}, en millisecondes
+     *         (null sans échéance)
+     */
+    public String headerValue() {
+        return bounded ? String.valueOf(remainingMillis()) : null;
+    }
+
+    /**
+     * Associe le thread courant à l'échéance le temps de l'invocation du contrôleur :
+     * il sera interrompu si elle est dépassée avant {@link #leave()}.
+     */
+    public void enter() {
+        if (!bounded || !interrupt) return;
+        lock.lock();
+        try {
+            worker = Thread.currentThread();
+            interrupted = false;
+            long delay = deadlineNanos - System.nanoTime();
+            alarm = TIMER.schedule(this::expire, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Dissocie le thread courant de l'échéance et efface l'interruption qu'elle a provoquée.
+     */
+    public void leave() {
+        if (!bounded || !interrupt) return;
+        lock.lock();
+        try {
+            if (alarm != null) alarm.cancel(false);
+            alarm = null;
+            worker = null;
+            // Le thread (du conteneur ou virtuel) ne doit pas rester interrompu après l'invocation
+            if (interrupted) Thread.interrupted();
+            interrupted = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void expire() {
+        lock.lock();
+        try {
+            if (worker == null) return;
+            interrupted = true;
+            worker.interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return bounded ? "Deadline[" + remainingMillis() + "ms]" : "Deadline[none]";
+    }
+}
@@ -21,9 +21,18 @@ import java.util.regex.Pattern;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.Part;
+import mg.itu.ermite.framework.annotation.LoadPriority;
 import mg.itu.ermite.framework.annotation.RequestParam;
+import mg.itu.ermite.framework.util.security.SecurityDecision;
 import mg.itu.ermite.framework.util.security.SecurityHandler;
+import mg.itu.ermite.framework.util.security.SecurityPolicy;
+import mg.itu.ermite.framework.util.security.TokenAuthenticator;
+import mg.itu.ermite.framework.util.security.UserPrincipal;
+import mg.itu.ermite.framework.util.traffic.ConcurrencyLimiter;
+import mg.itu.ermite.framework.util.traffic.LoadShedder;
+import mg.itu.ermite.framework.util.traffic.RateLimiter;
 
 /**
  * Classe contenant les détails d'un endpoint et gérant l'invocation de méthode.
@@ -62,6 +71,22 @@ public class EndPointDetails {
     private String className;
     private Method method;
     private String httpMethod;
+    private SecurityPolicy securityPolicy;
+    private RateLimiter rateLimiter;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private LoadPriority.Level loadPriority = LoadPriority.Level.NORMAL;
+    private LoadShedder.Baseline processingBaseline = new LoadShedder.Baseline();
+    private boolean virtualThread;
+    private long timeoutMillis = Deadline.INHERIT;
+    /** Noms source des paramètres (index de compilation), null pour ceux de la réflexion */
+    private String[] parameterNames;
+    /** Instance partagée qui reçoit les appels (handler enregistré), null : une instance par appel */
+    private Object target;
+    /** Fabrique compilée du contrôleur (ServiceContainer), résolue au démarrage ou au premier appel */
+    private ServiceContainer.Factory factory;
+
+    /** Attribut de requête désignant l'endpoint dont l'accès a déjà été autorisé */
+    private static final String AUTHORIZED_ATTRIBUTE = EndPointDetails.class.getName() + ".authorized";
     
     /**
      * Constructeur par défaut.
@@ -80,17 +105,46 @@ public class EndPointDetails {
         this.method = method;
     }
 
+    /**
+     * Copie l'endpoint, pour en changer les politiques sans modifier celui d'une table
+     * publiée : les requêtes en cours lisent ses champs sans synchronisation.
+     * La copie partage la référence de délestage et la fabrique du contrôleur.
+     * 
+     * @return la copie, à publier par {@link RouteRegistry#update(java.util.function.Consumer)}
+     */
+    public EndPointDetails copy() {
+        EndPointDetails copy = new EndPointDetails(className, method);
+        copy.httpMethod = httpMethod;
+        copy.securityPolicy = securityPolicy;
+        copy.rateLimiter = rateLimiter;
+        copy.concurrencyLimiter = concurrencyLimiter;
+        copy.loadPriority = loadPriority;
+        copy.processingBaseline = processingBaseline;
+        copy.virtualThread = virtualThread;
+        copy.timeoutMillis = timeoutMillis;
+        copy.parameterNames = parameterNames;
+        copy.target = target;
+        copy.factory = factory;
+        return copy;
+    }
+
     /**
      * Invoque la méthode du contrôleur avec les paramètres extraits de la requête.
      * 
      * Processus d'invocation :
-     * 1. Vérifie les permissions de sécurité
-     * 2. Crée une instance du contrôleur
+     * 1. Vérifie les permissions de sécurité (sauf si {@link #authorize(HttpServletRequest)} l'a déjà fait)
+     * 2. Obtient l'instance du contrôleur par sa fabrique (ServiceContainer, dépendances
+     *    injectées), sauf instance partagée (voir {@link #setTarget(Object)})
      * 3. Récupère les paramètres de la méthode
      * 4. Pour chaque paramètre :
      *    - Si c'est Map<String, Object> : ajoute tous les paramètres HTTP
      *    - Si c'est Map<String, List<FileData>> : ajoute les fichiers uploadés
      *    - Si c'est SessionMap : passe la session
+     *    - Si c'est UserPrincipal : passe l'identité authentifiée par jeton
+     *    - Si c'est RequestContext : passe le contexte de la requête
+     *    - Si c'est Deadline : passe l'échéance de la requête
+     *    - Si c'est AfterResponse : passe les tâches exécutées après l'envoi de la réponse
+     *    - Si c'est FanOut : passe le lanceur d'appels parallèles de la requête
      *    - Si c'est primitif : convertit le String en type cible
      *    - Si c'est un objet complexe : effectue un binding récursif
      * 5. Invoque la méthode avec les paramètres préparés
@@ -102,141 +156,212 @@ public class EndPointDetails {
      * @throws RuntimeException en cas d'erreur d'invocation ou de binding
      */
     public Object invokeMethod(HttpServletRequest request,Map<String,String> urlParams) {
+        return invokeMethod(request, null, urlParams);
+    }
+
+    /**
+     * Invoque la méthode du contrôleur en ayant accès à la réponse HTTP.
+     * 
+     * La réponse est nécessaire pour qu'un store de session externe puisse
+     * émettre son cookie lorsque le contrôleur crée la session.
+     * 
+     * @param request la requête HTTP
+     * @param response la réponse HTTP (peut être null)
+     * @param urlParams map des paramètres extraits de l'URL (path variables)
+     * @return le résultat de l'invocation de la méthode
+     * @throws RuntimeException en cas d'erreur d'invocation ou de binding
+     */
+    public Object invokeMethod(HttpServletRequest request, HttpServletResponse response, Map<String,String> urlParams) {
         try {
-            SecurityHandler.checkAbilityToInvoke(method, request);
-            Class<?> clazz = Class.forName(className);
-            Object instance = clazz.getConstructor().newInstance();
-            
-            Parameter[] parameters = method.getParameters();
-            List<Class<?>> parameterTypes = new ArrayList<>();
-            for (Parameter param : parameters) {
-                parameterTypes.add(param.getType());
+            if (request.getAttribute(AUTHORIZED_ATTRIBUTE) != this) {
+                SecurityDecision decision = SecurityHandler.evaluate(this, request);
+                if (!decision.isAllowed()) {
+                    throw new IllegalStateException(decision.getMessage() + " (methode: " + method.getName() + ")");
+                }
             }
+            Object instance = target;
+            if (instance == null) {
+                ServiceContainer.Factory controllerFactory = factory;
+                if (controllerFactory == null) {
+                    // Contrôleur enregistré à l'exécution : chargé par son propre ClassLoader (JAR de plugin)
+                    Class<?> clazz = Class.forName(className, true, method.getDeclaringClass().getClassLoader());
+                    controllerFactory = factory = ServiceContainer.get().factory(clazz);
+                }
+                instance = controllerFactory.create(request);
+            }
+            
+            Object[] arguments = bindArguments(request, response, urlParams);
             
-            List<Object> arguments = new ArrayList<>();
-
-            for (Parameter parameter : parameters) {
-                String paramValue = null;
-                String urlValue = urlParams.get(parameter.getName());
-                if (parameter.getType().equals(Map.class)) {
-                    try {
-                        ParameterizedType mapType = (ParameterizedType) parameter.getParameterizedType();
-                        Type[] typeArguments = mapType.getActualTypeArguments();
+            return method.invoke(instance, arguments);
+
+        } catch (InvocationTargetException e) {
+            e.printStackTrace();
+            Throwable targetException = e.getTargetException();
+            throw new RuntimeException("Erreur lors de l'execution de la methode", targetException);
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException("Erreur lors du processus de la methode de l'endpoint:"+e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Prépare les arguments de la méthode du contrôleur à partir de la requête, sans
+     * l'invoquer (binding, conversions de types, injection des objets du framework).
+     *
+     * Utilisé par {@link #invokeMethod(HttpServletRequest, HttpServletResponse, Map)}
+     * et par le préchauffage ({@link Warmup}), qui exerce le binding sans effet de bord.
+     *
+     * @param request la requête HTTP
+     * @param response la réponse HTTP (peut être null)
+     * @param urlParams map des paramètres extraits de l'URL (path variables)
+     * @return les arguments, dans l'ordre des paramètres de la méthode
+     * @throws Exception si un paramètre est absent ou ne peut pas être converti
+     */
+    public Object[] bindArguments(HttpServletRequest request, HttpServletResponse response, Map<String,String> urlParams) throws Exception {
+        Parameter[] parameters = method.getParameters();
+        List<Class<?>> parameterTypes = new ArrayList<>();
+        for (Parameter param : parameters) {
+            parameterTypes.add(param.getType());
+        }
+        
+        String[] names = getParameterNames();
+        List<Object> arguments = new ArrayList<>();
+
+        for (int index = 0; index < parameters.length; index++) {
+            Parameter parameter = parameters[index];
+            String parameterName = names[index];
+            String paramValue = null;
+            String urlValue = urlParams.get(parameterName);
+            if (parameter.getType().equals(Map.class)) {
+                try {
+                    ParameterizedType mapType = (ParameterizedType) parameter.getParameterizedType();
+                    Type[] typeArguments = mapType.getActualTypeArguments();
+                    
+                    if (typeArguments.length == 2) {
+                        Type keyType = typeArguments[0];
+                        Type valueType = typeArguments[1];
                         
-                        if (typeArguments.length == 2) {
-                            Type keyType = typeArguments[0];
-                            Type valueType = typeArguments[1];
-                            
-                            // Cas 1: Map<String, Object>
-                            if (keyType.equals(String.class) && valueType.equals(Object.class)) {
-                                System.out.println("Nous allons remplir le map de paramètres");
-                                arguments.add(request.getParameterMap());
-                                continue;
-                            }
+                        // Cas 1: Map<String, Object>
+                        if (keyType.equals(String.class) && valueType.equals(Object.class)) {
+                            arguments.add(request.getParameterMap());
+                            continue;
+                        }
+                        
+                        // Cas 2: Map<String, List<byte[]>>
+                        if (keyType.equals(String.class) && valueType instanceof ParameterizedType) {
+                            ParameterizedType listType = (ParameterizedType) valueType;
                             
-                            // Cas 2: Map<String, List<byte[]>>
-                            if (keyType.equals(String.class) && valueType instanceof ParameterizedType) {
-                                ParameterizedType listType = (ParameterizedType) valueType;
+                            if (listType.getRawType().equals(List.class)) {
+                                Type listElementType = listType.getActualTypeArguments()[0];
                                 
-                                if (listType.getRawType().equals(List.class)) {
-                                    Type listElementType = listType.getActualTypeArguments()[0];
+                                if (listElementType.equals(FileData.class)) {
+                                    // Vérifier que c'est bien une requête multipart
+                                    String contentType = request.getContentType();
+                                    if (contentType == null || !contentType.toLowerCase().contains("multipart/form-data")) {
+                                        throw new IllegalArgumentException(
+                                            "Le paramètre " + parameterName + " nécessite une requête multipart/form-data"
+                                        );
+                                    }
                                     
-                                    if (listElementType.equals(FileData.class)) {
-                                        System.out.println("Nous allons remplir le map de fichiers");
-                                        
-                                        // Vérifier que c'est bien une requête multipart
-                                        String contentType = request.getContentType();
-                                        if (contentType == null || !contentType.toLowerCase().contains("multipart/form-data")) {
-                                            throw new IllegalArgumentException(
-                                                "Le paramètre " + parameter.getName() + " nécessite une requête multipart/form-data"
-                                            );
-                                        }
-                                        
-                                        Map<String, List<FileData>> fileMap = new HashMap<>();
+                                    Map<String, List<FileData>> fileMap = new HashMap<>();
+                                    
+                                    try {
+                                        Collection<Part> parts = request.getParts();
                                         
-                                        try {
-                                            Collection<Part> parts = request.getParts();
-                                            
-                                            for (Part part : parts) {
-                                                // Vérifier si c'est un fichier (pas un paramètre normal)
-                                                if (part.getSubmittedFileName() != null) {
-                                                    try (InputStream in = part.getInputStream()) {
-                                                        byte[] fileBytes = in.readAllBytes();
-                                                        
-                                                        fileMap.computeIfAbsent(part.getName(), 
-                                                            s -> new ArrayList<>()).add(new FileData(fileBytes,part.getSubmittedFileName()));
-                                                    }
+                                        for (Part part : parts) {
+                                            // Vérifier si c'est un fichier (pas un paramètre normal)
+                                            if (part.getSubmittedFileName() != null) {
+                                                try (InputStream in = part.getInputStream()) {
+                                                    byte[] fileBytes = in.readAllBytes();
+                                                    
+                                                    fileMap.computeIfAbsent(part.getName(), 
+                                                        s -> new ArrayList<>()).add(new FileData(fileBytes,part.getSubmittedFileName()));
                                                 }
                                             }
-                                            
-                                            arguments.add(fileMap);
-                                            continue;
-                                            
-                                        } catch (IOException | ServletException e) {
-                                            throw new RuntimeException("Erreur lors de la lecture des fichiers", e);
                                         }
+                                        
+                                        arguments.add(fileMap);
+                                        continue;
+                                        
+                                    } catch (IOException | ServletException e) {
+                                        throw new RuntimeException("Erreur lors de la lecture des fichiers", e);
                                     }
                                 }
                             }
-                            
-                            // Autres types de Map non gérés
-                            throw new IllegalArgumentException(
-                                "Type Map non supporté: " + parameter.getParameterizedType()
-                            );
                         }
                         
-                    } catch (ClassCastException e) {
+                        // Autres types de Map non gérés
                         throw new IllegalArgumentException(
-                            "Erreur de type pour le paramètre " + parameter.getName(), e
+                            "Type Map non supporté: " + parameter.getParameterizedType()
                         );
                     }
+                    
+                } catch (ClassCastException e) {
+                    throw new IllegalArgumentException(
+                        "Erreur de type pour le paramètre " + parameterName, e
+                    );
                 }
-                else if(parameter.getType() == SessionMap.class)
+            }
+            else if(parameter.getType() == SessionMap.class)
+            {
+                // La session n'est créée qu'à la première écriture du contrôleur
+                arguments.add(SessionMap.of(request, response));
+            }
+            else if(parameter.getType() == RequestContext.class)
+            {
+                arguments.add(RequestContext.of(request));
+            }
+            else if(parameter.getType() == AfterResponse.class)
+            {
+                arguments.add(AfterResponse.of(request));
+            }
+            else if(parameter.getType() == FanOut.class)
+            {
+                arguments.add(FanOut.of(request));
+            }
+            else if(parameter.getType() == Deadline.class)
+            {
+                RequestContext context = RequestContext.of(request);
+                arguments.add(context == null ? Deadline.none() : context.getDeadline());
+            }
+            else if(parameter.getType() == UserPrincipal.class)
+            {
+                // Identité portée par le jeton (null pour une requête anonyme ou authentifiée par session)
+                TokenAuthenticator authenticator = TokenAuthenticator.get();
+                arguments.add(authenticator == null ? UserPrincipal.of(request) : authenticator.authenticate(request));
+            }
+            else if(Reflection.isPrimitiveType(parameter.getType())){
+                if(urlValue != null)
                 {
-                    arguments.add(new SessionMap(request.getSession()));
+                    paramValue = urlValue;
                 }
-                else if(Reflection.isPrimitiveType(parameter.getType())){
-                    if(urlValue != null)
+                else{
+                    if(parameter.isAnnotationPresent(RequestParam.class))
                     {
-                        paramValue = urlValue;
+                        paramValue = request.getParameter(parameter.getAnnotation(RequestParam.class).value());
                     }
                     else{
-                        if(parameter.isAnnotationPresent(RequestParam.class))
-                        {
-                            paramValue = request.getParameter(parameter.getAnnotation(RequestParam.class).value());
-                        }
-                        else{
-                            paramValue = request.getParameter(parameter.getName());
-                        }
-                        if (paramValue == null) {
-                            throw new IllegalArgumentException(
-                                "Parametre '" + (!parameter.isAnnotationPresent(RequestParam.class) ? parameter.getName() : parameter.getAnnotation(RequestParam.class).value()) + "' non fourni pour la methode '" + method.getName() + "'"
-                            );
-                        }
+                        paramValue = request.getParameter(parameterName);
+                    }
+                    if (paramValue == null) {
+                        throw new IllegalArgumentException(
+                            "Parametre '" + (!parameter.isAnnotationPresent(RequestParam.class) ? parameterName : parameter.getAnnotation(RequestParam.class).value()) + "' non fourni pour la methode '" + method.getName() + "'"
+                        );
                     }
-    
-                    
-                    Object convertedValue = Reflection.convertType(paramValue, parameter.getType());
-                    arguments.add(convertedValue);
-                }
-                else{
-                    //Ici,je dois trouver un moyen pour passer le genericType
-                    //ici, on va faire le binding 
-                    Object argument = bindObject(request, parameter.getParameterizedType(), parameter.getName());
-                    arguments.add(argument);
                 }
-            }
-            
-            return method.invoke(instance, arguments.toArray());
 
-        } catch (InvocationTargetException e) {
-            e.printStackTrace();
-            Throwable targetException = e.getTargetException();
-            throw new RuntimeException("Erreur lors de l'execution de la methode", targetException);
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException("Erreur lors du processus de la methode de l'endpoint:"+e.getMessage(), e);
+                
+                Object convertedValue = Reflection.convertType(paramValue, parameter.getType());
+                arguments.add(convertedValue);
+            }
+            else{
+                //Ici,je dois trouver un moyen pour passer le genericType
+                //ici, on va faire le binding 
+                Object argument = bindObject(request, parameter.getParameterizedType(), parameterName);
+                arguments.add(argument);
+            }
         }
+        return arguments.toArray();
     }
 
     /**
@@ -254,13 +379,10 @@ public class EndPointDetails {
         int maxIndex = -1;
         Enumeration<String> paramNames = request.getParameterNames();
         Pattern pattern = Pattern.compile(Pattern.quote(argumentName) + "(?:\\[(\\d+)])+(\\..+)?");
-        System.out.println("Argument name:"+argumentName);
         while (paramNames.hasMoreElements()) {
             String name = paramNames.nextElement();
-            System.out.println("Actual name:"+name);
             Matcher matcher = pattern.matcher(name);
             if (matcher.matches()) {
-                System.out.println("On a un matching");
                 int idx = Integer.parseInt(matcher.group(1));
                 if (idx > maxIndex) maxIndex = idx;
             }
@@ -329,7 +451,6 @@ public class EndPointDetails {
         }
         else{
             if (Reflection.isCollectionType(objectType)) {
-                System.out.println("Nous tombons dans la gestion de collections en fallback");
                 return (T) bindCollection(request, objectType, argumentName);
             }
             else{
@@ -391,12 +512,9 @@ public class EndPointDetails {
         }
 
         Class<?> elementType = arrayClass.getComponentType();
-        System.out.println("Let's bind this array that contains "+elementType.getName());
 
         Integer maxIndex = getMaxArrayIndex(request, argumentName);
 
-        System.out.println("MaxIndex:"+maxIndex+" for argument Name:"+argumentName);
-
         if (maxIndex == null) {
             return (T) Array.newInstance(elementType, 0);
         }
@@ -404,7 +522,6 @@ public class EndPointDetails {
         Object array = Array.newInstance(elementType, maxIndex+1);
 
         for (int i = 0; i <= maxIndex; i++) {
-            System.out.println("Je vais essayer d'obtenir le bind de la "+i+" eme valeur");
             Object elem = bindObject(request, elementType, argumentName+"["+i+"]");
             Array.set(array, i, elem);
         }
@@ -429,12 +546,9 @@ public class EndPointDetails {
         Collection<T> result = new ArrayList<>();
 
         Integer maxIndex = getMaxArrayIndex(request, argumentName);
-        System.out.println("MaxIndex:"+maxIndex+" for argument Name:"+argumentName);
         if(maxIndex == null) return result;
 
         for (int i = 0; i <= maxIndex; i++) {
-            System.out.println("Indice de la ligne actuelle:"+i);
-            System.out.println("ElementType:"+elementType.getTypeName());
             Object elem = bindObject(request, elementType, argumentName+"["+i+"]");
             result.add((T) elem);
         }
@@ -480,7 +594,6 @@ public class EndPointDetails {
         for (Field field : objectClass.getDeclaredFields()) {
 
             String fieldName = field.getName();
-            System.out.println("FieldName:"+fieldName+"|FieldType:"+field.getType().getName());
             Class<?> fieldType = field.getType();
 
             String paramName = prefix + "." + fieldName;
@@ -490,9 +603,6 @@ public class EndPointDetails {
             String setterName = "set" +
                 Character.toUpperCase(fieldName.charAt(0)) +
                 fieldName.substring(1);
-            System.out.println("Setter found:"+setterName);
-            System.out.println("Value to set:"+value);
-            System.out.println("Length");
             if(value!=null)
             {
                 Method setter = objectClass.getMethod(setterName, fieldType);
@@ -503,6 +613,110 @@ public class EndPointDetails {
         return instance;
     }
 
+    /**
+     * Évalue la politique de sécurité de l'endpoint pour la requête.
+     * 
+     * Un accès autorisé est mémorisé dans la requête afin que
+     * {@link #invokeMethod(HttpServletRequest, HttpServletResponse, Map)} ne refasse pas
+     * le contrôle. Un refus est retourné comme valeur, sans exception.
+     * 
+     * @param request la requête HTTP
+     * @return la décision d'accès
+     */
+    public SecurityDecision authorize(HttpServletRequest request) {
+        SecurityDecision decision = SecurityHandler.evaluate(this, request);
+        if (decision.isAllowed()) request.setAttribute(AUTHORIZED_ATTRIBUTE, this);
+        return decision;
+    }
+
+    /**
+     * Récupère la politique de sécurité compilée de l'endpoint.
+     * Compilée à la demande si l'endpoint n'a pas été enregistré par le scanner.
+     * 
+     * @return la politique de sécurité
+     */
+    public SecurityPolicy getSecurityPolicy() {
+        SecurityPolicy policy = securityPolicy;
+        if (policy == null) {
+            policy = SecurityPolicy.compile(method);
+            securityPolicy = policy;
+        }
+        return policy;
+    }
+
+    /**
+     * Définit la politique de sécurité de l'endpoint.
+     * 
+     * @param securityPolicy la politique compilée
+     */
+    public void setSecurityPolicy(SecurityPolicy securityPolicy) {
+        this.securityPolicy = securityPolicy;
+    }
+
+    /**
+     * Récupère le limiteur de débit de l'endpoint.
+     * 
+     * @return le limiteur, ou null si l'endpoint n'est pas limité
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Définit le limiteur de débit de l'endpoint.
+     * 
+     * @param rateLimiter le limiteur compilé, ou null
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Récupère la limite de concurrence de l'endpoint.
+     * 
+     * @return le limiteur, ou null si l'endpoint n'est pas isolé
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Définit la limite de concurrence de l'endpoint.
+     * 
+     * @param concurrencyLimiter le limiteur compilé, ou null
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Récupère la priorité de l'endpoint face au délestage de charge.
+     * 
+     * @return la priorité (NORMAL par défaut)
+     */
+    public LoadPriority.Level getLoadPriority() {
+        return loadPriority;
+    }
+
+    /**
+     * Définit la priorité de l'endpoint face au délestage de charge.
+     * 
+     * @param loadPriority la priorité
+     */
+    public void setLoadPriority(LoadPriority.Level loadPriority) {
+        this.loadPriority = loadPriority;
+    }
+
+    /**
+     * Récupère la durée de traitement de référence de l'endpoint, signal du délestage
+     * lorsque le proxy n'horodate pas les requêtes.
+     * 
+     * @return la référence de l'endpoint
+     */
+    public LoadShedder.Baseline getProcessingBaseline() {
+        return processingBaseline;
+    }
+
     /**
      * Récupère le nom qualifié de la classe du contrôleur.
      * 
@@ -537,6 +751,7 @@ public class EndPointDetails {
      */
     public void setMethod(Method method) {
         this.method = method;
+        this.parameterNames = null;
     }
 
     /**
@@ -557,6 +772,96 @@ public class EndPointDetails {
         this.httpMethod = httpMethod;
     }
     
+    /**
+     * @return true si l'endpoint s'exécute sur un thread virtuel
+     */
+    public boolean isVirtualThread() {
+        return virtualThread;
+    }
+
+    /**
+     * @param virtualThread true pour exécuter l'endpoint sur un thread virtuel
+     */
+    public void setVirtualThread(boolean virtualThread) {
+        this.virtualThread = virtualThread;
+    }
+
+    /**
+     * @return le délai de traitement en millisecondes (0 : illimité), ou
+     *         {@link Deadline#INHERIT} pour le délai global "requestTimeout"
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @param timeoutMillis le délai de traitement en millisecondes (@Timeout)
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return l'instance partagée qui reçoit les appels, ou null si le contrôleur
+     *         est instancié à chaque appel
+     */
+    public Object getTarget() {
+        return target;
+    }
+
+    /**
+     * Définit l'instance qui reçoit les appels (handler enregistré dans le RouteRegistry).
+     * 
+     * @param target l'instance partagée, null pour instancier le contrôleur à chaque appel
+     */
+    public void setTarget(Object target) {
+        this.target = target;
+    }
+
+    /**
+     * @return la fabrique compilée du contrôleur, ou null avant sa résolution
+     */
+    public ServiceContainer.Factory getFactory() {
+        return factory;
+    }
+
+    /**
+     * Définit la fabrique des instances du contrôleur (résolue par le ServiceContainer).
+     * 
+     * @param factory la fabrique compilée
+     */
+    public void setFactory(ServiceContainer.Factory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Noms des paramètres de la méthode utilisés pour le binding.
+     * 
+     * Sans index de compilation, ce sont ceux de la réflexion : les noms source
+     * avec l'option -parameters du compilateur, "arg0", "arg1"... sinon.
+     * 
+     * @return les noms des paramètres, dans l'ordre de la signature
+     */
+    public String[] getParameterNames() {
+        String[] names = parameterNames;
+        if (names == null) {
+            Parameter[] parameters = method.getParameters();
+            names = new String[parameters.length];
+            for (int i = 0; i < parameters.length; i++) names[i] = parameters[i].getName();
+            parameterNames = names;
+        }
+        return names;
+    }
+
+    /**
+     * Définit les noms source des paramètres (lus dans l'index de compilation).
+     * 
+     * @param parameterNames les noms des paramètres, dans l'ordre de la signature
+     */
+    public void setParameterNames(String[] parameterNames) {
+        this.parameterNames = parameterNames;
+    }
+    
     /**
      * Retourne une représentation textuelle de l'endpoint.
      * 
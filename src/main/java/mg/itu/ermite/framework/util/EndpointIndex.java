@@ -0,0 +1,143 @@
+package mg.itu.ermite.framework.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chargement de l'index des endpoints généré à la compilation par le module
+ * framework-processor (EndpointIndexProcessor).
+ *
+ * Chaque fichier META-INF/ermite/endpoints.index du classpath (WEB-INF/classes et
+ * JAR de WEB-INF/lib) est lu ; seules les classes de contrôleurs qu'il cite sont
+ * chargées. Les noms de paramètres de l'index remplacent ceux de la réflexion, qui
+ * ne sont connus qu'avec l'option -parameters du compilateur.
+ *
+ * L'index est un tout : si une classe ou une méthode qu'il cite est introuvable
+ * (index périmé), il est écarté et le framework revient au scan du classpath.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see ClasspathScanner
+ */
+public final class EndpointIndex {
+
+    /** Emplacement de l'index, identique à EndpointIndexProcessor.INDEX_LOCATION */
+    public static final String LOCATION = "META-INF/ermite/endpoints.index";
+
+    private EndpointIndex() {}
+
+    /**
+     * Charge les endpoints depuis les index présents sur le classpath.
+     *
+     * @param loader le ClassLoader de l'application
+     * @return la map URL -&gt; liste d'EndPointDetails, ou null si aucun index n'est
+     *         présent ou si un index est inutilisable
+     */
+    public static Map<String, Object> load(ClassLoader loader) {
+        long start = System.nanoTime();
+        List<URL> indexes;
+        try {
+            indexes = Collections.list(loader.getResources(LOCATION));
+        } catch (IOException e) {
+            System.out.println("[Index] Recherche de " + LOCATION + " impossible: " + e.getMessage());
+            return null;
+        }
+        if (indexes.isEmpty()) return null;
+
+        Map<String, Object> endpoints = new HashMap<>();
+        Map<String, Class<?>> controllers = new HashMap<>();
+        int count = 0;
+        for (URL index : indexes) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    String[] fields = line.split("\t", -1);
+                    if (fields.length < 7) {
+                        throw new IllegalStateException("ligne invalide: " + line);
+                    }
+                    EndPointDetails endpoint = resolve(loader, controllers, fields[1], fields[2], fields[3],
+                            split(fields[4]), split(fields[5]));
+                    ClasspathScanner.register(endpoints, fields[0], endpoint);
+                    count++;
+                }
+            } catch (IOException | ReflectiveOperationException | LinkageError | IllegalStateException e) {
+                System.out.println("[Index] " + index + " inutilisable (" + e + "), retour au scan du classpath");
+                return null;
+            }
+        }
+
+        System.out.println("[Index] " + count + " endpoints charges depuis " + indexes.size() + " index en "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        return endpoints;
+    }
+
+    /**
+     * Reconstruit un endpoint à partir de sa description textuelle (index ou cache de démarrage).
+     *
+     * @param loader le ClassLoader de l'application
+     * @param controllers les contrôleurs déjà chargés, par nom binaire
+     * @param httpMethod la méthode HTTP (GET, POST ou *)
+     * @param className le nom binaire du contrôleur
+     * @param methodName le nom de la méthode
+     * @param types les types effacés des paramètres (noms canoniques)
+     * @param names les noms des paramètres
+     * @return l'endpoint, politiques compilées
+     * @throws ReflectiveOperationException si la classe ou la méthode n'existe plus
+     */
+    static EndPointDetails resolve(ClassLoader loader, Map<String, Class<?>> controllers, String httpMethod,
+            String className, String methodName, String[] types, String[] names) throws ReflectiveOperationException {
+        Class<?> controller = controllers.get(className);
+        if (controller == null) {
+            controller = Class.forName(className, true, loader);
+            controllers.put(className, controller);
+        }
+        Method method = findMethod(controller, methodName, types);
+        EndPointDetails endpoint = ClasspathScanner.createEndPoint(controller, method, httpMethod);
+        if (names.length == method.getParameterCount()) endpoint.setParameterNames(names);
+        return endpoint;
+    }
+
+    /**
+     * @param type un type de paramètre
+     * @return son nom canonique (nom binaire pour une classe locale ou anonyme)
+     */
+    static String typeName(Class<?> type) {
+        String name = type.getCanonicalName();
+        return name != null ? name : type.getName();
+    }
+
+    /**
+     * Retrouve la méthode décrite par l'index : même nom et mêmes types effacés,
+     * comparés par nom canonique (ex: "java.util.List", "int[]", "com.app.A.B").
+     */
+    private static Method findMethod(Class<?> controller, String name, String[] types) throws NoSuchMethodException {
+        for (Method method : controller.getDeclaredMethods()) {
+            if (!method.getName().equals(name) || method.getParameterCount() != types.length || method.isBridge()) continue;
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            boolean same = true;
+            for (int i = 0; i < types.length && same; i++) {
+                same = types[i].equals(typeName(parameterTypes[i]));
+            }
+            if (same) return method;
+        }
+        throw new NoSuchMethodException(controller.getName() + "#" + name + "(" + String.join(",", types) + ")");
+    }
+
+    private static String[] split(String field) {
+        if (field.isEmpty()) return new String[0];
+        List<String> values = new ArrayList<>();
+        for (String value : field.split(",")) values.add(value.trim());
+        return values.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,278 @@
+package mg.itu.ermite.framework.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Appels parallèles d'un contrôleur, bornés par l'échéance de la requête.
+ *
+ * Un paramètre de type FanOut est injecté dans les méthodes de contrôleur. Chaque
+ * {@link #fork(Callable)} lance une sous-tâche sur un thread virtuel ; la durée de
+ * l'endpoint devient celle de l'appel le plus long, et non la somme des appels.
+ *
+ * Les sous-tâches échouent ensemble : la première erreur annule les autres (thread
+ * interrompu), de même que l'échéance de la requête ({@link Deadline}) ou la fin de
+ * la requête sans attente des résultats.
+ *
+ * Deux façons d'attendre :
+ * - {@link #join(Callable)} retourne un CompletableFuture : le contrôleur le retourne
+ *   et aucun thread du conteneur n'attend (voir AsyncDispatcher)
+ * - {@link #joinAll()} bloque le thread courant, à réserver aux endpoints @VirtualThread
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @UrlMapping(url = "/dashboard/{id}")
+ * @GetMapping
+ * @JsonResponse
+ * public CompletableFuture&lt;Dashboard&gt; dashboard(int id, FanOut fanOut) {
+ *     FanOut.Subtask&lt;User&gt; user = fanOut.fork(() -&gt; users.find(id));
+ *     FanOut.Subtask&lt;List&lt;Order&gt;&gt; orders = fanOut.fork(() -&gt; orders.recent(id));
+ *     return fanOut.join(() -&gt; new Dashboard(user.get(), orders.get()));
+ * }
+ * </pre>
+ *
+ * Configuration (web.xml) :
+ * - "fanOutMaxTasks" : nombre maximal de sous-tâches par requête (défaut 32)
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see Deadline
+ * @see AsyncDispatcher
+ */
+public final class FanOut {
+
+    /** Attribut de requête portant le FanOut */
+    public static final String ATTRIBUTE = FanOut.class.getName();
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final Deadline deadline;
+    private final int maxTasks;
+    private final List<Subtask<?>> subtasks = new ArrayList<>();
+    private final CompletableFuture<Void> outcome = new CompletableFuture<>();
+    private volatile boolean joined;
+
+    /**
+     * @param deadline l'échéance qui borne les sous-tâches
+     * @param maxTasks le nombre maximal de sous-tâches
+     */
+    public FanOut(Deadline deadline, int maxTasks) {
+        this.deadline = deadline;
+        this.maxTasks = maxTasks;
+    }
+
+    /**
+     * @param request la requête HTTP
+     * @return le FanOut de la requête (créé au premier appel, borné par son échéance)
+     */
+    public static FanOut of(HttpServletRequest request) {
+        FanOut fanOut = (FanOut) request.getAttribute(ATTRIBUTE);
+        if (fanOut == null) {
+            RequestContext context = RequestContext.of(request);
+            fanOut = new FanOut(context == null ? Deadline.none() : context.getDeadline(),
+                    ConfigManager.getInstance().getInt("fanOutMaxTasks", 32));
+            request.setAttribute(ATTRIBUTE, fanOut);
+        }
+        return fanOut;
+    }
+
+    /**
+     * Annule les sous-tâches encore en cours d'une requête terminée, attendues ou non
+     * (une attente par join() peut avoir été abandonnée à l'expiration de "asyncTimeout").
+     * Appelé par le FrontServlet à la fin du traitement ; en mode asynchrone (endpoint
+     * @VirtualThread encore en cours, avant son joinAll()), l'annulation attend la
+     * complétion de la requête.
+     *
+     * @param request la requête HTTP
+     */
+    public static void release(HttpServletRequest request) {
+        if (request.isAsyncStarted()) {
+            try {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        cancelPending(request);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {}
+
+                    @Override
+                    public void onError(AsyncEvent event) {}
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {}
+                });
+                return;
+            } catch (IllegalStateException e) {
+                // Requête déjà terminée
+            }
+        }
+        cancelPending(request);
+    }
+
+    private static void cancelPending(HttpServletRequest request) {
+        FanOut fanOut = (FanOut) request.getAttribute(ATTRIBUTE);
+        // Sans effet si le FanOut est déjà terminé
+        if (fanOut != null) fanOut.cancel(new CancellationException("Requete terminee"));
+    }
+
+    /**
+     * Lance une sous-tâche sur un thread virtuel.
+     *
+     * @param <T> le type du résultat
+     * @param task la sous-tâche
+     * @return la sous-tâche, dont le résultat est lu après l'attente
+     * @throws IllegalStateException après l'attente ou au-delà de "fanOutMaxTasks"
+     */
+    public <T> Subtask<T> fork(Callable<T> task) {
+        Subtask<T> subtask = new Subtask<>();
+        synchronized (subtasks) {
+            if (joined) throw new IllegalStateException("FanOut deja attendu, fork impossible");
+            if (subtasks.size() >= maxTasks) {
+                throw new IllegalStateException("Trop de sous-taches (max " + maxTasks + ")");
+            }
+            subtasks.add(subtask);
+        }
+        // Échéance déjà dépassée ou sous-tâche sœur en échec : rien n'est lancé
+        if (outcome.isDone() || deadline.isExpired()) {
+            subtask.future.cancel(false);
+            return subtask;
+        }
+        subtask.thread = Thread.ofVirtual().name("framework-fanout-" + SEQUENCE.incrementAndGet()).unstarted(() -> {
+            try {
+                subtask.future.complete(task.call());
+            } catch (Throwable e) {
+                subtask.future.completeExceptionally(e);
+                // Première erreur : les sous-tâches sœurs sont annulées
+                cancel(e);
+            }
+        });
+        subtask.thread.start();
+        return subtask;
+    }
+
+    /**
+     * Attend les sous-tâches sans bloquer, puis combine leurs résultats.
+     *
+     * @param <R> le type du résultat combiné
+     * @param combiner la combinaison des résultats (lus avec {@link Subtask#get()})
+     * @return le résultat combiné ; échoue avec la première erreur d'une sous-tâche,
+     *         ou TimeoutException si l'échéance de la requête est dépassée. L'annuler
+     *         annule les sous-tâches en cours.
+     */
+    public <R> CompletableFuture<R> join(Callable<R> combiner) {
+        CompletableFuture<R> result = whenAll().thenApply(ignored -> {
+            try {
+                return combiner.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+        result.whenComplete((ignored, error) -> {
+            if (unwrap(error) instanceof CancellationException) cancel(error);
+        });
+        return result;
+    }
+
+    /**
+     * Attend les sous-tâches en bloquant le thread courant.
+     *
+     * @throws Exception la première erreur d'une sous-tâche, ou TimeoutException si
+     *                   l'échéance de la requête est dépassée
+     */
+    public void joinAll() throws Exception {
+        try {
+            whenAll().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        } catch (InterruptedException e) {
+            cancel(e);
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Void> whenAll() {
+        CompletableFuture<?>[] futures;
+        synchronized (subtasks) {
+            joined = true;
+            futures = new CompletableFuture<?>[subtasks.size()];
+            for (int i = 0; i < futures.length; i++) futures[i] = subtasks.get(i).future;
+        }
+        CompletableFuture.allOf(futures).whenComplete((ignored, error) -> {
+            if (error == null) outcome.complete(null);
+            else outcome.completeExceptionally(unwrap(error));
+        });
+        if (deadline.isBounded()) {
+            CompletableFuture.delayedExecutor(Math.max(1, deadline.remainingMillis()), TimeUnit.MILLISECONDS)
+                    .execute(() -> cancel(new TimeoutException("Delai de la requete depasse")));
+        }
+        return outcome;
+    }
+
+    /**
+     * Termine le FanOut en échec et interrompt les sous-tâches en cours.
+     */
+    private void cancel(Throwable cause) {
+        if (!outcome.completeExceptionally(unwrap(cause))) return;
+        List<Subtask<?>> running;
+        synchronized (subtasks) {
+            running = new ArrayList<>(subtasks);
+        }
+        for (Subtask<?> subtask : running) {
+            if (subtask.future.cancel(false) && subtask.thread != null) subtask.thread.interrupt();
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        return error;
+    }
+
+    /**
+     * Une sous-tâche lancée par {@link FanOut#fork(Callable)}.
+     *
+     * @param <T> le type du résultat
+     */
+    public static final class Subtask<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile Thread thread;
+
+        private Subtask() {}
+
+        /**
+         * @return le résultat de la sous-tâche
+         * @throws IllegalStateException si la sous-tâche n'est pas terminée avec succès
+         */
+        public T get() {
+            if (!future.isDone()) throw new IllegalStateException("Sous-tache non terminee, attendre le FanOut d'abord");
+            try {
+                return future.join();
+            } catch (CancellationException | CompletionException e) {
+                throw new IllegalStateException("Sous-tache en echec: " + unwrap(e), unwrap(e));
+            }
+        }
+
+        /**
+         * @return true si la sous-tâche est terminée (succès, échec ou annulation)
+         */
+        public boolean isDone() {
+            return future.isDone();
+        }
+    }
+}
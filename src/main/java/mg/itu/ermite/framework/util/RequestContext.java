@@ -0,0 +1,123 @@
+package mg.itu.ermite.framework.util;
+
+import java.util.Collections;
+import java.util.Map;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import mg.itu.ermite.framework.util.traffic.LoadShedder;
+
+/**
+ * État d'une requête en cours de traitement par le framework.
+ *
+ * Le contexte est porté par la requête elle-même (attribut {@link #ATTRIBUTE}) et
+ * non par un ThreadLocal : il suit la requête quel que soit le thread qui la traite
+ * (thread du conteneur, thread virtuel, thread qui complète un CompletionStage).
+ *
+ * Un paramètre de type RequestContext est injecté dans les méthodes de contrôleur.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see mg.itu.ermite.framework.FrontServlet
+ */
+public final class RequestContext {
+
+    /** Attribut de requête portant le contexte */
+    public static final String ATTRIBUTE = RequestContext.class.getName();
+
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final EndPointDetails endPoint;
+    private final Map<String, String> urlParams;
+    private final LoadShedder shedder;
+    private final long arrivalNanos;
+    private final boolean arrivalObserved;
+    private final Deadline deadline;
+
+    /**
+     * @param request la requête HTTP
+     * @param response la réponse HTTP
+     * @param endPoint l'endpoint résolu
+     * @param urlParams les paramètres extraits de l'URL
+     * @param shedder le délesteur actif à l'arrivée, ou null
+     * @param arrivalNanos l'instant d'arrivée (System.nanoTime)
+     * @param arrivalObserved true si le temps de séjour en amont a été mesuré
+     * @param deadline l'échéance de la requête
+     */
+    public RequestContext(HttpServletRequest request, HttpServletResponse response, EndPointDetails endPoint,
+            Map<String, String> urlParams, LoadShedder shedder, long arrivalNanos, boolean arrivalObserved,
+            Deadline deadline) {
+        this.request = request;
+        this.response = response;
+        this.endPoint = endPoint;
+        this.urlParams = urlParams;
+        this.shedder = shedder;
+        this.arrivalNanos = arrivalNanos;
+        this.arrivalObserved = arrivalObserved;
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param request la requête HTTP
+     * @return le contexte de la requête, ou null hors du traitement du framework
+     */
+    public static RequestContext of(HttpServletRequest request) {
+        return (RequestContext) request.getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * @return la requête HTTP
+     */
+    public HttpServletRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * @return la réponse HTTP
+     */
+    public HttpServletResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * @return l'endpoint invoqué
+     */
+    public EndPointDetails getEndPoint() {
+        return endPoint;
+    }
+
+    /**
+     * @return les paramètres extraits de l'URL (non modifiables)
+     */
+    public Map<String, String> getUrlParams() {
+        return Collections.unmodifiableMap(urlParams);
+    }
+
+    /**
+     * @return le délesteur actif à l'arrivée de la requête, ou null
+     */
+    public LoadShedder getShedder() {
+        return shedder;
+    }
+
+    /**
+     * @return l'instant d'arrivée de la requête (System.nanoTime)
+     */
+    public long getArrivalNanos() {
+        return arrivalNanos;
+    }
+
+    /**
+     * @return true si le temps de séjour en amont a été mesuré à l'arrivée
+     */
+    public boolean isArrivalObserved() {
+        return arrivalObserved;
+    }
+
+    /**
+     * @return l'échéance de la requête ({@link Deadline#none()} sans délai)
+     */
+    public Deadline getDeadline() {
+        return deadline;
+    }
+}
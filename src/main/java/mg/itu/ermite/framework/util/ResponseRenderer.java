@@ -0,0 +1,151 @@
+package mg.itu.ermite.framework.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Écriture des résultats de contrôleurs dans la réponse HTTP.
+ *
+ * Regroupe les formats de réponse du framework, pour qu'un résultat produit de
+ * façon synchrone ou asynchrone (CompletionStage) soit rendu à l'identique :
+ * - enveloppe JSON {status, code, data, count} pour les méthodes @JsonResponse
+ * - texte brut pour un String
+ * - vue JSP et attributs de requête pour un ModelView
+ *
+ * L'ObjectMapper est partagé : il est thread-safe une fois configuré, et sa
+ * création (introspection, caches de sérialiseurs) est coûteuse.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see mg.itu.ermite.framework.FrontServlet
+ */
+public final class ResponseRenderer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ResponseRenderer() {}
+
+    /**
+     * @return l'ObjectMapper partagé du framework
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Construit l'enveloppe JSON de succès ; "count" est ajouté pour une collection ou un tableau.
+     *
+     * @param data le résultat du contrôleur
+     * @return l'enveloppe {status, code, data[, count]}
+     */
+    public static Map<String, Object> envelope(Object data) {
+        Map<String, Object> jsonResponse = new LinkedHashMap<>();
+        jsonResponse.put("status", "success");
+        jsonResponse.put("code", 200);
+        jsonResponse.put("data", data);
+
+        if (data != null) {
+            if (Reflection.isCollectionType(data.getClass())) {
+                jsonResponse.put("count", ((Collection<?>) data).size());
+            } else if (data.getClass().isArray()) {
+                jsonResponse.put("count", Array.getLength(data));
+            }
+        }
+        return jsonResponse;
+    }
+
+    /**
+     * Construit l'enveloppe JSON d'erreur.
+     *
+     * @param code le code d'erreur de l'enveloppe
+     * @param message le message d'erreur
+     * @return l'enveloppe {status, code, message, data}
+     */
+    public static Map<String, Object> errorEnvelope(int code, String message) {
+        Map<String, Object> errorResponse = new LinkedHashMap<>();
+        errorResponse.put("status", "error");
+        errorResponse.put("code", code);
+        errorResponse.put("message", message);
+        errorResponse.put("data", null);
+        return errorResponse;
+    }
+
+    /**
+     * Écrit l'enveloppe JSON de succès.
+     *
+     * @param response la réponse HTTP
+     * @param data le résultat du contrôleur
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    public static void writeJson(HttpServletResponse response, Object data) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        MAPPER.writeValue(response.getWriter(), envelope(data));
+    }
+
+    /**
+     * Écrit l'enveloppe JSON d'erreur. Le statut HTTP n'est pas modifié.
+     *
+     * @param response la réponse HTTP
+     * @param code le code d'erreur de l'enveloppe
+     * @param message le message d'erreur
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    public static void writeJsonError(HttpServletResponse response, int code, String message) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        try {
+            MAPPER.writeValue(out, errorEnvelope(code, message));
+        } catch (JsonProcessingException jpe) {
+            // Fallback en cas d'erreur de sérialisation
+            out.print("{\"status\":\"error\",\"code\":" + code + ",\"message\":\"Internal server error\"}");
+            out.close();
+        }
+    }
+
+    /**
+     * Rend un résultat String ou ModelView.
+     *
+     * @param request la requête HTTP
+     * @param response la réponse HTTP
+     * @param result le résultat du contrôleur
+     * @param async le contexte asynchrone si la requête est en mode asynchrone, null sinon :
+     *              un ModelView y est rendu par {@link AsyncContext#dispatch(String)}
+     * @return true si la réponse est terminée, false si un dispatch asynchrone la terminera
+     * @throws IOException en cas d'erreur d'écriture
+     * @throws ServletException en cas d'erreur lors du forward vers la vue
+     */
+    public static boolean render(HttpServletRequest request, HttpServletResponse response, Object result, AsyncContext async)
+            throws IOException, ServletException {
+        if (result instanceof String) {
+            PrintWriter out = response.getWriter();
+            out.println(result);
+            out.close();
+        } else if (result instanceof ModelView) {
+            ModelView modelView = (ModelView) result;
+
+            //ajout des attributs
+            for (Map.Entry<String, Object> attribute : modelView.getAttributes().entrySet()) {
+                request.setAttribute(attribute.getKey(), attribute.getValue());
+            }
+
+            if (async != null) {
+                async.dispatch(modelView.getView());
+                return false;
+            }
+            request.getRequestDispatcher(modelView.getView()).forward(request, response);
+        }
+        return true;
+    }
+}
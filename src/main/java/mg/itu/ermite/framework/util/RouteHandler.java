@@ -0,0 +1,32 @@
+package mg.itu.ermite.framework.util;
+
+import mg.itu.ermite.framework.annotation.JsonResponse;
+
+/**
+ * Endpoint défini par une lambda, enregistré à l'exécution dans le {@link RouteRegistry}.
+ *
+ * Le résultat est renvoyé dans l'enveloppe JSON, comme pour une méthode @JsonResponse ;
+ * un CompletionStage est traité de façon asynchrone (AsyncDispatcher). La requête,
+ * les paramètres d'URL et l'échéance sont lus dans le {@link RequestContext}.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * RouteRegistry.get().register("GET", "/api/features/{name}",
+ *         context -&gt; flags.get(context.getUrlParams().get("name")));
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see RouteRegistry
+ */
+@FunctionalInterface
+public interface RouteHandler {
+
+    /**
+     * @param context le contexte de la requête
+     * @return le résultat, sérialisé en JSON
+     * @throws Exception en cas d'erreur (réponse 500)
+     */
+    @JsonResponse
+    Object handle(RequestContext context) throws Exception;
+}
@@ -0,0 +1,312 @@
+package mg.itu.ermite.framework.util;
+
+import java.lang.reflect.Method;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Registre des routes : enregistrement et retrait d'endpoints pendant l'exécution.
+ *
+ * Les endpoints découverts au démarrage y sont chargés par le FrameworkInitializer ;
+ * des contrôleurs (JAR de plugin, fonctionnalités activées à chaud), des endpoints
+ * isolés ou des lambdas ({@link RouteHandler}) peuvent ensuite être ajoutés ou retirés.
+ *
+ * Chaque changement construit une nouvelle {@link RouteTable} immuable, publiée d'un
+ * seul coup : une requête ne prend aucun verrou, ne voit jamais de table partielle et
+ * termine sur la table lue à son arrivée. Les écritures sont sérialisées ; plusieurs
+ * changements groupés dans {@link #update(Consumer)} sont publiés ensemble, ou pas du
+ * tout si l'un d'eux échoue.
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * RouteRegistry routes = RouteRegistry.get();
+ * routes.registerController(pluginLoader.loadClass("com.acme.ReportController"));
+ * routes.register("GET", "/api/status", context -&gt; Map.of("up", true));
+ * routes.update(table -&gt; {
+ *     table.removeController("com.acme.v1.OrderController");
+ *     table.addController(OrderControllerV2.class);
+ * });
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see RouteTable
+ * @see Router
+ */
+public final class RouteRegistry {
+
+    private static final RouteRegistry INSTANCE = new RouteRegistry();
+
+    private final AtomicReference<RouteTable> table = new AtomicReference<>(RouteTable.empty());
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<String, List<EndPointDetails>> view = new AbstractMap<>() {
+        @Override
+        public Set<Map.Entry<String, List<EndPointDetails>>> entrySet() {
+            return table.get().getEndpoints().entrySet();
+        }
+
+        @Override
+        public List<EndPointDetails> get(Object url) {
+            return table.get().getEndpoints().get(url);
+        }
+
+        @Override
+        public boolean containsKey(Object url) {
+            return table.get().getEndpoints().containsKey(url);
+        }
+    };
+
+    private RouteRegistry() {}
+
+    /**
+     * @return le registre des routes de l'application
+     */
+    public static RouteRegistry get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return la table de routage courante, à lire une fois par requête
+     */
+    public RouteTable table() {
+        return table.get();
+    }
+
+    /**
+     * Vue en lecture seule de la table courante (attribut de contexte "endpoints").
+     *
+     * @return la map URL -&gt; liste d'EndPointDetails, toujours à jour
+     */
+    public Map<String, List<EndPointDetails>> view() {
+        return view;
+    }
+
+    /**
+     * Remplace toutes les routes par celles découvertes au démarrage.
+     *
+     * @param endpoints la map URL -&gt; liste d'EndPointDetails
+     * @return la table publiée
+     */
+    @SuppressWarnings("unchecked")
+    public RouteTable load(Map<String, ?> endpoints) {
+        return update(routes -> {
+            routes.clear();
+            for (Map.Entry<String, ?> entry : endpoints.entrySet()) {
+                // Doublons éventuels du scan conservés : le premier endpoint l'emporte, comme avant
+                routes.endpoints.computeIfAbsent(entry.getKey(), k -> new ArrayList<>())
+                        .addAll((List<EndPointDetails>) entry.getValue());
+            }
+            routes.changed = true;
+        });
+    }
+
+    /**
+     * Applique un ensemble de changements et publie la nouvelle table.
+     *
+     * @param changes les changements, appliqués à une copie de la table courante
+     * @return la table publiée (la table courante si rien n'a changé)
+     * @throws IllegalStateException si un changement est invalide ; rien n'est publié
+     */
+    public RouteTable update(Consumer<Routes> changes) {
+        writeLock.lock();
+        try {
+            RouteTable current = table.get();
+            Routes routes = new Routes(current);
+            changes.accept(routes);
+            if (!routes.changed) return current;
+            RouteTable next = new RouteTable(routes.endpoints, current.getVersion() + 1);
+            table.set(next);
+            System.out.println("[Routes] Table v" + next.getVersion() + " publiee: " + next.size() + " endpoints");
+            return next;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param controller la classe du contrôleur (méthodes annotées @UrlMapping)
+     * @return la table publiée
+     */
+    public RouteTable registerController(Class<?> controller) {
+        return update(routes -> routes.addController(controller));
+    }
+
+    /**
+     * @param className le nom qualifié de la classe du contrôleur
+     * @return la table publiée
+     */
+    public RouteTable unregisterController(String className) {
+        return update(routes -> routes.removeController(className));
+    }
+
+    /**
+     * @param url l'URL mappée
+     * @param endPoint l'endpoint (ses politiques compilées par l'appelant)
+     * @return la table publiée
+     */
+    public RouteTable register(String url, EndPointDetails endPoint) {
+        return update(routes -> routes.add(url, endPoint));
+    }
+
+    /**
+     * @param httpMethod la méthode HTTP (GET, POST ou *)
+     * @param url l'URL mappée, éventuellement paramétrée (/user/{id})
+     * @param handler la lambda qui traite la requête
+     * @return la table publiée
+     */
+    public RouteTable register(String httpMethod, String url, RouteHandler handler) {
+        return register(url, endPoint(httpMethod, handler));
+    }
+
+    /**
+     * @param httpMethod la méthode HTTP de l'endpoint
+     * @param url l'URL mappée
+     * @return la table publiée
+     */
+    public RouteTable unregister(String httpMethod, String url) {
+        return update(routes -> routes.remove(httpMethod, url));
+    }
+
+    /**
+     * Construit l'endpoint d'une lambda, sans l'enregistrer. Ses politiques (sécurité,
+     * débit, délai...) peuvent être ajustées avant {@link #register(String, EndPointDetails)}.
+     *
+     * @param httpMethod la méthode HTTP (GET, POST ou *)
+     * @param handler la lambda qui traite la requête
+     * @return l'endpoint
+     */
+    public static EndPointDetails endPoint(String httpMethod, RouteHandler handler) {
+        Objects.requireNonNull(handler, "handler");
+        Method handle;
+        try {
+            handle = RouteHandler.class.getMethod("handle", RequestContext.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        EndPointDetails endPoint = ClasspathScanner.createEndPoint(handler.getClass(), handle, httpMethod);
+        endPoint.setTarget(handler);
+        return endPoint;
+    }
+
+    /**
+     * Copie modifiable de la table, valable pendant {@link RouteRegistry#update(Consumer)}.
+     */
+    public static final class Routes {
+        private final Map<String, List<EndPointDetails>> endpoints = new LinkedHashMap<>();
+        private boolean changed;
+
+        private Routes(RouteTable current) {
+            for (Map.Entry<String, List<EndPointDetails>> entry : current.getEndpoints().entrySet()) {
+                endpoints.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+
+        /**
+         * @param url l'URL mappée
+         * @param endPoint l'endpoint
+         * @return cette copie
+         * @throws IllegalStateException si un endpoint existe déjà pour cette URL et cette méthode HTTP
+         */
+        public Routes add(String url, EndPointDetails endPoint) {
+            Objects.requireNonNull(url, "url");
+            Objects.requireNonNull(endPoint, "endPoint");
+            List<EndPointDetails> list = endpoints.computeIfAbsent(url, k -> new ArrayList<>());
+            for (EndPointDetails existing : list) {
+                if (existing.getHttpMethod().equals(endPoint.getHttpMethod())) {
+                    throw new IllegalStateException("Route deja enregistree: " + endPoint.getHttpMethod() + " " + url);
+                }
+            }
+            list.add(endPoint);
+            changed = true;
+            return this;
+        }
+
+        /**
+         * @param controller la classe du contrôleur (méthodes annotées @UrlMapping)
+         * @return cette copie
+         */
+        @SuppressWarnings("unchecked")
+        public Routes addController(Class<?> controller) {
+            Map<String, Object> mapped = new LinkedHashMap<>();
+            ClasspathScanner.collect(mapped, controller);
+            if (mapped.isEmpty()) {
+                throw new IllegalStateException("Aucune methode @UrlMapping dans " + controller.getName());
+            }
+            // Dépendances résolues avant publication : un graphe invalide n'est pas publié
+            ServiceContainer.Factory factory = ServiceContainer.get().factory(controller);
+            for (Map.Entry<String, Object> entry : mapped.entrySet()) {
+                for (EndPointDetails endPoint : (List<EndPointDetails>) entry.getValue()) {
+                    endPoint.setFactory(factory);
+                    add(entry.getKey(), endPoint);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @param httpMethod la méthode HTTP de l'endpoint
+         * @param url l'URL mappée
+         * @return true si un endpoint a été retiré
+         */
+        public boolean remove(String httpMethod, String url) {
+            List<EndPointDetails> list = endpoints.get(url);
+            if (list == null || !list.removeIf(endPoint -> endPoint.getHttpMethod().equals(httpMethod))) return false;
+            if (list.isEmpty()) endpoints.remove(url);
+            changed = true;
+            return true;
+        }
+
+        /**
+         * @param className le nom qualifié de la classe du contrôleur
+         * @return le nombre d'endpoints retirés
+         */
+        public int removeController(String className) {
+            int removed = 0;
+            for (Iterator<List<EndPointDetails>> lists = endpoints.values().iterator(); lists.hasNext(); ) {
+                List<EndPointDetails> list = lists.next();
+                int before = list.size();
+                list.removeIf(endPoint -> className.equals(endPoint.getClassName()));
+                removed += before - list.size();
+                if (list.isEmpty()) lists.remove();
+            }
+            if (removed > 0) changed = true;
+            return removed;
+        }
+
+        /**
+         * Remplace chaque endpoint par le résultat de l'opération (copie aux politiques
+         * recompilées, voir {@link EndPointDetails#copy()}).
+         *
+         * @param operation l'opération appliquée à chaque endpoint
+         * @return cette copie
+         */
+        public Routes replaceAll(UnaryOperator<EndPointDetails> operation) {
+            for (List<EndPointDetails> list : endpoints.values()) {
+                list.replaceAll(operation);
+            }
+            if (!endpoints.isEmpty()) changed = true;
+            return this;
+        }
+
+        /**
+         * Retire toutes les routes.
+         *
+         * @return cette copie
+         */
+        public Routes clear() {
+            if (!endpoints.isEmpty()) changed = true;
+            endpoints.clear();
+            return this;
+        }
+    }
+}
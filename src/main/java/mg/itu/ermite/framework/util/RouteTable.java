@@ -0,0 +1,117 @@
+package mg.itu.ermite.framework.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Table de routage immuable : les endpoints par URL et les URLs paramétrées précompilées.
+ *
+ * Une table n'est jamais modifiée après sa construction ; le {@link RouteRegistry}
+ * en publie une nouvelle à chaque changement. Une requête lit la table une seule fois
+ * et termine sur celle-ci, même si une autre est publiée entre-temps.
+ *
+ * Les URLs paramétrées (ex: /user/{id}) sont compilées une fois, à la construction,
+ * et non à chaque requête ; elles sont essayées dans leur ordre d'enregistrement.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see RouteRegistry
+ * @see Router
+ */
+public final class RouteTable {
+
+    private static final Pattern PARAM_NAME = Pattern.compile("\\{([^/]+)\\}");
+    private static final RouteTable EMPTY = new RouteTable(Collections.emptyMap(), 0);
+
+    private final long version;
+    private final Map<String, List<EndPointDetails>> endpoints;
+    private final PatternRoute[] patterns;
+    private final int size;
+
+    /**
+     * @param endpoints la map URL -&gt; liste d'EndPointDetails (copiée)
+     * @param version le numéro de la table
+     */
+    RouteTable(Map<String, ? extends List<EndPointDetails>> endpoints, long version) {
+        Map<String, List<EndPointDetails>> copy = new LinkedHashMap<>();
+        List<PatternRoute> compiled = new ArrayList<>();
+        int count = 0;
+        for (Map.Entry<String, ? extends List<EndPointDetails>> entry : endpoints.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            List<EndPointDetails> list = List.copyOf(entry.getValue());
+            copy.put(entry.getKey(), list);
+            count += list.size();
+            if (PARAM_NAME.matcher(entry.getKey()).find()) compiled.add(new PatternRoute(entry.getKey(), list));
+        }
+        this.version = version;
+        this.endpoints = Collections.unmodifiableMap(copy);
+        this.patterns = compiled.toArray(new PatternRoute[0]);
+        this.size = count;
+    }
+
+    /**
+     * @return une table vide (version 0)
+     */
+    public static RouteTable empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return le numéro de la table, incrémenté à chaque publication
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return la map URL -&gt; liste d'EndPointDetails (non modifiable)
+     */
+    public Map<String, List<EndPointDetails>> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return le nombre d'endpoints de la table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param url l'URL de la requête
+     * @return les endpoints enregistrés exactement pour cette URL, ou null
+     */
+    List<EndPointDetails> exact(String url) {
+        return endpoints.get(url);
+    }
+
+    PatternRoute[] patterns() {
+        return patterns;
+    }
+
+    /**
+     * Une URL paramétrée compilée : son expression régulière et les noms de ses variables.
+     */
+    static final class PatternRoute {
+        final Pattern pattern;
+        final String[] names;
+        final List<EndPointDetails> endPoints;
+
+        PatternRoute(String url, List<EndPointDetails> endPoints) {
+            // Construire un regex à partir de la clé en remplaçant {param} par ([^/]+)
+            this.pattern = Pattern.compile("^" + url.replaceAll("\\{[^/]+\\}", "([^/]+)") + "$");
+            List<String> paramNames = new ArrayList<>();
+            Matcher paramNameMatcher = PARAM_NAME.matcher(url);
+            while (paramNameMatcher.find()) {
+                paramNames.add(paramNameMatcher.group(1));
+            }
+            this.names = paramNames.toArray(new String[0]);
+            this.endPoints = endPoints;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package mg.itu.ermite.framework.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * Résolution d'une URL et d'une méthode HTTP vers l'endpoint d'un contrôleur.
+ *
+ * Partagé par le FrontServlet et les sous-requêtes d'un lot (BatchDispatcher), pour
+ * qu'une URL soit routée à l'identique quel que soit son point d'entrée.
+ *
+ * La résolution supporte :
+ * - Les URLs statiques (recherche directe dans la map des endpoints)
+ * - Les URLs paramétrées (ex: /user/{id}), précompilées par la RouteTable, dont les
+ *   valeurs sont extraites
+ * - Les endpoints GET, POST et polyvalents (*)
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see EndPointDetails
+ * @see RouteTable
+ */
+public final class Router {
+
+    private Router() {}
+
+    /**
+     * Résultat de la résolution : l'endpoint et les paramètres extraits de l'URL.
+     */
+    public static final class Match {
+        private final EndPointDetails endPoint;
+        private final Map<String, String> urlParams;
+
+        Match(EndPointDetails endPoint, Map<String, String> urlParams) {
+            this.endPoint = endPoint;
+            this.urlParams = urlParams;
+        }
+
+        /**
+         * @return l'endpoint résolu
+         */
+        public EndPointDetails getEndPoint() {
+            return endPoint;
+        }
+
+        /**
+         * @return les paramètres extraits de l'URL (path variables)
+         */
+        public Map<String, String> getUrlParams() {
+            return urlParams;
+        }
+    }
+
+    /**
+     * Résout une requête vers son endpoint.
+     *
+     * @param table la table de routage lue pour la requête (RouteRegistry)
+     * @param httpMethod la méthode HTTP de la requête
+     * @param url l'URL de la requête, sans le chemin de contexte
+     * @return l'endpoint et les paramètres d'URL
+     * @throws Exception si aucun endpoint ne correspond
+     */
+    public static Match resolve(RouteTable table, String httpMethod, String url) throws Exception
+    {
+        Map<String, String> urlParams = new HashMap<>();
+
+        List<EndPointDetails> endPointList = table.exact(url);
+
+        if(endPointList == null)
+        {
+            // Andramana jerena ihany hoe sao misy possibilite ahitana uri misy /{valeur} mety hifanaraka amle url tape
+            for (RouteTable.PatternRoute route : table.patterns()) {
+                Matcher valueMatcher = route.pattern.matcher(url);
+
+                if (valueMatcher.matches()) {
+                    endPointList = route.endPoints;
+                    for (int i = 0; i < route.names.length; i++) {
+                        // group(0) c'est toute la chaîne, donc on commence à 1
+                        urlParams.put(route.names[i], valueMatcher.group(i + 1));
+                    }
+                    break;
+                }
+            }
+            // Sinon raha tena tsy misy fika dia on leve une exception
+            if(endPointList == null)
+            {
+                throw new Exception("Aucun endpoint enregistre pour l'URL :"+url);
+            }
+        }
+
+        return new Match(findEndPoint(endPointList, httpMethod, url), urlParams);
+    }
+
+    /**
+     * Recherche l'endpoint approprié parmi une liste d'endpoints pour une méthode HTTP donnée.
+     *
+     * La recherche suit cet ordre de priorité :
+     * 1. Cherche un endpoint qui correspond exactement à la méthode HTTP spécifiée
+     * 2. Si non trouvé, cherche un endpoint polyvalent (httpMethod = "*")
+     * 3. Lève une exception si aucun endpoint n'est trouvé
+     *
+     * @param endPointDetails Liste des endpoints disponibles pour l'URL
+     * @param httpMethod Méthode HTTP de la requête (GET, POST, etc.)
+     * @param url URL complète de la requête
+     * @return L'endpoint correspondant
+     * @throws Exception si aucun endpoint n'est trouvé
+     */
+    static EndPointDetails findEndPoint(List<EndPointDetails> endPointDetails,String httpMethod,String url) throws Exception
+    {
+        EndPointDetails matchedEndPoint = null;
+        for (EndPointDetails endPoint : endPointDetails) {
+            if(endPoint.getHttpMethod().equals(httpMethod) )
+            {
+                matchedEndPoint = endPoint;
+                break;
+            }
+        }
+        if(matchedEndPoint == null)
+        {
+            for (EndPointDetails endPoint : endPointDetails) {
+                if(endPoint.getHttpMethod().equals("*") )
+                {
+                    matchedEndPoint = endPoint;
+                    break;
+                }
+            }
+        }
+
+        if(matchedEndPoint == null)
+        {
+            throw new Exception("Aucun endpoint n'est defini pour la requete '"+httpMethod+" "+url+"'");
+        }
+
+
+        return matchedEndPoint;
+    }
+}
@@ -0,0 +1,125 @@
+package mg.itu.ermite.framework.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Ouverture des flux Server-Sent Events retournés par les contrôleurs.
+ *
+ * La requête passe en mode asynchrone sans délai maximal : le thread du conteneur
+ * est rendu et un thread virtuel par connexion écrit les événements du
+ * {@link SseEmitter} jusqu'à la fin du flux ou la déconnexion du client. Les limites
+ * de concurrence et le délesteur sont libérés dès l'ouverture du flux : une
+ * connexion ouverte n'occupe ni permis ni thread du conteneur.
+ *
+ * La servlet doit être déclarée {@code <async-supported>true</async-supported>} ;
+ * sinon le flux est écrit sur le thread du conteneur, occupé pendant toute la connexion.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see SseEmitter
+ */
+public final class ServerSentEvents {
+
+    private static final AtomicBoolean UNSUPPORTED_LOGGED = new AtomicBoolean();
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private ServerSentEvents() {}
+
+    /**
+     * @param result le résultat d'un contrôleur
+     * @return true si le résultat est un flux d'événements
+     */
+    public static boolean isStream(Object result) {
+        return result instanceof SseEmitter || result instanceof Flow.Publisher;
+    }
+
+    /**
+     * Ouvre le flux d'événements sur la réponse.
+     *
+     * @param request la requête HTTP
+     * @param response la réponse HTTP
+     * @param result le SseEmitter ou Flow.Publisher retourné par le contrôleur
+     * @param async le contexte asynchrone si la requête est déjà asynchrone (thread virtuel), null sinon
+     * @return true si la réponse est terminée (flux écrit sur le thread courant), false si
+     *         le thread d'écriture la terminera
+     * @throws IOException en cas d'erreur d'écriture des en-têtes
+     */
+    public static boolean open(HttpServletRequest request, HttpServletResponse response, Object result,
+            AsyncContext async) throws IOException {
+        SseEmitter emitter = result instanceof SseEmitter ? (SseEmitter) result : SseEmitter.of((Flow.Publisher<?>) result);
+        long heartbeatMillis = ConfigManager.getInstance().getLong("sseHeartbeat", 15000);
+
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        // Désactive la mise en tampon des proxys (nginx)
+        response.setHeader("X-Accel-Buffering", "no");
+        PrintWriter out = response.getWriter();
+        response.flushBuffer();
+
+        if (async == null) {
+            if (!request.isAsyncSupported()) {
+                if (UNSUPPORTED_LOGGED.compareAndSet(false, true)) {
+                    System.out.println("[SSE] Support asynchrone absent (async-supported), flux ecrits sur les threads du conteneur");
+                }
+                emitter.drain(out, heartbeatMillis);
+                return true;
+            }
+            async = request.startAsync(request, response);
+        }
+        AsyncContext context = async;
+        try {
+            context.setTimeout(0);
+        } catch (IllegalStateException e) {
+            // Délai déjà fixé par le conteneur : la connexion sera fermée à son expiration
+        }
+
+        AtomicBoolean completed = new AtomicBoolean();
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                emitter.close();
+                if (completed.compareAndSet(false, true)) context.complete();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                emitter.close();
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+                emitter.close();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {}
+        });
+
+        Thread.ofVirtual().name("framework-sse-" + SEQUENCE.incrementAndGet()).start(() -> {
+            try {
+                emitter.drain(out, heartbeatMillis);
+            } finally {
+                if (completed.compareAndSet(false, true)) {
+                    try {
+                        context.complete();
+                    } catch (IllegalStateException e) {
+                        // déjà terminée
+                    }
+                }
+            }
+        });
+        return false;
+    }
+}
@@ -0,0 +1,472 @@
+package mg.itu.ermite.framework.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import mg.itu.ermite.framework.annotation.Controller;
+import mg.itu.ermite.framework.annotation.Inject;
+import mg.itu.ermite.framework.annotation.Service;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Conteneur de services : construit les contrôleurs et leurs dépendances ({@link Service}).
+ *
+ * Le graphe des dépendances est résolu au démarrage, juste après la découverte des
+ * endpoints : chaque contrôleur et chaque service reçoit une fabrique compilée, un arbre
+ * de MethodHandle qui appelle son constructeur avec les fournisseurs de ses dépendances.
+ * Une requête n'exécute ensuite ni recherche de constructeur ni réflexion ; les
+ * singletons sont créés une fois, au démarrage.
+ *
+ * Un paramètre de constructeur est résolu par son type :
+ * - une classe annotée @Service
+ * - une interface ou une classe abstraite : son unique implémentation @Service
+ *   (trouvée par le ClasspathScanner, seulement si le graphe en contient) ou celle
+ *   déclarée par {@link #bind(Class, Class)}
+ * - une instance enregistrée par {@link #bind(Class, Object)}, ou ConfigManager
+ *
+ * Les instances de portée REQUEST sont portées par un attribut de la requête, comme le
+ * RequestContext, et non par un ThreadLocal ; celles qui sont AutoCloseable sont fermées
+ * à la fin de la requête ({@link #release(HttpServletRequest)}), les singletons à
+ * l'arrêt de l'application.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see Service
+ * @see Inject
+ * @see EndPointDetails
+ */
+public final class ServiceContainer {
+
+    /** Attribut de requête portant les instances de portée REQUEST */
+    public static final String ATTRIBUTE = ServiceContainer.class.getName();
+
+    private static final ServiceContainer INSTANCE = new ServiceContainer();
+
+    private static final MethodHandle SCOPED;
+    static {
+        try {
+            SCOPED = MethodHandles.lookup().findStatic(ServiceContainer.class, "scoped",
+                    MethodType.methodType(Object.class, HttpServletRequest.class, Binding.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Type demandé -&gt; binding résolu (une implémentation partage le binding de ses interfaces) */
+    private final Map<Class<?>, Binding> bindings = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Class<?>> implementations = new ConcurrentHashMap<>();
+    /** Singletons dans leur ordre de création, fermés dans l'ordre inverse */
+    private final List<Object> singletons = new ArrayList<>();
+    /** Résolution du graphe : au démarrage, puis pour les contrôleurs enregistrés à l'exécution */
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<Class<?>> services;
+
+    private ServiceContainer() {}
+
+    /**
+     * @return le conteneur de services de l'application
+     */
+    public static ServiceContainer get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Enregistre une instance existante (source de données, client configuré...),
+     * injectée comme singleton. À appeler avant la résolution des composants qui en dépendent.
+     *
+     * @param <T> le type injecté
+     * @param type le type injecté
+     * @param instance l'instance
+     */
+    public <T> void bind(Class<T> type, T instance) {
+        lock.lock();
+        try {
+            if (bindings.containsKey(type)) throw new IllegalStateException("Type deja resolu: " + type.getName());
+            bindings.put(type, Binding.constant(type, instance));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Déclare l'implémentation d'une interface, prioritaire sur celle trouvée par le scan.
+     *
+     * @param <T> le type injecté
+     * @param type l'interface ou la classe abstraite injectée
+     * @param implementation la classe @Service qui l'implémente
+     */
+    public <T> void bind(Class<T> type, Class<? extends T> implementation) {
+        lock.lock();
+        try {
+            if (bindings.containsKey(type)) throw new IllegalStateException("Type deja resolu: " + type.getName());
+            implementations.put(type, implementation);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Résout le graphe des contrôleurs de la table de routage et compile leurs fabriques.
+     * Appelé par le FrameworkInitializer au démarrage.
+     *
+     * @param routes la table de routage
+     * @throws IllegalStateException si une dépendance est manquante, ambiguë ou circulaire
+     */
+    public void start(RouteTable routes) {
+        long started = System.nanoTime();
+        int controllers = 0;
+        for (List<EndPointDetails> list : routes.getEndpoints().values()) {
+            for (EndPointDetails endPoint : list) {
+                if (endPoint.getTarget() != null) continue;
+                endPoint.setFactory(factory(endPoint.getMethod().getDeclaringClass()));
+                controllers++;
+            }
+        }
+        int count;
+        lock.lock();
+        try {
+            count = singletons.size();
+        } finally {
+            lock.unlock();
+        }
+        System.out.println("[Services] " + bindings.size() + " composants resolus pour " + controllers + " endpoints, "
+                + count + " singletons crees en " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+    }
+
+    /**
+     * @param type la classe du contrôleur ou du service
+     * @return la fabrique compilée de ses instances
+     * @throws IllegalStateException si une dépendance est manquante, ambiguë ou circulaire
+     */
+    public Factory factory(Class<?> type) {
+        Binding binding = bindings.get(type);
+        if (binding == null) {
+            lock.lock();
+            try {
+                binding = resolve(type, new ArrayDeque<>());
+            } finally {
+                lock.unlock();
+            }
+        }
+        return new Factory(type, binding.provider);
+    }
+
+    /**
+     * @param <T> le type demandé
+     * @param type le type demandé
+     * @param request la requête courante, null hors requête (singletons seulement)
+     * @return l'instance du service pour la requête
+     */
+    public <T> T instance(Class<T> type, HttpServletRequest request) {
+        return type.cast(factory(type).create(request));
+    }
+
+    /**
+     * Ferme les instances AutoCloseable de portée REQUEST d'une requête terminée.
+     * Appelé par le FrontServlet à la fin du traitement ; en mode asynchrone, les
+     * instances sont fermées à la complétion de la requête.
+     *
+     * @param request la requête HTTP
+     */
+    public static void release(HttpServletRequest request) {
+        if (request.isAsyncStarted()) {
+            try {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        closeScope(request);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {}
+
+                    @Override
+                    public void onError(AsyncEvent event) {}
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {}
+                });
+                return;
+            } catch (IllegalStateException e) {
+                // Requête déjà terminée
+            }
+        }
+        closeScope(request);
+    }
+
+    private static void closeScope(HttpServletRequest request) {
+        RequestScope scope = (RequestScope) request.getAttribute(ATTRIBUTE);
+        if (scope == null) return;
+        request.removeAttribute(ATTRIBUTE);
+        close(new ArrayList<>(scope.instances.values()));
+    }
+
+    /**
+     * Ferme les singletons AutoCloseable, dans l'ordre inverse de leur création.
+     */
+    public static void shutdown() {
+        ServiceContainer container = INSTANCE;
+        List<Object> created;
+        container.lock.lock();
+        try {
+            created = new ArrayList<>(container.singletons);
+            container.singletons.clear();
+            container.bindings.clear();
+            container.implementations.clear();
+            container.services = null;
+        } finally {
+            container.lock.unlock();
+        }
+        close(created);
+    }
+
+    private static void close(List<Object> instances) {
+        for (int i = instances.size() - 1; i >= 0; i--) {
+            if (!(instances.get(i) instanceof AutoCloseable)) continue;
+            try {
+                ((AutoCloseable) instances.get(i)).close();
+            } catch (Exception e) {
+                System.out.println("[Services] Fermeture de " + instances.get(i).getClass().getName() + " impossible: " + e);
+            }
+        }
+    }
+
+    /**
+     * Résout un type et ses dépendances (verrou détenu).
+     *
+     * @param path la chaîne des types en cours de résolution, pour détecter les cycles
+     */
+    private Binding resolve(Class<?> type, Deque<Class<?>> path) {
+        Binding binding = bindings.get(type);
+        if (binding != null) return binding;
+        if (type == ConfigManager.class) {
+            binding = Binding.constant(type, ConfigManager.getInstance());
+            bindings.put(type, binding);
+            return binding;
+        }
+
+        if (type.isPrimitive() || type.isArray() || type.getName().startsWith("java.")) {
+            throw new IllegalStateException("Type non injectable: " + type.getName() + describe(path));
+        }
+        Class<?> concrete = type;
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            concrete = implementationOf(type, path);
+            binding = resolve(concrete, path);
+            bindings.put(type, binding);
+            return binding;
+        }
+
+        Service service = concrete.getAnnotation(Service.class);
+        boolean controller = concrete.isAnnotationPresent(Controller.class) || path.isEmpty();
+        if (service == null && !controller) {
+            throw new IllegalStateException("Classe non annotee @Service: " + type.getName() + describe(path));
+        }
+        Service.Scope scope = service != null ? service.scope() : Service.Scope.REQUEST;
+
+        if (path.contains(concrete)) {
+            path.addLast(concrete);
+            throw new IllegalStateException("Dependance circulaire" + describe(path));
+        }
+        path.addLast(concrete);
+        try {
+            Constructor<?> constructor = constructorOf(concrete);
+            Class<?>[] parameters = constructor.getParameterTypes();
+            MethodHandle[] providers = new MethodHandle[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                Binding dependency = resolve(parameters[i], path);
+                if (scope == Service.Scope.SINGLETON && dependency.scope == Service.Scope.REQUEST) {
+                    throw new IllegalStateException("Le singleton " + concrete.getName()
+                            + " ne peut pas dependre du service de requete " + dependency.type.getName());
+                }
+                providers[i] = dependency.provider;
+            }
+            binding = new Binding(concrete, scope, compile(constructor, providers));
+        } finally {
+            path.removeLast();
+        }
+
+        if (scope == Service.Scope.SINGLETON) {
+            Object instance = binding.newInstance(null);
+            singletons.add(instance);
+            binding = Binding.constant(concrete, instance);
+        }
+        bindings.put(concrete, binding);
+        return binding;
+    }
+
+    /**
+     * Compile la fabrique d'un constructeur : (HttpServletRequest) -&gt; instance, chaque
+     * argument étant calculé par le fournisseur de la dépendance.
+     */
+    private static MethodHandle compile(Constructor<?> constructor, MethodHandle[] providers) {
+        MethodHandle create;
+        try {
+            if (!Modifier.isPublic(constructor.getModifiers())
+                    || !Modifier.isPublic(constructor.getDeclaringClass().getModifiers())) {
+                constructor.setAccessible(true);
+            }
+            create = MethodHandles.lookup().unreflectConstructor(constructor);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalStateException("Constructeur inaccessible: " + constructor, e);
+        }
+        create = create.asType(MethodType.genericMethodType(providers.length));
+        if (providers.length == 0) return MethodHandles.dropArguments(create, 0, HttpServletRequest.class);
+        create = MethodHandles.filterArguments(create, 0, providers);
+        // Tous les fournisseurs reçoivent la même requête
+        return MethodHandles.permuteArguments(create, MethodType.methodType(Object.class, HttpServletRequest.class),
+                new int[providers.length]);
+    }
+
+    private static Constructor<?> constructorOf(Class<?> type) {
+        Constructor<?> injected = null;
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (!constructor.isAnnotationPresent(Inject.class)) continue;
+            if (injected != null) throw new IllegalStateException("Plusieurs constructeurs @Inject dans " + type.getName());
+            injected = constructor;
+        }
+        if (injected != null) return injected;
+        Constructor<?>[] constructors = type.getDeclaredConstructors();
+        if (constructors.length == 1) return constructors[0];
+        try {
+            return type.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Constructeur ambigu dans " + type.getName() + " (annoter le constructeur @Inject)");
+        }
+    }
+
+    /**
+     * @return l'unique implémentation @Service d'une interface ou d'une classe abstraite
+     */
+    private Class<?> implementationOf(Class<?> type, Deque<Class<?>> path) {
+        Class<?> bound = implementations.get(type);
+        if (bound != null) return bound;
+        if (services == null) {
+            // Scan des @Service seulement si le graphe contient une abstraction
+            services = ClasspathScanner.findAnnotatedClasses(Service.class);
+        }
+        Class<?> found = null;
+        for (Class<?> candidate : services) {
+            if (!type.isAssignableFrom(candidate) || candidate.isInterface() || Modifier.isAbstract(candidate.getModifiers())) continue;
+            if (found != null) {
+                throw new IllegalStateException("Plusieurs implementations de " + type.getName() + ": " + found.getName()
+                        + ", " + candidate.getName() + describe(path) + " (utiliser ServiceContainer.bind)");
+            }
+            found = candidate;
+        }
+        if (found == null) throw new IllegalStateException("Aucune implementation @Service de " + type.getName() + describe(path));
+        return found;
+    }
+
+    private static String describe(Deque<Class<?>> path) {
+        if (path.isEmpty()) return "";
+        StringBuilder chain = new StringBuilder(" (");
+        for (Class<?> type : path) {
+            if (chain.length() > 2) chain.append(" -> ");
+            chain.append(type.getSimpleName());
+        }
+        return chain.append(")").toString();
+    }
+
+    /**
+     * Fournisseur d'une instance de portée REQUEST : créée à la première demande de la
+     * requête, puis partagée.
+     */
+    private static Object scoped(HttpServletRequest request, Binding binding) throws Throwable {
+        if (request == null) {
+            throw new IllegalStateException("Service de requete " + binding.type.getName() + " demande hors d'une requete");
+        }
+        RequestScope scope = (RequestScope) request.getAttribute(ATTRIBUTE);
+        if (scope == null) {
+            scope = new RequestScope();
+            request.setAttribute(ATTRIBUTE, scope);
+        }
+        Object instance = scope.instances.get(binding);
+        if (instance == null) {
+            instance = (Object) binding.create.invokeExact(request);
+            scope.instances.put(binding, instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Fabrique compilée des instances d'un contrôleur ou d'un service.
+     */
+    public static final class Factory {
+        private final Class<?> type;
+        private final MethodHandle provider;
+
+        private Factory(Class<?> type, MethodHandle provider) {
+            this.type = type;
+            this.provider = provider;
+        }
+
+        /**
+         * @param request la requête courante, null hors requête
+         * @return l'instance (singleton, ou instance de la requête)
+         */
+        public Object create(HttpServletRequest request) {
+            try {
+                return (Object) provider.invokeExact(request);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Creation de " + type.getName() + " impossible: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Un type résolu : sa portée, sa fabrique et son fournisseur (HttpServletRequest) -&gt; instance.
+     */
+    static final class Binding {
+        final Class<?> type;
+        final Service.Scope scope;
+        final MethodHandle create;
+        final MethodHandle provider;
+
+        Binding(Class<?> type, Service.Scope scope, MethodHandle create) {
+            this.type = type;
+            this.scope = scope;
+            this.create = create;
+            this.provider = scope == Service.Scope.SINGLETON ? create : MethodHandles.insertArguments(SCOPED, 1, this);
+        }
+
+        static Binding constant(Class<?> type, Object instance) {
+            MethodHandle constant = MethodHandles.dropArguments(MethodHandles.constant(Object.class, instance), 0,
+                    HttpServletRequest.class);
+            return new Binding(type, Service.Scope.SINGLETON, constant);
+        }
+
+        Object newInstance(HttpServletRequest request) {
+            try {
+                return (Object) create.invokeExact(request);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Creation de " + type.getName() + " impossible: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Instances de portée REQUEST d'une requête, dans leur ordre de création.
+     */
+    private static final class RequestScope {
+        final Map<Binding, Object> instances = new LinkedHashMap<>();
+    }
+}
@@ -1,22 +1,63 @@
 package mg.itu.ermite.framework.util;
 
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import mg.itu.ermite.framework.util.session.ContainerSessionBackend;
+import mg.itu.ermite.framework.util.session.SessionBackend;
+import mg.itu.ermite.framework.util.session.SessionMemoryAccountant;
+import mg.itu.ermite.framework.util.session.SessionStores;
+import mg.itu.ermite.framework.util.session.SpilledAttribute;
 
 /**
  * Wrapper de la session HTTP implémentant l'interface Map.
- * 
+ *
  * SessionMap permet de manipuler la session HTTP de manière identique à une Map.
  * Cela offre une interface uniforme et facilite le passage de la session aux
  * méthodes de contrôleur sans exposure directe de l'API servlet.
- * 
+ *
+ * La session est créée paresseusement : les lectures utilisent
+ * {@code request.getSession(false)} et seule la première écriture crée la
+ * session HTTP. Une requête anonyme qui ne fait que lire n'alloue donc
+ * aucune session côté conteneur.
+ *
+ * Les attributs sont lus et écrits via un {@link SessionBackend} : l'HttpSession
+ * du conteneur par défaut, ou un {@link mg.itu.ermite.framework.util.session.SessionStore}
+ * externe (fichiers mappés, store réseau...) configuré par le paramètre "sessionStore".
+ *
+ * Suivi des modifications : le SessionMap injecté par le framework (voir
+ * {@link #of(HttpServletRequest, HttpServletResponse)}) n'écrit pas immédiatement
+ * dans la session. Les écritures sont accumulées dans un calque propre à la requête
+ * puis appliquées en une fois par {@link #flush()}, appelé par le FrontServlet
+ * avant le rendu de la réponse. Seuls les attributs réellement modifiés sont écrits :
+ * réécrire une valeur égale à la valeur en session ne coûte rien, ce qui évite
+ * sérialisation et réplication inutiles. Un objet mutable modifié en place doit
+ * être signalé avec {@link #markDirty(String)}.
+ *
+ * Comptabilité mémoire : lorsqu'elle est active (voir {@link SessionMemoryAccountant}),
+ * la taille de chaque attribut écrit est estimée et confrontée aux budgets par session
+ * et global ; selon la politique configurée, l'écriture est refusée, des attributs
+ * anciens sont évincés, ou la valeur est déportée sur disque et relue par get().
+ *
+ * Les vues {@link #keySet()}, {@link #values()} et {@link #entrySet()} sont
+ * des vues vivantes sur les attributs de la session : elles ne copient rien
+ * et reflètent toute modification ultérieure.
+ *
  * Utilisation dans un contrôleur :
  * <pre>
  * @Controller
@@ -28,193 +69,730 @@ import jakarta.servlet.http.HttpSession;
  *         session.put("userId", 123);
  *         session.put("userName", username);
  *         session.put("role", "USER");
- *         
+ *
  *         // Récupérer des données
  *         Integer userId = (Integer) session.get("userId");
- *         
+ *
+ *         // Objet mutable modifié en place : le signaler
+ *         List<Item> cart = (List<Item>) session.get("cart");
+ *         cart.add(item);
+ *         session.markDirty("cart");
+ *
  *         // Supprimer des données
  *         session.remove("tempData");
- *         
+ *
  *         // Nettoyer la session
  *         session.clear();
  *     }
  * }
  * </pre>
- * 
+ *
  * SessionMap est injectée automatiquement dans les paramètres de méthode
  * annotés d'un contrôleur si leur type est SessionMap.
- * 
+ *
  * @author Framework S5
  * @version 1.0
  * @see EndPointDetails
  */
 public class SessionMap implements Map<String,Object> {
 
-    private final HttpSession session;
+    /** Attribut de requête sous lequel le SessionMap de la requête est mis en cache */
+    private static final String REQUEST_ATTRIBUTE = SessionMap.class.getName();
+
+    /** Marqueur de suppression dans le calque d'écriture */
+    private static final Object REMOVED = new Object();
+
+    /** Accès aux attributs de la session (HttpSession du conteneur ou store externe) */
+    private final SessionBackend backend;
+
+    /** true si les écritures sont différées jusqu'à flush() */
+    private final boolean buffered;
+
+    /** Calque des écritures différées (valeur ou REMOVED), alloué à la première écriture */
+    private Map<String,Object> overlay;
+
+    /** Attributs mutables signalés comme modifiés en place */
+    private Set<String> dirty;
+
+    /** Tailles estimées des écritures en attente (comptabilité mémoire active uniquement) */
+    private Map<String,Long> pendingSizes;
+
+    /** Vues vivantes, créées à la demande */
+    private Set<String> keySet;
+    private Collection<Object> values;
+    private Set<Entry<String,Object>> entrySet;
 
     /**
-     * Crée un SessionMap wrappant une session HTTP.
-     * 
+     * Crée un SessionMap wrappant une session HTTP existante.
+     * Les écritures sont appliquées immédiatement.
+     *
      * @param session la session HTTP à wrapper
      */
     public SessionMap(HttpSession session) {
-        this.session = session;
+        this(new ContainerSessionBackend(session));
+    }
+
+    /**
+     * Crée un SessionMap dont la session n'est créée qu'à la première écriture.
+     * Sans réponse, un store externe ne peut pas émettre son cookie : préférer
+     * {@link #of(HttpServletRequest, HttpServletResponse)}.
+     *
+     * @param request la requête HTTP portant (éventuellement) la session
+     */
+    public SessionMap(HttpServletRequest request) {
+        this(SessionStores.backendFor(request, null));
+    }
+
+    /**
+     * Crée un SessionMap au-dessus d'un backend de session quelconque.
+     * Les écritures sont appliquées immédiatement.
+     *
+     * @param backend le backend de session de la requête
+     */
+    public SessionMap(SessionBackend backend) {
+        this(backend, false);
+    }
+
+    private SessionMap(SessionBackend backend, boolean buffered) {
+        this.backend = backend;
+        this.buffered = buffered;
+    }
+
+    /**
+     * Récupère le SessionMap de la requête, partagé par le framework et le contrôleur.
+     * Le backend est choisi selon le store configuré (voir {@link SessionStores}).
+     *
+     * Avec une réponse, le SessionMap est mis en cache dans la requête et ses écritures
+     * sont différées jusqu'à {@link #flush(HttpServletRequest)}.
+     *
+     * @param request la requête courante
+     * @param response la réponse courante, ou null pour un accès en lecture seule
+     * @return le SessionMap de la requête
+     */
+    public static SessionMap of(HttpServletRequest request, HttpServletResponse response) {
+        SessionMap cached = (SessionMap) request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached != null) return cached;
+
+        // Sans réponse, le SessionMap n'est pas mis en cache : il ne pourrait pas créer de session
+        if (response == null) return new SessionMap(SessionStores.backendFor(request, null));
+
+        SessionMap sessionMap = new SessionMap(SessionStores.backendFor(request, response), true);
+        request.setAttribute(REQUEST_ATTRIBUTE, sessionMap);
+        return sessionMap;
+    }
+
+    /**
+     * Applique les écritures différées du SessionMap de la requête, s'il existe.
+     *
+     * @param request la requête courante
+     */
+    public static void flush(HttpServletRequest request) {
+        SessionMap cached = (SessionMap) request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached != null) cached.flush();
+    }
+
+    /**
+     * Applique à la session les seules modifications de la requête :
+     * attributs modifiés, supprimés ou signalés par {@link #markDirty(String)}.
+     * Sans effet si rien n'a changé.
+     */
+    public void flush() {
+        boolean changed = false;
+        SessionMemoryAccountant accountant = SessionMemoryAccountant.get();
+
+        if (overlay != null && !overlay.isEmpty()) {
+            for (Entry<String,Object> e : overlay.entrySet()) {
+                if (accountant != null) discardReplaced(accountant, e.getKey(), e.getValue());
+                if (e.getValue() == REMOVED) {
+                    backend.removeAttribute(e.getKey());
+                } else {
+                    backend.setAttribute(e.getKey(), e.getValue());
+                }
+            }
+            changed = true;
+        }
+
+        if (dirty != null && !dirty.isEmpty()) {
+            for (String name : dirty) {
+                if (overlay != null && overlay.containsKey(name)) continue;
+                Object value = backend.getAttribute(name);
+                if (value != null) {
+                    backend.setAttribute(name, value);
+                    // Un objet modifié en place a pu changer de taille
+                    if (accountant != null) pendingSize(name, accountant.estimate(value));
+                }
+            }
+            changed = true;
+        }
+
+        if (changed) {
+            backend.commit();
+            if (accountant != null) recordSizes(accountant);
+            if (overlay != null) overlay.clear();
+            if (dirty != null) dirty.clear();
+        }
+    }
+
+    /**
+     * Signale qu'un attribut mutable a été modifié en place et doit être réécrit
+     * au prochain flush, même si sa référence n'a pas changé.
+     *
+     * @param key le nom de l'attribut
+     */
+    public void markDirty(String key) {
+        if (!buffered) {
+            Object value = backend.getAttribute(key);
+            if (value != null) {
+                backend.setAttribute(key, value);
+                backend.commit();
+                SessionMemoryAccountant accountant = SessionMemoryAccountant.get();
+                String sessionId = accountant == null ? null : backend.getId();
+                if (sessionId != null) accountant.record(sessionId, key, accountant.estimate(value), value);
+            }
+            return;
+        }
+        if (dirty == null) dirty = new HashSet<>();
+        dirty.add(key);
+    }
+
+    /**
+     * Invalide la session courante (déconnexion).
+     * Les écritures différées sont abandonnées. Sans effet si aucune session n'existe.
+     */
+    public void invalidate() {
+        if (overlay != null) overlay.clear();
+        if (dirty != null) dirty.clear();
+        if (pendingSizes != null) pendingSizes.clear();
+
+        SessionMemoryAccountant accountant = SessionMemoryAccountant.get();
+        String sessionId = accountant == null ? null : backend.getId();
+        if (sessionId != null) {
+            for (String name : Collections.list(backend.getAttributeNames())) {
+                accountant.discard(backend.getAttribute(name));
+            }
+            accountant.release(sessionId);
+        }
+        backend.invalidate();
+    }
+
+    /**
+     * Écrit (ou supprime si value est null) un attribut, en différant l'écriture si nécessaire.
+     * Une valeur égale à celle déjà en session n'est pas écrite.
+     */
+    private void write(String key, Object value) {
+        SessionMemoryAccountant accountant = SessionMemoryAccountant.get();
+        if (accountant != null) value = admit(accountant, key, value);
+
+        if (!buffered) {
+            if (accountant != null) discardReplaced(accountant, key, value == null ? REMOVED : value);
+            if (value == null) {
+                backend.removeAttribute(key);
+            } else {
+                backend.setAttribute(key, value);
+            }
+            backend.commit();
+            if (accountant != null) recordSizes(accountant);
+            return;
+        }
+
+        Object stored = backend.getAttribute(key);
+        if (Objects.equals(stored, value)) {
+            // Retour à la valeur en session : rien à écrire
+            if (overlay != null) overlay.remove(key);
+            if (pendingSizes != null) pendingSizes.remove(key);
+            return;
+        }
+        if (overlay == null) overlay = new HashMap<>();
+        Object previous = overlay.put(key, value == null ? REMOVED : value);
+        // Une valeur déportée puis remplacée dans la même requête n'a jamais atteint la session
+        if (accountant != null && previous instanceof SpilledAttribute) accountant.discard(previous);
+    }
+
+    /**
+     * Applique les budgets mémoire à une écriture.
+     *
+     * @return la valeur à écrire réellement (la valeur d'origine ou sa référence déportée)
+     * @throws IllegalStateException si l'écriture est refusée
+     */
+    private Object admit(SessionMemoryAccountant accountant, String key, Object value) {
+        if (value == null) {
+            pendingSize(key, 0);
+            return null;
+        }
+
+        String sessionId = backend.getId();
+        long size = accountant.estimate(value);
+        Map<String,Long> pending = pendingSizes == null ? Collections.emptyMap() : pendingSizes;
+        long over = accountant.overflow(sessionId, key, size, pending);
+
+        if (over > 0) {
+            switch (accountant.getPolicy()) {
+                case SPILL:
+                    value = accountant.spill(value);
+                    size = accountant.estimate(value);
+                    break;
+                case EVICT:
+                    for (Entry<String,Long> candidate : accountant.evictionCandidates(sessionId)) {
+                        if (over <= 0) break;
+                        if (candidate.getKey().equals(key) || get(candidate.getKey()) == null) continue;
+                        write(candidate.getKey(), null);
+                        accountant.recordEviction();
+                        over -= candidate.getValue();
+                    }
+                    // Pas assez d'attributs à évincer
+                    if (over > 0) reject(accountant, key, over, size);
+                    break;
+                default:
+                    reject(accountant, key, over, size);
+            }
+        }
+        pendingSize(key, size);
+        return value;
+    }
+
+    /**
+     * Refuse une écriture qui dépasse le budget mémoire.
+     *
+     * @throws IllegalStateException toujours
+     */
+    private static void reject(SessionMemoryAccountant accountant, String key, long over, long size) {
+        accountant.recordRejection();
+        throw new IllegalStateException("Budget memoire de session depasse de " + over
+                + " octets en ecrivant l'attribut '" + key + "' (" + size + " octets estimes)");
+    }
+
+    private void pendingSize(String key, long size) {
+        if (pendingSizes == null) pendingSizes = new HashMap<>();
+        pendingSizes.put(key, size);
+    }
+
+    /**
+     * Supprime le fichier d'une valeur déportée que l'écriture va remplacer.
+     */
+    private void discardReplaced(SessionMemoryAccountant accountant, String key, Object newValue) {
+        Object stored = backend.getAttribute(key);
+        if (stored instanceof SpilledAttribute && !stored.equals(newValue)) accountant.discard(stored);
+    }
+
+    /**
+     * Reporte dans la comptabilité les tailles des écritures appliquées.
+     */
+    private void recordSizes(SessionMemoryAccountant accountant) {
+        if (pendingSizes == null || pendingSizes.isEmpty()) return;
+        String sessionId = backend.getId();
+        if (sessionId != null) {
+            pendingSizes.forEach((name, size) -> accountant.record(sessionId, name, size, backend.getAttribute(name)));
+        }
+        pendingSizes.clear();
+    }
+
+    /**
+     * Relit une valeur déportée sur disque ; les autres valeurs sont retournées telles quelles.
+     */
+    private static Object resolve(Object value) {
+        return value instanceof SpilledAttribute ? ((SpilledAttribute) value).load() : value;
+    }
+
+    /**
+     * @return true si le backend porte l'attribut (en ignorant le calque)
+     */
+    private boolean inBackend(String key) {
+        return backend.getAttribute(key) != null;
     }
 
     /**
      * Retourne la taille de la session (nombre d'attributs).
-     * 
+     *
      * @return le nombre d'attributs
-     * @throws UnsupportedOperationException si non implémenté
      */
     @Override
     public int size() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'size'");
+        int count = 0;
+        for (Iterator<String> it = keySet().iterator(); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
     }
 
     /**
      * Vérifie si la session est vide.
-     * 
-     * @return true si la session n'a pas d'attributs
-     * @throws UnsupportedOperationException si non implémenté
+     *
+     * @return true si la session n'existe pas ou n'a pas d'attributs
      */
     @Override
     public boolean isEmpty() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'isEmpty'");
+        if (overlay == null || overlay.isEmpty()) {
+            return !backend.getAttributeNames().hasMoreElements();
+        }
+        return !keySet().iterator().hasNext();
     }
 
     /**
      * Vérifie si un attribut existe en session.
-     * 
+     *
      * @param key le nom de l'attribut
      * @return true si l'attribut existe
-     * @throws UnsupportedOperationException si non implémenté
      */
     @Override
     public boolean containsKey(Object key) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'containsKey'");
+        return get(key) != null;
     }
 
     /**
      * Vérifie si une valeur existe en session.
-     * 
+     *
      * @param value la valeur à chercher
      * @return true si la valeur existe
-     * @throws UnsupportedOperationException si non implémenté
      */
     @Override
     public boolean containsValue(Object value) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'containsValue'");
+        if (value == null) return false;
+
+        for (Iterator<Object> it = values().iterator(); it.hasNext();) {
+            if (value.equals(it.next())) return true;
+        }
+        return false;
     }
 
     /**
-     * Récupère un attribut de la session.
-     * 
+     * Récupère un attribut de la session (en tenant compte des écritures
+     * non encore appliquées de la requête).
+     *
      * @param key le nom de l'attribut
      * @return la valeur de l'attribut ou null
      */
     @Override
     public Object get(Object key) {
-        return session.getAttribute((String) key);
+        if (!(key instanceof String)) return null;
+        if (overlay != null) {
+            Object pending = overlay.get(key);
+            if (pending == REMOVED) return null;
+            if (pending != null) return resolve(pending);
+        }
+        SessionMemoryAccountant accountant = SessionMemoryAccountant.get();
+        if (accountant != null) accountant.touch(backend.getId(), (String) key);
+        return resolve(backend.getAttribute((String) key));
     }
 
     /**
      * Ajoute ou met à jour un attribut dans la session.
-     * 
+     * La session est créée si elle n'existe pas encore.
+     *
      * @param key le nom de l'attribut
      * @param value la valeur à stocker
      * @return la valeur précédente ou null
      */
     @Override
     public Object put(String key, Object value) {
-        session.setAttribute(key, value);
-        return session.getAttribute(key);
+        Object previous = get(key);
+        write(key, value);
+        return previous;
     }
 
     /**
      * Supprime un attribut de la session.
-     * 
+     *
      * @param key le nom de l'attribut à supprimer
      * @return la valeur de l'attribut supprimé
      */
     @Override
     public Object remove(Object key) {
         Object value = get(key);
-        session.removeAttribute((String) key);
+        if (value != null) {
+            write((String) key, null);
+        }
         return value;
     }
 
     /**
      * Ajoute plusieurs attributs à la session en une seule opération.
-     * 
+     * Seuls les attributs dont la valeur change seront écrits.
+     *
      * @param m une map contenant les attributs à ajouter
      */
     @Override
     public void putAll(Map<? extends String, ? extends Object> m) {
-        m.forEach((k, v) -> session.setAttribute(k, v));
+        m.forEach(this::write);
     }
 
     /**
      * Vide la session (supprime tous les attributs).
+     * Ne crée pas de session si aucune n'existe.
      */
     @Override
     public void clear() {
-        if (session == null) return;
-        
-        Enumeration<String> names = session.getAttributeNames();
-        while (names.hasMoreElements()) {
-            session.removeAttribute(names.nextElement());
+        // Les noms sont collectés avant suppression pour ne pas modifier
+        // la session pendant son énumération
+        for (String name : Collections.list(backend.getAttributeNames())) {
+            write(name, null);
+        }
+        if (overlay != null) {
+            overlay.values().removeIf(v -> v != REMOVED);
         }
     }
 
     /**
-     * Récupère l'ensemble des noms d'attributs de la session.
-     * 
-     * @return un Set contenant les noms des attributs
+     * Récupère la vue vivante des noms d'attributs de la session.
+     *
+     * @return un Set adossé à la session
      */
     @Override
     public Set<String> keySet() {
-        if (session == null) return Collections.emptySet();
-        return new HashSet<>(Collections.list(session.getAttributeNames()));
+        if (keySet == null) {
+            keySet = new AbstractSet<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return new AttributeIterator<String>() {
+                        @Override
+                        protected String element(String name) {
+                            return name;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return SessionMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    return SessionMap.this.remove(o) != null;
+                }
+
+                @Override
+                public void clear() {
+                    SessionMap.this.clear();
+                }
+            };
+        }
+        return keySet;
     }
 
     /**
-     * Récupère la collection des valeurs d'attributs de la session.
-     * 
-     * @return une Collection contenant les valeurs
+     * Récupère la vue vivante des valeurs d'attributs de la session.
+     *
+     * @return une Collection adossée à la session
      */
     @Override
     public Collection<Object> values() {
-        if (session == null) return Collections.emptyList();
-        
-        Collection<Object> values = new java.util.ArrayList<>();
-        Enumeration<String> names = session.getAttributeNames();
-        while (names.hasMoreElements()) {
-            values.add(session.getAttribute(names.nextElement()));
+        if (values == null) {
+            values = new AbstractCollection<Object>() {
+                @Override
+                public Iterator<Object> iterator() {
+                    return new AttributeIterator<Object>() {
+                        @Override
+                        protected Object element(String name) {
+                            return get(name);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return SessionMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsValue(o);
+                }
+
+                @Override
+                public void clear() {
+                    SessionMap.this.clear();
+                }
+            };
         }
         return values;
     }
 
     /**
-     * Récupère l'ensemble des paires clé-valeur de la session.
-     * 
-     * @return un Set contenant les entries (paires clé-valeur)
+     * Récupère la vue vivante des paires clé-valeur de la session.
+     * Les entrées lisent et écrivent directement dans la session.
+     *
+     * @return un Set adossé à la session
      */
     @Override
     public Set<Entry<String, Object>> entrySet() {
-        if (session == null) return Collections.emptySet();
-        
-        Map<String, Object> entries = new HashMap<>();
-        Enumeration<String> names = session.getAttributeNames();
-        while (names.hasMoreElements()) {
-            String name = names.nextElement();
-            entries.put(name, session.getAttribute(name));
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String,Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new AttributeIterator<Entry<String,Object>>() {
+                        @Override
+                        protected Entry<String, Object> element(String name) {
+                            return new AttributeEntry(name);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return SessionMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Entry)) return false;
+                    Entry<?,?> e = (Entry<?,?>) o;
+                    Object value = get(e.getKey());
+                    return value != null && value.equals(e.getValue());
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    if (!contains(o)) return false;
+                    SessionMap.this.remove(((Entry<?,?>) o).getKey());
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    SessionMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof Map)) return false;
+        Map<?,?> other = (Map<?,?>) o;
+        if (other.size() != size()) return false;
+        for (Entry<String,Object> e : entrySet()) {
+            if (!Objects.equals(e.getValue(), other.get(e.getKey()))) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (Entry<String,Object> e : entrySet()) {
+            h += e.hashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (Entry<String,Object> e : entrySet()) {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(e.getKey()).append('=').append(e.getValue());
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Itérateur sur les noms d'attributs visibles, supportant remove().
+     *
+     * Parcourt d'abord les attributs du backend (en sautant ceux supprimés dans le
+     * calque), puis les attributs ajoutés par la requête et absents du backend.
+     */
+    private abstract class AttributeIterator<E> implements Iterator<E> {
+        private final Enumeration<String> names;
+        private Iterator<String> added;
+        private String next;
+        private String current;
+
+        AttributeIterator() {
+            this.names = backend.getAttributeNames();
+            advance();
+        }
+
+        protected abstract E element(String name);
+
+        private void advance() {
+            next = null;
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                if (overlay == null || overlay.get(name) != REMOVED) {
+                    next = name;
+                    return;
+                }
+            }
+            if (added == null) {
+                List<String> pending = new ArrayList<>();
+                if (overlay != null) {
+                    for (Entry<String,Object> e : overlay.entrySet()) {
+                        if (e.getValue() != REMOVED && !inBackend(e.getKey())) pending.add(e.getKey());
+                    }
+                }
+                added = pending.iterator();
+            }
+            if (added.hasNext()) next = added.next();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public E next() {
+            if (next == null) throw new NoSuchElementException();
+            current = next;
+            advance();
+            return element(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) throw new IllegalStateException();
+            SessionMap.this.remove(current);
+            current = null;
+        }
+    }
+
+    /**
+     * Entrée vivante : getValue() relit la session, setValue() y écrit.
+     */
+    private final class AttributeEntry implements Entry<String,Object> {
+        private final String name;
+
+        AttributeEntry(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getKey() {
+            return name;
+        }
+
+        @Override
+        public Object getValue() {
+            return get(name);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return put(name, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            Entry<?,?> e = (Entry<?,?>) o;
+            return name.equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + getValue();
         }
-        return entries.entrySet();
     }
-    
 }
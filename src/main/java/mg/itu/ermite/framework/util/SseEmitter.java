@@ -0,0 +1,279 @@
+package mg.itu.ermite.framework.util;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Flux d'événements Server-Sent Events (text/event-stream) vers un client.
+ *
+ * Un contrôleur retourne un SseEmitter (ou un {@link Flow.Publisher}) : la connexion
+ * reste ouverte en mode asynchrone et chaque {@link #send(Object)} pousse un événement
+ * au client, depuis n'importe quel thread. Les données sont sérialisées avec
+ * l'ObjectMapper partagé du framework (un String est envoyé tel quel).
+ *
+ * Chaque client dispose d'une file bornée ("sseBufferSize") vidée par un thread
+ * virtuel qui écrit sur la connexion : un client lent ne ralentit pas les émetteurs.
+ * Quand la file est pleine, l'événement est abandonné ("sseOverflow" = drop) ou le
+ * client est déconnecté ("sseOverflow" = disconnect). Un {@link Flow.Publisher} n'est
+ * sollicité (request(n)) qu'à hauteur de la place libre dans la file.
+ *
+ * Configuration (web.xml) :
+ * - "sseBufferSize" : nombre d'événements en attente par client (défaut 256)
+ * - "sseOverflow" : drop ou disconnect (défaut drop)
+ * - "sseHeartbeat" : intervalle des commentaires de maintien en millisecondes (défaut 15000)
+ *
+ * Exemple d'utilisation :
+ * <pre>
+ * @UrlMapping(url = "/dashboard/events")
+ * @GetMapping
+ * public SseEmitter events() {
+ *     SseEmitter emitter = new SseEmitter();
+ *     metrics.subscribe(snapshot -&gt; emitter.send("metrics", snapshot));
+ *     emitter.onClose(() -&gt; metrics.unsubscribe(emitter));
+ *     return emitter;
+ * }
+ * </pre>
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see ServerSentEvents
+ */
+public final class SseEmitter {
+
+    private static final Object END = new Object();
+
+    private final int capacity;
+    private final boolean disconnectOnOverflow;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    /** Événements en file (hors marqueur de fin) */
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final List<Runnable> closeHandlers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private volatile boolean completed;
+    private volatile Flow.Subscription subscription;
+
+    /**
+     * Crée un flux avec la taille de file et la politique de débordement configurées.
+     */
+    public SseEmitter() {
+        this(ConfigManager.getInstance().getInt("sseBufferSize", 256),
+                "disconnect".equalsIgnoreCase(ConfigManager.getInstance().get("sseOverflow", "drop")));
+    }
+
+    /**
+     * @param bufferSize le nombre maximal d'événements en attente pour ce client
+     * @param disconnectOnOverflow true pour déconnecter le client quand la file est pleine,
+     *                             false pour abandonner l'événement
+     */
+    public SseEmitter(int bufferSize, boolean disconnectOnOverflow) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("sseBufferSize invalide: " + bufferSize);
+        }
+        this.capacity = bufferSize;
+        this.disconnectOnOverflow = disconnectOnOverflow;
+    }
+
+    /**
+     * Adapte un Publisher en flux : il est sollicité selon la place libre dans la file
+     * du client et annulé à la déconnexion.
+     *
+     * @param publisher la source des événements
+     * @return le flux alimenté par le publisher
+     */
+    public static SseEmitter of(Flow.Publisher<?> publisher) {
+        SseEmitter emitter = new SseEmitter();
+        publisher.subscribe(new Flow.Subscriber<Object>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                emitter.subscription = s;
+                if (emitter.closed.get()) s.cancel();
+                else s.request(emitter.capacity);
+            }
+
+            @Override
+            public void onNext(Object item) {
+                emitter.send(item);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                emitter.completeWithError(error);
+            }
+
+            @Override
+            public void onComplete() {
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Envoie un événement sans nom.
+     *
+     * @param data les données de l'événement
+     * @return false si l'événement n'a pas été mis en file (flux fermé ou file pleine)
+     */
+    public boolean send(Object data) {
+        return send(null, data);
+    }
+
+    /**
+     * Envoie un événement nommé (champ "event").
+     *
+     * @param event le nom de l'événement, ou null
+     * @param data les données de l'événement
+     * @return false si l'événement n'a pas été mis en file (flux fermé ou file pleine)
+     * @throws IllegalArgumentException si les données ne sont pas sérialisables
+     */
+    public boolean send(String event, Object data) {
+        if (completed || closed.get()) return false;
+        String frame = frame(event, data);
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+            if (disconnectOnOverflow) {
+                System.out.println("[SSE] Client trop lent, deconnexion (" + capacity + " evenements en attente)");
+                close();
+            }
+            return false;
+        }
+        queue.add(frame);
+        return true;
+    }
+
+    /**
+     * Termine le flux une fois les événements en file envoyés.
+     */
+    public void complete() {
+        if (completed) return;
+        completed = true;
+        queue.add(END);
+    }
+
+    /**
+     * Envoie un événement "error" puis termine le flux.
+     *
+     * @param error la cause de l'arrêt
+     */
+    public void completeWithError(Throwable error) {
+        if (completed) return;
+        // L'événement d'erreur passe même si la file est pleine
+        pending.incrementAndGet();
+        queue.add(frame("error", String.valueOf(error.getMessage())));
+        complete();
+    }
+
+    /**
+     * @param handler action exécutée une fois à la fermeture du flux (fin, erreur ou déconnexion)
+     */
+    public void onClose(Runnable handler) {
+        closeHandlers.add(handler);
+        if (closed.get()) handler.run();
+    }
+
+    /**
+     * @return true tant que le flux accepte des événements
+     */
+    public boolean isOpen() {
+        return !completed && !closed.get();
+    }
+
+    /**
+     * @return le nombre d'événements abandonnés faute de place dans la file
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Écrit les événements sur la connexion jusqu'à la fin du flux ou la déconnexion
+     * du client. Bloquant : s'exécute sur un thread dédié à la connexion.
+     *
+     * @param out le flux de sortie de la réponse
+     * @param heartbeatMillis l'intervalle des commentaires de maintien (0 : aucun)
+     */
+    void drain(PrintWriter out, long heartbeatMillis) {
+        int consumed = 0;
+        int batch = Math.max(1, capacity / 2);
+        try {
+            while (!closed.get()) {
+                Object frame = heartbeatMillis > 0 ? queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS) : queue.take();
+                if (frame == END) break;
+                if (frame == null) {
+                    // Maintien de la connexion (proxys) et détection des clients partis
+                    out.write(":\n\n");
+                    out.flush();
+                } else {
+                    pending.decrementAndGet();
+                    out.write((String) frame);
+                    if (queue.isEmpty()) out.flush();
+                    Flow.Subscription s = subscription;
+                    if (s != null && ++consumed >= batch) {
+                        s.request(consumed);
+                        consumed = 0;
+                    }
+                }
+                if (out.checkError()) break;
+            }
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Ferme le flux : annule le publisher et exécute les actions de fermeture.
+     */
+    void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        completed = true;
+        queue.add(END);
+        Flow.Subscription s = subscription;
+        if (s != null) s.cancel();
+        for (Runnable handler : closeHandlers) {
+            try {
+                handler.run();
+            } catch (RuntimeException e) {
+                System.out.println("[SSE] Erreur dans une action de fermeture: " + e.getMessage());
+            }
+        }
+    }
+
+    private static String frame(String event, Object data) {
+        String payload;
+        try {
+            payload = data instanceof String ? (String) data : ResponseRenderer.mapper().writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Evenement non serialisable: " + e.getOriginalMessage(), e);
+        }
+        StringBuilder frame = new StringBuilder(payload.length() + 32);
+        if (event != null) frame.append("event: ").append(event).append('\n');
+        // Une ligne "data:" par ligne du contenu
+        int start = 0;
+        for (int i = 0; i <= payload.length(); i++) {
+            if (i == payload.length() || payload.charAt(i) == '\n') {
+                int end = i > start && payload.charAt(i - 1) == '\r' ? i - 1 : i;
+                frame.append("data: ").append(payload, start, end).append('\n');
+                start = i + 1;
+            }
+        }
+        return frame.append('\n').toString();
+    }
+}
@@ -0,0 +1,343 @@
+package mg.itu.ermite.framework.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import mg.itu.ermite.framework.annotation.Controller;
+import mg.itu.ermite.framework.annotation.UrlMapping;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Cache binaire des endpoints découverts au démarrage, pour les déploiements sans
+ * index de compilation (voir EndpointIndex).
+ *
+ * Le cache mémorise, pour chaque racine du classpath (WEB-INF/classes et chaque JAR
+ * de WEB-INF/lib), son empreinte et les endpoints qu'elle déclare : URL, méthode
+ * HTTP, contrôleur, méthode, types et noms des paramètres. Au démarrage suivant,
+ * seules les racines dont l'empreinte a changé sont rescannées ; les autres sont
+ * reprises du cache sans lire un seul fichier .class.
+ *
+ * Empreinte d'une racine :
+ * - JAR : taille, date de modification et CRC32C du répertoire central (noms,
+ *   CRC et tailles des entrées), lu sans décompresser le JAR
+ * - répertoire : taille cumulée, date de modification la plus récente et CRC32C
+ *   des chemins, tailles et dates de ses fichiers .class
+ *
+ * Les politiques (sécurité, débit, concurrence) ne sont pas mises en cache : elles
+ * dépendent de la configuration et sont recompilées depuis les annotations des
+ * méthodes, comme après un scan. Un cache illisible, d'un autre format ou obtenu
+ * avec d'autres filtres de paquets est ignoré ; un cache qui cite une classe ou une
+ * méthode disparue provoque un scan complet.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see ClasspathScanner
+ */
+public final class StartupCache {
+
+    private static final int MAGIC = 0x45534331; // "ESC1"
+    private static final int FORMAT_VERSION = 1;
+
+    private StartupCache() {}
+
+    /**
+     * Découvre les endpoints en réutilisant le cache pour les racines inchangées,
+     * puis met le cache à jour si nécessaire.
+     *
+     * @param cacheFile le fichier de cache (créé s'il n'existe pas)
+     * @return la map URL -&gt; liste d'EndPointDetails, comme {@link ClasspathScanner#findMappedUrls()}
+     */
+    public static Map<String, Object> findMappedUrls(File cacheFile) {
+        long start = System.nanoTime();
+        System.out.println("[Framework] Chargement des enpoints...");
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        ConfigManager config = ConfigManager.getInstance();
+        String filters = config.get("scanPackages", "") + "|" + config.get("scanExcludePackages", "");
+
+        List<File> roots = ClasspathScanner.findRoots(loader);
+        Map<File, Fingerprint> fingerprints = new LinkedHashMap<>();
+        roots.parallelStream()
+                .map(root -> Map.entry(root, fingerprint(root)))
+                .forEachOrdered(entry -> fingerprints.put(entry.getKey(), entry.getValue()));
+
+        Map<String, RootEntry> cached = read(cacheFile, filters);
+        List<RootEntry> entries = new ArrayList<>();
+        List<File> stale = new ArrayList<>();
+        for (File root : roots) {
+            RootEntry entry = cached.get(root.getAbsolutePath());
+            if (entry != null && entry.fingerprint.equals(fingerprints.get(root))) entries.add(entry);
+            else stale.add(root);
+        }
+
+        entries.addAll(scan(stale, fingerprints, loader));
+        Map<String, Object> endpoints = build(entries, loader);
+        if (endpoints == null) {
+            // Une racine inchangée cite une classe disparue (dépendance modifiée) : tout rescanner
+            stale = roots;
+            entries = scan(roots, fingerprints, loader);
+            endpoints = build(entries, loader);
+            if (endpoints == null) endpoints = new HashMap<>();
+        }
+
+        if (!stale.isEmpty() || cached.size() != entries.size()) write(cacheFile, filters, entries);
+        System.out.println("[Cache] " + (roots.size() - stale.size()) + "/" + roots.size() + " racines reprises du cache, "
+                + stale.size() + " rescannees en " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        return endpoints;
+    }
+
+    /**
+     * Scanne les racines modifiées et décrit les endpoints de leurs contrôleurs.
+     */
+    private static List<RootEntry> scan(List<File> roots, Map<File, Fingerprint> fingerprints, ClassLoader loader) {
+        List<RootEntry> entries = new ArrayList<>();
+        if (roots.isEmpty()) return entries;
+
+        for (Map.Entry<File, List<String>> found : ClasspathScanner.scan(roots, Controller.class).entrySet()) {
+            List<EndpointRecord> records = new ArrayList<>();
+            for (Class<?> controller : ClasspathScanner.loadClasses(found.getValue(), loader)) {
+                for (Method method : controller.getDeclaredMethods()) {
+                    if (!method.isAnnotationPresent(UrlMapping.class)) continue;
+                    Parameter[] parameters = method.getParameters();
+                    String[] types = new String[parameters.length];
+                    String[] names = new String[parameters.length];
+                    for (int i = 0; i < parameters.length; i++) {
+                        types[i] = EndpointIndex.typeName(parameters[i].getType());
+                        names[i] = parameters[i].getName();
+                    }
+                    records.add(new EndpointRecord(method.getAnnotation(UrlMapping.class).url(),
+                            ClasspathScanner.httpMethodOf(method), controller.getName(), method.getName(), types, names));
+                }
+            }
+            File root = found.getKey();
+            entries.add(new RootEntry(root.getAbsolutePath(), fingerprints.get(root), records));
+        }
+        return entries;
+    }
+
+    /**
+     * @return les endpoints, ou null si une classe ou une méthode citée est introuvable
+     */
+    private static Map<String, Object> build(List<RootEntry> entries, ClassLoader loader) {
+        Map<String, Object> endpoints = new HashMap<>();
+        Map<String, Class<?>> controllers = new HashMap<>();
+        for (RootEntry entry : entries) {
+            for (EndpointRecord record : entry.records) {
+                try {
+                    ClasspathScanner.register(endpoints, record.url, EndpointIndex.resolve(loader, controllers,
+                            record.httpMethod, record.className, record.methodName, record.types, record.names));
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    System.out.println("[Cache] Entree perimee (" + e + ")");
+                    return null;
+                }
+            }
+        }
+        return endpoints;
+    }
+
+    /**
+     * Calcule l'empreinte d'une racine ; une racine illisible reçoit une empreinte
+     * qui ne correspond à aucun cache.
+     */
+    static Fingerprint fingerprint(File root) {
+        CRC32C crc = new CRC32C();
+        try {
+            if (root.isDirectory()) {
+                long size = 0;
+                long modified = 0;
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(root.toPath())) {
+                    files = walk.filter(path -> path.toString().endsWith(".class")).sorted().toList();
+                }
+                Path base = root.toPath();
+                for (Path path : files) {
+                    long length = Files.size(path);
+                    long lastModified = Files.getLastModifiedTime(path).toMillis();
+                    size += length;
+                    modified = Math.max(modified, lastModified);
+                    crc.update(base.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                    update(crc, length);
+                    update(crc, lastModified);
+                }
+                return new Fingerprint(size, modified, crc.getValue());
+            }
+
+            try (JarFile jar = new JarFile(root)) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    crc.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+                    update(crc, entry.getCrc());
+                    update(crc, entry.getSize());
+                }
+            }
+            return new Fingerprint(root.length(), root.lastModified(), crc.getValue());
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[Cache] Empreinte impossible pour " + root + ": " + e.getMessage());
+            return new Fingerprint(-1, -1, System.nanoTime());
+        }
+    }
+
+    private static void update(CRC32C crc, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) crc.update((int) (value >>> shift));
+    }
+
+    private static Map<String, RootEntry> read(File cacheFile, String filters) {
+        Map<String, RootEntry> entries = new HashMap<>();
+        if (!cacheFile.isFile()) return entries;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(filters)) {
+                System.out.println("[Cache] " + cacheFile + " ignore (format ou filtres differents)");
+                return entries;
+            }
+            int roots = in.readInt();
+            for (int r = 0; r < roots; r++) {
+                String path = in.readUTF();
+                Fingerprint fingerprint = new Fingerprint(in.readLong(), in.readLong(), in.readLong());
+                int count = in.readInt();
+                List<EndpointRecord> records = new ArrayList<>(count);
+                for (int e = 0; e < count; e++) {
+                    String url = in.readUTF();
+                    String httpMethod = in.readUTF();
+                    String className = in.readUTF();
+                    String methodName = in.readUTF();
+                    String[] types = new String[in.readUnsignedShort()];
+                    for (int i = 0; i < types.length; i++) types[i] = in.readUTF();
+                    String[] names = new String[types.length];
+                    for (int i = 0; i < names.length; i++) names[i] = in.readUTF();
+                    records.add(new EndpointRecord(url, httpMethod, className, methodName, types, names));
+                }
+                entries.put(path, new RootEntry(path, fingerprint, records));
+            }
+        } catch (IOException e) {
+            System.out.println("[Cache] " + cacheFile + " illisible, ignore: " + e);
+            return new HashMap<>();
+        }
+        return entries;
+    }
+
+    /**
+     * Écrit le cache dans un fichier temporaire puis le renomme : un arrêt brutal
+     * ne laisse jamais un cache tronqué.
+     */
+    private static void write(File cacheFile, String filters, List<RootEntry> entries) {
+        Path target = cacheFile.toPath().toAbsolutePath();
+        try {
+            if (target.getParent() != null) Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), cacheFile.getName(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(filters);
+                out.writeInt(entries.size());
+                for (RootEntry entry : entries) {
+                    out.writeUTF(entry.path);
+                    out.writeLong(entry.fingerprint.size);
+                    out.writeLong(entry.fingerprint.modified);
+                    out.writeLong(entry.fingerprint.hash);
+                    out.writeInt(entry.records.size());
+                    for (EndpointRecord record : entry.records) {
+                        out.writeUTF(record.url);
+                        out.writeUTF(record.httpMethod);
+                        out.writeUTF(record.className);
+                        out.writeUTF(record.methodName);
+                        out.writeShort(record.types.length);
+                        for (String type : record.types) out.writeUTF(type);
+                        for (String name : record.names) out.writeUTF(name);
+                    }
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.out.println("[Cache] Ecriture de " + cacheFile + " impossible: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Empreinte d'une racine du classpath.
+     */
+    static final class Fingerprint {
+        final long size;
+        final long modified;
+        final long hash;
+
+        Fingerprint(long size, long modified, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Fingerprint that
+                    && size == that.size && modified == that.modified && hash == that.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+
+    /**
+     * Racine du classpath mise en cache : chemin, empreinte et endpoints déclarés.
+     */
+    private static final class RootEntry {
+        final String path;
+        final Fingerprint fingerprint;
+        final List<EndpointRecord> records;
+
+        RootEntry(String path, Fingerprint fingerprint, List<EndpointRecord> records) {
+            this.path = path;
+            this.fingerprint = fingerprint;
+            this.records = Collections.unmodifiableList(records);
+        }
+    }
+
+    /**
+     * Description d'un endpoint, suffisante pour retrouver sa méthode sans scan.
+     */
+    private static final class EndpointRecord {
+        final String url;
+        final String httpMethod;
+        final String className;
+        final String methodName;
+        final String[] types;
+        final String[] names;
+
+        EndpointRecord(String url, String httpMethod, String className, String methodName, String[] types, String[] names) {
+            this.url = url;
+            this.httpMethod = httpMethod;
+            this.className = className;
+            this.methodName = methodName;
+            this.types = types;
+            this.names = names;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package mg.itu.ermite.framework.util;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import mg.itu.ermite.framework.annotation.VirtualThread;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Exécution des endpoints sur des threads virtuels.
+ *
+ * La requête passe en mode asynchrone, le thread du conteneur est rendu et le
+ * traitement (binding, invocation, rendu) s'exécute sur un thread virtuel. Le
+ * nombre de traitements simultanés est borné par un sémaphore : au-delà, le thread
+ * virtuel attend un permis au plus "virtualThreadMaxWait" puis la requête reçoit
+ * une réponse 503. L'attente se fait sur le thread virtuel, pas sur celui du conteneur.
+ *
+ * Au-delà de "asyncTimeout" (ou de l'échéance de la requête, {@link Deadline}), la
+ * requête reçoit une réponse 504 et le thread virtuel est interrompu. La réponse n'a
+ * qu'un seul auteur : le traitement la réserve ({@link #claimResponse}) avant de
+ * l'écrire, et la réponse 504 n'est envoyée que si le délai est dépassé avant.
+ *
+ * Configuration (web.xml) :
+ * - "virtualThreads" : true pour exécuter tous les endpoints sur des threads virtuels
+ *   (sinon seuls les endpoints @VirtualThread)
+ * - "virtualThreadMax" : nombre maximal de traitements simultanés (défaut 10000)
+ * - "virtualThreadMaxWait" : attente maximale d'un permis en millisecondes (défaut 100)
+ * - "asyncTimeout" : durée maximale d'un traitement en millisecondes (défaut 30000)
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see VirtualThread
+ * @see RequestContext
+ */
+public final class VirtualThreadExecutor {
+
+    private static final int RUNNING = 0;
+    private static final int WRITING = 1;
+    private static final int DONE = 2;
+    private static final int TIMED_OUT = 3;
+
+    /** Attribut de requête portant l'état du traitement sur thread virtuel */
+    private static final String STATE = VirtualThreadExecutor.class.getName() + ".state";
+
+    private static volatile VirtualThreadExecutor instance;
+
+    /**
+     * Traitement d'une requête exécuté sur le thread virtuel.
+     */
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * @param async le contexte asynchrone de la requête
+         * @return true si la réponse est terminée, false si un dispatch vers une vue la terminera
+         * @throws Exception en cas d'erreur non traitée
+         */
+        boolean run(AsyncContext async) throws Exception;
+    }
+
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * @param maxConcurrent le nombre maximal de traitements simultanés
+     * @param maxWaitMillis l'attente maximale d'un permis en millisecondes
+     * @param timeoutMillis la durée maximale d'un traitement en millisecondes (0 : illimitée)
+     */
+    public VirtualThreadExecutor(int maxConcurrent, long maxWaitMillis, long timeoutMillis) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("virtualThreadMax invalide: " + maxConcurrent);
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Crée l'exécuteur selon la configuration. Il est toujours disponible pour les
+     * endpoints @VirtualThread ; "virtualThreads" l'applique à tous les endpoints.
+     *
+     * @param config la configuration du framework
+     */
+    public static void configure(ConfigManager config) {
+        instance = new VirtualThreadExecutor(config.getInt("virtualThreadMax", 10000),
+                config.getLong("virtualThreadMaxWait", 100),
+                config.getLong("asyncTimeout", 30000));
+        if (config.getBoolean("virtualThreads", false)) {
+            System.out.println("[VirtualThreads] Endpoints executes sur des threads virtuels (max: "
+                    + config.getInt("virtualThreadMax", 10000) + ")");
+        }
+    }
+
+    /**
+     * @return l'exécuteur configuré (créé avec les valeurs par défaut si besoin)
+     */
+    public static VirtualThreadExecutor get() {
+        VirtualThreadExecutor executor = instance;
+        if (executor == null) {
+            configure(ConfigManager.getInstance());
+            executor = instance;
+        }
+        return executor;
+    }
+
+    /**
+     * Indique si une méthode de contrôleur s'exécute sur un thread virtuel :
+     * annotation de la méthode, puis du contrôleur, puis paramètre "virtualThreads".
+     *
+     * @param method la méthode du contrôleur
+     * @return true pour une exécution sur thread virtuel
+     */
+    public static boolean isEnabled(Method method) {
+        VirtualThread annotation = method.getAnnotation(VirtualThread.class);
+        if (annotation == null) annotation = method.getDeclaringClass().getAnnotation(VirtualThread.class);
+        if (annotation != null) return annotation.value();
+        return ConfigManager.getInstance().getBoolean("virtualThreads", false);
+    }
+
+    /**
+     * Passe la requête en mode asynchrone et lance son traitement sur un thread virtuel.
+     *
+     * @param request la requête HTTP
+     * @param response la réponse HTTP
+     * @param task le traitement de la requête
+     * @return false si la requête ne supporte pas le mode asynchrone (le traitement
+     *         doit alors s'exécuter sur le thread courant), true sinon
+     */
+    public boolean submit(HttpServletRequest request, HttpServletResponse response, Task task) {
+        if (!request.isAsyncSupported()) return false;
+
+        AsyncContext async = request.startAsync(request, response);
+        RequestContext context = RequestContext.of(request);
+        async.setTimeout(context == null ? timeoutMillis : context.getDeadline().limit(timeoutMillis));
+        AtomicInteger state = new AtomicInteger(RUNNING);
+        request.setAttribute(STATE, state);
+
+        Thread thread = Thread.ofVirtual()
+                .name("framework-vt-" + sequence.incrementAndGet())
+                .unstarted(() -> execute(async, response, task, state));
+
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                // Le traitement écrit déjà sa réponse : il terminera la requête
+                if (!state.compareAndSet(RUNNING, TIMED_OUT)) return;
+                timedOut.incrementAndGet();
+                thread.interrupt();
+                try {
+                    if (!response.isCommitted()) response.sendError(504, "Delai de traitement depasse");
+                } catch (Exception e) {
+                    System.out.println("[VirtualThreads] Reponse 504 impossible: " + e.getMessage());
+                }
+                complete(async);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                if (state.compareAndSet(RUNNING, TIMED_OUT)) thread.interrupt();
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {}
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {}
+        });
+
+        thread.start();
+        return true;
+    }
+
+    private void execute(AsyncContext async, HttpServletResponse response, Task task, AtomicInteger state) {
+        boolean acquired = false;
+        boolean complete = true;
+        try {
+            acquired = maxWaitNanos == 0 ? permits.tryAcquire() : permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                rejected.incrementAndGet();
+                if (claim(state) && !response.isCommitted()) {
+                    response.setHeader("Retry-After", "1");
+                    response.sendError(503, "Serveur surcharge, reessayez plus tard");
+                }
+                return;
+            }
+            complete = task.run(async);
+        } catch (InterruptedException e) {
+            // Délai dépassé : la réponse 504 a déjà été envoyée
+        } catch (Throwable e) {
+            e.printStackTrace();
+            try {
+                if (claim(state) && !response.isCommitted()) response.sendError(500, e.getMessage());
+            } catch (Exception ignored) {
+                // réponse déjà inutilisable
+            }
+        } finally {
+            if (acquired) permits.release();
+            if (state.getAndUpdate(current -> current == TIMED_OUT ? TIMED_OUT : DONE) != TIMED_OUT && complete) {
+                complete(async);
+            }
+        }
+    }
+
+    /**
+     * Réserve la réponse pour le traitement, avant tout rendu. Sans effet hors thread virtuel.
+     *
+     * @param request la requête courante
+     * @return true si le traitement peut écrire la réponse, false si le délai est dépassé
+     *         et que la réponse 504 est déjà envoyée
+     */
+    public static boolean claimResponse(HttpServletRequest request) {
+        Object state = request.getAttribute(STATE);
+        return !(state instanceof AtomicInteger) || claim((AtomicInteger) state);
+    }
+
+    private static boolean claim(AtomicInteger state) {
+        return state.compareAndSet(RUNNING, WRITING) || state.get() == WRITING;
+    }
+
+    private static void complete(AsyncContext async) {
+        try {
+            async.complete();
+        } catch (IllegalStateException e) {
+            // déjà terminée (dispatch ou délai dépassé)
+        }
+    }
+
+    /**
+     * État de l'exécuteur : traitements en cours, limite, refus et délais dépassés.
+     *
+     * @return une map nom -&gt; valeur
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("active", maxConcurrent - permits.availablePermits());
+        snapshot.put("max", maxConcurrent);
+        snapshot.put("waiting", permits.getQueueLength());
+        snapshot.put("rejected", rejected.get());
+        snapshot.put("timedOut", timedOut.get());
+        return snapshot;
+    }
+}
@@ -0,0 +1,557 @@
+package mg.itu.ermite.framework.util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import mg.itu.ermite.framework.annotation.JsonResponse;
+import mg.itu.ermite.framework.annotation.RequestParam;
+import mg.itu.ermite.framework.annotation.WarmupSample;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Préchauffage des endpoints au démarrage, avant que l'application ne se déclare prête.
+ *
+ * Juste après un déploiement, le code du framework est interprété et ses chemins de
+ * réflexion (binding, conversions, sérialisation Jackson) sont froids : les premières
+ * requêtes sont beaucoup plus lentes. Le préchauffage exerce chaque endpoint de la table
+ * de routage "warmupIterations" fois, par des requêtes synthétiques en mémoire :
+ * - routage de l'URL (Router), variables d'URL comprises
+ * - binding et conversion des paramètres (EndPointDetails.bindArguments)
+ * - sérialisation JSON de l'enveloppe pour les méthodes @JsonResponse, sur un
+ *   exemple du type de retour (ou sur le résultat réel si le contrôleur est invoqué)
+ *
+ * Les paramètres viennent de {@link WarmupSample}, sinon ils sont générés d'après les
+ * types des paramètres de la méthode. Le contrôleur n'est invoqué qu'avec
+ * {@code @WarmupSample(invoke = true)} ou "warmupInvoke" ; les écritures de session ne
+ * sont pas appliquées et les tâches AfterResponse sont abandonnées. Un endpoint qui
+ * échoue (requête multipart, accès refusé...) est ignoré dès sa première erreur.
+ *
+ * Par défaut le préchauffage bloque le démarrage du contexte : le conteneur ne transmet
+ * aucune requête avant sa fin. Avec "warmupBackground", il s'exécute en tâche de fond ;
+ * les requêtes sont servies, mais l'URL de disponibilité ("readinessUrl") répond 503
+ * jusqu'à sa fin, pour que le répartiteur de charge n'envoie pas encore de trafic.
+ *
+ * Configuration (web.xml), lue au démarrage :
+ * - "warmup" : false pour désactiver le préchauffage (défaut true)
+ * - "warmupIterations" : requêtes synthétiques par endpoint (défaut 200)
+ * - "warmupInvoke" : true pour invoquer tous les contrôleurs (défaut false)
+ * - "warmupMaxMillis" : durée maximale du préchauffage (défaut 30000)
+ * - "warmupBackground" : true pour ne pas bloquer le démarrage (défaut false)
+ * - "readinessUrl" : URL GET de disponibilité (défaut /_ready, vide pour désactiver)
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see WarmupSample
+ * @see Router
+ * @see EndPointDetails#bindArguments(HttpServletRequest, HttpServletResponse, Map)
+ */
+public final class Warmup {
+
+    private static final Pattern URL_PARAM = Pattern.compile("\\{([^/]+)\\}");
+    /** Profondeur maximale des objets générés (POJOs imbriqués, collections) */
+    private static final int MAX_DEPTH = 4;
+
+    private static volatile Warmup instance;
+
+    private final boolean enabled;
+    private final int iterations;
+    private final boolean invoke;
+    private final long maxMillis;
+    private final String readinessUrl;
+
+    private volatile boolean ready;
+    private final AtomicLong warmed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile long elapsedMillis;
+
+    /**
+     * @param enabled false pour se déclarer prêt sans préchauffage
+     * @param iterations le nombre de requêtes synthétiques par endpoint
+     * @param invoke true pour invoquer tous les contrôleurs
+     * @param maxMillis la durée maximale du préchauffage
+     * @param readinessUrl l'URL de disponibilité, vide pour la désactiver
+     */
+    public Warmup(boolean enabled, int iterations, boolean invoke, long maxMillis, String readinessUrl) {
+        if (iterations < 1 || maxMillis < 1) {
+            throw new IllegalArgumentException("warmupIterations et warmupMaxMillis doivent etre positifs");
+        }
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.invoke = invoke;
+        this.maxMillis = maxMillis;
+        this.readinessUrl = readinessUrl == null ? "" : readinessUrl.trim();
+        this.ready = !enabled;
+    }
+
+    /**
+     * Crée le préchauffage selon la configuration.
+     *
+     * @param config la configuration du framework
+     */
+    public static void configure(ConfigManager config) {
+        instance = new Warmup(config.getBoolean("warmup", true), config.getInt("warmupIterations", 200),
+                config.getBoolean("warmupInvoke", false), config.getLong("warmupMaxMillis", 30000),
+                config.get("readinessUrl", "/_ready"));
+    }
+
+    /**
+     * @return le préchauffage configuré, ou null avant l'initialisation du framework
+     */
+    public static Warmup get() {
+        return instance;
+    }
+
+    /**
+     * @return true si le préchauffage est terminé (ou désactivé)
+     */
+    public static boolean isReady() {
+        Warmup warmup = instance;
+        return warmup == null || warmup.ready;
+    }
+
+    /**
+     * Lance le préchauffage des endpoints.
+     *
+     * @param context le contexte servlet, exposé aux requêtes synthétiques
+     * @param routes la table de routage à préchauffer
+     * @param background true pour préchauffer sur un thread dédié, false pour bloquer
+     */
+    public void start(ServletContext context, RouteTable routes, boolean background) {
+        if (!enabled) return;
+        if (!background) {
+            run(context, routes);
+            return;
+        }
+        Thread thread = new Thread(() -> run(context, routes), "framework-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run(ServletContext context, RouteTable routes) {
+        long started = System.nanoTime();
+        long end = started + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        ObjectMapper mapper = ResponseRenderer.mapper();
+        try {
+            for (Map.Entry<String, List<EndPointDetails>> entry : routes.getEndpoints().entrySet()) {
+                for (EndPointDetails endPoint : entry.getValue()) {
+                    if (System.nanoTime() >= end) {
+                        System.out.println("[Warmup] Duree maximale atteinte (" + maxMillis + " ms), endpoints restants non prechauffes");
+                        return;
+                    }
+                    warm(context, routes, entry.getKey(), endPoint, mapper, end);
+                }
+            }
+        } finally {
+            elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            ready = true;
+            System.out.println("[Warmup] " + warmed.get() + " endpoints prechauffes, " + skipped.get() + " ignores, "
+                    + requests.get() + " requetes synthetiques en " + elapsedMillis + " ms");
+        }
+    }
+
+    /**
+     * Exerce un endpoint jusqu'à "warmupIterations" fois ; il est ignoré à la première erreur.
+     */
+    private void warm(ServletContext context, RouteTable routes, String url,
+                      EndPointDetails endPoint, ObjectMapper mapper, long end) {
+        Method method = endPoint.getMethod();
+        WarmupSample sample = method.getAnnotation(WarmupSample.class);
+        boolean invokes = invoke || (sample != null && sample.invoke());
+        String httpMethod = endPoint.getHttpMethod();
+        String requestUrl;
+        Map<String, String[]> params;
+        Object example;
+        try {
+            params = parameters(endPoint, sample);
+            requestUrl = concreteUrl(url, params);
+            example = example(method.getGenericReturnType(), 0);
+        } catch (RuntimeException e) {
+            skip(httpMethod, url, e);
+            return;
+        }
+        boolean json = method.isAnnotationPresent(JsonResponse.class);
+
+        for (int i = 0; i < iterations && System.nanoTime() < end; i++) {
+            HttpServletRequest request = syntheticRequest(context, "*".equals(httpMethod) ? "GET" : httpMethod, requestUrl, params);
+            HttpServletResponse response = syntheticResponse();
+            try {
+                Router.Match match = Router.resolve(routes, httpMethod, requestUrl);
+                EndPointDetails resolved = match.getEndPoint();
+                request.setAttribute(RequestContext.ATTRIBUTE, new RequestContext(request, response, resolved,
+                        match.getUrlParams(), null, System.nanoTime(), false, Deadline.none()));
+
+                Object value = example;
+                if (invokes) {
+                    Object result = resolved.invokeMethod(request, response, match.getUrlParams());
+                    if (result instanceof SseEmitter) ((SseEmitter) result).complete();
+                    // Résultat différé ou flux : l'exemple du type de retour est sérialisé à la place
+                    if (!AsyncDispatcher.isAsync(result) && !ServerSentEvents.isStream(result)) value = result;
+                } else {
+                    resolved.bindArguments(request, response, match.getUrlParams());
+                }
+                if (json) mapper.writeValueAsBytes(ResponseRenderer.envelope(value));
+                requests.incrementAndGet();
+            } catch (Exception e) {
+                skip(httpMethod, url, e);
+                return;
+            } finally {
+                FanOut.release(request);
+                ServiceContainer.release(request);
+                AfterResponse tasks = (AfterResponse) request.getAttribute(AfterResponse.ATTRIBUTE);
+                if (tasks != null) tasks.discard(AfterResponseExecutor.get());
+            }
+        }
+        warmed.incrementAndGet();
+    }
+
+    private void skip(String httpMethod, String url, Exception e) {
+        skipped.incrementAndGet();
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        System.out.println("[Warmup] " + httpMethod + " " + url + " ignore: " + cause.getMessage());
+    }
+
+    /**
+     * Paramètres de la requête synthétique : ceux de {@link WarmupSample}, complétés
+     * par des valeurs générées pour les paramètres de la méthode.
+     */
+    private static Map<String, String[]> parameters(EndPointDetails endPoint, WarmupSample sample) {
+        Map<String, String[]> params = new LinkedHashMap<>();
+        if (sample != null) {
+            for (String pair : sample.value()) {
+                int separator = pair.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("@WarmupSample invalide: '" + pair + "' (attendu nom=valeur)");
+                }
+                String name = pair.substring(0, separator).trim();
+                String[] values = params.get(name);
+                String[] merged = values == null ? new String[1] : Arrays.copyOf(values, values.length + 1);
+                merged[merged.length - 1] = pair.substring(separator + 1);
+                params.put(name, merged);
+            }
+        }
+
+        Parameter[] parameters = endPoint.getMethod().getParameters();
+        String[] names = endPoint.getParameterNames();
+        for (int index = 0; index < parameters.length; index++) {
+            Parameter parameter = parameters[index];
+            if (injected(parameter.getType())) continue;
+            String name = parameter.isAnnotationPresent(RequestParam.class)
+                    ? parameter.getAnnotation(RequestParam.class).value()
+                    : names[index];
+            generate(params, parameter.getParameterizedType(), name, 0);
+        }
+        return params;
+    }
+
+    /**
+     * @return true pour les paramètres fournis par le framework, sans binding
+     */
+    private static boolean injected(Class<?> type) {
+        return type == Map.class || type == SessionMap.class || type == RequestContext.class
+                || type == AfterResponse.class || type == FanOut.class || type == Deadline.class
+                || type.getName().startsWith("mg.itu.ermite.framework.util.security.")
+                || type.getName().startsWith("jakarta.servlet.");
+    }
+
+    /**
+     * Génère les paramètres HTTP attendus par le binding d'un type (préfixe.champ, préfixe[0]).
+     */
+    private static void generate(Map<String, String[]> params, Type type, String name, int depth) {
+        if (depth > MAX_DEPTH || params.containsKey(name)) return;
+        Class<?> clazz = Reflection.resolveClass(type);
+        if (Reflection.isPrimitiveType(clazz)) {
+            params.put(name, new String[] { sampleValue(clazz) });
+        } else if (clazz.isArray()) {
+            generate(params, clazz.getComponentType(), name + "[0]", depth + 1);
+        } else if (Reflection.isCollectionType(type)) {
+            if (type instanceof ParameterizedType) {
+                generate(params, ((ParameterizedType) type).getActualTypeArguments()[0], name + "[0]", depth + 1);
+            }
+        } else if (!clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers())) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) continue;
+                generate(params, field.getGenericType(), name + "." + field.getName(), depth + 1);
+            }
+        }
+    }
+
+    /**
+     * @return une valeur textuelle convertible vers le type ({@link Reflection#convertType(String, Class)})
+     */
+    static String sampleValue(Class<?> type) {
+        if (type == String.class) return "warmup";
+        if (type == boolean.class || type == Boolean.class) return "true";
+        if (type == char.class || type == Character.class) return "w";
+        if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            return constants.length == 0 ? "" : ((Enum<?>) constants[0]).name();
+        }
+        if (type == java.util.UUID.class) return "00000000-0000-0000-0000-000000000001";
+        if (type == java.time.LocalDateTime.class) return "2024-01-01T00:00:00";
+        if (type == java.time.LocalTime.class) return "00:00:00";
+        if (type == java.time.YearMonth.class) return "2024-01";
+        if (type == java.time.MonthDay.class) return "--01-01";
+        if (type == java.time.Year.class) return "2024";
+        if (type == java.time.ZonedDateTime.class || type == java.time.OffsetDateTime.class
+                || type == java.time.Instant.class) return "2024-01-01T00:00:00Z";
+        if (type == java.time.OffsetTime.class) return "00:00:00Z";
+        if (type == java.sql.Timestamp.class) return "2024-01-01 00:00:00";
+        if (type == java.sql.Time.class) return "00:00:00";
+        if (java.time.temporal.Temporal.class.isAssignableFrom(type) || java.util.Date.class.isAssignableFrom(type)) {
+            return "2024-01-01";
+        }
+        return "1";
+    }
+
+    /**
+     * Remplace les variables d'une URL paramétrée (/user/{id}) par les valeurs de la requête.
+     */
+    private static String concreteUrl(String url, Map<String, String[]> params) {
+        Matcher matcher = URL_PARAM.matcher(url);
+        StringBuilder concrete = new StringBuilder();
+        while (matcher.find()) {
+            String[] values = params.get(matcher.group(1));
+            matcher.appendReplacement(concrete, Matcher.quoteReplacement(values == null ? "1" : values[0]));
+        }
+        matcher.appendTail(concrete);
+        return concrete.toString();
+    }
+
+    /**
+     * Construit un exemple du type de retour, sérialisé à la place du résultat réel.
+     *
+     * @return l'exemple, ou null si le type ne peut pas être construit
+     */
+    static Object example(Type type, int depth) {
+        if (depth > MAX_DEPTH) return null;
+        if (type instanceof ParameterizedType) {
+            Class<?> raw = Reflection.resolveClass(type);
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (CompletionStage.class.isAssignableFrom(raw) || Future.class.isAssignableFrom(raw) || raw == Optional.class) {
+                return example(arguments[0], depth + 1);
+            }
+            if (Collection.class.isAssignableFrom(raw)) {
+                Object element = example(arguments[0], depth + 1);
+                return element == null ? List.of() : List.of(element);
+            }
+            if (Map.class.isAssignableFrom(raw)) {
+                Object value = example(arguments[1], depth + 1);
+                return value == null ? Map.of() : Map.of("warmup", value);
+            }
+            return null;
+        }
+        if (!(type instanceof Class)) return null;
+        Class<?> clazz = (Class<?>) type;
+        if (clazz == void.class || clazz == Void.class || clazz == Object.class) return null;
+        try {
+            if (Reflection.isPrimitiveType(clazz)) {
+                return clazz.isEnum() ? clazz.getEnumConstants()[0] : Reflection.convertType(sampleValue(clazz), clazz);
+            }
+            if (clazz.isArray()) {
+                Object array = Array.newInstance(clazz.getComponentType(), 1);
+                Object element = example(clazz.getComponentType(), depth + 1);
+                if (element != null) Array.set(array, 0, element);
+                return array;
+            }
+            if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) return null;
+            return clazz.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Requête synthétique en mémoire : paramètres, attributs et session, sans en-têtes ni corps.
+     */
+    static HttpServletRequest syntheticRequest(ServletContext context, String httpMethod, String url,
+                                               Map<String, String[]> params) {
+        Map<String, Object> attributes = new HashMap<>();
+        HttpSession[] session = new HttpSession[1];
+        Map<String, String[]> parameterMap = Collections.unmodifiableMap(params);
+        return (HttpServletRequest) Proxy.newProxyInstance(Warmup.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getMethod": return httpMethod;
+                case "getRequestURI": case "getServletPath": return url;
+                case "getRequestURL": return new StringBuffer("http://localhost").append(url);
+                case "getContextPath": return "";
+                case "getScheme": return "http";
+                case "getProtocol": return "HTTP/1.1";
+                case "getServerName": case "getRemoteAddr": case "getRemoteHost": case "getLocalAddr": return "127.0.0.1";
+                case "getParameter": {
+                    String[] values = parameterMap.get(args[0]);
+                    return values == null || values.length == 0 ? null : values[0];
+                }
+                case "getParameterValues": return parameterMap.get(args[0]);
+                case "getParameterMap": return parameterMap;
+                case "getParameterNames": return Collections.enumeration(parameterMap.keySet());
+                case "getAttribute": return attributes.get(args[0]);
+                case "setAttribute":
+                    if (args[1] == null) attributes.remove(args[0]);
+                    else attributes.put((String) args[0], args[1]);
+                    return null;
+                case "removeAttribute": attributes.remove(args[0]); return null;
+                case "getAttributeNames": return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+                case "getHeaders": case "getHeaderNames": case "getLocales": return Collections.emptyEnumeration();
+                case "getIntHeader": case "getContentLength": return -1;
+                case "getDateHeader": case "getContentLengthLong": return -1L;
+                case "getSession":
+                    if (session[0] == null && (args == null || (Boolean) args[0])) session[0] = syntheticSession(context);
+                    return session[0];
+                case "getServletContext": return context;
+                case "getCharacterEncoding": return "UTF-8";
+                case "getLocale": return Locale.getDefault();
+                case "getParts": return List.of();
+                case "getDispatcherType": return DispatcherType.REQUEST;
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "Warmup " + httpMethod + " " + url;
+                default: return Reflection.getDefaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    /**
+     * Réponse synthétique : le corps est écrit puis oublié.
+     */
+    static HttpServletResponse syntheticResponse() {
+        PrintWriter writer = new PrintWriter(Writer.nullWriter());
+        ServletOutputStream output = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {}
+
+            @Override
+            public void write(int b) {}
+
+            @Override
+            public void write(byte[] b, int off, int len) {}
+        };
+        int[] status = { HttpServletResponse.SC_OK };
+        return (HttpServletResponse) Proxy.newProxyInstance(Warmup.class.getClassLoader(),
+                new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getWriter": return writer;
+                case "getOutputStream": return output;
+                case "setStatus": case "sendError": status[0] = (Integer) args[0]; return null;
+                case "getStatus": return status[0];
+                case "getCharacterEncoding": return "UTF-8";
+                case "getLocale": return Locale.getDefault();
+                case "encodeURL": case "encodeRedirectURL": return args[0];
+                case "getHeaderNames": case "getHeaders": return List.of();
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "Warmup response";
+                default: return Reflection.getDefaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static HttpSession syntheticSession(ServletContext context) {
+        Map<String, Object> attributes = new HashMap<>();
+        long created = System.currentTimeMillis();
+        return (HttpSession) Proxy.newProxyInstance(Warmup.class.getClassLoader(),
+                new Class<?>[] { HttpSession.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getId": return "warmup-" + System.identityHashCode(proxy);
+                case "getAttribute": return attributes.get(args[0]);
+                case "setAttribute":
+                    if (args[1] == null) attributes.remove(args[0]);
+                    else attributes.put((String) args[0], args[1]);
+                    return null;
+                case "removeAttribute": attributes.remove(args[0]); return null;
+                case "getAttributeNames": return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+                case "getCreationTime": case "getLastAccessedTime": return created;
+                case "isNew": return true;
+                case "getServletContext": return context;
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "Warmup session";
+                default: return Reflection.getDefaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    /**
+     * @param httpMethod la méthode HTTP de la requête
+     * @param url l'URL de la requête, sans le chemin de contexte
+     * @return true si la requête s'adresse à l'URL de disponibilité
+     */
+    public boolean matches(String httpMethod, String url) {
+        return !readinessUrl.isEmpty() && "GET".equals(httpMethod) && readinessUrl.equals(url);
+    }
+
+    /**
+     * Répond à une sonde de disponibilité : 200 avec les métriques du préchauffage,
+     * ou 503 tant qu'il n'est pas terminé.
+     *
+     * @param response la réponse HTTP
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    public void writeReadiness(HttpServletResponse response) throws IOException {
+        response.setHeader("Cache-Control", "no-store");
+        if (ready) {
+            ResponseRenderer.writeJson(response, snapshot());
+        } else {
+            response.setStatus(503);
+            response.setHeader("Retry-After", "1");
+            ResponseRenderer.writeJsonError(response, 503, "Prechauffage en cours");
+        }
+    }
+
+    /**
+     * Métriques du préchauffage.
+     *
+     * @return une map nom -&gt; valeur
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("ready", ready);
+        snapshot.put("enabled", enabled);
+        snapshot.put("iterations", iterations);
+        snapshot.put("warmed", warmed.get());
+        snapshot.put("skipped", skipped.get());
+        snapshot.put("requests", requests.get());
+        snapshot.put("elapsedMillis", elapsedMillis);
+        return snapshot;
+    }
+}
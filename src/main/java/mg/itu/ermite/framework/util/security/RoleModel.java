@@ -0,0 +1,297 @@
+package mg.itu.ermite.framework.util.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Modèle de rôles compilé au démarrage : hiérarchie, permissions et masques de bits.
+ *
+ * Chaque rôle et chaque permission reçoit un bit. Un rôle est compilé en deux masques
+ * (long[], un mot par tranche de 64 rôles) : les rôles qu'il confère, lui compris
+ * et tous ceux qu'il hérite, et les permissions accordées à ces rôles. Un utilisateur
+ * qui détient plusieurs rôles reçoit l'union de leurs masques. Un contrôle @Role ou
+ * @Permission se résume alors à un ET binaire, un seul mot jusqu'à 64 rôles.
+ *
+ * Configuration (web.xml) :
+ * <pre>
+ * roleHierarchy   = SUPER_ADMIN &gt; ADMIN &gt; USER; ADMIN &gt; AUDITOR
+ * rolePermissions = ADMIN: users.write, users.delete; USER: users.read
+ * </pre>
+ * "A &gt; B" signifie que A hérite de tous les droits de B. Les rôles cités par @Role
+ * mais absents de la configuration sont enregistrés sans héritage.
+ *
+ * Le rôle de l'utilisateur en session peut être une chaîne (plusieurs rôles séparés
+ * par des virgules), un tableau de chaînes ou une collection.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see SecurityPolicy
+ */
+public final class RoleModel {
+
+    private static final long[] EMPTY = new long[0];
+
+    /** Nombre maximal d'ensembles de rôles utilisateur distincts gardés en cache */
+    private static final int MASK_CACHE_SIZE = 1024;
+
+    private static volatile RoleModel instance = new RoleModel(Map.of(), Map.of());
+
+    private final Map<String,Integer> roleBits = new ConcurrentHashMap<>();
+    private final Map<String,Integer> permissionBits = new ConcurrentHashMap<>();
+    private final Map<String,long[]> roleClosure = new ConcurrentHashMap<>();
+    private final Map<String,long[]> rolePermissions = new ConcurrentHashMap<>();
+    private final Map<Object,Masks> userMasks = new ConcurrentHashMap<>();
+
+    /**
+     * Masques de rôles et de permissions d'un utilisateur.
+     */
+    public static final class Masks {
+        private final long[] roles;
+        private final long[] permissions;
+
+        Masks(long[] roles, long[] permissions) {
+            this.roles = roles;
+            this.permissions = permissions;
+        }
+
+        /**
+         * @param required le masque des rôles acceptés
+         * @return true si l'utilisateur détient au moins un de ces rôles
+         */
+        public boolean hasAnyRole(long[] required) {
+            int n = Math.min(roles.length, required.length);
+            for (int i = 0; i < n; i++) {
+                if ((roles[i] & required[i]) != 0) return true;
+            }
+            return false;
+        }
+
+        /**
+         * @param required le masque des permissions exigées
+         * @return true si l'utilisateur possède toutes ces permissions
+         */
+        public boolean hasAllPermissions(long[] required) {
+            for (int i = 0; i < required.length; i++) {
+                long have = i < permissions.length ? permissions[i] : 0;
+                if ((required[i] & ~have) != 0) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @param hierarchy pour chaque rôle, les rôles dont il hérite directement
+     * @param permissions pour chaque rôle, les permissions qui lui sont accordées
+     */
+    public RoleModel(Map<String,List<String>> hierarchy, Map<String,List<String>> permissions) {
+        for (Map.Entry<String,List<String>> e : hierarchy.entrySet()) {
+            bit(roleBits, e.getKey());
+            for (String child : e.getValue()) bit(roleBits, child);
+        }
+        for (Map.Entry<String,List<String>> e : permissions.entrySet()) {
+            bit(roleBits, e.getKey());
+            for (String permission : e.getValue()) bit(permissionBits, permission);
+        }
+
+        for (String role : roleBits.keySet()) {
+            long[] closure = EMPTY;
+            long[] granted = EMPTY;
+            for (String inherited : inherited(role, hierarchy)) {
+                closure = set(closure, roleBits.get(inherited));
+                for (String permission : permissions.getOrDefault(inherited, List.of())) {
+                    granted = set(granted, permissionBits.get(permission));
+                }
+            }
+            roleClosure.put(role, closure);
+            rolePermissions.put(role, granted);
+        }
+    }
+
+    /**
+     * Compile le modèle de rôles depuis "roleHierarchy" et "rolePermissions".
+     * Doit être appelé avant l'enregistrement des endpoints.
+     *
+     * @param config la configuration du framework
+     * @throws IllegalStateException si la hiérarchie contient un cycle
+     */
+    public static void configure(ConfigManager config) {
+        Map<String,List<String>> hierarchy = new HashMap<>();
+        for (String chain : split(config.get("roleHierarchy", ""), ';')) {
+            String[] levels = chain.split(">");
+            for (int i = 0; i + 1 < levels.length; i++) {
+                for (String parent : split(levels[i], ',')) {
+                    for (String child : split(levels[i + 1], ',')) {
+                        hierarchy.computeIfAbsent(parent, k -> new ArrayList<>()).add(child);
+                    }
+                }
+            }
+        }
+
+        Map<String,List<String>> permissions = new HashMap<>();
+        for (String grant : split(config.get("rolePermissions", ""), ';')) {
+            int colon = grant.indexOf(':');
+            if (colon <= 0) throw new IllegalStateException("Entree 'rolePermissions' invalide (attendu ROLE: permission, ...): " + grant);
+            permissions.computeIfAbsent(grant.substring(0, colon).trim(), k -> new ArrayList<>())
+                    .addAll(split(grant.substring(colon + 1), ','));
+        }
+
+        RoleModel model = new RoleModel(hierarchy, permissions);
+        instance = model;
+        if (!hierarchy.isEmpty() || !permissions.isEmpty()) {
+            System.out.println("[Security] Modele de roles: " + model.roleBits.size() + " roles, "
+                    + model.permissionBits.size() + " permissions");
+        }
+    }
+
+    /**
+     * @return le modèle de rôles courant (vide tant qu'aucune configuration n'est chargée)
+     */
+    public static RoleModel get() {
+        return instance;
+    }
+
+    /**
+     * Compile une liste de rôles acceptés (@Role) en masque.
+     * Les rôles inconnus reçoivent un bit, sans héritage.
+     *
+     * @param roles les rôles acceptés
+     * @return le masque des rôles acceptés
+     */
+    public long[] roleMask(String... roles) {
+        long[] mask = EMPTY;
+        for (String role : roles) {
+            Integer bit = roleBits.get(role);
+            if (bit == null) {
+                synchronized (roleBits) {
+                    bit = bit(roleBits, role);
+                    roleClosure.putIfAbsent(role, set(EMPTY, bit));
+                    rolePermissions.putIfAbsent(role, EMPTY);
+                    userMasks.clear();
+                }
+            }
+            mask = set(mask, bit);
+        }
+        return mask;
+    }
+
+    /**
+     * Compile une liste de permissions exigées (@Permission) en masque.
+     * Une permission qu'aucun rôle n'accorde reçoit un bit que personne ne possède.
+     *
+     * @param permissions les permissions exigées
+     * @return le masque des permissions exigées
+     */
+    public long[] permissionMask(String... permissions) {
+        long[] mask = EMPTY;
+        for (String permission : permissions) {
+            Integer bit;
+            synchronized (permissionBits) {
+                bit = bit(permissionBits, permission);
+            }
+            mask = set(mask, bit);
+        }
+        return mask;
+    }
+
+    /**
+     * Calcule les masques d'un utilisateur à partir de ses rôles.
+     * Le résultat est mis en cache par valeur de rôles (quelques combinaisons distinctes en pratique).
+     *
+     * @param userRoles une chaîne (rôles séparés par des virgules), un tableau de chaînes ou une collection
+     * @return les masques de l'utilisateur
+     */
+    public Masks masksOf(Object userRoles) {
+        Object key = userRoles instanceof String[] ? List.of((String[]) userRoles) : userRoles;
+        Masks masks = userMasks.get(key);
+        if (masks != null) return masks;
+
+        long[] roles = EMPTY;
+        long[] permissions = EMPTY;
+        for (String role : names(userRoles)) {
+            long[] closure = roleClosure.get(role);
+            if (closure == null) continue; // rôle qu'aucun endpoint ni la hiérarchie ne mentionne
+            roles = or(roles, closure);
+            permissions = or(permissions, rolePermissions.get(role));
+        }
+        masks = new Masks(roles, permissions);
+
+        if (userMasks.size() >= MASK_CACHE_SIZE) userMasks.clear();
+        userMasks.put(key, masks);
+        return masks;
+    }
+
+    /**
+     * @return les noms des rôles connus du modèle
+     */
+    public Set<String> getRoles() {
+        return Set.copyOf(roleBits.keySet());
+    }
+
+    private static Collection<String> names(Object userRoles) {
+        if (userRoles instanceof String) return split((String) userRoles, ',');
+        if (userRoles instanceof String[]) return Arrays.asList((String[]) userRoles);
+        if (userRoles instanceof Collection) {
+            List<String> names = new ArrayList<>();
+            for (Object role : (Collection<?>) userRoles) {
+                if (role != null) names.add(role.toString());
+            }
+            return names;
+        }
+        return userRoles == null ? List.of() : List.of(userRoles.toString());
+    }
+
+    private static Set<String> inherited(String role, Map<String,List<String>> hierarchy) {
+        Set<String> visited = new LinkedHashSet<>();
+        collect(role, hierarchy, visited, new LinkedHashSet<>());
+        return visited;
+    }
+
+    private static void collect(String role, Map<String,List<String>> hierarchy, Set<String> visited, Set<String> path) {
+        if (!path.add(role)) throw new IllegalStateException("Cycle dans 'roleHierarchy': " + String.join(" > ", path) + " > " + role);
+        if (visited.add(role)) {
+            for (String child : hierarchy.getOrDefault(role, List.of())) collect(child, hierarchy, visited, path);
+        }
+        path.remove(role);
+    }
+
+    private static int bit(Map<String,Integer> bits, String name) {
+        Integer bit = bits.get(name);
+        if (bit == null) {
+            bit = bits.size();
+            bits.put(name.intern(), bit);
+        }
+        return bit;
+    }
+
+    private static long[] set(long[] mask, int bit) {
+        int word = bit >>> 6;
+        long[] result = Arrays.copyOf(mask, Math.max(mask.length, word + 1));
+        result[word] |= 1L << bit;
+        return result;
+    }
+
+    private static long[] or(long[] a, long[] b) {
+        long[] result = Arrays.copyOf(a, Math.max(a.length, b.length));
+        for (int i = 0; i < b.length; i++) result[i] |= b[i];
+        return result;
+    }
+
+    private static List<String> split(String value, char separator) {
+        List<String> parts = new ArrayList<>();
+        for (String part : value.split(Pattern.quote(String.valueOf(separator)))) {
+            String trimmed = part.trim();
+            if (!trimmed.isEmpty()) parts.add(trimmed);
+        }
+        return parts;
+    }
+}
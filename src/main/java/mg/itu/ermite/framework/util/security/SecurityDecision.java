@@ -0,0 +1,52 @@
+package mg.itu.ermite.framework.util.security;
+
+/**
+ * Résultat du contrôle d'accès d'un endpoint.
+ *
+ * Un refus est une simple valeur : aucune exception n'est construite, le
+ * FrontServlet traduit directement la décision en code HTTP.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see SecurityPolicy
+ */
+public enum SecurityDecision {
+
+    /** L'appel est autorisé */
+    ALLOWED(200, null),
+
+    /** L'endpoint exige un utilisateur connecté et aucun n'est en session */
+    UNAUTHENTICATED(401, "Vous devez etre connecte pour acceder a cette ressource"),
+
+    /** L'utilisateur est connecté mais son rôle n'est pas autorisé */
+    FORBIDDEN(403, "Votre role ne permet pas d'acceder a cette ressource");
+
+    private final int status;
+    private final String message;
+
+    SecurityDecision(int status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    /**
+     * @return true si l'appel est autorisé
+     */
+    public boolean isAllowed() {
+        return this == ALLOWED;
+    }
+
+    /**
+     * @return le code HTTP correspondant à la décision
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return le message d'erreur présenté au client, ou null si l'appel est autorisé
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -1,24 +1,26 @@
 package mg.itu.ermite.framework.util.security;
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Arrays;
 
 import jakarta.servlet.http.HttpServletRequest;
 import mg.itu.ermite.framework.annotation.security.Authorized;
 import mg.itu.ermite.framework.annotation.security.Role;
 import mg.itu.ermite.framework.config.ConfigManager;
+import mg.itu.ermite.framework.util.EndPointDetails;
 
 /**
  * Gestionnaire de sécurité du framework qui applique les contrôles d'accès.
  * 
- * SecurityHandler est appelé avant chaque invocation de méthode pour vérifier :
+ * Les annotations de chaque endpoint sont compilées une fois, à l'enregistrement,
+ * en une {@link SecurityPolicy} immuable. SecurityHandler l'évalue avant chaque
+ * invocation de méthode pour vérifier :
  * 1. Si la méthode requiert une authentification (@Authorized)
  * 2. Si l'utilisateur est effectivement connecté
  * 3. Si la méthode requiert des rôles spécifiques (@Role)
  * 4. Si l'utilisateur a le rôle requis
  * 
- * Les rôles et identifiants utilisateurs sont stockés en session HTTP à l'aide de
+ * Les rôles et identifiants utilisateurs sont stockés en session (HttpSession ou
+ * store externe, lus via SessionMap) à l'aide de
  * clés configurables via ConfigManager :
  * - "userSessionId" : clé stockant l'identifiant utilisateur
  * - "userSessionRole" : clé stockant le rôle utilisateur
@@ -43,18 +45,32 @@ import mg.itu.ermite.framework.config.ConfigManager;
  * @see Role
  * @see ConfigManager
  * @see EndPointDetails
+ * @see SecurityPolicy
  */
 public class SecurityHandler {
+
+    /**
+     * Évalue la politique précompilée d'un endpoint pour la requête courante.
+     * 
+     * Aucun refus ne lève d'exception : le FrontServlet traduit la décision
+     * en réponse 401 ou 403.
+     * 
+     * @param endPoint l'endpoint à invoquer
+     * @param request la requête HTTP contenant la session
+     * @return la décision d'accès
+     */
+    public static SecurityDecision evaluate(EndPointDetails endPoint, HttpServletRequest request)
+    {
+        return endPoint.getSecurityPolicy().evaluate(request);
+    }
     
     /**
      * Vérifie les permissions de sécurité avant d'invoquer une méthode.
      * 
-     * Processus de vérification :
-     * 1. Si la méthode n'a pas @Authorized, elle est accessible (pas de vérification)
-     * 2. Si elle a @Authorized, récupère l'ID utilisateur de la session
-     * 3. Si pas d'ID utilisateur, lève une exception (utilisateur non connecté)
-     * 4. Si @Role est présente, vérifie que le rôle utilisateur est dans les rôles autorisés
-     * 5. Si le rôle ne correspond pas, lève une exception
+     * Conservée pour le code appelant directement le contrôle : la politique est
+     * compilée à chaque appel. Le framework utilise
+     * {@link #evaluate(EndPointDetails, HttpServletRequest)} avec la politique
+     * compilée à l'enregistrement de l'endpoint.
      * 
      * @param method la méthode à invoquer
      * @param request la requête HTTP contenant la session
@@ -62,27 +78,10 @@ public class SecurityHandler {
      */
     public static void checkAbilityToInvoke(Method method, HttpServletRequest request) throws Exception
     {
-        
-        if(method.isAnnotationPresent(Authorized.class))
+        SecurityDecision decision = SecurityPolicy.compile(method).evaluate(request);
+        if(!decision.isAllowed())
         {
-            
-            Object userSessionId = request.getSession().getAttribute(ConfigManager.getInstance().get("userSessionId"));
-            if(userSessionId == null) throw new Exception("Vous devez etre connecte pour pouvoir acceder a la methode:"+method.getName());
-            if(method.isAnnotationPresent(Role.class))
-            {
-                String userSessionRole = (String) request.getSession().getAttribute(ConfigManager.getInstance().get("userSessionRole"));
-                if(userSessionRole == null) throw new Exception("Votre utilisateur actuel n'a defini aucun role");
-                if(!new ArrayList<>(Arrays.asList(method.getAnnotation(Role.class).value())).contains(userSessionRole))
-                {
-                    throw new Exception("Le role ["+userSessionRole+"] est insuffisant pour acceder a la methode :"+method.getName());
-                }
-            }
-            
-            //aveo verifier-na ato hoe manana acces amle methode ve ilay role connecte amzao
-            //raha tsy manana acces dia on throw une exception
-        }
-        else{
-            return;
+            throw new Exception(decision.getMessage()+" (methode: "+method.getName()+")");
         }
     }
 }
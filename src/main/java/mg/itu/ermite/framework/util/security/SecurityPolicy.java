@@ -0,0 +1,156 @@
+package mg.itu.ermite.framework.util.security;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import jakarta.servlet.http.HttpServletRequest;
+import mg.itu.ermite.framework.annotation.security.Authorized;
+import mg.itu.ermite.framework.annotation.security.Permission;
+import mg.itu.ermite.framework.annotation.security.Role;
+import mg.itu.ermite.framework.config.ConfigManager;
+import mg.itu.ermite.framework.util.SessionMap;
+
+/**
+ * Politique de sécurité immuable d'un endpoint, compilée à l'enregistrement.
+ *
+ * Les annotations {@link Authorized}, {@link Role} et {@link Permission} sont lues une
+ * seule fois par {@link #compile(Method)} : rôles et permissions sont compilés en masques
+ * de bits du {@link RoleModel} et les clés de session sont résolues depuis la
+ * configuration. L'évaluation par requête ne fait ni réflexion ni accès à ConfigManager :
+ * un ET binaire entre les masques de l'utilisateur et ceux de l'endpoint, et retourne
+ * une {@link SecurityDecision} au lieu de lever une exception.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see SecurityHandler
+ * @see SecurityDecision
+ * @see TokenAuthenticator
+ * @see RoleModel
+ */
+public final class SecurityPolicy {
+
+    /** Politique des endpoints sans @Authorized : aucun contrôle */
+    public static final SecurityPolicy PUBLIC = new SecurityPolicy(false, Set.of(), Set.of(), null, null, null);
+
+    private final boolean authenticated;
+    private final Set<String> roles;
+    private final Set<String> permissions;
+    private final RoleModel model;
+    private final long[] roleMask;
+    private final long[] permissionMask;
+    private final String userIdKey;
+    private final String userRoleKey;
+
+    private SecurityPolicy(boolean authenticated, Set<String> roles, Set<String> permissions,
+                           RoleModel model, String userIdKey, String userRoleKey) {
+        this.authenticated = authenticated;
+        this.roles = roles;
+        this.permissions = permissions;
+        this.model = model;
+        this.roleMask = roles.isEmpty() ? null : model.roleMask(roles.toArray(new String[0]));
+        this.permissionMask = permissions.isEmpty() ? null : model.permissionMask(permissions.toArray(new String[0]));
+        this.userIdKey = userIdKey;
+        this.userRoleKey = userRoleKey;
+    }
+
+    /**
+     * Compile la politique d'une méthode de contrôleur.
+     * Comme auparavant, @Role n'est pris en compte qu'avec @Authorized ; @Permission
+     * implique @Authorized. Les rôles et permissions sont compilés en masques du
+     * {@link RoleModel} courant.
+     *
+     * @param method la méthode du contrôleur
+     * @return la politique de l'endpoint ({@link #PUBLIC} sans @Authorized ni @Permission)
+     */
+    public static SecurityPolicy compile(Method method) {
+        Permission permission = method.getAnnotation(Permission.class);
+        if (!method.isAnnotationPresent(Authorized.class) && permission == null) return PUBLIC;
+
+        Role role = method.getAnnotation(Role.class);
+        Set<String> roles = role == null ? Set.of() : interned(role.value());
+        Set<String> permissions = permission == null ? Set.of() : interned(permission.value());
+
+        ConfigManager config = ConfigManager.getInstance();
+        boolean needsRoles = !roles.isEmpty() || !permissions.isEmpty();
+        String userRoleKey = needsRoles ? config.get("userSessionRole") : null;
+        if (needsRoles && userRoleKey == null) {
+            System.out.println("[Security] 'userSessionRole' non configure: acces par session refuse pour "
+                    + method.getDeclaringClass().getName() + "#" + method.getName());
+        }
+        return new SecurityPolicy(true, roles, permissions, RoleModel.get(),
+                config.get("userSessionId"), userRoleKey);
+    }
+
+    private static Set<String> interned(String[] names) {
+        Set<String> interned = new LinkedHashSet<>();
+        for (String name : names) interned.add(name.intern());
+        return Set.copyOf(interned);
+    }
+
+    /**
+     * Évalue la politique pour une requête.
+     * L'identité vient du jeton porteur si {@link TokenAuthenticator} est actif et
+     * qu'un jeton est présenté, sinon de la session, lue sans jamais être créée.
+     *
+     * @param request la requête courante
+     * @return la décision d'accès
+     */
+    public SecurityDecision evaluate(HttpServletRequest request) {
+        if (!authenticated) return SecurityDecision.ALLOWED;
+
+        // Un jeton porteur remplace la session : pas de repli si le jeton est invalide
+        TokenAuthenticator authenticator = TokenAuthenticator.get();
+        if (authenticator != null && TokenAuthenticator.hasToken(request)) {
+            UserPrincipal principal = authenticator.authenticate(request);
+            if (principal == null) return SecurityDecision.UNAUTHENTICATED;
+            // Rôles du jeton toujours vérifiés : "userSessionRole" ne concerne que la session
+            if (roleMask == null && permissionMask == null) return SecurityDecision.ALLOWED;
+            return decide(principal.getRoles());
+        }
+
+        SessionMap session = SessionMap.of(request, null);
+        if (userIdKey == null || session.get(userIdKey) == null) return SecurityDecision.UNAUTHENTICATED;
+        if (roleMask == null && permissionMask == null) return SecurityDecision.ALLOWED;
+        // Rôles exigés sans clé de session pour les lire : refus, jamais d'accès par défaut
+        if (userRoleKey == null) return SecurityDecision.FORBIDDEN;
+
+        Object userRoles = session.get(userRoleKey);
+        return userRoles == null ? SecurityDecision.FORBIDDEN : decide(userRoles);
+    }
+
+    private SecurityDecision decide(Object userRoles) {
+        RoleModel.Masks masks = model.masksOf(userRoles);
+        if (roleMask != null && !masks.hasAnyRole(roleMask)) return SecurityDecision.FORBIDDEN;
+        if (permissionMask != null && !masks.hasAllPermissions(permissionMask)) return SecurityDecision.FORBIDDEN;
+        return SecurityDecision.ALLOWED;
+    }
+
+    /**
+     * @return true si l'endpoint exige un utilisateur connecté
+     */
+    public boolean requiresAuthentication() {
+        return authenticated;
+    }
+
+    /**
+     * @return les rôles autorisés (vide si tout utilisateur connecté est accepté)
+     */
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    /**
+     * @return les permissions toutes requises (vide si aucune)
+     */
+    public Set<String> getPermissions() {
+        return permissions;
+    }
+
+    @Override
+    public String toString() {
+        if (!authenticated) return "SecurityPolicy(PUBLIC)";
+        return "SecurityPolicy(AUTHENTICATED" + (roles.isEmpty() ? "" : " | ROLES:" + roles)
+                + (permissions.isEmpty() ? "" : " | PERMISSIONS:" + permissions) + ")";
+    }
+}
@@ -0,0 +1,266 @@
+package mg.itu.ermite.framework.util.security;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jakarta.servlet.http.HttpServletRequest;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Authentification sans état par jeton porteur signé HMAC (JWT HS256).
+ *
+ * Le jeton est lu dans l'en-tête {@code Authorization: Bearer <jeton>} et vérifié
+ * avec le Mac du JDK uniquement : en-tête {"alg":"HS256"} obligatoire, signature
+ * comparée en temps constant, claims "exp", "nbf" et "iss" contrôlés. Les rôles
+ * viennent du claim "roles" (tableau ou chaîne séparée par des virgules/espaces).
+ *
+ * Les vérifications réussies sont gardées dans un cache LRU borné, indexé par le
+ * SHA-256 du jeton (le jeton lui-même n'est pas conservé) et valable jusqu'à
+ * l'expiration du jeton : un client qui rejoue le même jeton ne paie ni le HMAC ni
+ * le parsing JSON. Le {@link UserPrincipal} est lié à la requête ; {@link SecurityPolicy}
+ * l'utilise à la place de la session pour @Authorized et @Role.
+ *
+ * Configuration (web.xml) :
+ * - "authTokenSecret" : secret HMAC partagé, 32 caractères minimum (active le mode jeton)
+ * - "authTokenIssuer" : émetteur attendu (optionnel)
+ * - "authTokenRolesClaim" : claim des rôles (défaut "roles")
+ * - "authTokenCacheSize" : nombre de jetons vérifiés en cache (défaut 4096)
+ * - "authTokenLeeway" : tolérance d'horloge en secondes (défaut 30)
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see UserPrincipal
+ * @see SecurityPolicy
+ */
+public final class TokenAuthenticator {
+
+    private static final String BEARER = "Bearer ";
+    private static final String HEADER = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static volatile TokenAuthenticator instance;
+
+    private final SecretKeySpec key;
+    /**
+     * Mac initialisé, cloné à chaque signature : pas de ThreadLocal, qui créerait un
+     * Mac par thread virtuel (un par requête) sans jamais le réutiliser.
+     */
+    private final Mac prototype;
+    private final String issuer;
+    private final String rolesClaim;
+    private final long leeway;
+    private final Map<String, UserPrincipal> cache;
+
+    /**
+     * @param secret le secret HMAC partagé
+     * @param issuer l'émetteur attendu, ou null
+     * @param rolesClaim le nom du claim portant les rôles
+     * @param cacheSize le nombre de jetons vérifiés gardés en cache
+     * @param leeway la tolérance d'horloge en secondes
+     */
+    public TokenAuthenticator(byte[] secret, String issuer, String rolesClaim, int cacheSize, long leeway) {
+        this.key = new SecretKeySpec(secret, "HmacSHA256");
+        this.prototype = newMac();
+        this.issuer = issuer;
+        this.rolesClaim = rolesClaim;
+        this.leeway = leeway;
+        this.cache = new LinkedHashMap<String, UserPrincipal>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserPrincipal> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Active l'authentification par jeton si "authTokenSecret" est configuré.
+     *
+     * @param config la configuration du framework
+     * @throws IllegalStateException si le secret est trop court
+     */
+    public static void configure(ConfigManager config) {
+        String secret = config.get("authTokenSecret");
+        if (secret == null || secret.isEmpty()) {
+            instance = null;
+            return;
+        }
+        if (secret.length() < 32) {
+            throw new IllegalStateException("Le parametre 'authTokenSecret' doit contenir au moins 32 caracteres");
+        }
+        instance = new TokenAuthenticator(secret.getBytes(StandardCharsets.UTF_8),
+                config.get("authTokenIssuer"),
+                config.get("authTokenRolesClaim", "roles"),
+                config.getInt("authTokenCacheSize", 4096),
+                config.getLong("authTokenLeeway", 30));
+        System.out.println("[Security] Authentification par jeton HS256 active");
+    }
+
+    /**
+     * @return l'authentificateur actif, ou null si le mode jeton est désactivé
+     */
+    public static TokenAuthenticator get() {
+        return instance;
+    }
+
+    /**
+     * @param request la requête courante
+     * @return true si la requête présente un jeton porteur
+     */
+    public static boolean hasToken(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        return header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length());
+    }
+
+    /**
+     * Authentifie la requête par son jeton porteur et lie le principal à la requête.
+     *
+     * @param request la requête courante
+     * @return le principal, ou null si aucun jeton valide n'est présenté
+     */
+    public UserPrincipal authenticate(HttpServletRequest request) {
+        UserPrincipal principal = UserPrincipal.of(request);
+        if (principal != null) return principal;
+        if (!hasToken(request)) return null;
+
+        principal = verify(request.getHeader("Authorization").substring(BEARER.length()).trim());
+        if (principal != null) request.setAttribute(UserPrincipal.REQUEST_ATTRIBUTE, principal);
+        return principal;
+    }
+
+    /**
+     * Vérifie un jeton compact.
+     *
+     * @param token le jeton "en-tête.claims.signature"
+     * @return le principal, ou null si le jeton est invalide ou expiré
+     */
+    public UserPrincipal verify(String token) {
+        long now = System.currentTimeMillis() / 1000;
+        String cacheKey = digest(token);
+        UserPrincipal principal;
+        synchronized (cache) {
+            principal = cache.get(cacheKey);
+        }
+        if (principal != null) {
+            if (!principal.isExpired(now - leeway)) return principal;
+            synchronized (cache) {
+                cache.remove(cacheKey);
+            }
+            return null;
+        }
+
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first <= 0 || second <= first || token.indexOf('.', second + 1) >= 0) return null;
+        try {
+            Base64.Decoder b64 = Base64.getUrlDecoder();
+            byte[] signature = b64.decode(token.substring(second + 1));
+            byte[] expected = sign(token.substring(0, second));
+            if (!MessageDigest.isEqual(expected, signature)) return null;
+
+            // Signature valide : l'en-tête doit annoncer HS256 (jamais "none" ni un autre algorithme)
+            JsonNode header = MAPPER.readTree(b64.decode(token.substring(0, first)));
+            if (!"HS256".equals(header.path("alg").asText())) return null;
+
+            JsonNode claims = MAPPER.readTree(b64.decode(token.substring(first + 1, second)));
+            long exp = claims.path("exp").asLong(0);
+            if (exp != 0 && now - leeway >= exp) return null;
+            if (claims.path("nbf").asLong(0) > now + leeway) return null;
+            if (issuer != null && !issuer.equals(claims.path("iss").asText(null))) return null;
+            String subject = claims.path("sub").asText(null);
+            if (subject == null) return null;
+
+            principal = new UserPrincipal(subject, roles(claims.path(rolesClaim)), exp);
+            synchronized (cache) {
+                cache.put(cacheKey, principal);
+            }
+            return principal;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Émet un jeton signé, par exemple depuis un endpoint de connexion.
+     *
+     * @param subject l'identifiant de l'utilisateur
+     * @param roles les rôles de l'utilisateur
+     * @param ttlSeconds la durée de validité en secondes
+     * @return le jeton compact
+     */
+    public String issue(String subject, Collection<String> roles, long ttlSeconds) {
+        long now = System.currentTimeMillis() / 1000;
+        ObjectNode claims = MAPPER.createObjectNode();
+        claims.put("sub", subject);
+        if (issuer != null) claims.put("iss", issuer);
+        claims.put("iat", now);
+        claims.put("exp", now + ttlSeconds);
+        claims.putArray(rolesClaim).addAll(roles.stream().map(claims::textNode).toList());
+        try {
+            String unsigned = HEADER + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(claims));
+            return unsigned + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(unsigned));
+        } catch (IOException e) {
+            throw new IllegalStateException("Emission du jeton impossible", e);
+        }
+    }
+
+    private static Set<String> roles(JsonNode node) {
+        Set<String> roles = new LinkedHashSet<>();
+        if (node.isArray()) {
+            for (JsonNode role : node) roles.add(role.asText().intern());
+        } else if (node.isTextual()) {
+            for (String role : node.asText().split("[,\\s]+")) {
+                if (!role.isEmpty()) roles.add(role.intern());
+            }
+        }
+        return roles;
+    }
+
+    private byte[] sign(String data) {
+        return mac().doFinal(data.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac mac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            // Fournisseur sans clone : initialisation complète
+            return newMac();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
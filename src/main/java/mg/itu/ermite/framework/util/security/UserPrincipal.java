@@ -0,0 +1,81 @@
+package mg.itu.ermite.framework.util.security;
+
+import java.util.Set;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Identité d'un utilisateur authentifié par jeton, attachée à la requête.
+ *
+ * Immuable et partagée entre les requêtes présentant le même jeton (voir le
+ * cache de {@link TokenAuthenticator}). Un paramètre de contrôleur de type
+ * UserPrincipal reçoit l'identité de la requête courante (null si anonyme).
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see TokenAuthenticator
+ */
+public final class UserPrincipal {
+
+    /** Attribut de requête portant le principal authentifié */
+    public static final String REQUEST_ATTRIBUTE = UserPrincipal.class.getName();
+
+    private final String subject;
+    private final Set<String> roles;
+    private final long expiresAt;
+
+    /**
+     * @param subject l'identifiant de l'utilisateur (claim "sub")
+     * @param roles les rôles de l'utilisateur
+     * @param expiresAt l'expiration du jeton en secondes epoch (0 si aucune)
+     */
+    public UserPrincipal(String subject, Set<String> roles, long expiresAt) {
+        this.subject = subject;
+        this.roles = Set.copyOf(roles);
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Récupère le principal lié à la requête.
+     *
+     * @param request la requête courante
+     * @return le principal, ou null si la requête n'est pas authentifiée par jeton
+     */
+    public static UserPrincipal of(HttpServletRequest request) {
+        Object principal = request.getAttribute(REQUEST_ATTRIBUTE);
+        return principal instanceof UserPrincipal ? (UserPrincipal) principal : null;
+    }
+
+    /**
+     * @param role le rôle à tester
+     * @return true si l'utilisateur possède ce rôle
+     */
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+
+    /**
+     * @param nowSeconds l'instant courant en secondes epoch
+     * @return true si le jeton a expiré
+     */
+    public boolean isExpired(long nowSeconds) {
+        return expiresAt != 0 && nowSeconds >= expiresAt;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return "UserPrincipal(" + subject + " | ROLES:" + roles + ")";
+    }
+}
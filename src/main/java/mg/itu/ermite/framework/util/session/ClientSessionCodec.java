@@ -0,0 +1,310 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Encodage des sessions côté client : attributs signés HMAC, compressés et
+ * éventuellement chiffrés, transportés dans un cookie.
+ * 
+ * Format du jeton (base64url, sans padding) :
+ * <pre>
+ * payload "." signature
+ * payload   = version(1) flags(1) issuedAt(8) corps
+ * corps     = SessionSerializer.encode(attributs), deflate si bénéfique,
+ *             puis AES-GCM (iv(12) + chiffré) si le chiffrement est activé
+ * signature = HMAC-SHA256(payload)
+ * </pre>
+ * 
+ * La signature couvre le corps chiffré (encrypt-then-MAC) : un jeton modifié est
+ * rejeté avant toute décompression ou désérialisation. Les clés de signature et de
+ * chiffrement sont dérivées du secret "sessionCookieSecret".
+ * 
+ * Un jeton expire "sessionTimeout" après son émission ; {@link #needsRefresh(String)}
+ * indique à mi-vie qu'il faut le réémettre, pour que l'expiration suive l'activité.
+ * 
+ * Les jetons vérifiés sont gardés dans un petit cache LRU : un client qui renvoie
+ * le même cookie à chaque requête ne paie la vérification HMAC et le décodage
+ * qu'une fois.
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see CookieSessionBackend
+ */
+public class ClientSessionCodec {
+
+    private static final byte VERSION = 1;
+    private static final byte FLAG_DEFLATE = 1;
+    private static final byte FLAG_ENCRYPTED = 2;
+    private static final int HEADER_LENGTH = 10;
+    private static final int IV_LENGTH = 12;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec macKey;
+    private final SecretKeySpec encryptionKey;
+    private final long maxAgeMillis;
+    private final Map<String, Verified> cache;
+
+    /**
+     * Crée le codec à partir de la configuration du framework.
+     * 
+     * Paramètres : sessionCookieSecret (obligatoire), sessionCookieEncrypt (défaut false),
+     * sessionCookieCacheSize (défaut 1024), sessionTimeout en secondes (défaut 1800).
+     * 
+     * @param config la configuration
+     * @throws IllegalStateException si aucun secret n'est configuré
+     */
+    public ClientSessionCodec(ConfigManager config) {
+        this(secret(config),
+             config.getBoolean("sessionCookieEncrypt", false),
+             config.getInt("sessionCookieCacheSize", 1024),
+             config.getLong("sessionTimeout", 1800) * 1000L);
+    }
+
+    /**
+     * @param secret le secret partagé par tous les noeuds
+     * @param encrypt true pour chiffrer le contenu de la session
+     * @param cacheSize le nombre de jetons vérifiés gardés en cache
+     * @param maxAgeMillis la durée de validité d'un jeton depuis son émission
+     */
+    public ClientSessionCodec(byte[] secret, boolean encrypt, int cacheSize, long maxAgeMillis) {
+        this.macKey = new SecretKeySpec(derive(secret, "mac"), "HmacSHA256");
+        this.encryptionKey = encrypt ? new SecretKeySpec(derive(secret, "enc"), "AES") : null;
+        this.maxAgeMillis = maxAgeMillis;
+        this.cache = new LinkedHashMap<String, Verified>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Verified> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    private static byte[] secret(ConfigManager config) {
+        String secret = config.get("sessionCookieSecret");
+        if (secret == null || secret.length() < 16) {
+            throw new IllegalStateException("Le parametre 'sessionCookieSecret' (16 caracteres minimum) est requis pour les sessions cote client");
+        }
+        return secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] derive(byte[] secret, String label) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(secret);
+            digest.update(label.getBytes(StandardCharsets.US_ASCII));
+            return digest.digest();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encode des attributs en jeton signé.
+     * 
+     * @param attributes les attributs de session
+     * @return le jeton, utilisable tel quel comme valeur de cookie
+     */
+    public String encode(Map<String,Object> attributes) {
+        byte[] body = SessionSerializer.encode(attributes);
+        byte flags = 0;
+
+        byte[] deflated = deflate(body);
+        if (deflated.length < body.length) {
+            body = deflated;
+            flags |= FLAG_DEFLATE;
+        }
+        if (encryptionKey != null) {
+            body = encrypt(body);
+            flags |= FLAG_ENCRYPTED;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(HEADER_LENGTH + body.length);
+        payload.put(VERSION).put(flags).putLong(System.currentTimeMillis()).put(body);
+
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        return b64.encodeToString(payload.array()) + "." + b64.encodeToString(mac(payload.array()));
+    }
+
+    /**
+     * Vérifie et décode un jeton.
+     * 
+     * @param token la valeur du cookie
+     * @return les attributs (vue non modifiable), ou null si le jeton est invalide ou expiré
+     */
+    public Map<String,Object> decode(String token) {
+        long now = System.currentTimeMillis();
+        Verified verified;
+        synchronized (cache) {
+            verified = cache.get(token);
+        }
+        if (verified != null) {
+            if (now - verified.issuedAt <= maxAgeMillis) return verified.attributes;
+            synchronized (cache) {
+                cache.remove(token);
+            }
+            return null;
+        }
+
+        int dot = token.indexOf('.');
+        if (dot <= 0) return null;
+        try {
+            Base64.Decoder b64 = Base64.getUrlDecoder();
+            byte[] payload = b64.decode(token.substring(0, dot));
+            byte[] signature = b64.decode(token.substring(dot + 1));
+            if (payload.length < HEADER_LENGTH || !MessageDigest.isEqual(mac(payload), signature)) return null;
+
+            ByteBuffer in = ByteBuffer.wrap(payload);
+            if (in.get() != VERSION) return null;
+            byte flags = in.get();
+            long issuedAt = in.getLong();
+            if (now - issuedAt > maxAgeMillis) return null;
+
+            byte[] body = new byte[in.remaining()];
+            in.get(body);
+            if ((flags & FLAG_ENCRYPTED) != 0) {
+                if (encryptionKey == null) return null;
+                body = decrypt(body);
+            }
+            if ((flags & FLAG_DEFLATE) != 0) body = inflate(body);
+
+            Map<String,Object> attributes = Collections.unmodifiableMap(SessionSerializer.decode(body));
+            synchronized (cache) {
+                cache.put(token, new Verified(attributes, issuedAt));
+            }
+            return attributes;
+        } catch (IllegalArgumentException | GeneralSecurityException | DataFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param token un jeton accepté par {@link #decode(String)}
+     * @return true si le jeton a dépassé la moitié de sa durée de validité et doit être réémis
+     */
+    public boolean needsRefresh(String token) {
+        Verified verified;
+        synchronized (cache) {
+            verified = cache.get(token);
+        }
+        long issuedAt = verified != null ? verified.issuedAt : issuedAt(token);
+        return System.currentTimeMillis() - issuedAt > maxAgeMillis / 2;
+    }
+
+    /**
+     * @param token un jeton déjà vérifié
+     * @return sa date d'émission, lue dans l'en-tête du payload (0 si illisible)
+     */
+    private static long issuedAt(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0) return 0;
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(0, dot));
+            return payload.length < HEADER_LENGTH ? 0 : ByteBuffer.wrap(payload, 2, 8).getLong();
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    private byte[] mac(byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(macKey);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] encrypt(byte[] data) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(128, iv));
+            byte[] encrypted = cipher.doFinal(data);
+            return ByteBuffer.allocate(IV_LENGTH + encrypted.length).put(iv).put(encrypted).array();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Chiffrement de la session impossible", e);
+        }
+    }
+
+    private byte[] decrypt(byte[] data) throws GeneralSecurityException {
+        if (data.length <= IV_LENGTH) throw new IllegalArgumentException("Corps chiffre trop court");
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(128, data, 0, IV_LENGTH));
+        return cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[data.length + 16];
+            int length = deflater.deflate(buffer);
+            // Sortie plus grande que l'entrée : la compression ne sera pas utilisée
+            if (!deflater.finished()) return data;
+            byte[] out = new byte[length];
+            System.arraycopy(buffer, 0, out, 0, length);
+            return out;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] buffer = new byte[Math.max(64, data.length * 4)];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == buffer.length) {
+                    // Une session cookie fait au plus quelques Ko : refuser les bombes de décompression
+                    if (buffer.length >= 1 << 20) throw new DataFormatException("Session decompressee trop volumineuse");
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int n = inflater.inflate(buffer, length, buffer.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Flux compresse tronque");
+                }
+                length += n;
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Jeton déjà vérifié.
+     */
+    private static final class Verified {
+        final Map<String,Object> attributes;
+        final long issuedAt;
+
+        Verified(Map<String,Object> attributes, long issuedAt) {
+            this.attributes = attributes;
+            this.issuedAt = issuedAt;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.util.Collections;
+import java.util.Enumeration;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * SessionBackend adossé à l'HttpSession du conteneur servlet.
+ * 
+ * La session est résolue paresseusement : les lectures utilisent
+ * {@code request.getSession(false)} et seule la première écriture crée la session.
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see SessionBackend
+ */
+public class ContainerSessionBackend implements SessionBackend {
+
+    /** La requête portant la session (null si la session a été fournie directement) */
+    private final HttpServletRequest request;
+
+    /** La session HTTP, résolue paresseusement */
+    private HttpSession session;
+
+    /**
+     * @param request la requête HTTP portant (éventuellement) la session
+     */
+    public ContainerSessionBackend(HttpServletRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * @param session une session HTTP déjà obtenue
+     */
+    public ContainerSessionBackend(HttpSession session) {
+        this.request = null;
+        this.session = session;
+    }
+
+    /**
+     * @return la session courante ou null si aucune session n'existe
+     */
+    private HttpSession existingSession() {
+        if (session == null && request != null) {
+            session = request.getSession(false);
+        }
+        return session;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        HttpSession s = existingSession();
+        return s == null ? null : s.getAttribute(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        HttpSession s = existingSession();
+        return s == null ? Collections.emptyEnumeration() : s.getAttributeNames();
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (session == null && request != null) {
+            session = request.getSession(true);
+        }
+        if (session == null) throw new IllegalStateException("La session a ete invalidee");
+        session.setAttribute(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        HttpSession s = existingSession();
+        if (s != null) s.removeAttribute(name);
+    }
+
+    @Override
+    public String getId() {
+        HttpSession s = existingSession();
+        return s == null ? null : s.getId();
+    }
+
+    @Override
+    public void invalidate() {
+        HttpSession s = existingSession();
+        if (s != null) {
+            s.invalidate();
+            session = null;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * SessionBackend sans état serveur : les attributs voyagent dans un cookie signé.
+ * 
+ * Adapté aux API publiques dont la session ne contient que l'identité de
+ * l'utilisateur (clés "userSessionId" et "userSessionRole") : aucun octet n'est
+ * conservé par utilisateur sur le serveur et n'importe quel noeud peut servir
+ * n'importe quelle requête, sans affinité de session.
+ * 
+ * Le cookie est réémis à chaque {@link #commit()} qui modifie la session, et par un
+ * commit sans modification dès que le jeton a dépassé la moitié de sa durée de
+ * validité : l'expiration glisse avec l'activité, comme l'inactivité d'une HttpSession.
+ * 
+ * Si le jeton encodé dépasse "sessionCookieMaxBytes" (défaut 3800 octets, sous la
+ * limite de 4 Ko des navigateurs), la session bascule sur le stockage serveur de repli
+ * ({@link SessionStores#serverBackendFor}) et le cookie client est effacé. Elle
+ * revient côté client dès qu'elle repasse sous la limite. Seuls les attributs déportés
+ * par ce backend (listés dans l'attribut {@link #SPILLED}) sont repris puis retirés :
+ * le reste de la session serveur (authentification du conteneur, attributs d'autres
+ * servlets) ne lui appartient pas.
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see ClientSessionCodec
+ * @see SessionStores
+ */
+public class CookieSessionBackend implements SessionBackend {
+
+    /** Attribut serveur listant les noms des attributs déportés par le repli (String[]) */
+    public static final String SPILLED = CookieSessionBackend.class.getName() + ".spilled";
+
+    private final ClientSessionCodec codec;
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final String cookieName;
+    private final int maxCookieBytes;
+
+    private boolean loaded;
+    private boolean modified;
+    private boolean clientSide;
+
+    /** Jeton reçu avec la requête (null si aucun) */
+    private String token;
+
+    /** Attributs de la session côté client (null si aucune) */
+    private Map<String,Object> attributes;
+
+    /** Attributs repris de la copie serveur, à y retirer une fois le cookie écrit */
+    private String[] migrated;
+
+    /** Stockage serveur de repli, résolu à la demande */
+    private SessionBackend fallback;
+
+    /**
+     * @param codec le codec des jetons
+     * @param request la requête courante
+     * @param response la réponse courante (nécessaire pour écrire)
+     * @param cookieName le nom du cookie de session
+     * @param maxCookieBytes la taille maximale du jeton avant repli côté serveur
+     */
+    public CookieSessionBackend(ClientSessionCodec codec, HttpServletRequest request, HttpServletResponse response,
+                                String cookieName, int maxCookieBytes) {
+        this.codec = codec;
+        this.request = request;
+        this.response = response;
+        this.cookieName = cookieName;
+        this.maxCookieBytes = maxCookieBytes;
+    }
+
+    private SessionBackend fallback() {
+        if (fallback == null) fallback = SessionStores.serverBackendFor(request, response);
+        return fallback;
+    }
+
+    /**
+     * Décode (une fois) le cookie de session de la requête.
+     * 
+     * @return true si la session courante est portée par le cookie client
+     */
+    private boolean load() {
+        if (!loaded) {
+            loaded = true;
+            token = readCookie();
+            Map<String,Object> decoded = token == null ? null : codec.decode(token);
+            if (decoded != null) {
+                // Le codec partage ses résultats en cache : copie avant toute écriture
+                attributes = decoded;
+                clientSide = true;
+            }
+        }
+        return clientSide;
+    }
+
+    private String readCookie() {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return null;
+        for (Cookie cookie : cookies) {
+            if (cookieName.equals(cookie.getName())) return cookie.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * @return les attributs modifiables de la session client
+     */
+    private Map<String,Object> writable() {
+        if (!modified) {
+            attributes = attributes == null ? new HashMap<>() : new HashMap<>(attributes);
+            modified = true;
+        }
+        return attributes;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        if (load()) return attributes.get(name);
+        return fallback().getAttribute(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        if (load()) return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+        List<String> names = Collections.list(fallback().getAttributeNames());
+        names.remove(SPILLED);
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (!load()) {
+            // Première écriture : la session repart côté client avec les attributs qu'elle avait déportés
+            Map<String,Object> current = new HashMap<>();
+            migrated = spilledNames();
+            for (String n : migrated) {
+                Object spilled = fallback().getAttribute(n);
+                if (spilled != null) current.put(n, spilled);
+            }
+            attributes = current;
+            clientSide = true;
+            modified = true;
+        }
+        writable().put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        if (!load()) {
+            fallback().removeAttribute(name);
+            return;
+        }
+        if (attributes.containsKey(name)) writable().remove(name);
+    }
+
+    @Override
+    public String getId() {
+        // Une session portée par le cookie n'occupe aucune mémoire serveur
+        return load() ? null : fallback().getId();
+    }
+
+    @Override
+    public void invalidate() {
+        if (load() || readCookie() != null) expireCookie();
+        attributes = null;
+        clientSide = false;
+        modified = false;
+        migrated = null;
+        releaseServerCopy(spilledNames());
+    }
+
+    @Override
+    public void commit() {
+        if (!modified) {
+            if (fallback != null) fallback.commit();
+            // Session seulement lue : jeton réémis à mi-vie pour que l'expiration suive l'activité
+            if (load() && codec.needsRefresh(token) && response != null && !response.isCommitted()) {
+                writeCookie(codec.encode(attributes), -1);
+            }
+            return;
+        }
+        modified = false;
+
+        String encoded = attributes.isEmpty() ? null : codec.encode(attributes);
+        if (encoded == null) {
+            expireCookie();
+        } else if (encoded.length() <= maxCookieBytes) {
+            writeCookie(encoded, -1);
+        } else {
+            spillToServer();
+            return;
+        }
+        // La session tient (de nouveau) dans le cookie : libérer la copie serveur qu'elle remplace
+        if (migrated != null) {
+            releaseServerCopy(migrated);
+            migrated = null;
+        }
+    }
+
+    /**
+     * @return les noms des attributs déportés côté serveur par ce backend
+     */
+    private String[] spilledNames() {
+        Object names = fallback().getAttribute(SPILLED);
+        return names instanceof String[] ? (String[]) names : new String[0];
+    }
+
+    /**
+     * Retire de la session serveur les attributs déportés, et l'invalide seulement
+     * s'il ne lui reste rien : ses autres attributs ne sont pas gérés par ce backend.
+     * 
+     * @param names les noms des attributs déportés
+     */
+    private void releaseServerCopy(String[] names) {
+        if (names.length == 0) return;
+        SessionBackend server = fallback();
+        for (String name : names) server.removeAttribute(name);
+        server.removeAttribute(SPILLED);
+        if (server.getAttributeNames().hasMoreElements()) {
+            server.commit();
+        } else {
+            server.invalidate();
+        }
+    }
+
+    /**
+     * Repli : la session est trop volumineuse pour un cookie, elle est écrite côté serveur.
+     */
+    private void spillToServer() {
+        SessionBackend server = fallback();
+        // Seuls les attributs déportés précédemment et retirés depuis sont supprimés
+        for (String name : spilledNames()) {
+            if (!attributes.containsKey(name)) server.removeAttribute(name);
+        }
+        attributes.forEach(server::setAttribute);
+        server.setAttribute(SPILLED, attributes.keySet().toArray(new String[0]));
+        server.commit();
+        expireCookie();
+        clientSide = false;
+        attributes = null;
+        migrated = null;
+    }
+
+    private void writeCookie(String value, int maxAge) {
+        if (response == null || response.isCommitted()) {
+            throw new IllegalStateException("Impossible d'ecrire la session: la reponse n'est plus modifiable");
+        }
+        Cookie cookie = new Cookie(cookieName, value);
+        String contextPath = request.getContextPath();
+        cookie.setPath(contextPath == null || contextPath.isEmpty() ? "/" : contextPath);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setMaxAge(maxAge);
+        cookie.setAttribute("SameSite", "Lax");
+        response.addCookie(cookie);
+    }
+
+    private void expireCookie() {
+        if (readCookie() != null) writeCookie("", 0);
+    }
+}
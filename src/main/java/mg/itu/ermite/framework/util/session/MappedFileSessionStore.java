@@ -0,0 +1,290 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * SessionStore local dont les sessions vivent hors du heap, dans des fichiers mappés en mémoire.
+ * 
+ * Chaque session est un fichier au format {@link SessionSerializer}, réparti dans
+ * 256 sous-répertoires. Les lectures mappent le fichier (les données restent dans
+ * le cache de pages du système, pas dans le heap Java) ; les écritures passent par un
+ * fichier temporaire renommé atomiquement, si bien qu'un arrêt brutal ne laisse
+ * jamais de session à moitié écrite. Les sessions survivent donc aux redémarrages.
+ * 
+ * Un ensemble chaud LRU borné garde sur le heap les sessions décodées les plus
+ * récemment utilisées pour éviter de relire le disque à chaque requête.
+ * 
+ * Paramètres (web.xml) :
+ * - sessionStoreDirectory : répertoire des sessions (défaut : java.io.tmpdir/framework-sessions)
+ * - sessionHotSetSize : nombre de sessions gardées sur le heap (défaut : 1024)
+ * - sessionTimeout : durée d'inactivité en secondes avant expiration (défaut : 1800)
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see SessionStore
+ * @see SessionSerializer
+ */
+public final class MappedFileSessionStore implements SessionStore {
+
+    /** Format des identifiants générés par StoreSessionBackend (protège contre les chemins arbitraires) */
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9_-]{16,64}");
+
+    /**
+     * Nombre de verrous pour sérialiser les écritures sur une même session.
+     * Des ReentrantLock plutôt que des moniteurs : les entrées/sorties faites sous
+     * verrou n'épinglent pas les threads virtuels à leur thread porteur.
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    /** Intervalle minimal entre deux mises à jour de la date d'accès d'un fichier */
+    private static final long TOUCH_INTERVAL_MILLIS = 60_000;
+
+    private final Path directory;
+    private final long maxInactiveMillis;
+    private final Map<String, HotEntry> hotSet;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Crée le store à partir de la configuration du framework.
+     * 
+     * @param config la configuration
+     */
+    public MappedFileSessionStore(ConfigManager config) {
+        this(Path.of(config.get("sessionStoreDirectory", System.getProperty("java.io.tmpdir") + "/framework-sessions")),
+             config.getInt("sessionHotSetSize", 1024),
+             config.getLong("sessionTimeout", 1800) * 1000L);
+    }
+
+    /**
+     * @param directory le répertoire des fichiers de session
+     * @param hotSetSize le nombre maximal de sessions décodées gardées sur le heap
+     * @param maxInactiveMillis la durée d'inactivité avant expiration
+     */
+    public MappedFileSessionStore(Path directory, int hotSetSize, long maxInactiveMillis) {
+        this.directory = directory;
+        this.maxInactiveMillis = maxInactiveMillis;
+        for (int i = 0; i < LOCK_STRIPES; i++) locks[i] = new ReentrantLock();
+
+        this.hotSet = new LinkedHashMap<String, HotEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HotEntry> eldest) {
+                return size() > hotSetSize;
+            }
+        };
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de creer le repertoire des sessions: " + directory, e);
+        }
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "framework-session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(60_000, maxInactiveMillis / 4);
+        sweeper.scheduleWithFixedDelay(this::purgeExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Map<String, Object> load(String sessionId) {
+        if (!VALID_ID.matcher(sessionId).matches()) return null;
+
+        Map<String,Object> attributes = read(sessionId);
+        return attributes == null ? null : new HashMap<>(attributes);
+    }
+
+    @Override
+    public void save(String sessionId, Map<String, Object> changed, Set<String> removed) {
+        if (!VALID_ID.matcher(sessionId).matches()) {
+            throw new IllegalArgumentException("Identifiant de session invalide");
+        }
+
+        ReentrantLock lock = lock(sessionId);
+        lock.lock();
+        try {
+            Map<String,Object> current = read(sessionId);
+            Map<String,Object> updated = current == null ? new LinkedHashMap<>() : new LinkedHashMap<>(current);
+            updated.putAll(changed);
+            updated.keySet().removeAll(removed);
+
+            byte[] data = SessionSerializer.encode(updated);
+            Path file = file(sessionId);
+            Path tmp = file.resolveSibling(sessionId + ".tmp");
+            try {
+                Files.createDirectories(file.getParent());
+                try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(data);
+                    while (buffer.hasRemaining()) ch.write(buffer);
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Ecriture de la session impossible", e);
+            }
+
+            synchronized (hotSet) {
+                hotSet.put(sessionId, new HotEntry(updated, System.currentTimeMillis()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(String sessionId) {
+        if (!VALID_ID.matcher(sessionId).matches()) return;
+
+        ReentrantLock lock = lock(sessionId);
+        lock.lock();
+        try {
+            synchronized (hotSet) {
+                hotSet.remove(sessionId);
+            }
+            try {
+                Files.deleteIfExists(file(sessionId));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Suppression de la session impossible", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        synchronized (hotSet) {
+            hotSet.clear();
+        }
+    }
+
+    /**
+     * Lit une session depuis l'ensemble chaud ou, à défaut, depuis son fichier mappé.
+     * 
+     * @return les attributs (partagés, à ne pas modifier) ou null
+     */
+    private Map<String,Object> read(String sessionId) {
+        long now = System.currentTimeMillis();
+        HotEntry hot;
+        synchronized (hotSet) {
+            hot = hotSet.get(sessionId);
+        }
+        if (hot != null && now - hot.lastAccess > maxInactiveMillis) {
+            synchronized (hotSet) {
+                hotSet.remove(sessionId);
+            }
+            hot = null;
+        }
+        if (hot != null) {
+            if (now - hot.lastAccess > TOUCH_INTERVAL_MILLIS) {
+                touch(sessionId, now);
+                hot.lastAccess = now;
+            }
+            return hot.attributes;
+        }
+
+        Path file = file(sessionId);
+        Map<String,Object> attributes;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            if (now - lastModified > maxInactiveMillis) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            MappedByteBuffer buffer = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            attributes = SessionSerializer.decode(buffer);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture de la session impossible", e);
+        } catch (IllegalArgumentException e) {
+            System.out.println("[Session] Session illisible ignoree (" + sessionId + "): " + e.getMessage());
+            return null;
+        }
+
+        touch(sessionId, now);
+        synchronized (hotSet) {
+            hotSet.put(sessionId, new HotEntry(attributes, now));
+        }
+        return attributes;
+    }
+
+    private void touch(String sessionId, long now) {
+        try {
+            Files.setLastModifiedTime(file(sessionId), FileTime.fromMillis(now));
+        } catch (IOException ignored) {
+            // la session a pu être supprimée entre-temps
+        }
+    }
+
+    /**
+     * Supprime les fichiers de session inactifs depuis plus de sessionTimeout.
+     */
+    public void purgeExpired() {
+        long limit = System.currentTimeMillis() - maxInactiveMillis;
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory)) {
+            for (Path shard : shards) {
+                if (!Files.isDirectory(shard)) continue;
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                    for (Path file : files) {
+                        if (Files.getLastModifiedTime(file).toMillis() < limit) {
+                            String sessionId = file.getFileName().toString();
+                            synchronized (hotSet) {
+                                hotSet.remove(sessionId);
+                            }
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("[Session] Purge des sessions expirees impossible: " + e.getMessage());
+        }
+    }
+
+    private Path file(String sessionId) {
+        String shard = Integer.toHexString((sessionId.hashCode() & 0xFF) | 0x100).substring(1);
+        return directory.resolve(shard).resolve(sessionId);
+    }
+
+    private ReentrantLock lock(String sessionId) {
+        return locks[(sessionId.hashCode() & 0x7FFFFFFF) % LOCK_STRIPES];
+    }
+
+    /**
+     * Session décodée gardée sur le heap.
+     */
+    private static final class HotEntry {
+        final Map<String,Object> attributes;
+        volatile long lastAccess;
+
+        HotEntry(Map<String,Object> attributes, long lastAccess) {
+            this.attributes = attributes;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
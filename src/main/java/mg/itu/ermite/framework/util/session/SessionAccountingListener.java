@@ -0,0 +1,38 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.util.Enumeration;
+
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionListener;
+
+/**
+ * Libère la comptabilité mémoire d'une HttpSession détruite par le conteneur
+ * (expiration ou invalidation), ainsi que ses attributs déportés sur disque.
+ * 
+ * Enregistré automatiquement par FrameworkInitializer lorsque la comptabilité
+ * mémoire des sessions est active.
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see SessionMemoryAccountant
+ */
+public class SessionAccountingListener implements HttpSessionListener {
+
+    @Override
+    public void sessionDestroyed(HttpSessionEvent se) {
+        SessionMemoryAccountant accountant = SessionMemoryAccountant.get();
+        if (accountant == null) return;
+
+        HttpSession session = se.getSession();
+        try {
+            Enumeration<String> names = session.getAttributeNames();
+            while (names.hasMoreElements()) {
+                accountant.discard(session.getAttribute(names.nextElement()));
+            }
+        } catch (IllegalStateException ignored) {
+            // session déjà invalidée : les attributs ne sont plus accessibles
+        }
+        accountant.release(session.getId());
+    }
+}
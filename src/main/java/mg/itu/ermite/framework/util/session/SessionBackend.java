@@ -0,0 +1,71 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.util.Enumeration;
+
+/**
+ * Accès aux attributs de la session d'une requête, quel que soit le stockage sous-jacent.
+ * 
+ * SessionBackend reprend le sous-ensemble de l'API HttpSession utilisé par
+ * {@link mg.itu.ermite.framework.util.SessionMap}. Une instance est liée à une
+ * seule requête et n'a pas besoin d'être thread-safe.
+ * 
+ * Implémentations fournies :
+ * - {@link ContainerSessionBackend} : HttpSession du conteneur (par défaut)
+ * - {@link StoreSessionBackend} : {@link SessionStore} externe identifié par cookie
+ * 
+ * Contrat commun : les lectures ne créent jamais de session, seule
+ * {@link #setAttribute(String, Object)} peut en créer une. Les écritures
+ * ne sont garanties durables qu'après {@link #commit()}.
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see mg.itu.ermite.framework.util.SessionMap
+ */
+public interface SessionBackend {
+
+    /**
+     * @param name le nom de l'attribut
+     * @return la valeur de l'attribut ou null (y compris si aucune session n'existe)
+     */
+    Object getAttribute(String name);
+
+    /**
+     * @return les noms des attributs, vide si aucune session n'existe
+     */
+    Enumeration<String> getAttributeNames();
+
+    /**
+     * Écrit un attribut, en créant la session si nécessaire.
+     * 
+     * @param name le nom de l'attribut
+     * @param value la valeur (non nulle)
+     */
+    void setAttribute(String name, Object value);
+
+    /**
+     * Supprime un attribut. Sans effet si aucune session n'existe.
+     * 
+     * @param name le nom de l'attribut
+     */
+    void removeAttribute(String name);
+
+    /**
+     * Invalide la session courante. Sans effet si aucune session n'existe.
+     */
+    void invalidate();
+
+    /**
+     * @return l'identifiant de la session serveur courante, ou null si aucune
+     *         session n'existe (ou si la session n'occupe pas de mémoire serveur)
+     */
+    default String getId() {
+        return null;
+    }
+
+    /**
+     * Rend durables les écritures effectuées depuis le dernier commit.
+     * Un backend peut regrouper ses écritures (un seul aller-retour vers le store) ;
+     * par défaut les écritures sont immédiates et commit() ne fait rien.
+     */
+    default void commit() {}
+}
@@ -0,0 +1,415 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Comptabilité mémoire des sessions serveur.
+ * 
+ * Chaque attribut écrit via {@link mg.itu.ermite.framework.util.SessionMap} voit sa
+ * taille estimée ; le total est suivi par session et pour l'ensemble de l'application.
+ * Deux budgets peuvent être fixés :
+ * - sessionMaxBytes : taille maximale d'une session
+ * - sessionGlobalMaxBytes : taille cumulée maximale de toutes les sessions
+ * 
+ * En cas de dépassement, la politique "sessionBudgetPolicy" s'applique :
+ * - reject (défaut) : l'écriture est refusée par une IllegalStateException
+ * - evict : les attributs les moins récemment utilisés de la session sont supprimés
+ *   (sauf les clés d'identité userSessionId/userSessionRole)
+ * - spill : la valeur est déportée sur disque ("sessionSpillDirectory") et relue
+ *   à la demande ; seule une petite référence reste en session
+ * 
+ * La comptabilité est désactivée (coût nul) tant qu'aucun budget n'est configuré
+ * et que "sessionAccounting" ne vaut pas true. Les statistiques agrégées
+ * ({@link #snapshot(int)}) servent au dimensionnement : nombre de sessions,
+ * octets totaux et attributs les plus coûteux.
+ * 
+ * Les tailles sont des estimations de l'empreinte sur le heap, pas des mesures exactes.
+ * 
+ * Les fichiers déportés sont suivis par session et supprimés lorsque la session est
+ * oubliée : invalidation, expiration d'une session du store (inactive depuis
+ * "sessionTimeout") ou arrêt de l'application. Une valeur déportée ne survit donc pas
+ * à un redémarrage.
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see mg.itu.ermite.framework.util.SessionMap
+ */
+public final class SessionMemoryAccountant {
+
+    /** Politique appliquée lorsqu'un budget est dépassé */
+    public enum Policy { REJECT, EVICT, SPILL }
+
+    /** Taille comptée pour un attribut déporté sur disque */
+    private static final long SPILLED_REFERENCE_BYTES = 96;
+
+    /** Nombre d'éléments échantillonnés pour estimer une collection */
+    private static final int SAMPLE_SIZE = 16;
+
+    private static volatile SessionMemoryAccountant instance;
+
+    private final long sessionMaxBytes;
+    private final long globalMaxBytes;
+    private final Policy policy;
+    private final Path spillDirectory;
+    private final long idleMillis;
+    private final List<String> protectedNames;
+
+    private final Map<String, SessionUsage> sessions = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> bytesByName = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+    private SessionMemoryAccountant(ConfigManager config) {
+        this.sessionMaxBytes = config.getLong("sessionMaxBytes", Long.MAX_VALUE);
+        this.globalMaxBytes = config.getLong("sessionGlobalMaxBytes", Long.MAX_VALUE);
+        this.policy = Policy.valueOf(config.get("sessionBudgetPolicy", "reject").trim().toUpperCase());
+        this.spillDirectory = Path.of(config.get("sessionSpillDirectory", System.getProperty("java.io.tmpdir") + "/framework-session-spill"));
+        this.idleMillis = config.getLong("sessionTimeout", 1800) * 1000L;
+        this.protectedNames = List.of(config.get("userSessionId", "userId"), config.get("userSessionRole", "userRole"));
+    }
+
+    /**
+     * Active la comptabilité si la configuration le demande.
+     * 
+     * @param config la configuration du framework
+     */
+    public static void configure(ConfigManager config) {
+        boolean enabled = config.getBoolean("sessionAccounting", false)
+                || config.get("sessionMaxBytes") != null
+                || config.get("sessionGlobalMaxBytes") != null;
+        instance = enabled ? new SessionMemoryAccountant(config) : null;
+        if (enabled) {
+            SessionMemoryAccountant a = instance;
+            System.out.println("[Session] Comptabilite memoire active (session: " + format(a.sessionMaxBytes)
+                    + ", global: " + format(a.globalMaxBytes) + ", politique: " + a.policy + ")");
+        }
+    }
+
+    /**
+     * @return l'accountant actif, ou null si la comptabilité est désactivée
+     */
+    public static SessionMemoryAccountant get() {
+        return instance;
+    }
+
+    /**
+     * Désactive la comptabilité et supprime les fichiers déportés (arrêt de l'application).
+     */
+    public static void shutdown() {
+        SessionMemoryAccountant a = instance;
+        instance = null;
+        if (a != null) {
+            for (String sessionId : new ArrayList<>(a.sessions.keySet())) a.release(sessionId, true);
+        }
+    }
+
+    private static String format(long bytes) {
+        return bytes == Long.MAX_VALUE ? "illimite" : bytes + " octets";
+    }
+
+    /**
+     * @return la politique appliquée en cas de dépassement
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Estime l'empreinte mémoire d'une valeur.
+     * 
+     * Les types simples sont estimés directement, les collections, maps et tableaux par
+     * échantillonnage de leurs éléments ; les autres objets par leur taille sérialisée.
+     * 
+     * @param value la valeur
+     * @return la taille estimée en octets
+     */
+    public long estimate(Object value) {
+        return estimate(value, 0);
+    }
+
+    private long estimate(Object value, int depth) {
+        if (value == null) return 0;
+        if (value instanceof SpilledAttribute) return SPILLED_REFERENCE_BYTES;
+        if (value instanceof String) return 40 + 2L * ((String) value).length();
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) return 16;
+        if (value instanceof byte[]) return 16 + ((byte[]) value).length;
+        if (depth > 3) return 64;
+
+        if (value instanceof Collection) {
+            Collection<?> c = (Collection<?>) value;
+            return 48 + c.size() * (8 + sampleAverage(c.iterator(), c.size(), depth));
+        }
+        if (value instanceof Map) {
+            Map<?,?> m = (Map<?,?>) value;
+            long keys = sampleAverage(m.keySet().iterator(), m.size(), depth);
+            long values = sampleAverage(m.values().iterator(), m.size(), depth);
+            return 64 + m.size() * (32 + keys + values);
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            if (value.getClass().getComponentType().isPrimitive()) return 16 + length * 8L;
+            long total = 0;
+            int sampled = Math.min(length, SAMPLE_SIZE);
+            for (int i = 0; i < sampled; i++) total += estimate(Array.get(value, i), depth + 1);
+            return 16 + length * (8 + (sampled == 0 ? 0 : total / sampled));
+        }
+        if (value instanceof Serializable) {
+            try {
+                return 16 + SessionSerializer.encodeValue(value).length;
+            } catch (IllegalArgumentException e) {
+                return 64;
+            }
+        }
+        return 64;
+    }
+
+    private long sampleAverage(Iterator<?> it, int size, int depth) {
+        if (size == 0) return 0;
+        long total = 0;
+        int sampled = 0;
+        while (it.hasNext() && sampled < SAMPLE_SIZE) {
+            total += estimate(it.next(), depth + 1);
+            sampled++;
+        }
+        return sampled == 0 ? 0 : total / sampled;
+    }
+
+    /**
+     * Calcule le nombre d'octets à libérer pour qu'une écriture respecte les budgets.
+     * 
+     * @param sessionId l'identifiant de session (null pour une session pas encore créée)
+     * @param name le nom de l'attribut écrit
+     * @param size la taille estimée de la nouvelle valeur
+     * @param pending les tailles des autres écritures en attente dans la requête
+     * @return 0 si l'écriture tient dans les budgets, sinon l'excédent en octets
+     */
+    public long overflow(String sessionId, String name, long size, Map<String,Long> pending) {
+        SessionUsage usage = sessionId == null ? null : sessions.get(sessionId);
+        long delta = size - (usage == null ? 0 : usage.sizeOf(name));
+        for (Map.Entry<String,Long> e : pending.entrySet()) {
+            if (e.getKey().equals(name)) continue;
+            delta += e.getValue() - (usage == null ? 0 : usage.sizeOf(e.getKey()));
+        }
+        long sessionTotal = (usage == null ? 0 : usage.total()) + delta;
+
+        long overSession = sessionMaxBytes == Long.MAX_VALUE ? 0 : sessionTotal - sessionMaxBytes;
+        long overGlobal = globalMaxBytes == Long.MAX_VALUE ? 0 : totalBytes.get() + delta - globalMaxBytes;
+        return Math.max(0, Math.max(overSession, overGlobal));
+    }
+
+    /**
+     * Liste les attributs d'une session du moins au plus récemment utilisé,
+     * en excluant les clés d'identité.
+     * 
+     * @param sessionId l'identifiant de session
+     * @return les candidats à l'éviction avec leur taille
+     */
+    public List<Map.Entry<String,Long>> evictionCandidates(String sessionId) {
+        SessionUsage usage = sessionId == null ? null : sessions.get(sessionId);
+        if (usage == null) return List.of();
+        List<Map.Entry<String,Long>> candidates = usage.lruOrder();
+        candidates.removeIf(e -> protectedNames.contains(e.getKey()));
+        return candidates;
+    }
+
+    /**
+     * Déporte une valeur sur disque.
+     * 
+     * @param value la valeur à déporter
+     * @return la référence à conserver en session
+     */
+    public SpilledAttribute spill(Object value) {
+        try {
+            Files.createDirectories(spillDirectory);
+            Path file = spillDirectory.resolve(UUID.randomUUID().toString());
+            byte[] data = SessionSerializer.encodeValue(value);
+            Files.write(file, data);
+            spilled.incrementAndGet();
+            return new SpilledAttribute(file.toString(), data.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de deporter l'attribut de session sur disque", e);
+        }
+    }
+
+    /**
+     * Enregistre un refus d'écriture.
+     */
+    public void recordRejection() {
+        rejected.incrementAndGet();
+    }
+
+    /**
+     * Enregistre une éviction d'attribut.
+     */
+    public void recordEviction() {
+        evicted.incrementAndGet();
+    }
+
+    /**
+     * Enregistre la taille d'un attribut effectivement écrit en session.
+     * 
+     * @param sessionId l'identifiant de session
+     * @param name le nom de l'attribut
+     * @param size la taille estimée (0 pour une suppression)
+     * @param value la valeur écrite (null pour une suppression), suivie si elle est déportée
+     */
+    public void record(String sessionId, String name, long size, Object value) {
+        writes.incrementAndGet();
+        SessionUsage usage = sessions.computeIfAbsent(sessionId, id -> new SessionUsage());
+        long previous = usage.set(name, size, value);
+        long delta = size - previous;
+        totalBytes.addAndGet(delta);
+        bytesByName.computeIfAbsent(name, n -> new LongAdder()).add(delta);
+        if ((writes.get() & 0x3FF) == 0) purgeIdle();
+    }
+
+    /**
+     * Marque un attribut comme récemment utilisé (ordre LRU de l'éviction).
+     * 
+     * @param sessionId l'identifiant de session
+     * @param name le nom de l'attribut
+     */
+    public void touch(String sessionId, String name) {
+        SessionUsage usage = sessionId == null ? null : sessions.get(sessionId);
+        if (usage != null) usage.touch(name);
+    }
+
+    /**
+     * Oublie une session (invalidation ou expiration) et supprime ses fichiers déportés.
+     * 
+     * @param sessionId l'identifiant de session
+     */
+    public void release(String sessionId) {
+        release(sessionId, true);
+    }
+
+    private void release(String sessionId, boolean deleteFiles) {
+        SessionUsage usage = sessions.remove(sessionId);
+        if (usage == null) return;
+        if (deleteFiles) usage.spilledFiles().forEach(SpilledAttribute::delete);
+        for (Map.Entry<String,Long> e : usage.lruOrder()) {
+            totalBytes.addAndGet(-e.getValue());
+            LongAdder adder = bytesByName.get(e.getKey());
+            if (adder != null) adder.add(-e.getValue());
+        }
+    }
+
+    /**
+     * Supprime le fichier d'une valeur déportée devenue inutile.
+     * 
+     * @param value l'ancienne valeur de l'attribut
+     */
+    public void discard(Object value) {
+        if (value instanceof SpilledAttribute) ((SpilledAttribute) value).delete();
+    }
+
+    private void purgeIdle() {
+        long limit = System.currentTimeMillis() - idleMillis;
+        // Une HttpSession peut vivre plus longtemps que sessionTimeout : ses fichiers sont
+        // supprimés à sa destruction (SessionAccountingListener), pas à l'inactivité
+        boolean deleteFiles = SessionStores.current() != null;
+        sessions.forEach((id, usage) -> {
+            if (usage.lastAccess < limit) release(id, deleteFiles);
+        });
+    }
+
+    /**
+     * Statistiques agrégées pour le dimensionnement.
+     * 
+     * @param top le nombre d'attributs les plus coûteux à retourner
+     * @return un instantané des statistiques
+     */
+    public Map<String,Object> snapshot(int top) {
+        List<Map.Entry<String,Long>> names = new ArrayList<>();
+        bytesByName.forEach((name, adder) -> {
+            long bytes = adder.sum();
+            if (bytes > 0) names.add(Map.entry(name, bytes));
+        });
+        names.sort(Map.Entry.<String,Long>comparingByValue().reversed());
+
+        Map<String,Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("bytes", totalBytes.get());
+        stats.put("sessionMaxBytes", sessionMaxBytes == Long.MAX_VALUE ? null : sessionMaxBytes);
+        stats.put("globalMaxBytes", globalMaxBytes == Long.MAX_VALUE ? null : globalMaxBytes);
+        stats.put("policy", policy.name().toLowerCase());
+        stats.put("rejected", rejected.get());
+        stats.put("evicted", evicted.get());
+        stats.put("spilled", spilled.get());
+        Map<String,Long> topAttributes = new LinkedHashMap<>();
+        for (Map.Entry<String,Long> e : names.subList(0, Math.min(top, names.size()))) {
+            topAttributes.put(e.getKey(), e.getValue());
+        }
+        stats.put("topAttributes", topAttributes);
+        return stats;
+    }
+
+    /**
+     * Occupation d'une session : taille par attribut, dans l'ordre LRU.
+     */
+    private static final class SessionUsage {
+        private final LinkedHashMap<String,Long> sizes = new LinkedHashMap<>(8, 0.75f, true);
+        /** Attributs déportés sur disque, créé au premier */
+        private Map<String,SpilledAttribute> files;
+        private long total;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        synchronized long set(String name, long size, Object value) {
+            lastAccess = System.currentTimeMillis();
+            if (value instanceof SpilledAttribute) {
+                if (files == null) files = new LinkedHashMap<>();
+                files.put(name, (SpilledAttribute) value);
+            } else if (files != null) {
+                files.remove(name);
+            }
+            Long previous = size == 0 ? sizes.remove(name) : sizes.put(name, size);
+            long p = previous == null ? 0 : previous;
+            total += size - p;
+            return p;
+        }
+
+        synchronized long sizeOf(String name) {
+            Long size = sizes.get(name);
+            return size == null ? 0 : size;
+        }
+
+        synchronized long total() {
+            return total;
+        }
+
+        synchronized void touch(String name) {
+            lastAccess = System.currentTimeMillis();
+            sizes.get(name);
+        }
+
+        synchronized List<SpilledAttribute> spilledFiles() {
+            return files == null ? List.of() : new ArrayList<>(files.values());
+        }
+
+        synchronized List<Map.Entry<String,Long>> lruOrder() {
+            List<Map.Entry<String,Long>> order = new ArrayList<>(sizes.size());
+            for (Map.Entry<String,Long> e : sizes.entrySet()) order.add(Map.entry(e.getKey(), e.getValue()));
+            return order;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Format binaire compact des attributs de session.
+ * 
+ * Structure d'un bloc d'attributs :
+ * <pre>
+ * magic(1) version(1) count(varint) { name(varint len + UTF-8) tag(1) payload }*
+ * </pre>
+ * 
+ * Les types courants d'une session (String, Integer, Long, Boolean, Double,
+ * Float, byte[], String[]) ont un encodage dédié sans en-tête de classe : un
+ * identifiant entier tient sur 1 à 5 octets au lieu de ~80 octets en
+ * sérialisation Java. Les autres objets doivent être Serializable et sont
+ * encodés par sérialisation Java standard.
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see SessionStore
+ */
+public final class SessionSerializer {
+
+    private static final byte MAGIC = 0x53; // 'S'
+    private static final byte VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_TRUE = 4;
+    private static final byte TAG_FALSE = 5;
+    private static final byte TAG_DOUBLE = 6;
+    private static final byte TAG_FLOAT = 7;
+    private static final byte TAG_BYTES = 8;
+    private static final byte TAG_STRINGS = 9;
+    private static final byte TAG_JAVA = 10;
+
+    private SessionSerializer() {
+    }
+
+    /**
+     * Encode un ensemble d'attributs.
+     * 
+     * @param attributes les attributs à encoder
+     * @return le bloc binaire
+     * @throws IllegalArgumentException si une valeur n'est pas sérialisable
+     */
+    public static byte[] encode(Map<String, ?> attributes) {
+        Output out = new Output(64 + attributes.size() * 32);
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.writeVarInt(attributes.size());
+        for (Map.Entry<String, ?> e : attributes.entrySet()) {
+            out.writeString(e.getKey());
+            writeValue(out, e.getKey(), e.getValue());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode une valeur isolée (utile pour estimer la taille d'un attribut).
+     * 
+     * @param value la valeur à encoder
+     * @return la représentation binaire de la valeur
+     */
+    public static byte[] encodeValue(Object value) {
+        Output out = new Output(32);
+        writeValue(out, "value", value);
+        return out.toByteArray();
+    }
+
+    /**
+     * Décode une valeur isolée produite par {@link #encodeValue(Object)}.
+     * 
+     * @param in le buffer à lire
+     * @return la valeur décodée
+     */
+    public static Object decodeValue(ByteBuffer in) {
+        try {
+            return readValue(in);
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) throw e;
+            throw new IllegalArgumentException("Valeur de session corrompue", e);
+        }
+    }
+
+    /**
+     * Décode un bloc d'attributs.
+     * 
+     * @param data le bloc binaire
+     * @return les attributs décodés (map modifiable)
+     */
+    public static Map<String,Object> decode(byte[] data) {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Décode un bloc d'attributs depuis un buffer (éventuellement mappé en mémoire).
+     * La position du buffer est avancée jusqu'à la fin du bloc.
+     * 
+     * @param in le buffer à lire
+     * @return les attributs décodés (map modifiable)
+     * @throws IllegalArgumentException si le bloc est corrompu
+     */
+    public static Map<String,Object> decode(ByteBuffer in) {
+        try {
+            if (in.get() != MAGIC || in.get() != VERSION) {
+                throw new IllegalArgumentException("Format de session inconnu");
+            }
+            int count = readVarInt(in);
+            Map<String,Object> attributes = new LinkedHashMap<>(Math.max(4, count * 2));
+            for (int i = 0; i < count; i++) {
+                String name = readString(in);
+                attributes.put(name, readValue(in));
+            }
+            return attributes;
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) throw e;
+            throw new IllegalArgumentException("Bloc de session corrompu", e);
+        }
+    }
+
+    private static void writeValue(Output out, String name, Object value) {
+        if (value == null) {
+            out.write(TAG_NULL);
+        } else if (value instanceof String) {
+            out.write(TAG_STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.write(TAG_INT);
+            out.writeVarLong(zigZag((Integer) value));
+        } else if (value instanceof Long) {
+            out.write(TAG_LONG);
+            out.writeVarLong(zigZag((Long) value));
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Double) {
+            out.write(TAG_DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof Float) {
+            out.write(TAG_FLOAT);
+            out.writeInt(Float.floatToRawIntBits((Float) value));
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.write(TAG_BYTES);
+            out.writeVarInt(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        } else if (value instanceof String[]) {
+            String[] strings = (String[]) value;
+            out.write(TAG_STRINGS);
+            out.writeVarInt(strings.length);
+            for (String s : strings) {
+                out.writeNullableString(s);
+            }
+        } else if (value instanceof Serializable) {
+            out.write(TAG_JAVA);
+            byte[] bytes = javaSerialize(name, value);
+            out.writeVarInt(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        } else {
+            throw new IllegalArgumentException("L'attribut de session '" + name + "' n'est pas serialisable: " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case TAG_NULL: return null;
+            case TAG_STRING: return readString(in);
+            case TAG_INT: return (int) unZigZag(readVarLong(in));
+            case TAG_LONG: return unZigZag(readVarLong(in));
+            case TAG_TRUE: return Boolean.TRUE;
+            case TAG_FALSE: return Boolean.FALSE;
+            case TAG_DOUBLE: return Double.longBitsToDouble(in.getLong());
+            case TAG_FLOAT: return Float.intBitsToFloat(in.getInt());
+            case TAG_BYTES: {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.get(bytes);
+                return bytes;
+            }
+            case TAG_STRINGS: {
+                String[] strings = new String[readVarInt(in)];
+                for (int i = 0; i < strings.length; i++) {
+                    strings[i] = in.get() == 0 ? null : readString(in);
+                }
+                return strings;
+            }
+            case TAG_JAVA: {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.get(bytes);
+                return javaDeserialize(bytes);
+            }
+            default:
+                throw new IllegalArgumentException("Type d'attribut inconnu: " + tag);
+        }
+    }
+
+    private static byte[] javaSerialize(String name, Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(value);
+        } catch (NotSerializableException e) {
+            throw new IllegalArgumentException("L'attribut de session '" + name + "' contient un objet non serialisable: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Serialisation de l'attribut '" + name + "' impossible", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object javaDeserialize(byte[] bytes) {
+        try (ObjectInputStream ois = new ContextObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Deserialisation d'un attribut de session impossible", e);
+        }
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        long v = readVarLong(in);
+        if (v < 0 || v > Integer.MAX_VALUE) throw new IllegalArgumentException("Longueur invalide: " + v);
+        return (int) v;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new IllegalArgumentException("Entier variable trop long");
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (in.hasArray()) {
+            String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return s;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tampon d'écriture extensible, sans synchronisation (contrairement à ByteArrayOutputStream).
+     */
+    private static final class Output {
+        private byte[] buf;
+        private int size;
+
+        Output(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+
+        void write(int b) {
+            ensure(1);
+            buf[size++] = (byte) b;
+        }
+
+        void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, buf, size, len);
+            size += len;
+        }
+
+        void writeVarInt(int v) {
+            writeVarLong(v & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[size++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buf[size++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeNullableString(String s) {
+            if (s == null) {
+                write(0);
+            } else {
+                write(1);
+                writeString(s);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+
+    /**
+     * ObjectInputStream résolvant les classes via le ClassLoader de l'application web.
+     */
+    private static final class ContextObjectInputStream extends ObjectInputStream {
+        ContextObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader cl = Thread.currentThread().getContextClassLoader();
+            if (cl != null) {
+                try {
+                    return Class.forName(desc.getName(), false, cl);
+                } catch (ClassNotFoundException ignored) {
+                    // on retombe sur la résolution standard
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SPI de stockage externe des sessions, indépendant de l'HttpSession du conteneur.
+ * 
+ * Une implémentation de SessionStore conserve les attributs de session identifiés
+ * par un identifiant opaque (transporté par un cookie, voir {@link StoreSessionBackend}).
+ * Elle permet de sortir les sessions du heap du conteneur, de les partager entre
+ * plusieurs noeuds ou de les conserver après un redémarrage.
+ * 
+ * Le framework fournit {@link MappedFileSessionStore} (fichiers mappés en mémoire
+ * avec un ensemble chaud LRU sur le heap). Un store réseau peut être branché
+ * en implémentant cette interface et en le déclarant dans web.xml :
+ * <pre>
+ * {@code
+ * <context-param>
+ *     <param-name>sessionStore</param-name>
+ *     <param-value>com.example.RedisSessionStore</param-value>
+ * </context-param>
+ * }
+ * </pre>
+ * Les implémentations doivent être thread-safe et posséder un constructeur
+ * public sans paramètres (ou un constructeur prenant un ConfigManager).
+ * Les attributs sont échangés au format binaire de {@link SessionSerializer}.
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see SessionStores
+ * @see SessionSerializer
+ */
+public interface SessionStore {
+
+    /**
+     * Charge les attributs d'une session.
+     * 
+     * @param sessionId l'identifiant de session
+     * @return une copie modifiable des attributs, ou null si la session n'existe pas (ou a expiré)
+     */
+    Map<String,Object> load(String sessionId);
+
+    /**
+     * Applique des modifications à une session, en la créant si nécessaire.
+     * 
+     * @param sessionId l'identifiant de session
+     * @param changed les attributs ajoutés ou modifiés
+     * @param removed les noms des attributs supprimés
+     */
+    void save(String sessionId, Map<String,Object> changed, Set<String> removed);
+
+    /**
+     * Supprime définitivement une session.
+     * 
+     * @param sessionId l'identifiant de session
+     */
+    void invalidate(String sessionId);
+
+    /**
+     * Libère les ressources du store (appelée à l'arrêt de l'application).
+     */
+    default void close() {}
+}
@@ -0,0 +1,156 @@
+package mg.itu.ermite.framework.util.session;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Point d'accès au stockage des sessions actif de l'application.
+ * 
+ * Le stockage est choisi au démarrage par {@link mg.itu.ermite.framework.listener.FrameworkInitializer}
+ * via le paramètre "sessionStore" :
+ * - "container" (défaut) : HttpSession du conteneur, aucun store externe
+ * - "mapped" : {@link MappedFileSessionStore}
+ * - "cookie" : session sans état dans un cookie signé ({@link CookieSessionBackend}) ;
+ *   le stockage serveur de repli des sessions trop volumineuses est choisi par
+ *   "sessionCookieFallback" (mêmes valeurs que sessionStore, "container" par défaut)
+ * - nom qualifié d'une classe implémentant {@link SessionStore}
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see SessionStore
+ */
+public final class SessionStores {
+
+    /** Le store serveur actif, null pour utiliser l'HttpSession du conteneur */
+    private static volatile SessionStore current;
+
+    /** Le codec des sessions côté client, null si le mode cookie n'est pas actif */
+    private static volatile ClientSessionCodec clientCodec;
+
+    /** Nom du cookie portant l'identifiant de session externe */
+    private static volatile String cookieName = "ESESSIONID";
+
+    /** Nom du cookie portant la session côté client */
+    private static volatile String clientCookieName = "ESESSION";
+
+    /** Taille maximale d'un jeton de session client */
+    private static volatile int maxClientCookieBytes = 3800;
+
+    private SessionStores() {
+    }
+
+    /**
+     * Instancie le stockage déclaré dans la configuration.
+     * 
+     * @param config la configuration du framework
+     * @throws IllegalStateException si la classe déclarée ne peut pas être instanciée
+     */
+    public static void configure(ConfigManager config) {
+        String type = config.get("sessionStore", "container").trim();
+        cookieName = config.get("sessionCookieName", "ESESSIONID");
+        clientCookieName = config.get("sessionClientCookieName", "ESESSION");
+        maxClientCookieBytes = config.getInt("sessionCookieMaxBytes", 3800);
+
+        if (type.equalsIgnoreCase("cookie")) {
+            clientCodec = new ClientSessionCodec(config);
+            install(create(config.get("sessionCookieFallback", "container").trim(), config));
+        } else {
+            clientCodec = null;
+            install(create(type, config));
+        }
+
+        SessionStore store = current;
+        String server = store == null ? "conteneur (HttpSession)" : store.getClass().getName();
+        System.out.println("[Session] Stockage des sessions : " + (clientCodec != null ? "cookie signe (repli : " + server + ")" : server));
+    }
+
+    private static SessionStore create(String type, ConfigManager config) {
+        if (type.isEmpty() || type.equalsIgnoreCase("container")) return null;
+        if (type.equalsIgnoreCase("mapped")) return new MappedFileSessionStore(config);
+        return instantiate(type, config);
+    }
+
+    private static SessionStore instantiate(String className, ConfigManager config) {
+        try {
+            Class<?> clazz = Class.forName(className, true, Thread.currentThread().getContextClassLoader());
+            try {
+                return (SessionStore) clazz.getConstructor(ConfigManager.class).newInstance(config);
+            } catch (NoSuchMethodException e) {
+                return (SessionStore) clazz.getConstructor().newInstance();
+            }
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalStateException("Impossible d'instancier le SessionStore '" + className + "'", e);
+        }
+    }
+
+    /**
+     * Installe un store serveur (ou null pour revenir à l'HttpSession), en fermant le précédent.
+     * 
+     * @param store le nouveau store
+     */
+    public static void install(SessionStore store) {
+        SessionStore previous = current;
+        current = store;
+        if (previous != null && previous != store) previous.close();
+    }
+
+    /**
+     * @return le store serveur actif, ou null si les sessions du conteneur sont utilisées
+     */
+    public static SessionStore current() {
+        return current;
+    }
+
+    /**
+     * Crée le SessionBackend d'une requête selon le stockage actif.
+     * 
+     * @param request la requête courante
+     * @param response la réponse courante (peut être null en lecture seule)
+     * @return le backend de session de la requête
+     */
+    public static SessionBackend backendFor(HttpServletRequest request, HttpServletResponse response) {
+        ClientSessionCodec codec = clientCodec;
+        if (codec != null) {
+            return new CookieSessionBackend(codec, request, response, clientCookieName, maxClientCookieBytes);
+        }
+        return serverBackendFor(request, response);
+    }
+
+    /**
+     * Réémet le cookie de session client d'une requête qui ne modifie pas sa session,
+     * s'il a dépassé la moitié de sa durée de validité. Sans effet hors du mode cookie.
+     * Appelé par le FrontServlet avant l'invocation : une session seulement lue (contrôle
+     * d'accès, lecture de l'identité) ne doit pas expirer pendant que l'utilisateur est actif.
+     * 
+     * @param request la requête courante
+     * @param response la réponse courante, pas encore validée
+     */
+    public static void refresh(HttpServletRequest request, HttpServletResponse response) {
+        ClientSessionCodec codec = clientCodec;
+        if (codec == null) return;
+        new CookieSessionBackend(codec, request, response, clientCookieName, maxClientCookieBytes).commit();
+    }
+
+    /**
+     * Crée le SessionBackend serveur d'une requête (HttpSession ou store externe),
+     * indépendamment du mode cookie.
+     * 
+     * @param request la requête courante
+     * @param response la réponse courante (peut être null en lecture seule)
+     * @return le backend de session serveur de la requête
+     */
+    public static SessionBackend serverBackendFor(HttpServletRequest request, HttpServletResponse response) {
+        SessionStore store = current;
+        if (store == null) return new ContainerSessionBackend(request);
+        return new StoreSessionBackend(store, request, response, cookieName);
+    }
+
+    /**
+     * Ferme le store actif (arrêt de l'application).
+     */
+    public static void shutdown() {
+        clientCodec = null;
+        install(null);
+    }
+}
@@ -0,0 +1,77 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Référence vers un attribut de session déporté sur disque par la politique "spill".
+ * 
+ * Seule cette référence reste en session ; {@link mg.itu.ermite.framework.util.SessionMap}
+ * relit la valeur de façon transparente lors d'un get().
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see SessionMemoryAccountant
+ */
+public final class SpilledAttribute implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String file;
+    private final long bytes;
+
+    SpilledAttribute(String file, long bytes) {
+        this.file = file;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Relit la valeur déportée.
+     * 
+     * @return la valeur d'origine
+     */
+    public Object load() {
+        try {
+            return SessionSerializer.decodeValue(ByteBuffer.wrap(Files.readAllBytes(Path.of(file))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Attribut de session deporte introuvable: " + file, e);
+        }
+    }
+
+    /**
+     * Supprime le fichier de la valeur déportée.
+     */
+    void delete() {
+        try {
+            Files.deleteIfExists(Path.of(file));
+        } catch (IOException ignored) {
+            // fichier déjà supprimé ou répertoire indisponible
+        }
+    }
+
+    /**
+     * @return la taille de la valeur sur disque
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SpilledAttribute && ((SpilledAttribute) o).file.equals(file);
+    }
+
+    @Override
+    public int hashCode() {
+        return file.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SpilledAttribute(" + bytes + " octets)";
+    }
+}
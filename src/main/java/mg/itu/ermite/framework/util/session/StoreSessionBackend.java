@@ -0,0 +1,174 @@
+package mg.itu.ermite.framework.util.session;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * SessionBackend adossé à un {@link SessionStore} externe.
+ * 
+ * L'identifiant de session est transporté par un cookie HttpOnly dont le nom est
+ * configurable ("sessionCookieName", défaut "ESESSIONID"). Les attributs sont
+ * chargés une seule fois par requête ; le cookie n'est émis qu'à la création
+ * de la session, c'est-à-dire à la première écriture. Les écritures sont
+ * regroupées et envoyées au store en un seul appel par {@link #commit()}.
+ * 
+ * @author Framework S5
+ * @version 1.0
+ * @see SessionStore
+ * @see SessionStores
+ */
+public class StoreSessionBackend implements SessionBackend {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SessionStore store;
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final String cookieName;
+
+    private boolean loaded;
+    private String sessionId;
+    private Map<String,Object> attributes;
+
+    /** Écritures en attente du prochain commit (un seul appel au store) */
+    private Map<String,Object> pendingChanged;
+    private Set<String> pendingRemoved;
+
+    /**
+     * @param store le store des sessions
+     * @param request la requête courante
+     * @param response la réponse courante (nécessaire pour créer une session)
+     * @param cookieName le nom du cookie portant l'identifiant
+     */
+    public StoreSessionBackend(SessionStore store, HttpServletRequest request, HttpServletResponse response, String cookieName) {
+        this.store = store;
+        this.request = request;
+        this.response = response;
+        this.cookieName = cookieName;
+    }
+
+    /**
+     * Charge (une fois) les attributs de la session désignée par le cookie.
+     * 
+     * @return les attributs, ou null si aucune session valide n'existe
+     */
+    private Map<String,Object> attributes() {
+        if (!loaded) {
+            loaded = true;
+            sessionId = readCookie();
+            if (sessionId != null) {
+                attributes = store.load(sessionId);
+                if (attributes == null) sessionId = null;
+            }
+        }
+        return attributes;
+    }
+
+    private String readCookie() {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return null;
+        for (Cookie cookie : cookies) {
+            if (cookieName.equals(cookie.getName())) return cookie.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Crée une nouvelle session et émet son cookie.
+     */
+    private void create() {
+        if (response == null || response.isCommitted()) {
+            throw new IllegalStateException("Impossible de creer la session: la reponse n'est plus modifiable");
+        }
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        sessionId = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        attributes = new HashMap<>();
+        response.addCookie(cookie(sessionId, -1));
+    }
+
+    private Cookie cookie(String value, int maxAge) {
+        Cookie cookie = new Cookie(cookieName, value);
+        String contextPath = request.getContextPath();
+        cookie.setPath(contextPath == null || contextPath.isEmpty() ? "/" : contextPath);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setMaxAge(maxAge);
+        cookie.setAttribute("SameSite", "Lax");
+        return cookie;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        Map<String,Object> a = attributes();
+        return a == null ? null : a.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        Map<String,Object> a = attributes();
+        // Copie des noms : l'appelant peut supprimer des attributs pendant l'énumération
+        return a == null ? Collections.emptyEnumeration() : Collections.enumeration(new ArrayList<>(a.keySet()));
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (attributes() == null) create();
+        attributes.put(name, value);
+        if (pendingChanged == null) pendingChanged = new HashMap<>();
+        pendingChanged.put(name, value);
+        if (pendingRemoved != null) pendingRemoved.remove(name);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        Map<String,Object> a = attributes();
+        if (a == null || !a.containsKey(name)) return;
+        a.remove(name);
+        if (pendingRemoved == null) pendingRemoved = new HashSet<>();
+        pendingRemoved.add(name);
+        if (pendingChanged != null) pendingChanged.remove(name);
+    }
+
+    @Override
+    public void commit() {
+        boolean hasChanges = pendingChanged != null && !pendingChanged.isEmpty();
+        boolean hasRemovals = pendingRemoved != null && !pendingRemoved.isEmpty();
+        if (sessionId == null || (!hasChanges && !hasRemovals)) return;
+
+        store.save(sessionId,
+                   hasChanges ? pendingChanged : Collections.emptyMap(),
+                   hasRemovals ? pendingRemoved : Collections.emptySet());
+        pendingChanged = null;
+        pendingRemoved = null;
+    }
+
+    @Override
+    public String getId() {
+        return attributes() == null ? null : sessionId;
+    }
+
+    @Override
+    public void invalidate() {
+        if (attributes() == null) return;
+        store.invalidate(sessionId);
+        if (response != null && !response.isCommitted()) {
+            response.addCookie(cookie("", 0));
+        }
+        sessionId = null;
+        attributes = null;
+        pendingChanged = null;
+        pendingRemoved = null;
+    }
+}
@@ -0,0 +1,260 @@
+package mg.itu.ermite.framework.util.traffic;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import mg.itu.ermite.framework.annotation.ConcurrencyLimit;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Limite de concurrence adaptative d'un endpoint (bulkhead).
+ *
+ * Le chemin rapide est un CAS sur le nombre d'appels en cours. Sans permis, la
+ * requête rejoint une file bornée et attend au plus maxWait qu'un appel se termine ;
+ * sinon elle est refusée (503).
+ *
+ * La limite suit un AIMD piloté par la latence : tant que la latence reste proche
+ * de la latence de référence (la plus basse observée récemment), la limite croît
+ * d'environ un permis par "limite" appels réussis lorsqu'elle est effectivement
+ * utilisée ; dès que la latence dépasse deux fois la référence, signe de file
+ * d'attente en aval, elle est réduite de 10 %, au plus une fois par fenêtre.
+ *
+ * Configuration globale (web.xml), appliquée aux endpoints sans @ConcurrencyLimit :
+ * - "concurrencyLimit" : limite maximale par endpoint (active la limitation)
+ * - "concurrencyQueue" : taille de la file d'attente (défaut 32)
+ * - "concurrencyMaxWait" : attente maximale en millisecondes (défaut 100)
+ * - "concurrencyAdaptive" : false pour une limite fixe (défaut true)
+ *
+ * Les limites courantes et les appels en cours de chaque endpoint sont exposés par
+ * {@link #snapshot()}.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see ConcurrencyLimit
+ */
+public final class ConcurrencyLimiter {
+
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double DECREASE_FACTOR = 0.9;
+    private static final int BASELINE_WINDOW = 256;
+
+    private static final Map<String, ConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private final String endpoint;
+    private final int min;
+    private final int max;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+    private final boolean adaptive;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile int limit;
+
+    // État AIMD, protégé par "this"
+    private double estimate;
+    private long baselineNanos;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private long samples;
+    private long lastDecrease;
+
+    private ConcurrencyLimiter(String endpoint, int min, int max, int initial, int queueCapacity, long maxWaitMillis, boolean adaptive) {
+        if (max < 1 || min < 1 || min > max) {
+            throw new IllegalArgumentException("Limite de concurrence invalide pour " + endpoint + ": min=" + min + ", max=" + max);
+        }
+        this.endpoint = endpoint;
+        this.min = min;
+        this.max = max;
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+        this.adaptive = adaptive;
+        int start = !adaptive ? max : initial > 0 ? initial : Math.max(min, max / 2);
+        this.estimate = Math.min(max, Math.max(min, start));
+        this.limit = (int) estimate;
+    }
+
+    /**
+     * Compile la limite d'une méthode de contrôleur : annotation de la méthode,
+     * puis du contrôleur, puis configuration globale.
+     *
+     * @param method la méthode du contrôleur
+     * @return le limiteur, ou null si l'endpoint n'est pas limité
+     */
+    public static ConcurrencyLimiter compile(Method method) {
+        String endpoint = method.getDeclaringClass().getName() + "#" + method.getName();
+
+        ConcurrencyLimit annotation = method.getAnnotation(ConcurrencyLimit.class);
+        if (annotation == null) annotation = method.getDeclaringClass().getAnnotation(ConcurrencyLimit.class);
+
+        ConcurrencyLimiter limiter;
+        if (annotation != null) {
+            limiter = new ConcurrencyLimiter(endpoint, annotation.min(), annotation.max(), annotation.initial(),
+                    annotation.queue(), annotation.maxWaitMillis(), annotation.adaptive());
+        } else {
+            ConfigManager config = ConfigManager.getInstance();
+            int max = config.getInt("concurrencyLimit", 0);
+            if (max <= 0) return null;
+            limiter = new ConcurrencyLimiter(endpoint, 1, max, 0,
+                    config.getInt("concurrencyQueue", 32),
+                    config.getLong("concurrencyMaxWait", 100),
+                    config.getBoolean("concurrencyAdaptive", true));
+        }
+        LIMITERS.put(endpoint, limiter);
+        return limiter;
+    }
+
+    /**
+     * Obtient un permis, en attendant au plus maxWait dans la file.
+     *
+     * @return true si un permis a été obtenu (à rendre avec {@link #release(long)}),
+     *         false si la requête doit être refusée
+     */
+    public boolean acquire() {
+        if (tryAcquire()) {
+            accepted.incrementAndGet();
+            return true;
+        }
+        if (maxWaitNanos == 0 || waiting.incrementAndGet() > queueCapacity) {
+            if (maxWaitNanos != 0) waiting.decrementAndGet();
+            rejected.incrementAndGet();
+            return false;
+        }
+
+        long deadline = System.nanoTime() + maxWaitNanos;
+        lock.lock();
+        try {
+            while (!tryAcquire()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejected.incrementAndGet();
+                    return false;
+                }
+                available.awaitNanos(remaining);
+            }
+            accepted.incrementAndGet();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.incrementAndGet();
+            return false;
+        } finally {
+            lock.unlock();
+            waiting.decrementAndGet();
+        }
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) return false;
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Rend un permis et ajuste la limite selon la latence de l'appel.
+     *
+     * @param latencyNanos la durée de l'appel en nanosecondes
+     */
+    public void release(long latencyNanos) {
+        int busy = inFlight.getAndDecrement();
+        if (adaptive) adjust(latencyNanos, busy);
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private synchronized void adjust(long latencyNanos, int busy) {
+        samples++;
+        if (latencyNanos < windowMinNanos) windowMinNanos = latencyNanos;
+        if (baselineNanos == 0 || latencyNanos < baselineNanos) baselineNanos = latencyNanos;
+
+        if (latencyNanos > baselineNanos * LATENCY_TOLERANCE) {
+            // Décroissance multiplicative, au plus une fois par fenêtre de "limite" appels
+            if (samples - lastDecrease >= limit) {
+                estimate = Math.max(min, estimate * DECREASE_FACTOR);
+                lastDecrease = samples;
+            }
+        } else if (busy * 2 >= limit) {
+            // Croissance additive, seulement si la limite est réellement sollicitée
+            estimate = Math.min(max, estimate + 1.0 / estimate);
+        }
+        limit = (int) estimate;
+
+        if (samples % BASELINE_WINDOW == 0) {
+            // La référence remonte doucement si le service est durablement plus lent
+            baselineNanos = Math.max(baselineNanos, (long) (baselineNanos * 0.9 + windowMinNanos * 0.1));
+            windowMinNanos = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return la limite courante
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return le nombre d'appels en cours
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return le nombre de requêtes en attente d'un permis
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * État de chaque endpoint limité : limite, appels en cours, file, compteurs.
+     *
+     * @return une map endpoint -&gt; métriques, triée par endpoint
+     */
+    public static Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        for (ConcurrencyLimiter limiter : LIMITERS.values()) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("limit", limiter.limit);
+            metrics.put("min", limiter.min);
+            metrics.put("max", limiter.max);
+            metrics.put("inFlight", limiter.inFlight.get());
+            metrics.put("waiting", limiter.waiting.get());
+            metrics.put("accepted", limiter.accepted.get());
+            metrics.put("rejected", limiter.rejected.get());
+            synchronized (limiter) {
+                metrics.put("baselineMillis", limiter.baselineNanos / 1_000_000.0);
+            }
+            snapshot.put(limiter.endpoint, metrics);
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimiter(" + limit + "/" + max + (adaptive ? " adaptatif" : "") + " | file:" + queueCapacity + ")";
+    }
+}
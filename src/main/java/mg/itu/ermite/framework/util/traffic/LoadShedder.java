@@ -0,0 +1,308 @@
+package mg.itu.ermite.framework.util.traffic;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import jakarta.servlet.http.HttpServletRequest;
+import mg.itu.ermite.framework.annotation.LoadPriority;
+import mg.itu.ermite.framework.config.ConfigManager;
+
+/**
+ * Contrôle d'admission global du noeud, inspiré de CoDel.
+ *
+ * Le signal est le temps de séjour d'une requête avant son traitement, lu dans
+ * l'en-tête posé par le proxy ("X-Request-Start", en secondes, millisecondes ou
+ * microsecondes, avec ou sans préfixe "t=").
+ *
+ * Sans en-tête, le signal est déduit de la requête terminée, attente et traitement
+ * mesurés séparément : l'attente entre l'arrivée dans le FrontServlet et l'entrée dans
+ * le bulkhead (ordonnancement du thread virtuel, admission), plus l'excédent
+ * de la durée de traitement sur la référence de l'endpoint ({@link Baseline}). Un
+ * endpoint lent mais sain (rapport, envoi de fichier) ne signale donc pas de surcharge ;
+ * un noeud saturé, dont tous les traitements ralentissent, la signale.
+ *
+ * Comme CoDel : tant que le délai reste sous la cible, rien n'est délesté. S'il reste
+ * au-dessus de la cible pendant tout un intervalle, le noeud passe en surcharge et
+ * les requêtes NORMAL sont délestées à un rythme croissant (intervalle / racine du
+ * nombre de délestages), les LOW toutes, les HIGH seulement si le délai dépasse
+ * l'intervalle, les CRITICAL jamais. Le premier délai sous la cible met fin à la surcharge,
+ * tout comme un intervalle entier sans délai au-dessus de la cible : les LOW et HIGH
+ * délestés ne produisant aucune mesure, le noeud ne resterait sinon jamais débloqué.
+ *
+ * Un délestage coûte une lecture de volatile et une réponse 503 écrite avant tout
+ * travail. L'état est mis à jour par CAS, sans verrou : de légères imprécisions
+ * entre threads concurrents sont acceptées.
+ *
+ * Configuration (web.xml) :
+ * - "loadShedding" : true pour activer le délestage
+ * - "loadSheddingTarget" : délai cible en millisecondes (défaut 50)
+ * - "loadSheddingInterval" : intervalle CoDel en millisecondes (défaut 500)
+ * - "loadSheddingQueueHeader" : en-tête d'horodatage du proxy (défaut X-Request-Start)
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see LoadPriority
+ */
+public final class LoadShedder {
+
+    /** Attribut de requête posé lorsque le temps de séjour a été mesuré à l'arrivée */
+    private static final String ARRIVAL_OBSERVED = LoadShedder.class.getName() + ".arrivalObserved";
+
+    private static volatile LoadShedder instance;
+
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final String queueHeader;
+
+    /** Instant (nanoTime) où le délai devra encore être au-dessus de la cible pour entrer en surcharge, 0 sinon */
+    private final AtomicLong firstAboveTime = new AtomicLong();
+    /** Instant (nanoTime) du prochain délestage NORMAL en surcharge */
+    private final AtomicLong dropNext = new AtomicLong();
+    private final AtomicLong dropCount = new AtomicLong();
+    private final AtomicLongArray shed = new AtomicLongArray(LoadPriority.Level.values().length);
+    private final AtomicLong overloads = new AtomicLong();
+
+    private volatile boolean dropping;
+    private volatile long lastDelayNanos;
+    private volatile long overloadSince;
+    /** Instant (nanoTime) de la dernière mesure au-dessus de la cible */
+    private volatile long lastAboveNanos;
+
+    /**
+     * @param targetMillis le délai cible en millisecondes
+     * @param intervalMillis l'intervalle CoDel en millisecondes
+     * @param queueHeader l'en-tête d'horodatage posé par le proxy
+     */
+    public LoadShedder(long targetMillis, long intervalMillis, String queueHeader) {
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.queueHeader = queueHeader;
+    }
+
+    /**
+     * Active le délestage si "loadShedding" vaut true.
+     *
+     * @param config la configuration du framework
+     */
+    public static void configure(ConfigManager config) {
+        if (!config.getBoolean("loadShedding", false)) {
+            instance = null;
+            return;
+        }
+        instance = new LoadShedder(config.getLong("loadSheddingTarget", 50),
+                config.getLong("loadSheddingInterval", 500),
+                config.get("loadSheddingQueueHeader", "X-Request-Start"));
+        System.out.println("[LoadShedder] Delestage actif (cible: " + config.getLong("loadSheddingTarget", 50)
+                + "ms, intervalle: " + config.getLong("loadSheddingInterval", 500) + "ms)");
+    }
+
+    /**
+     * @return le délesteur actif, ou null si le délestage est désactivé
+     */
+    public static LoadShedder get() {
+        return instance;
+    }
+
+    /**
+     * Lit la priorité d'une méthode de contrôleur : annotation de la méthode, puis du contrôleur.
+     *
+     * @param method la méthode du contrôleur
+     * @return la priorité (NORMAL sans annotation)
+     */
+    public static LoadPriority.Level priorityOf(Method method) {
+        LoadPriority priority = method.getAnnotation(LoadPriority.class);
+        if (priority == null) priority = method.getDeclaringClass().getAnnotation(LoadPriority.class);
+        return priority == null ? LoadPriority.Level.NORMAL : priority.value();
+    }
+
+    /**
+     * Mesure le temps de séjour de la requête dans les files en amont, si le proxy l'horodate.
+     * À appeler au début du traitement.
+     *
+     * @param request la requête courante
+     * @return true si un temps de séjour a été mesuré
+     */
+    public boolean observeArrival(HttpServletRequest request) {
+        if (queueHeader == null) return false;
+        long startMillis = parseRequestStart(request.getHeader(queueHeader));
+        if (startMillis <= 0) return false;
+        long delayMillis = System.currentTimeMillis() - startMillis;
+        // Horloges désynchronisées ou en-tête fantaisiste : ignorer
+        if (delayMillis < 0 || delayMillis > TimeUnit.HOURS.toMillis(1)) return false;
+        observe(TimeUnit.MILLISECONDS.toNanos(delayMillis), System.nanoTime());
+        request.setAttribute(ARRIVAL_OBSERVED, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * @param request la requête courante (ou la requête de lot d'une sous-requête)
+     * @return true si son temps de séjour a été mesuré à l'arrivée
+     */
+    public static boolean isArrivalObserved(HttpServletRequest request) {
+        return request.getAttribute(ARRIVAL_OBSERVED) != null;
+    }
+
+    /**
+     * Enregistre l'attente et la durée de traitement d'une requête admise.
+     * Servent de signal lorsque le proxy n'horodate pas les requêtes.
+     *
+     * @param baseline la durée de traitement de référence de l'endpoint
+     * @param waitNanos l'attente entre l'arrivée et l'entrée dans le bulkhead, sa file exclue
+     * @param processingNanos la durée de traitement
+     * @param arrivalObserved true si le temps de séjour a déjà été mesuré à l'arrivée
+     */
+    public void complete(Baseline baseline, long waitNanos, long processingNanos, boolean arrivalObserved) {
+        if (arrivalObserved) return;
+        observe(Math.max(0, waitNanos) + baseline.excess(processingNanos), System.nanoTime());
+    }
+
+    /**
+     * Décide de l'admission d'une requête selon la priorité de son endpoint.
+     *
+     * @param priority la priorité de l'endpoint
+     * @return true si la requête est admise, false si elle doit être délestée (503)
+     */
+    public boolean admit(LoadPriority.Level priority) {
+        if (!dropping || priority == LoadPriority.Level.CRITICAL) return true;
+        if (System.nanoTime() - lastAboveNanos >= intervalNanos) {
+            endOverload("aucun delai au-dessus de la cible depuis " + TimeUnit.NANOSECONDS.toMillis(intervalNanos) + "ms");
+            return true;
+        }
+
+        boolean admit;
+        switch (priority) {
+            case LOW:
+                admit = false;
+                break;
+            case HIGH:
+                admit = lastDelayNanos <= intervalNanos;
+                break;
+            default:
+                long now = System.nanoTime();
+                long next = dropNext.get();
+                admit = now - next < 0 || !dropNext.compareAndSet(next, now + controlLaw(dropCount.incrementAndGet()));
+        }
+        if (!admit) shed.incrementAndGet(priority.ordinal());
+        return admit;
+    }
+
+    private void observe(long delayNanos, long now) {
+        lastDelayNanos = delayNanos;
+        if (delayNanos < targetNanos) {
+            if (dropping) endOverload("delai sous la cible");
+            else firstAboveTime.set(0);
+            return;
+        }
+        lastAboveNanos = now;
+
+        long first = firstAboveTime.get();
+        if (first == 0) {
+            firstAboveTime.compareAndSet(0, now + intervalNanos);
+        } else if (!dropping && now - first >= 0) {
+            // Délai au-dessus de la cible pendant tout un intervalle : surcharge
+            dropping = true;
+            overloadSince = System.currentTimeMillis();
+            overloads.incrementAndGet();
+            dropCount.set(1);
+            dropNext.set(now + controlLaw(1));
+            System.out.println("[LoadShedder] Surcharge detectee: delai " + TimeUnit.NANOSECONDS.toMillis(delayNanos) + "ms");
+        }
+    }
+
+    private void endOverload(String reason) {
+        // Une nouvelle surcharge exige de nouveau tout un intervalle au-dessus de la cible
+        firstAboveTime.set(0);
+        dropping = false;
+        System.out.println("[LoadShedder] Fin de surcharge, " + reason + " (" + dropCount.get() + " delestages NORMAL)");
+    }
+
+    private long controlLaw(long count) {
+        return (long) (intervalNanos / Math.sqrt(count));
+    }
+
+    /**
+     * Parse un horodatage de proxy : "t=1690000000.123" (secondes), "t=1690000000123" (ms)
+     * ou "t=1690000000123456" (µs).
+     *
+     * @return l'horodatage en millisecondes epoch, ou 0 s'il est absent ou invalide
+     */
+    static long parseRequestStart(String header) {
+        if (header == null) return 0;
+        String value = header.trim();
+        if (value.startsWith("t=")) value = value.substring(2);
+        try {
+            if (value.indexOf('.') >= 0) return (long) (Double.parseDouble(value) * 1000);
+            long raw = Long.parseLong(value);
+            if (value.length() >= 16) return raw / 1000;
+            if (value.length() >= 13) return raw;
+            return raw * 1000;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Durée de traitement de référence d'un endpoint : la plus basse observée
+     * récemment, qui remonte doucement si l'endpoint est durablement plus lent.
+     *
+     * Seul le traitement au-delà de deux fois la référence compte comme attente, comme
+     * dans le {@link ConcurrencyLimiter} : la variabilité normale d'un endpoint n'est
+     * pas prise pour de la file d'attente.
+     */
+    public static final class Baseline {
+
+        private static final double TOLERANCE = 2.0;
+        private static final int WINDOW = 256;
+
+        private long baselineNanos;
+        private long windowMinNanos = Long.MAX_VALUE;
+        private long samples;
+
+        /**
+         * @param processingNanos la durée de traitement d'une requête terminée
+         * @return l'excédent sur la référence tolérée, 0 si le traitement est normal
+         */
+        synchronized long excess(long processingNanos) {
+            samples++;
+            if (processingNanos < windowMinNanos) windowMinNanos = processingNanos;
+            if (baselineNanos == 0 || processingNanos < baselineNanos) baselineNanos = processingNanos;
+            long excess = processingNanos - (long) (baselineNanos * TOLERANCE);
+
+            if (samples % WINDOW == 0) {
+                baselineNanos = Math.max(baselineNanos, (long) (baselineNanos * 0.9 + windowMinNanos * 0.1));
+                windowMinNanos = Long.MAX_VALUE;
+            }
+            return Math.max(0, excess);
+        }
+    }
+
+    /**
+     * @return true si le noeud est actuellement en surcharge
+     */
+    public boolean isOverloaded() {
+        return dropping;
+    }
+
+    /**
+     * État observable du délesteur.
+     *
+     * @return surcharge, délai observé, cible, délestages par priorité
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("overloaded", dropping);
+        snapshot.put("overloadSince", dropping ? overloadSince : null);
+        snapshot.put("overloads", overloads.get());
+        snapshot.put("lastDelayMillis", lastDelayNanos / 1_000_000.0);
+        snapshot.put("targetMillis", TimeUnit.NANOSECONDS.toMillis(targetNanos));
+        snapshot.put("intervalMillis", TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+        Map<String, Long> byPriority = new LinkedHashMap<>();
+        for (LoadPriority.Level level : LoadPriority.Level.values()) byPriority.put(level.name(), shed.get(level.ordinal()));
+        snapshot.put("shed", byPriority);
+        return snapshot;
+    }
+}
@@ -0,0 +1,218 @@
+package mg.itu.ermite.framework.util.traffic;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.servlet.http.HttpServletRequest;
+import mg.itu.ermite.framework.annotation.RateLimit;
+import mg.itu.ermite.framework.config.ConfigManager;
+import mg.itu.ermite.framework.util.SessionMap;
+import mg.itu.ermite.framework.util.security.TokenAuthenticator;
+import mg.itu.ermite.framework.util.security.UserPrincipal;
+
+/**
+ * Limiteur de débit d'un endpoint, compilé à l'enregistrement depuis @RateLimit
+ * ou depuis la limite globale du web.xml.
+ *
+ * Chaque seau est un seul AtomicLong mis à jour par CAS selon l'algorithme GCRA
+ * (équivalent à un seau à jetons) : il contient l'instant théorique d'arrivée du
+ * prochain appel. Un appel est accepté si cet instant ne dépasse pas "maintenant"
+ * de plus que la rafale autorisée ; sinon l'attente avant le prochain jeton est
+ * retournée, sans verrou ni exception.
+ *
+ * Les seaux sont répartis sur {@value #STRIPES} ConcurrentHashMap. Un seau dont
+ * l'instant théorique est passé est plein, donc identique à un seau absent : un
+ * balayage amorti (une tranche tous les {@value #SWEEP_INTERVAL} appels) le supprime.
+ *
+ * Configuration globale (web.xml), appliquée aux endpoints sans @RateLimit :
+ * - "rateLimit" : "requêtes/secondes", ex. "100/60"
+ * - "rateLimitBurst" : rafale maximale (défaut : le nombre de requêtes)
+ * - "rateLimitKey" : user, ip (défaut) ou endpoint
+ * - "rateLimitTrustProxy" : true pour lire l'IP cliente dans X-Forwarded-For
+ * - "rateLimitTrustedHops" : nombre de proxies de confiance devant l'application (défaut 1) ;
+ *   l'IP retenue est la n-ième entrée en partant de la droite, celle ajoutée par le
+ *   proxy le plus externe. Les entrées plus à gauche viennent du client et sont ignorées.
+ *
+ * @author Framework S5
+ * @version 1.0
+ * @see RateLimit
+ */
+public final class RateLimiter {
+
+    private static final int STRIPES = 16;
+    private static final int SWEEP_INTERVAL = 4096;
+
+    private static final List<Map<String,AtomicLong>> BUCKETS = stripes();
+    private static final AtomicInteger ACQUISITIONS = new AtomicInteger();
+    private static final AtomicLong REJECTED = new AtomicLong();
+
+    private final String endpoint;
+    private final RateLimit.Key key;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final String userIdKey;
+    private final boolean trustProxy;
+    private final int trustedHops;
+
+    private static List<Map<String,AtomicLong>> stripes() {
+        List<Map<String,AtomicLong>> stripes = new ArrayList<>(STRIPES);
+        for (int i = 0; i < STRIPES; i++) stripes.add(new ConcurrentHashMap<>());
+        return List.copyOf(stripes);
+    }
+
+    private RateLimiter(String endpoint, RateLimit.Key key, int requests, long seconds, int burst, ConfigManager config) {
+        if (requests <= 0 || seconds <= 0) {
+            throw new IllegalArgumentException("Limite de debit invalide pour " + endpoint + ": " + requests + "/" + seconds + "s");
+        }
+        this.endpoint = endpoint;
+        this.key = key;
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(seconds) / requests;
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst <= 0 ? requests : burst) - 1);
+        this.userIdKey = config.get("userSessionId");
+        this.trustProxy = config.getBoolean("rateLimitTrustProxy", false);
+        this.trustedHops = Math.max(1, config.getInt("rateLimitTrustedHops", 1));
+    }
+
+    /**
+     * Compile le limiteur d'une méthode de contrôleur.
+     *
+     * @param method la méthode du contrôleur
+     * @return le limiteur, ou null si ni @RateLimit ni "rateLimit" ne s'appliquent
+     * @throws IllegalArgumentException si la limite est invalide
+     */
+    public static RateLimiter compile(Method method) {
+        String endpoint = method.getDeclaringClass().getName() + "#" + method.getName();
+        ConfigManager config = ConfigManager.getInstance();
+
+        RateLimit limit = method.getAnnotation(RateLimit.class);
+        if (limit != null) {
+            return new RateLimiter(endpoint, limit.key(), limit.requests(), limit.seconds(), limit.burst(), config);
+        }
+
+        String global = config.get("rateLimit");
+        if (global == null || global.isBlank()) return null;
+        String[] parts = global.split("/");
+        try {
+            return new RateLimiter(endpoint,
+                    RateLimit.Key.valueOf(config.get("rateLimitKey", "ip").trim().toUpperCase()),
+                    Integer.parseInt(parts[0].trim()),
+                    parts.length > 1 ? Long.parseLong(parts[1].trim()) : 1,
+                    config.getInt("rateLimitBurst", 0),
+                    config);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Parametre 'rateLimit' invalide (attendu requetes/secondes): " + global, e);
+        }
+    }
+
+    /**
+     * Consomme un jeton pour la requête.
+     *
+     * @param request la requête courante
+     * @return 0 si l'appel est accepté, sinon l'attente en nanosecondes avant le prochain jeton
+     */
+    public long acquire(HttpServletRequest request) {
+        String bucketKey = key == RateLimit.Key.ENDPOINT ? endpoint : endpoint + "|" + clientKey(request);
+        long now = System.nanoTime();
+
+        Map<String,AtomicLong> stripe = BUCKETS.get((bucketKey.hashCode() & 0x7fffffff) % STRIPES);
+        AtomicLong bucket = stripe.get(bucketKey);
+        if (bucket == null) {
+            // Premier appel de la clé : le seau plein est créé déjà consommé d'un jeton
+            bucket = stripe.putIfAbsent(bucketKey, new AtomicLong(now + intervalNanos));
+            if (bucket == null) {
+                sweepIfDue(now);
+                return 0;
+            }
+        }
+
+        while (true) {
+            long tat = bucket.get();
+            long start = Math.max(tat, now);
+            if (start - now > toleranceNanos) {
+                REJECTED.incrementAndGet();
+                return start - now - toleranceNanos;
+            }
+            if (bucket.compareAndSet(tat, start + intervalNanos)) {
+                sweepIfDue(now);
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Convertit une attente en valeur d'en-tête Retry-After.
+     *
+     * @param waitNanos l'attente retournée par {@link #acquire(HttpServletRequest)}
+     * @return l'attente en secondes, arrondie au supérieur (au moins 1)
+     */
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @return le nombre total d'appels refusés depuis le démarrage
+     */
+    public static long getRejected() {
+        return REJECTED.get();
+    }
+
+    /**
+     * @return le nombre de seaux actuellement en mémoire
+     */
+    public static int getBucketCount() {
+        int count = 0;
+        for (Map<String,AtomicLong> stripe : BUCKETS) count += stripe.size();
+        return count;
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        if (key == RateLimit.Key.USER) {
+            TokenAuthenticator authenticator = TokenAuthenticator.get();
+            UserPrincipal principal = authenticator != null ? authenticator.authenticate(request) : UserPrincipal.of(request);
+            if (principal != null) return "u:" + principal.getSubject();
+            if (userIdKey != null) {
+                Object userId = SessionMap.of(request, null).get(userIdKey);
+                if (userId != null) return "u:" + userId;
+            }
+        }
+        return "ip:" + clientAddress(request);
+    }
+
+    private String clientAddress(HttpServletRequest request) {
+        if (trustProxy) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                // Chaque proxy ajoute à droite : seules les trustedHops dernières entrées sont sûres
+                String[] hops = forwarded.split(",");
+                String address = hops[Math.max(0, hops.length - trustedHops)].trim();
+                if (!address.isEmpty()) return address;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * Supprime les seaux pleins d'une tranche, une fois tous les SWEEP_INTERVAL appels.
+     */
+    private static void sweepIfDue(long now) {
+        int n = ACQUISITIONS.incrementAndGet();
+        if (n % SWEEP_INTERVAL != 0) return;
+        Map<String,AtomicLong> stripe = BUCKETS.get(Math.floorMod(n / SWEEP_INTERVAL, STRIPES));
+        for (Iterator<AtomicLong> it = stripe.values().iterator(); it.hasNext(); ) {
+            if (it.next().get() - now <= 0) it.remove();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter(" + key + " | " + TimeUnit.NANOSECONDS.toMillis(intervalNanos) + "ms/jeton | rafale:"
+                + (toleranceNanos / intervalNanos + 1) + ")";
+    }
+}